@@ -0,0 +1,163 @@
+package io.github.jaloon.eml.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 基准测试的计时工具与测试数据。
+ * <p>
+ * 基准测试不属于单元测试，源码位于 {@code src/benchmark/java}，通过 {@code benchmark} 配置编译后直接运行各自的 main 方法：
+ * <pre>
+ * mvn -P benchmark test-compile
+ * java --add-modules jdk.incubator.vector \
+ *      -cp "target/benchmark-classes:target/classes/META-INF/versions/17:target/classes:$(cat target/benchmark.classpath)" \
+ *      io.github.jaloon.eml.benchmark.BufferedReadBenchmark
+ * </pre>
+ * 在 Java 8 上运行时去掉 {@code --add-modules} 参数与 {@code META-INF/versions/17} 目录。
+ * <p>
+ * 每项测试先预热再计时，每轮在 {@code benchmark.threads} 个线程上同时执行一次，报告每个线程的平均吞吐量，
+ * 线程数不超过核心数时即每个核心的吞吐量。可通过系统属性调整：
+ * <ul>
+ *   <li>{@code benchmark.warmup}：预热轮数，默认 5</li>
+ *   <li>{@code benchmark.iterations}：计时轮数，默认 10</li>
+ *   <li>{@code benchmark.threads}：并发线程数，默认 1</li>
+ * </ul>
+ */
+final class Benchmarks {
+    private static final int WARMUP = Integer.getInteger("benchmark.warmup", 5);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 10);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 1);
+
+    /** 汇总各次执行的结果，避免被测代码被优化掉 */
+    private static volatile long sink;
+
+    private Benchmarks() {}
+
+    /**
+     * 被测操作，返回依赖于处理结果的校验值。
+     */
+    @FunctionalInterface
+    interface Task {
+        long run() throws Exception;
+    }
+
+    /**
+     * 输出测试标题与运行参数。
+     *
+     * @param title 测试标题
+     */
+    static void header(String title) {
+        System.out.printf("%s (java %s, warmup %d, iterations %d, threads %d)%n",
+                title, System.getProperty("java.version"), WARMUP, ITERATIONS, THREADS);
+    }
+
+    /**
+     * 计时并输出每个线程的平均吞吐量。
+     *
+     * @param name  测试项名称
+     * @param bytes 每次执行处理的字节数
+     * @param task  被测操作
+     * @return 每个线程每秒处理的字节数
+     * @throws Exception 如果被测操作抛出异常
+     */
+    static double measure(String name, long bytes, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                round(executor, task);
+            }
+            long nanos = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                nanos += round(executor, task);
+            }
+            double perThread = (double) bytes * ITERATIONS / (nanos / 1e9);
+            System.out.printf("  %-44s %10.1f MB/s per core%n", name, perThread / 1e6);
+            return perThread;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** 在所有线程上同时执行一次，返回从开始到全部完成的纳秒数 */
+    private static long round(ExecutorService executor, Task task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.run();
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        long sum = 0;
+        for (Future<Long> future : futures) {
+            sum += future.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        sink += sum;
+        return elapsed;
+    }
+
+    /**
+     * 生成指定大小的 base64 文本，每 76 个字符一行，行以 CRLF 结束。
+     *
+     * @param size 最少字节数
+     * @param seed 随机数种子
+     * @return base64 文本的字节
+     */
+    static byte[] base64(int size, long seed) {
+        StringBuilder sb = new StringBuilder(size + 80);
+        Random random = new Random(seed);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        while (sb.length() < size) {
+            for (int i = 0; i < 76; i++) {
+                sb.append(alphabet.charAt(random.nextInt(64)));
+            }
+            sb.append("\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 生成包含一个正文与一个 base64 附件的邮件文件，退出时删除。
+     *
+     * @param attachmentSize 附件编码后的最少字节数
+     * @return 邮件文件
+     * @throws IOException 如果写入文件时发生I/O错误
+     */
+    static File emlWithAttachment(int attachmentSize) throws IOException {
+        String boundary = "----=_Part_20251015_1234567890.1760500000000";
+        String head = "From: sender@example.com\r\n"
+                + "To: receiver@example.com\r\n"
+                + "Subject: benchmark\r\n"
+                + "MIME-Version: 1.0\r\n"
+                + "Content-Type: multipart/mixed; boundary=\"" + boundary + "\"\r\n\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n\r\n"
+                + "body\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Type: application/octet-stream; name=\"data.bin\"\r\n"
+                + "Content-Transfer-Encoding: base64\r\n"
+                + "Content-Disposition: attachment; filename=\"data.bin\"\r\n\r\n";
+        String tail = "--" + boundary + "--\r\n";
+        File file = Files.createTempFile("eml-benchmark", ".eml").toFile();
+        file.deleteOnExit();
+        byte[] body = base64(attachmentSize, attachmentSize);
+        byte[] data = new byte[head.length() + body.length + tail.length()];
+        System.arraycopy(head.getBytes(StandardCharsets.ISO_8859_1), 0, data, 0, head.length());
+        System.arraycopy(body, 0, data, head.length(), body.length);
+        System.arraycopy(tail.getBytes(StandardCharsets.ISO_8859_1), 0, data, head.length() + body.length, tail.length());
+        Files.write(file.toPath(), data);
+        return file;
+    }
+}
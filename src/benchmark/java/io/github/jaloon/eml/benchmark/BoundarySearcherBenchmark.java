@@ -0,0 +1,64 @@
+package io.github.jaloon.eml.benchmark;
+
+import io.github.jaloon.eml.io.ByteArrayMimeInputStream;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.io.MimeBytes;
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.parser.BoundarySearcher;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 比较各 {@link BoundarySearcher} 在大型 base64 内容体中查找 boundary 的吞吐量。
+ * <p>
+ * 内容体为 base64 文本，末尾是长度为 40 字节的 boundary 行，每次查找扫描整个内容体，
+ * 分别在堆内数组与内存映射文件上测试。内容体大小可通过系统属性 {@code benchmark.size.mb} 调整，默认 32 MB。
+ * 运行方式参见 {@link Benchmarks}。
+ */
+public final class BoundarySearcherBenchmark {
+    private static final int SIZE = Integer.getInteger("benchmark.size.mb", 32) << 20;
+    /** 40 字节的模式 {@code --boundary} */
+    private static final byte[] PATTERN = "------=_Part_123456_7890123456.176050000".getBytes(StandardCharsets.ISO_8859_1);
+
+    private BoundarySearcherBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        byte[] base64 = Benchmarks.base64(SIZE, SIZE);
+        byte[] data = new byte[base64.length + PATTERN.length + 4];
+        System.arraycopy(base64, 0, data, 0, base64.length);
+        System.arraycopy(PATTERN, 0, data, base64.length, PATTERN.length);
+        data[data.length - 4] = '-';
+        data[data.length - 3] = '-';
+        data[data.length - 2] = '\r';
+        data[data.length - 1] = '\n';
+        File file = Files.createTempFile("eml-benchmark", ".b64").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+
+        String[] names = {"NAIVE", "HORSPOOL", "SWAR", "SCAN"};
+        BoundarySearcher.Factory[] factories = {
+                BoundarySearcher.NAIVE, BoundarySearcher.HORSPOOL, BoundarySearcher.SWAR, BoundarySearcher.SCAN
+        };
+        Benchmarks.header("BoundarySearcher, " + (SIZE >> 20) + " MB base64, " + PATTERN.length + "-byte pattern");
+        try (MimeInputStream mapped = MimeInputStream.of(file, FileAccessMode.MAPPED)) {
+            MimeBytes[] views = {new ByteArrayMimeInputStream(data), (MimeBytes) mapped};
+            String[] viewNames = {"heap", "mapped"};
+            for (int v = 0; v < views.length; v++) {
+                MimeBytes bytes = views[v];
+                for (int i = 0; i < factories.length; i++) {
+                    BoundarySearcher searcher = factories[i].compile(PATTERN);
+                    long expected = base64.length;
+                    Benchmarks.measure(names[i] + " " + viewNames[v], data.length, () -> {
+                        long index = searcher.indexOf(bytes, 0, data.length);
+                        if (index != expected) {
+                            throw new IllegalStateException("found at " + index + ", expected " + expected);
+                        }
+                        return index;
+                    });
+                }
+            }
+        }
+    }
+}
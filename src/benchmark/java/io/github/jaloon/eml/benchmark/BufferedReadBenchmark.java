@@ -0,0 +1,85 @@
+package io.github.jaloon.eml.benchmark;
+
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.parser.MultipartParser;
+import io.github.jaloon.eml.part.MimePart;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 比较 {@link FileAccessMode#RANDOM_ACCESS} 与 {@link FileAccessMode#BUFFERED} 读取同一封邮件中 base64 附件的吞吐量：
+ * <ul>
+ *   <li>decode：打开邮件、逐行扫描 part 并读取附件解码后的内容</li>
+ *   <li>read()：逐字节读取附件的原始内容体</li>
+ * </ul>
+ * 吞吐量按附件编码后的字节数计算。附件大小可通过系统属性 {@code benchmark.size.mb} 调整，默认 8 MB。
+ * 运行方式参见 {@link Benchmarks}。
+ */
+public final class BufferedReadBenchmark {
+    private static final int SIZE = Integer.getInteger("benchmark.size.mb", 8) << 20;
+    private static final FileAccessMode[] MODES = {FileAccessMode.RANDOM_ACCESS, FileAccessMode.BUFFERED};
+
+    private BufferedReadBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        File file = Benchmarks.emlWithAttachment(SIZE);
+        Benchmarks.header("FileAccessMode, " + (SIZE >> 20) + " MB base64 attachment");
+        for (FileAccessMode mode : MODES) {
+            Benchmarks.measure("decode " + mode, SIZE, () -> decode(file, mode));
+        }
+        for (FileAccessMode mode : MODES) {
+            Benchmarks.measure("read() " + mode, SIZE, () -> readBytes(file, mode));
+        }
+    }
+
+    /** 解析邮件并解码附件，返回解码后内容的校验值 */
+    private static long decode(File file, FileAccessMode mode) throws Exception {
+        try (EmlMessage message = EmlMessage.of(file, mode)) {
+            long sum = 0;
+            byte[] buf = new byte[MimeInputStream.DEFAULT_BUFFER_SIZE];
+            for (MimePart part : attachments(message)) {
+                try (InputStream in = part.getInputStream()) {
+                    int read;
+                    while ((read = in.read(buf)) >= 0) {
+                        sum += read + buf[0];
+                    }
+                }
+            }
+            return sum;
+        }
+    }
+
+    /** 逐字节读取附件的原始内容体，返回校验值 */
+    private static long readBytes(File file, FileAccessMode mode) throws Exception {
+        try (EmlMessage message = EmlMessage.of(file, mode)) {
+            long sum = 0;
+            for (MimePart part : attachments(message)) {
+                try (MimeInputStream body = part.getBody()) {
+                    int b;
+                    while ((b = body.read()) >= 0) {
+                        sum = sum * 31 + b;
+                    }
+                }
+            }
+            return sum;
+        }
+    }
+
+    private static List<MimePart> attachments(EmlMessage message) throws Exception {
+        List<MimePart> parts = new ArrayList<>();
+        for (MimePart part : MultipartParser.standard().parse(message)) {
+            if (part.isAttachment()) {
+                parts.add(part);
+            }
+        }
+        if (parts.isEmpty()) {
+            throw new IllegalStateException("attachment not found");
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.jaloon.eml.benchmark;
+
+import io.github.jaloon.eml.io.ByteScanner;
+
+/**
+ * 比较 {@link ByteScanner#scalar()} 与 {@link ByteScanner#vector()} 的吞吐量：
+ * <ul>
+ *   <li>lines：逐行查找行结束符，与内存型流的 {@code readLine} 相同，base64 内容每 78 字节一行</li>
+ *   <li>candidates：查找 boundary 的候选首字节 {@code '-'}，base64 内容中不含该字节，每次扫描整个数组</li>
+ * </ul>
+ * 向量实现需要 Java 17+ 且以 {@code --add-modules jdk.incubator.vector} 启动，否则只测试标量实现。
+ * 数据大小可通过系统属性 {@code benchmark.size.mb} 调整，默认 64 MB。运行方式参见 {@link Benchmarks}。
+ */
+public final class ByteScannerBenchmark {
+    private static final int SIZE = Integer.getInteger("benchmark.size.mb", 64) << 20;
+
+    private ByteScannerBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        byte[] data = Benchmarks.base64(SIZE, SIZE);
+        ByteScanner vector = ByteScanner.vector();
+        ByteScanner[] scanners = vector == null ? new ByteScanner[]{ByteScanner.scalar()}
+                : new ByteScanner[]{ByteScanner.scalar(), vector};
+        String[] names = {"scalar", "vector"};
+        Benchmarks.header("ByteScanner, " + (SIZE >> 20) + " MB base64");
+        if (vector == null) {
+            System.out.println("  vector scanner unavailable, run on Java 17+ with --add-modules jdk.incubator.vector");
+        }
+        for (int i = 0; i < scanners.length; i++) {
+            ByteScanner scanner = scanners[i];
+            Benchmarks.measure("lines " + names[i], data.length, () -> lines(scanner, data));
+        }
+        for (int i = 0; i < scanners.length; i++) {
+            ByteScanner scanner = scanners[i];
+            Benchmarks.measure("candidates " + names[i], data.length, () -> {
+                int index = scanner.indexOf(data, 0, data.length, (byte) '-');
+                if (index != -1) {
+                    throw new IllegalStateException("unexpected candidate at " + index);
+                }
+                return index;
+            });
+        }
+    }
+
+    /** 逐行查找行结束符并跳过 CRLF，返回行数 */
+    private static long lines(ByteScanner scanner, byte[] data) {
+        long count = 0;
+        int pos = 0;
+        while (pos < data.length) {
+            int end = scanner.indexOfLineEnd(data, pos, data.length);
+            if (end < 0) {
+                break;
+            }
+            pos = end + 1;
+            if (data[end] == '\r' && pos < data.length && data[pos] == '\n') {
+                pos++;
+            }
+            count++;
+        }
+        return count;
+    }
+}
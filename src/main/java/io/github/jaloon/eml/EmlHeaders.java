@@ -0,0 +1,109 @@
+package io.github.jaloon.eml;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 仅包含邮件头部的轻量级对象，由 {@link EmlMessage#headersOf} 创建。
+ * <p>
+ * 创建时只读取文件开头到第一个空行为止的头部字节，不创建邮件体流，也不持有任何文件资源，无需关闭。
+ * 适合邮件列表等只需要发件人、收件人、主题、日期的场景，开销与头部大小成正比，与邮件大小无关。
+ */
+public final class EmlHeaders {
+    private final List<String> headers;
+    private final long size;
+    private final boolean truncated;
+    private final String from;
+    private final String to;
+    private final String subject;
+    private final String date;
+
+    EmlHeaders(List<String> headers, long size, boolean truncated, String from, String to, String subject, String date) {
+        this.headers = Collections.unmodifiableList(headers);
+        this.size = size;
+        this.truncated = truncated;
+        this.from = from;
+        this.to = to;
+        this.subject = subject;
+        this.date = date;
+    }
+
+    /**
+     * 返回邮件的所有头部，折叠头部已按 {@link io.github.jaloon.eml.part.MimePart#parseHeaders} 的方式拼接为一行。
+     *
+     * @return 不可修改的头部列表
+     */
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 返回指定名称的第一个头部的值（去除名称前缀及首尾空白），名称不区分大小写。
+     *
+     * @param name 头部名称，如 {@code Message-ID}
+     * @return 头部的值，不存在时返回 null
+     */
+    public String getHeader(String name) {
+        for (String header : headers) {
+            if (header.length() > name.length() && header.charAt(name.length()) == ':'
+                    && header.regionMatches(true, 0, name, 0, name.length())) {
+                return header.substring(name.length() + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 返回整个邮件文件的大小（字节），与 {@link EmlMessage#getSize()} 一致。
+     *
+     * @return 邮件大小
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 判断头部是否因超过读取上限而被截断。截断时只包含上限内的完整头部行。
+     *
+     * @return 头部被截断时返回 {@code true}
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 返回发件人地址，与 {@link EmlMessage#getFrom()} 一致。
+     *
+     * @return 发件人地址，不存在时返回 null
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * 返回收件人地址，与 {@link EmlMessage#getTo()} 一致。
+     *
+     * @return 收件人地址，不存在时返回 null
+     */
+    public String getTo() {
+        return to;
+    }
+
+    /**
+     * 返回解码后的主题，与 {@link EmlMessage#getSubject()} 一致。
+     *
+     * @return 邮件主题，不存在时返回 null
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * 返回 {@code Date} 头部的原始值。
+     *
+     * @return 邮件日期，不存在时返回 null
+     */
+    public String getDate() {
+        return date;
+    }
+}
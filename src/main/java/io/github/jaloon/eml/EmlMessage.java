@@ -1,14 +1,22 @@
 package io.github.jaloon.eml;
 
 import io.github.jaloon.eml.io.ByteArrayMimeInputStream;
+import io.github.jaloon.eml.io.FileAccessMode;
 import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.parser.EmlIndex;
 import io.github.jaloon.eml.part.MimePart;
 import io.github.jaloon.eml.part.MultiMimePart;
 import jakarta.mail.internet.MimeUtility;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -16,6 +24,15 @@ import java.util.List;
  * 该类通过解析指定文件来创建实例，并从中提取相关的邮件头部信息如发件人、收件人及主题。
  */
 public class EmlMessage extends MultiMimePart {
+    /**
+     * {@link #headersOf(Path)} 默认最多读取的头部字节数。
+     */
+    public static final int DEFAULT_HEADER_LIMIT = 64 * 1024;
+    /**
+     * 读取头部时每次从文件读取的字节数，大多数邮件的头部可以一次读完。
+     */
+    private static final int HEADER_CHUNK_SIZE = 8 * 1024;
+
     /**
      * 表示此电子邮件消息的大小，以字节为单位。
      * 该值通常通过解析邮件文件时确定，并反映整个邮件（包括头部和正文）占用的空间大小。
@@ -36,6 +53,10 @@ public class EmlMessage extends MultiMimePart {
      * 该字段存储了邮件头部"Subject:"字段的内容，并通过MimeUtility.decodeText方法解码以支持包含非ASCII字符的主题。
      */
     private String subject;
+    /**
+     * 通过 {@link #open(Path, EmlIndex)} 打开时使用的结构索引，其他方式创建时为 null。
+     */
+    private EmlIndex index;
 
     /**
      * 构造一个新的 EmlMessage 实例。
@@ -84,12 +105,25 @@ public class EmlMessage extends MultiMimePart {
     }
 
     /**
-     * 关闭邮件消息。
+     * 返回打开此邮件时使用的结构索引。
+     *
+     * @return 通过 {@link #open} 打开时返回其结构索引，其他方式创建时返回 null
+     */
+    public EmlIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 关闭邮件消息，并释放解析过程中注册到此消息的资源。
      * @throws IOException 邮件消息关闭时发生的异常
      */
     @Override
     public void close() throws IOException {
-        this.getBody().forceClose();
+        try {
+            this.getBody().forceClose();
+        } finally {
+            closeResources();
+        }
     }
 
     /**
@@ -112,14 +146,7 @@ public class EmlMessage extends MultiMimePart {
      * @see #of(File) 从本地文件创建（使用 RandomAccessFile）
      */
     public static EmlMessage of(byte[] data) throws IOException {
-        ByteArrayMimeInputStream inputStream = new ByteArrayMimeInputStream(data);
-        List<String> headers = MimePart.parseHeaders(inputStream);
-        long headerEnd = inputStream.getPosition();
-        MimeInputStream body = inputStream.newStream(headerEnd, data.length);
-        EmlMessage emlMessage = new EmlMessage(headers, body);
-        emlMessage.size = data.length;
-        parseHeaders(emlMessage, headers);
-        return emlMessage;
+        return of(new ByteArrayMimeInputStream(data));
     }
 
     /**
@@ -130,15 +157,214 @@ public class EmlMessage extends MultiMimePart {
      * @throws IOException 如果读取文件时发生 I/O 错误
      */
     public static EmlMessage of(File file) throws IOException {
-        MimeInputStream inputStream = MimeInputStream.of(file);
+        return of(file, FileAccessMode.RANDOM_ACCESS);
+    }
+
+    /**
+     * 以指定的文件访问方式从给定的文件中创建一个 EmlMessage 对象。
+     * <p>
+     * 对于较大的邮件文件（如几十 MB 的 Outlook 导出文件），推荐使用 {@link FileAccessMode#MAPPED}，
+     * 解析器对头部、boundary 行的扫描及附件内容的读取都将直接在映射内存中完成。
+     *
+     * @param file 包含电子邮件消息的文件
+     * @param mode 文件访问方式
+     * @return 新创建的 EmlMessage 对象
+     * @throws IOException 如果读取文件时发生 I/O 错误
+     * @see MimeInputStream#of(File, FileAccessMode)
+     */
+    public static EmlMessage of(File file, FileAccessMode mode) throws IOException {
+        return of(MimeInputStream.of(file, mode));
+    }
+
+    /**
+     * 从不可寻址的输入流（如 SMTP 中继、消息队列）创建一个 EmlMessage 对象，
+     * 使用 {@link MimeInputStream#DEFAULT_MEMORY_THRESHOLD} 作为内存缓冲上限。
+     *
+     * @param in 包含完整邮件内容的输入流，读取到末尾后不会被关闭
+     * @return 新创建的 EmlMessage 对象
+     * @throws IOException 如果读取输入流时发生 I/O 错误
+     * @see #of(InputStream, int)
+     */
+    public static EmlMessage of(InputStream in) throws IOException {
+        return of(in, MimeInputStream.DEFAULT_MEMORY_THRESHOLD);
+    }
+
+    /**
+     * 从不可寻址的输入流（如 SMTP 中继、消息队列）创建一个 EmlMessage 对象。
+     * <p>
+     * 不超过 {@code memoryThreshold} 的邮件完全缓冲在内存中；更大的邮件转存到临时文件，
+     * 临时文件在邮件关闭（{@link #close()}）后自动删除，从而限制大邮件占用的堆内存。
+     * 两种情况下返回的邮件都可以直接交给任意 {@link io.github.jaloon.eml.parser.MultipartParser} 解析。
+     *
+     * @param in              包含完整邮件内容的输入流，读取到末尾后不会被关闭
+     * @param memoryThreshold 内存缓冲上限（字节）
+     * @return 新创建的 EmlMessage 对象
+     * @throws IOException 如果读取输入流或写入临时文件时发生 I/O 错误
+     * @see MimeInputStream#of(InputStream, int)
+     */
+    public static EmlMessage of(InputStream in, int memoryThreshold) throws IOException {
+        return of(MimeInputStream.of(in, memoryThreshold));
+    }
+
+    /**
+     * 从包含完整邮件内容的 MimeInputStream 中解析头部并创建 EmlMessage 对象，
+     * 邮件体为输入流在头部之后的零拷贝子流。
+     * <p>
+     * 适用于其他工厂方法未覆盖的数据源，例如 gzip 压缩的邮件：
+     * <pre>{@code
+     * EmlMessage message = EmlMessage.of(MimeInputStream.gzip(Paths.get("mail.eml.gz")));
+     * }</pre>
+     *
+     * @param inputStream 包含完整邮件内容的输入流，由返回的邮件负责关闭
+     * @return 新创建的 EmlMessage 对象
+     * @throws IOException 如果解析邮件头部时发生 I/O 错误
+     */
+    public static EmlMessage of(MimeInputStream inputStream) throws IOException {
         List<String> headers = MimePart.parseHeaders(inputStream);
-        MimeInputStream body = inputStream.newStream(inputStream.getPosition(), file.length());
+        MimeInputStream body = inputStream.newStream(inputStream.getPosition(), inputStream.getSize());
         EmlMessage emlMessage = new EmlMessage(headers, body);
-        emlMessage.size = file.length();
+        emlMessage.size = inputStream.getSize();
         parseHeaders(emlMessage, headers);
         return emlMessage;
     }
 
+    /**
+     * 借助旁路结构索引打开邮件文件：索引由 {@link EmlIndex#loadOrBuild(Path)} 加载，首次打开时扫描邮件并写入旁路索引文件。
+     *
+     * @param path 邮件文件路径
+     * @return 新创建的 EmlMessage 对象，{@link #getIndex()} 返回其结构索引
+     * @throws IOException 如果读取邮件文件时发生 I/O 错误
+     * @see #open(Path, EmlIndex)
+     */
+    public static EmlMessage open(Path path) throws IOException {
+        return open(path, EmlIndex.loadOrBuild(path));
+    }
+
+    /**
+     * 使用结构索引打开邮件文件，之后通过 {@code getIndex().parse(message)} 构建附件时无需扫描 boundary。
+     * <p>
+     * 文件以 {@link FileAccessMode#CHANNEL} 方式打开，不映射整个文件：打开时只读取邮件头部，
+     * 构建每个附件时只读取该附件的头部，对大邮件而言只需要少量小块读取：
+     * <pre>{@code
+     * EmlIndex index = EmlIndex.read(store.get(key));
+     * try (EmlMessage message = EmlMessage.open(path, index)) {
+     *     List<MimePart> attachments = message.getIndex().parse(message);
+     * }
+     * }</pre>
+     *
+     * @param path  邮件文件路径
+     * @param index 该文件的结构索引
+     * @return 新创建的 EmlMessage 对象，{@link #getIndex()} 返回给定的索引
+     * @throws IOException 如果读取邮件文件时发生 I/O 错误，或索引与文件的大小、修改时间不一致
+     */
+    public static EmlMessage open(Path path, EmlIndex index) throws IOException {
+        if (!index.isValidFor(path)) {
+            throw new IOException("Eml index is out of date: " + path);
+        }
+        EmlMessage message = of(path.toFile(), FileAccessMode.CHANNEL);
+        message.index = index;
+        return message;
+    }
+
+    /**
+     * 只读取邮件文件的头部，最多读取 {@link #DEFAULT_HEADER_LIMIT} 字节。
+     *
+     * @param path 邮件文件路径
+     * @return 邮件头部
+     * @throws IOException 如果读取文件或解码主题时发生 I/O 错误
+     * @see #headersOf(Path, int)
+     */
+    public static EmlHeaders headersOf(Path path) throws IOException {
+        return headersOf(path, DEFAULT_HEADER_LIMIT);
+    }
+
+    /**
+     * 只读取邮件文件的头部：从文件开头分块读取，遇到头部与邮件体之间的空行即停止，不创建邮件体流。
+     * <p>
+     * 与 {@link #of(File)} 相比不打开共享文件流，读取量与头部大小成正比，适合批量列出大量邮件的发件人、主题等信息：
+     * <pre>{@code
+     * EmlHeaders headers = EmlMessage.headersOf(Paths.get("mail.eml"));
+     * String subject = headers.getSubject();
+     * }</pre>
+     * 头部超过 {@code maxHeaderSize} 字节时停止读取，只解析上限内的完整头部行，并通过 {@link EmlHeaders#isTruncated()} 标记。
+     *
+     * @param path          邮件文件路径
+     * @param maxHeaderSize 最多读取的头部字节数，必须大于 0
+     * @return 邮件头部
+     * @throws IOException 如果读取文件或解码主题时发生 I/O 错误
+     */
+    public static EmlHeaders headersOf(Path path, int maxHeaderSize) throws IOException {
+        if (maxHeaderSize <= 0)
+            throw new IllegalArgumentException("maxHeaderSize <= 0");
+        long size;
+        byte[] buf = new byte[Math.min(HEADER_CHUNK_SIZE, maxHeaderSize)];
+        int count = 0;
+        int headerEnd = -1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            int limit = (int) Math.min(maxHeaderSize, size);
+            while (count < limit) {
+                if (count == buf.length) {
+                    buf = Arrays.copyOf(buf, Math.min(limit, buf.length << 1));
+                }
+                int read = channel.read(ByteBuffer.wrap(buf, count, Math.min(buf.length, limit) - count));
+                if (read < 0) break;
+                // 回退 2 个字节，覆盖跨越两次读取的 \r\n\r\n
+                int from = Math.max(0, count - 2);
+                count += read;
+                headerEnd = findHeaderEnd(buf, from, count);
+                if (headerEnd >= 0) break;
+            }
+        }
+        boolean truncated = headerEnd < 0 && count < size;
+        int end = headerEnd >= 0 ? headerEnd : truncated ? lastLineEnd(buf, count) : count;
+        List<String> headers = MimePart.parseHeaders(new ByteArrayMimeInputStream(buf, 0, end));
+        String from = null, to = null, subject = null, date = null;
+        for (String header : headers) {
+            if (from == null && header.startsWith("From:")) {
+                from = getAddress(header.substring(5));
+            } else if (to == null && header.startsWith("To:")) {
+                to = getAddress(header.substring(3));
+            } else if (subject == null && header.startsWith("Subject:")) {
+                subject = MimeUtility.decodeText(header.substring(8).trim());
+            } else if (date == null && header.startsWith("Date:")) {
+                date = header.substring(5).trim();
+            }
+        }
+        return new EmlHeaders(headers, size, truncated, from, to, subject, date);
+    }
+
+    /**
+     * 查找头部结束的空行：文件以空行开头，或行结束符 LF 之后紧跟另一个行结束符（LF 或 CRLF）。
+     *
+     * @param buf   已读取的数据
+     * @param from  查找起始下标
+     * @param count 已读取的字节数
+     * @return 空行之后（即邮件体开始）的下标，未找到返回 -1
+     */
+    private static int findHeaderEnd(byte[] buf, int from, int count) {
+        if (from == 0 && count > 0) {
+            if (buf[0] == '\n') return 1;
+            if (buf[0] == '\r' && count > 1 && buf[1] == '\n') return 2;
+        }
+        for (int i = from; i < count - 1; i++) {
+            if (buf[i] != '\n') continue;
+            if (buf[i + 1] == '\n') return i + 2;
+            if (buf[i + 1] == '\r' && i + 2 < count && buf[i + 2] == '\n') return i + 3;
+        }
+        return -1;
+    }
+
+    /**
+     * 返回最后一个完整行（含行结束符）之后的下标，没有完整行时返回 0。
+     */
+    private static int lastLineEnd(byte[] buf, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (buf[i] == '\n') return i + 1;
+        }
+        return 0;
+    }
+
     /**
      * 从邮件头部列表中解析发件人、收件人和主题信息，并设置到指定的 EmlMessage 对象上。
      *
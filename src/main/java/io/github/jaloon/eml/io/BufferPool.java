@@ -0,0 +1,121 @@
+package io.github.jaloon.eml.io;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按大小分级、总量有界的线程安全字节数组池，用于复用解析过程中的大块暂存数组。
+ * <p>
+ * 数组按 2 的幂分级，最小为 {@link #MIN_BUFFER_SIZE}，最大为 {@link #MAX_POOLED_SIZE}：
+ * <ul>
+ *   <li>{@link #acquire} 返回容量不小于请求大小的数组，优先复用同级别中最近归还的数组</li>
+ *   <li>{@link #release} 归还数组，池中保留的总字节数超过上限时直接丢弃，交由 GC 回收</li>
+ *   <li>超过 {@link #MAX_POOLED_SIZE} 的请求直接分配，不参与池化</li>
+ * </ul>
+ * 数组内容在借出时不会清零，调用方只能使用自己写入的部分。
+ * <p>
+ * 需要在多个流之间共享同一数组时，使用 {@link #wrap} 创建带引用计数的 {@link PooledMimeInputStream}，
+ * 数组在所有引用它的流关闭后自动归还。
+ *
+ * @see io.github.jaloon.eml.parser.QuicklyAttachmentParser.Builder#bufferPool(BufferPool)
+ */
+public final class BufferPool {
+    /** 最小的数组级别：64 KB */
+    public static final int MIN_BUFFER_SIZE = 64 * 1024;
+    /** 最大的数组级别：64 MB，更大的数组不参与池化 */
+    public static final int MAX_POOLED_SIZE = 64 * 1024 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE);
+
+    /** 各级别的空闲数组，后进先出以便复用仍在 CPU 缓存中的数组 */
+    private final ConcurrentLinkedDeque<byte[]>[] free;
+    /** 池中最多保留的字节数 */
+    private final long maxRetainedBytes;
+    /** 池中当前保留的字节数 */
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    /**
+     * 创建一个字节数组池。
+     *
+     * @param maxRetainedBytes 池中最多保留的空闲字节数，必须非负；为 0 时不保留任何数组
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool(long maxRetainedBytes) {
+        if (maxRetainedBytes < 0)
+            throw new IllegalArgumentException("maxRetainedBytes < 0");
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.free = (ConcurrentLinkedDeque<byte[]>[]) new ConcurrentLinkedDeque<?>[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    /**
+     * 借出一个容量不小于指定大小的数组。
+     *
+     * @param minSize 需要的最小容量
+     * @return 池中复用或新分配的数组，使用完毕后应通过 {@link #release} 归还
+     */
+    public byte[] acquire(int minSize) {
+        if (minSize < 0)
+            throw new IllegalArgumentException("minSize < 0");
+        if (minSize > MAX_POOLED_SIZE) {
+            return new byte[minSize];
+        }
+        int index = classIndex(minSize);
+        byte[] buffer = free[index].pollFirst();
+        if (buffer != null) {
+            retainedBytes.addAndGet(-buffer.length);
+            return buffer;
+        }
+        return new byte[MIN_BUFFER_SIZE << index];
+    }
+
+    /**
+     * 归还一个数组。非本池级别大小的数组、以及池已满时归还的数组将被直接丢弃。
+     *
+     * @param buffer 要归还的数组，归还后调用方不得再访问
+     */
+    public void release(byte[] buffer) {
+        int length = buffer.length;
+        if (length < MIN_BUFFER_SIZE || length > MAX_POOLED_SIZE || Integer.bitCount(length) != 1) {
+            return;
+        }
+        long retained;
+        do {
+            retained = retainedBytes.get();
+            if (retained + length > maxRetainedBytes) {
+                return;
+            }
+        } while (!retainedBytes.compareAndSet(retained, retained + length));
+        free[classIndex(length)].offerFirst(buffer);
+    }
+
+    /**
+     * 获取池中当前保留的空闲字节数。
+     *
+     * @return 空闲字节数
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * 将借出的数组包装为带引用计数的流，流及其所有子流关闭后数组自动归还到本池。
+     *
+     * @param buffer 通过 {@link #acquire} 借出的数组
+     * @param length 数组中的有效数据长度
+     * @return 引用数组 [0, length) 范围的流，初始引用计数为 1
+     */
+    public PooledMimeInputStream wrap(byte[] buffer, int length) {
+        return new PooledMimeInputStream(this, buffer, length);
+    }
+
+    private static int classIndex(int size) {
+        if (size <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+}
@@ -1,5 +1,10 @@
 package io.github.jaloon.eml.io;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
 /**
  * 基于字节数组的 {@link MimeInputStream} 实现，直接引用原始字节数组（零拷贝）。
  * <p>
@@ -11,12 +16,13 @@ package io.github.jaloon.eml.io;
  *   <li><strong>零拷贝</strong>：{@link #newStream} 创建的子流共享原始字节数组，无数据复制开销</li>
  *   <li><strong>纯内存操作</strong>：所有读取、寻址、行扫描均在内存中完成，无 I/O 调用</li>
  *   <li><strong>支持 mark/reset</strong>：通过 {@link #mark}/{@link #reset} 支持回退读取</li>
+ *   <li><strong>随机访问</strong>：实现 {@link MimeBytes}，字节级扫描器可直接按偏移访问数据</li>
  * </ul>
  *
  * @see MimeInputStream
  * @see io.github.jaloon.eml.EmlMessage#of(byte[]) 使用该流解析内存中的邮件
  */
-public class ByteArrayMimeInputStream extends MimeInputStream {
+public class ByteArrayMimeInputStream extends MimeInputStream implements MimeBytes {
 
     /** 原始字节数组引用（零拷贝，不复制数据） */
     private final byte[] data;
@@ -28,6 +34,8 @@ public class ByteArrayMimeInputStream extends MimeInputStream {
     private int pos;
     /** mark 标记位置（相对于 offset） */
     private int mark;
+    /** 以小端序访问原始数组的视图，供 {@link #getLong(long)} 使用，首次使用时创建 */
+    private ByteBuffer words;
 
     private static final byte CR = '\r';
     private static final byte LF = '\n';
@@ -56,6 +64,35 @@ public class ByteArrayMimeInputStream extends MimeInputStream {
         this(data, 0, data.length);
     }
 
+    /** 读取相对于 offset 的指定偏移处的字节，不改变读取位置 */
+    @Override
+    public byte get(long index) {
+        return data[offset + (int) index];
+    }
+
+    /** 通过小端序视图一次读取 8 个字节 */
+    @Override
+    public long getLong(long index) {
+        if (words == null) {
+            words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return words.getLong(offset + (int) index);
+    }
+
+    /** 通过 {@link ByteScanner#getDefault()} 扫描原始数组 */
+    @Override
+    public long indexOf(byte b, long from, long to) {
+        int i = ByteScanner.getDefault().indexOf(data, offset + (int) from, offset + (int) to, b);
+        return i < 0 ? -1 : i - offset;
+    }
+
+    /** 通过 {@link ByteScanner#getDefault()} 扫描原始数组 */
+    @Override
+    public long indexOfLineEnd(long from, long to) {
+        int i = ByteScanner.getDefault().indexOfLineEnd(data, offset + (int) from, offset + (int) to);
+        return i < 0 ? -1 : i - offset;
+    }
+
     @Override
     public int read() {
         if (pos >= length) return -1;
@@ -71,6 +108,16 @@ public class ByteArrayMimeInputStream extends MimeInputStream {
         return toRead;
     }
 
+    /** 将剩余数据一次性批量写入目标通道 */
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        int remaining = length - pos;
+        if (remaining <= 0) return 0;
+        writeFully(target, ByteBuffer.wrap(data, offset + pos, remaining));
+        pos = length;
+        return remaining;
+    }
+
     /**
      * 创建一个零拷贝的子流，引用原始数组的 [start, end) 子范围。
      * <p>
@@ -113,6 +160,11 @@ public class ByteArrayMimeInputStream extends MimeInputStream {
         return length;
     }
 
+    @Override
+    public boolean supportsConcurrentRead() {
+        return true;
+    }
+
     /**
      * 读取一行数据（不含行结束符），支持 \r\n、\r、\n 三种行结束格式。
      * 返回 null 表示已到达数据末尾。
@@ -121,15 +173,28 @@ public class ByteArrayMimeInputStream extends MimeInputStream {
     public String readLine() {
         if (pos >= length) return null;
         int lineStart = pos;
-        while (pos < length && data[offset + pos] != CR && data[offset + pos] != LF) {
-            pos++;
-        }
+        pos = lineEnd(pos);
         String line = bytesToString(data, offset + lineStart, offset + pos);
         if (pos < length && data[offset + pos] == CR) pos++;
         if (pos < length && data[offset + pos] == LF) pos++;
         return line;
     }
 
+    /** 直接引用原始数组中的行范围，不复制数据 */
+    @Override
+    public boolean readLine(LineSlice line, int max) {
+        if (max <= 0)
+            throw new IllegalArgumentException("max <= 0");
+        if (pos >= length) return false;
+        int lineStart = pos;
+        pos = lineEnd(pos, (int) Math.min(length, (long) pos + max));
+        line.wrap(data, offset + lineStart, pos - lineStart);
+        line.setTruncated(pos < length && data[offset + pos] != CR && data[offset + pos] != LF);
+        if (pos < length && data[offset + pos] == CR) pos++;
+        if (pos < length && data[offset + pos] == LF) pos++;
+        return true;
+    }
+
     @Override
     public int available() {
         return length - pos;
@@ -155,6 +220,17 @@ public class ByteArrayMimeInputStream extends MimeInputStream {
         // 无需释放资源，字节数组由 GC 回收
     }
 
+    /** 查找从 from 开始的行结束位置（相对于 offset），未找到时返回 length */
+    private int lineEnd(int from) {
+        return lineEnd(from, length);
+    }
+
+    /** 查找 [from, to) 范围内的行结束位置（相对于 offset），未找到时返回 to */
+    private int lineEnd(int from, int to) {
+        int i = ByteScanner.getDefault().indexOfLineEnd(data, offset + from, offset + to);
+        return i < 0 ? to : i - offset;
+    }
+
     private static String bytesToString(byte[] data, int start, int end) {
         int len = end - start;
         if (len <= 0) return "";
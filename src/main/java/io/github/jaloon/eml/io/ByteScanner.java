@@ -0,0 +1,160 @@
+package io.github.jaloon.eml.io;
+
+/**
+ * 字节数组扫描器，提供行结束符查找与单字节查找两种基本操作，供行读取与 boundary 候选查找使用。
+ * <p>
+ * 内置两种实现：
+ * <ul>
+ *   <li>标量实现：逐字节比较，适用于所有 Java 版本</li>
+ *   <li>向量实现：基于 {@code jdk.incubator.vector}，每次比较一个向量宽度（如 32 或 64 字节），
+ *       位于多版本 JAR 的 {@code META-INF/versions/17} 中，仅在 Java 17+ 且以
+ *       {@code --add-modules jdk.incubator.vector} 启动时可用</li>
+ * </ul>
+ * {@link #getDefault()} 在首次使用时选择实现：向量实现可用时优先使用，否则回退到标量实现。
+ * 可通过系统属性 {@value #VECTOR_PROPERTY}{@code =false} 强制使用标量实现。
+ * <p>
+ * 扫描器是无状态的，可以被多个线程同时使用。
+ */
+public abstract class ByteScanner {
+    /** 控制是否启用向量实现的系统属性，设为 {@code false} 时始终使用标量实现 */
+    public static final String VECTOR_PROPERTY = "io.github.jaloon.eml.vector";
+
+    /** 向量实现的类名，只存在于多版本 JAR 的高版本目录中 */
+    private static final String VECTOR_CLASS = "io.github.jaloon.eml.io.VectorByteScanner";
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private static volatile ByteScanner defaultScanner;
+    private static volatile ByteScanner vectorScanner;
+    private static volatile boolean vectorProbed;
+
+    /** 仅允许包内实现 */
+    ByteScanner() {}
+
+    /**
+     * 获取默认扫描器。
+     *
+     * @return 向量实现可用且未被系统属性禁用时返回向量实现，否则返回标量实现
+     */
+    public static ByteScanner getDefault() {
+        if (defaultScanner == null) {
+            synchronized (ByteScanner.class) {
+                if (defaultScanner == null) {
+                    ByteScanner vector = "false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY)) ? null : vector();
+                    defaultScanner = vector != null ? vector : scalar();
+                }
+            }
+        }
+        return defaultScanner;
+    }
+
+    /**
+     * 获取标量扫描器。
+     *
+     * @return 逐字节比较的扫描器
+     */
+    public static ByteScanner scalar() {
+        return Scalar.INSTANCE;
+    }
+
+    /**
+     * 获取向量扫描器。
+     *
+     * @return 向量扫描器；当前运行环境不支持（Java 8，或未添加 {@code jdk.incubator.vector} 模块）时返回 null
+     */
+    public static ByteScanner vector() {
+        if (!vectorProbed) {
+            synchronized (ByteScanner.class) {
+                if (!vectorProbed) {
+                    vectorScanner = loadVector();
+                    vectorProbed = true;
+                }
+            }
+        }
+        return vectorScanner;
+    }
+
+    private static ByteScanner loadVector() {
+        try {
+            ByteScanner scanner = (ByteScanner) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+            // 自检，确保向量类在当前 JVM 上能够正常链接和执行
+            byte[] probe = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef-\r\n".getBytes();
+            if (scanner.indexOfLineEnd(probe, 0, probe.length) == probe.length - 2
+                    && scanner.indexOf(probe, 0, probe.length, (byte) '-') == probe.length - 3) {
+                return scanner;
+            }
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException ignored) {
+            // 低版本 Java 中不存在该类，或运行时未添加 jdk.incubator.vector 模块
+        }
+        return null;
+    }
+
+    /**
+     * 查找 [from, to) 范围内第一个 CR 或 LF 的位置。
+     *
+     * @param a    字节数组
+     * @param from 起始下标（含）
+     * @param to   结束下标（不含）
+     * @return 行结束符的下标，未找到返回 -1
+     */
+    public abstract int indexOfLineEnd(byte[] a, int from, int to);
+
+    /**
+     * 查找 [from, to) 范围内第一个等于指定字节的位置。
+     *
+     * @param a    字节数组
+     * @param from 起始下标（含）
+     * @param to   结束下标（不含）
+     * @param b    要查找的字节
+     * @return 该字节的下标，未找到返回 -1
+     */
+    public abstract int indexOf(byte[] a, int from, int to, byte b);
+
+    /**
+     * 标量实现的行结束符查找，供子类处理不足一个向量宽度的尾部。
+     */
+    static int scalarIndexOfLineEnd(byte[] a, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = a[i];
+            if (b == CR || b == LF) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 标量实现的单字节查找，供子类处理不足一个向量宽度的尾部。
+     */
+    static int scalarIndexOf(byte[] a, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (a[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 逐字节比较的标量实现。
+     */
+    private static final class Scalar extends ByteScanner {
+        static final Scalar INSTANCE = new Scalar();
+
+        @Override
+        public int indexOfLineEnd(byte[] a, int from, int to) {
+            return scalarIndexOfLineEnd(a, from, to);
+        }
+
+        @Override
+        public int indexOf(byte[] a, int from, int to, byte b) {
+            return scalarIndexOf(a, from, to, b);
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+}
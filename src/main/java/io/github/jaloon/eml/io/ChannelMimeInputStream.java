@@ -0,0 +1,407 @@
+package io.github.jaloon.eml.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 {@link FileChannel} 定位读取（pread）的 {@link MimeInputStream} 实现。
+ * 也可以基于 {@link AsynchronousFileChannel}，此时读取在调用线程上等待异步读取完成。
+ * <p>
+ * 与 {@link FileSharedMimeInputStream} 共享同一个 {@link java.io.RandomAccessFile} 并移动其文件指针不同，
+ * 此实现的所有读取都通过 {@link FileChannel#read(ByteBuffer, long)} 在指定位置读取，
+ * 不修改通道的共享状态：
+ * <ul>
+ *   <li><strong>无锁</strong>：读取路径上没有任何同步，引用计数使用原子变量维护</li>
+ *   <li><strong>并发读取</strong>：{@link #newStream} 创建的每个子流独立维护读取位置与预读窗口，
+ *       不同线程可以同时读取同一邮件的不同附件</li>
+ *   <li><strong>预读窗口</strong>：每个流实例在首次读取时分配独享的窗口，逐字节读取与行扫描均在窗口内完成</li>
+ * </ul>
+ * <p>
+ * 基于文件路径打开时，读取不响应线程中断：读取前清除中断状态、读取后恢复，读取过程中被中断关闭的通道会重新打开，
+ * 因此一个线程被中断不会使其他线程正在读取的子流失效，详见 {@link ReopeningFileChannel}。
+ * <p>
+ * 注意：单个流实例本身不是线程安全的，并发读取时每个线程应使用各自的子流。
+ *
+ * @see FileAccessMode#CHANNEL
+ */
+class ChannelMimeInputStream extends MimeInputStream {
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    /** 由所有子流共享的文件通道，仅用于定位读取 */
+    private final PositionalChannel channel;
+    /** 文件中此子集数据开始处的文件偏移量 */
+    private final long start;
+    /** 此文件子集中的数据量 */
+    private final long size;
+    /** 预读窗口大小 */
+    private final int bufferSize;
+    /** 当前读取位置（文件偏移量） */
+    private long pos;
+    /** 最后一次调用 mark 方法时 pos 字段的值 */
+    private long mark;
+    /** 当前流独享的预读窗口，首次读取时分配 */
+    private byte[] buf;
+    /** 预读窗口第一个字节对应的文件偏移量 */
+    private long bufPos;
+    /** 预读窗口中的有效字节数 */
+    private int bufLen;
+    /** 是否关闭 */
+    private final AtomicBoolean closed;
+    /** 引用计数 */
+    private final AtomicInteger refCount;
+
+    /**
+     * 打开指定文件并创建覆盖整个文件的流。
+     *
+     * @param path       作为输入源的文件路径
+     * @param bufferSize 每个流的预读窗口大小（字节），必须大于 0
+     * @param options    打开文件通道的选项，应包含 {@link java.nio.file.StandardOpenOption#READ}
+     * @throws IOException 如果在打开文件时发生I/O错误
+     */
+    ChannelMimeInputStream(Path path, int bufferSize, OpenOption... options) throws IOException {
+        this(PositionalChannel.open(path, options), bufferSize);
+    }
+
+    /**
+     * 基于已打开的异步文件通道创建覆盖整个文件的流，流关闭时同时关闭该通道。
+     *
+     * @param channel    异步文件通道
+     * @param bufferSize 每个流的预读窗口大小（字节），必须大于 0
+     * @throws IOException 如果获取文件大小时发生I/O错误
+     */
+    ChannelMimeInputStream(AsynchronousFileChannel channel, int bufferSize) throws IOException {
+        this(PositionalChannel.of(channel), bufferSize);
+    }
+
+    private ChannelMimeInputStream(PositionalChannel channel, int bufferSize) throws IOException {
+        this(channel, 0, channel.size(), bufferSize, new AtomicInteger(1));
+    }
+
+    private ChannelMimeInputStream(PositionalChannel channel, long start, long size, int bufferSize, AtomicInteger refCount) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("bufferSize <= 0");
+        this.channel = channel;
+        this.start = start;
+        this.size = size;
+        this.bufferSize = bufferSize;
+        this.pos = start;
+        this.mark = start;
+        this.closed = new AtomicBoolean();
+        this.refCount = refCount;
+    }
+
+    /**
+     * 创建一个新的子流，与当前流共享文件通道，但拥有独立的读取位置和预读窗口。
+     *
+     * @param start 新流的起始位置（包含），相对于当前流的开始位置，必须非负
+     * @param end   新流的结束位置（不包含），为 -1 时表示与当前流在相同位置结束
+     * @return 新的子流；若范围为空则返回空流
+     * @throws IOException 如果当前流已被关闭
+     */
+    @Override
+    public MimeInputStream newStream(long start, long end) throws IOException {
+        ensureOpen();
+        if (start < 0)
+            throw new IllegalArgumentException("start < 0");
+        if (end == -1)
+            end = this.size;
+        long size = end - start;
+        if (size <= 0) {
+            return EmptyMimeInputStream.getInstance();
+        }
+        this.refCount.getAndIncrement();
+        return new ChannelMimeInputStream(channel, this.start + start, size, bufferSize, refCount);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed.get())
+            throw new IOException("Stream closed");
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        ensureOpen();
+        pos = start + offset;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        ensureOpen();
+        return pos - start;
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        ensureOpen();
+        return pos;
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /** 子流独立维护读取位置，对共享文件通道使用定位读取 */
+    @Override
+    public boolean supportsConcurrentRead() {
+        return true;
+    }
+
+    /**
+     * 判断指定的文件偏移量是否位于当前预读窗口内。
+     */
+    private boolean isBuffered(long position) {
+        return position >= bufPos && position < bufPos + bufLen;
+    }
+
+    /**
+     * 从当前位置开始定位读取，重新填充预读窗口。
+     *
+     * @return 填充的字节数，到达流末尾时返回 -1
+     * @throws IOException 如果读取文件时发生I/O错误
+     */
+    private int fill() throws IOException {
+        ensureOpen();
+        if (buf == null) {
+            buf = new byte[bufferSize];
+        }
+        int want = (int) Math.min(bufferSize, start + size - pos);
+        int filled = readFully(ByteBuffer.wrap(buf, 0, want), pos);
+        bufPos = pos;
+        bufLen = filled;
+        return filled > 0 ? filled : -1;
+    }
+
+    /**
+     * 从指定文件偏移量开始定位读取，直到填满目标缓冲区或到达文件末尾。
+     */
+    private int readFully(ByteBuffer dst, long position) throws IOException {
+        int total = 0;
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, position + total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        ensureOpen();
+        long end = start + size;
+        StringBuilder line = null;
+        if (pos >= end) {
+            return null;
+        }
+        while (pos < end) {
+            if (!isBuffered(pos) && fill() <= 0) {
+                break;
+            }
+            int from = (int) (pos - bufPos);
+            int i = from;
+            while (i < bufLen && buf[i] != LF && buf[i] != CR) {
+                i++;
+            }
+            String chunk = latin1(buf, from, i);
+            pos = bufPos + i;
+            if (i < bufLen) {
+                // 找到行结束符：\r 之后紧跟的 \n 属于同一个行结束符
+                pos++;
+                if (buf[i] == CR && pos < end && (isBuffered(pos) || fill() > 0) && buf[(int) (pos - bufPos)] == LF) {
+                    pos++;
+                }
+                return line == null ? chunk : line.append(chunk).toString();
+            }
+            if (line == null) {
+                line = new StringBuilder(chunk.length() + 80);
+            }
+            line.append(chunk);
+        }
+        return line == null ? "" : line.toString();
+    }
+
+    /** 在预读窗口中扫描行，跨越窗口的行分段复制到切片的暂存数组 */
+    @Override
+    public boolean readLine(LineSlice line, int max) throws IOException {
+        ensureOpen();
+        if (max <= 0)
+            throw new IllegalArgumentException("max <= 0");
+        long end = start + size;
+        if (pos >= end) {
+            return false;
+        }
+        line.reset(0);
+        while (pos < end) {
+            if (!isBuffered(pos) && fill() <= 0) {
+                break;
+            }
+            int from = (int) (pos - bufPos);
+            int stop = (int) Math.min(bufLen, from + (long) (max - line.length()));
+            int i = from;
+            while (i < stop && buf[i] != LF && buf[i] != CR) {
+                i++;
+            }
+            line.append(buf, from, i - from);
+            pos = bufPos + i;
+            if (i < bufLen) {
+                if (buf[i] != LF && buf[i] != CR) {
+                    line.setTruncated(true);
+                    break;
+                }
+                pos++;
+                if (buf[i] == CR && pos < end && (isBuffered(pos) || fill() > 0) && buf[(int) (pos - bufPos)] == LF) {
+                    pos++;
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static String latin1(byte[] data, int from, int to) {
+        int len = to - from;
+        if (len <= 0) return "";
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char) (data[from + i] & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= start + size) {
+            return -1;
+        }
+        if (!isBuffered(pos) && fill() <= 0) {
+            return -1;
+        }
+        return buf[(int) (pos++ - bufPos)] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = start + size - pos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        len = (int) Math.min(len, remaining);
+        if (!isBuffered(pos)) {
+            if (len >= bufferSize) {
+                // 大块读取直接定位读到目标数组，不经过预读窗口
+                int read = readFully(ByteBuffer.wrap(b, off, len), pos);
+                if (read <= 0) {
+                    return -1;
+                }
+                pos += read;
+                return read;
+            }
+            if (fill() <= 0) {
+                return -1;
+            }
+        }
+        int index = (int) (pos - bufPos);
+        int n = Math.min(len, bufLen - index);
+        System.arraycopy(buf, index, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    /** 基于 {@link FileChannel} 时通过 {@link FileChannel#transferTo} 由内核将剩余数据直接写入目标通道，不经过预读窗口 */
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        ensureOpen();
+        long remaining = start + size - pos;
+        if (remaining <= 0) return 0;
+        long transferred = channel.transferTo(pos, remaining, target);
+        pos += transferred;
+        return transferred;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(start + size - pos, n);
+        if (skipped <= 0) {
+            return 0;
+        }
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return (int) Math.min(Integer.MAX_VALUE, start + size - pos);
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        mark = pos;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        ensureOpen();
+        pos = mark;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * 关闭此流并减少引用计数，引用计数归零时关闭共享的文件通道。
+     *
+     * @throws IOException 如果在关闭文件通道时发生I/O错误
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.getAndSet(true)) return;
+        if (refCount.decrementAndGet() <= 0) {
+            channel.close();
+        }
+    }
+
+    /**
+     * 强制关闭共享的文件通道，无论是否仍有其他子流引用它。
+     *
+     * @throws IOException 如果在引用计数大于零时关闭文件通道的过程中发生I/O错误
+     */
+    @Override
+    public void forceClose() throws IOException {
+        closed.set(true);
+        if (refCount.getAndSet(0) > 0) {
+            channel.close();
+        } else {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
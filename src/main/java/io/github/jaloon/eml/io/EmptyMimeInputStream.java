@@ -1,6 +1,7 @@
 package io.github.jaloon.eml.io;
 
 import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * EmptyMimeInputStream 是 MimeInputStream 的一个具体实现，代表一个空的 MIME 输入流。
@@ -140,6 +141,17 @@ class EmptyMimeInputStream extends MimeInputStream {
         return -1;
     }
 
+    /**
+     * 将剩余数据写入目标通道。对于空的 MIME 输入流，此方法不写入任何数据。
+     *
+     * @param target 目标通道
+     * @return 写入的字节数。对于空的 MIME 输入流，此方法总是返回 0L。
+     */
+    @Override
+    public long transferTo(WritableByteChannel target) {
+        return 0L;
+    }
+
     /**
      * 跳过并丢弃输入流中的下一个 n 个字节。
      *
@@ -0,0 +1,33 @@
+package io.github.jaloon.eml.io;
+
+/**
+ * 文件访问方式，用于在 {@link MimeInputStream#of(java.io.File, FileAccessMode)} 中选择文件型 MIME 输入流的底层实现。
+ *
+ * @see MimeInputStream#of(java.io.File, FileAccessMode)
+ * @see io.github.jaloon.eml.EmlMessage#of(java.io.File, FileAccessMode)
+ */
+public enum FileAccessMode {
+    /**
+     * 基于 {@link java.io.RandomAccessFile} 的共享文件流，每次读取前 seek 到当前位置。
+     * 不预先占用内存与地址空间，适合小文件或仅读取少量内容的场景。
+     */
+    RANDOM_ACCESS,
+    /**
+     * 带预读窗口的共享文件流，每个子流各自维护 {@link MimeInputStream#DEFAULT_BUFFER_SIZE} 大小的预读窗口，
+     * 仅在窗口耗尽时访问文件。适合逐字节解码附件内容（如 base64）的场景。
+     *
+     * @see MimeInputStream#buffered(java.io.File, int) 自定义预读窗口大小
+     */
+    BUFFERED,
+    /**
+     * 基于 {@link java.nio.channels.FileChannel} 定位读取（pread）的文件流。每个子流独立维护读取位置与
+     * {@link MimeInputStream#DEFAULT_BUFFER_SIZE} 大小的预读窗口，读取过程不修改任何共享状态，
+     * 因此同一邮件的多个附件可以在不同线程中并发读取。
+     */
+    CHANNEL,
+    /**
+     * 基于 {@link java.nio.MappedByteBuffer} 的内存映射流，所有读取、寻址、行扫描均在映射内存中完成，
+     * {@link MimeInputStream#newStream} 返回映射区域的零拷贝切片。适合大文件的整体扫描。
+     */
+    MAPPED
+}
@@ -3,12 +3,20 @@ package io.github.jaloon.eml.io;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 文件共享MIME输入流，用于从文件中读取MIME类型的数据，并支持多个实例共享同一底层文件。
  * 此类扩展了 {@link MimeInputStream} 并提供了对文件内容的随机访问能力。
+ * <p>
+ * 支持两种读取模式：
+ * <ul>
+ *   <li><strong>直接模式</strong>（{@code bufferSize == 0}）：每次读取前 seek 到当前位置并直接读取文件</li>
+ *   <li><strong>预读模式</strong>（{@code bufferSize > 0}）：每个流实例（包括 {@link #newStream} 创建的子流）
+ *       各自维护一个预读窗口，仅在窗口耗尽时访问共享文件，逐字节读取与行扫描均在窗口内完成</li>
+ * </ul>
  */
 class FileSharedMimeInputStream extends MimeInputStream {
     /**
@@ -39,6 +47,22 @@ class FileSharedMimeInputStream extends MimeInputStream {
      * 引用计数
      */
     private final AtomicInteger refCount;
+    /**
+     * 预读窗口大小，为 0 时不使用预读窗口
+     */
+    private final int bufferSize;
+    /**
+     * 当前流独享的预读窗口，首次读取时分配
+     */
+    private byte[] buf;
+    /**
+     * 预读窗口第一个字节对应的文件偏移量
+     */
+    private long bufPos;
+    /**
+     * 预读窗口中的有效字节数
+     */
+    private int bufLen;
 
     /**
      * 构造一个新的 MimeInputStream 实例，用于从指定文件读取MIME类型的数据。
@@ -47,7 +71,19 @@ class FileSharedMimeInputStream extends MimeInputStream {
      * @throws IOException 如果在打开文件或初始化流时发生I/O错误
      */
     public FileSharedMimeInputStream(File file) throws IOException {
-        this(new RandomAccessFile(file, "r"), 0, file.length(), new AtomicInteger(1));
+        this(file, 0);
+    }
+
+    /**
+     * 构造一个带预读窗口的 MimeInputStream 实例，用于从指定文件读取MIME类型的数据。
+     * 由此流创建的所有子流使用相同大小的独立预读窗口。
+     *
+     * @param file       作为输入源的文件
+     * @param bufferSize 预读窗口大小（字节），为 0 时不使用预读窗口
+     * @throws IOException 如果在打开文件或初始化流时发生I/O错误
+     */
+    public FileSharedMimeInputStream(File file, int bufferSize) throws IOException {
+        this(new RandomAccessFile(file, "r"), 0, file.length(), new AtomicInteger(1), bufferSize);
     }
 
     /**
@@ -56,9 +92,12 @@ class FileSharedMimeInputStream extends MimeInputStream {
      * @param in       作为输入源的 RandomAccessFile
      * @param start    流开始位置
      * @param size     流大小
-     * @param refCount 引用计数，用于跟踪当前流实例的引用数量
+     * @param refCount   引用计数，用于跟踪当前流实例的引用数量
+     * @param bufferSize 预读窗口大小，为 0 时不使用预读窗口
      */
-    private FileSharedMimeInputStream(RandomAccessFile in, long start, long size, AtomicInteger refCount) {
+    private FileSharedMimeInputStream(RandomAccessFile in, long start, long size, AtomicInteger refCount, int bufferSize) {
+        if (bufferSize < 0)
+            throw new IllegalArgumentException("bufferSize < 0");
         this.in = in;
         this.mark = start;
         this.pos = start;
@@ -66,6 +105,7 @@ class FileSharedMimeInputStream extends MimeInputStream {
         this.size = size;
         this.closed = new AtomicBoolean();
         this.refCount = refCount;
+        this.bufferSize = bufferSize;
     }
 
     /**
@@ -87,7 +127,7 @@ class FileSharedMimeInputStream extends MimeInputStream {
             return EmptyMimeInputStream.getInstance();
         }
         this.refCount.getAndIncrement();
-        return new FileSharedMimeInputStream(this.in, this.start + start, size, this.refCount);
+        return new FileSharedMimeInputStream(this.in, this.start + start, size, this.refCount, this.bufferSize);
     }
 
     /**
@@ -127,6 +167,15 @@ class FileSharedMimeInputStream extends MimeInputStream {
         return size;
     }
 
+    /**
+     * 预读模式下对共享文件的 seek + read 在文件对象上同步，子流可以并发读取；
+     * 直接模式下子流直接移动共享文件的文件指针，不支持并发读取。
+     */
+    @Override
+    public boolean supportsConcurrentRead() {
+        return bufferSize > 0;
+    }
+
     @Override
     public synchronized String readLine() throws IOException {
         ensureOpen();
@@ -135,6 +184,9 @@ class FileSharedMimeInputStream extends MimeInputStream {
         if (available <= 0) {
             return null;
         }
+        if (bufferSize > 0) {
+            return readBufferedLine(end);
+        }
         in.seek(pos);
         String line = in.readLine();
         if (line == null) {
@@ -149,6 +201,50 @@ class FileSharedMimeInputStream extends MimeInputStream {
         return line.substring(0, (int) available);
     }
 
+    /**
+     * 预读模式下在窗口中扫描行，跨越窗口的行分段复制到切片的暂存数组；
+     * 直接模式下按块读取共享文件，不再逐字节读取。
+     */
+    @Override
+    public synchronized boolean readLine(LineSlice line, int max) throws IOException {
+        ensureOpen();
+        if (bufferSize <= 0) {
+            return super.readLine(line, max);
+        }
+        if (max <= 0)
+            throw new IllegalArgumentException("max <= 0");
+        long end = start + size;
+        if (pos >= end) {
+            return false;
+        }
+        line.reset(0);
+        while (pos < end) {
+            if (!isBuffered(pos) && fill() <= 0) {
+                break;
+            }
+            int from = (int) (pos - bufPos);
+            int stop = (int) Math.min(bufLen, from + (long) (max - line.length()));
+            int i = from;
+            while (i < stop && buf[i] != '\n' && buf[i] != '\r') {
+                i++;
+            }
+            line.append(buf, from, i - from);
+            pos = bufPos + i;
+            if (i < bufLen) {
+                if (buf[i] != '\n' && buf[i] != '\r') {
+                    line.setTruncated(true);
+                    break;
+                }
+                pos++;
+                if (buf[i] == '\r' && pos < end && (isBuffered(pos) || fill() > 0) && buf[(int) (pos - bufPos)] == '\n') {
+                    pos++;
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
     /**
      * 从当前流中读取下一个字节的数据。
      * 如果当前可用数据大于0，则移动文件指针到当前位置并读取一个字节。如果已到达流的末尾，则返回-1。
@@ -159,6 +255,12 @@ class FileSharedMimeInputStream extends MimeInputStream {
     @Override
     public synchronized int read() throws IOException {
         if (available() > 0) {
+            if (bufferSize > 0) {
+                if (!isBuffered(pos) && fill() <= 0) {
+                    return -1;
+                }
+                return buf[(int) (pos++ - bufPos)] & 0xFF;
+            }
             in.seek(pos++);
             return in.read();
         }
@@ -174,14 +276,38 @@ class FileSharedMimeInputStream extends MimeInputStream {
         if (len == 0) {
             return 0;
         }
-        in.seek(pos);
-        int read = in.read(b, off, Math.min(available(), len));
+        if (bufferSize > 0) {
+            return readBuffered(b, off, len);
+        }
+        long remaining = start + size - pos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int read;
+        synchronized (in) {
+            in.seek(pos);
+            read = in.read(b, off, (int) Math.min(len, remaining));
+        }
         if (read > 0) {
             pos += read;
         }
         return read;
     }
 
+    /**
+     * 通过共享文件的 {@link java.nio.channels.FileChannel#transferTo} 由内核将剩余数据直接写入目标通道。
+     * 定位传输不修改共享文件的文件指针。
+     */
+    @Override
+    public synchronized long transferTo(WritableByteChannel target) throws IOException {
+        ensureOpen();
+        long remaining = start + size - pos;
+        if (remaining <= 0) return 0;
+        long transferred = transferFully(in.getChannel(), pos, remaining, target);
+        pos += transferred;
+        return transferred;
+    }
+
     @Override
     public synchronized long skip(long n) throws IOException {
         ensureOpen();
@@ -204,6 +330,118 @@ class FileSharedMimeInputStream extends MimeInputStream {
         return (int) (start + size - pos);
     }
 
+    /**
+     * 判断指定的文件偏移量是否位于当前预读窗口内。
+     */
+    private boolean isBuffered(long position) {
+        return position >= bufPos && position < bufPos + bufLen;
+    }
+
+    /**
+     * 从当前位置开始重新填充预读窗口，填充量不超过窗口大小及流的剩余数据量。
+     * 对共享文件的 seek + read 在文件对象上同步，避免与其他子流的读取交错。
+     *
+     * @return 填充的字节数，到达文件末尾时返回 -1
+     * @throws IOException 如果读取文件时发生I/O错误
+     */
+    private int fill() throws IOException {
+        if (buf == null) {
+            buf = new byte[bufferSize];
+        }
+        int want = (int) Math.min(bufferSize, start + size - pos);
+        int filled = 0;
+        synchronized (in) {
+            in.seek(pos);
+            while (filled < want) {
+                int read = in.read(buf, filled, want - filled);
+                if (read < 0) break;
+                filled += read;
+            }
+        }
+        bufPos = pos;
+        bufLen = filled;
+        return filled > 0 ? filled : -1;
+    }
+
+    /**
+     * 预读模式下的批量读取：优先从窗口复制；窗口为空且请求量不小于窗口大小时直接读取文件，避免一次多余的复制。
+     */
+    private int readBuffered(byte[] b, int off, int len) throws IOException {
+        long remaining = start + size - pos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        len = (int) Math.min(len, remaining);
+        if (!isBuffered(pos)) {
+            if (len >= bufferSize) {
+                int read;
+                synchronized (in) {
+                    in.seek(pos);
+                    read = in.read(b, off, len);
+                }
+                if (read > 0) {
+                    pos += read;
+                }
+                return read;
+            }
+            if (fill() <= 0) {
+                return -1;
+            }
+        }
+        int index = (int) (pos - bufPos);
+        int n = Math.min(len, bufLen - index);
+        System.arraycopy(buf, index, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    /**
+     * 预读模式下读取一行，行结束符的处理与 {@link RandomAccessFile#readLine()} 一致（\n、\r 或 \r\n），
+     * 并且不会越过当前流的结束位置。
+     *
+     * @param end 当前流在文件中的结束偏移量
+     * @return 不含行结束符的一行文本
+     * @throws IOException 如果读取文件时发生I/O错误
+     */
+    private String readBufferedLine(long end) throws IOException {
+        StringBuilder line = null;
+        while (pos < end) {
+            if (!isBuffered(pos) && fill() <= 0) {
+                break;
+            }
+            int from = (int) (pos - bufPos);
+            int i = from;
+            while (i < bufLen && buf[i] != '\n' && buf[i] != '\r') {
+                i++;
+            }
+            String chunk = latin1(buf, from, i);
+            pos = bufPos + i;
+            if (i < bufLen) {
+                // 找到行结束符：\r 之后紧跟的 \n 属于同一个行结束符
+                pos++;
+                if (buf[i] == '\r' && pos < end && (isBuffered(pos) || fill() > 0) && buf[(int) (pos - bufPos)] == '\n') {
+                    pos++;
+                }
+                return line == null ? chunk : line.append(chunk).toString();
+            }
+            if (line == null) {
+                line = new StringBuilder(chunk.length() + 80);
+            }
+            line.append(chunk);
+        }
+        return line == null ? "" : line.toString();
+    }
+
+    private static String latin1(byte[] data, int from, int to) {
+        int len = to - from;
+        if (len <= 0) return "";
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char) (data[from + i] & 0xFF);
+        }
+        return new String(chars);
+    }
+
     /**
      * Set the current marked position in the stream.
      * <p> Note: The <code>readAheadLimit</code> for this class has no meaning.
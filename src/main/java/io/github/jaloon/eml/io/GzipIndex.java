@@ -0,0 +1,378 @@
+package io.github.jaloon.eml.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * gzip 文件的随机访问索引，记录若干个检查点（解压后偏移 → 压缩文件偏移），供 {@link GzipMimeInputStream} 定位使用。
+ * <p>
+ * 检查点位于 gzip 成员（member）的起始位置：每个成员都可以从头独立解压，定位时从目标偏移之前最近的检查点开始解压，
+ * 而不必从文件开头解压。普通的单成员 gzip 文件只有一个检查点；由 {@link GzipMimeInputStream#compress}
+ * 写出的多成员 gzip 文件（仍可由 gunzip 等标准工具解压）每隔固定的解压长度就有一个检查点。
+ * <p>
+ * 构建索引：
+ * <ul>
+ *   <li>成员头部含有 {@link #EXTRA_ID} 扩展字段（记录成员的压缩长度）时，只读取成员头部与尾部的 ISIZE，无需解压</li>
+ *   <li>否则解压一遍该成员以确定其结束位置与解压长度</li>
+ * </ul>
+ * 索引可以通过 {@link #write(OutputStream)} 持久化，之后通过 {@link #read(InputStream)} 加载，避免重复构建。
+ */
+public final class GzipIndex {
+    /** 扩展字段的子字段标识 'E' 'M'，数据为 4 字节小端序的成员压缩长度（含头部与尾部） */
+    static final byte[] EXTRA_ID = {'E', 'M'};
+
+    /** 持久化格式的魔数 */
+    private static final long MAGIC = 0x454d4c475a494458L; // "EMLGZIDX"
+    /** 持久化格式的版本 */
+    private static final int VERSION = 1;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /** 各检查点的解压后偏移，严格递增，第一个为 0 */
+    private final long[] uncompressed;
+    /** 各检查点对应成员在压缩文件中的起始偏移 */
+    private final long[] compressed;
+    /** 解压后的总长度 */
+    private final long size;
+    /** 压缩文件长度，用于校验索引与文件是否匹配 */
+    private final long compressedSize;
+
+    private GzipIndex(long[] uncompressed, long[] compressed, long size, long compressedSize) {
+        this.uncompressed = uncompressed;
+        this.compressed = compressed;
+        this.size = size;
+        this.compressedSize = compressedSize;
+    }
+
+    /**
+     * 扫描 gzip 文件并构建索引。
+     *
+     * @param path gzip 文件路径
+     * @return 新构建的索引
+     * @throws IOException 如果读取文件时发生I/O错误，或文件不是有效的 gzip 格式
+     */
+    public static GzipIndex build(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return build(channel);
+        }
+    }
+
+    static GzipIndex build(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        long[] uncompressed = new long[16];
+        long[] compressed = new long[16];
+        int count = 0;
+        long pos = 0;
+        long total = 0;
+        do {
+            Header header = Header.read(channel, pos);
+            if (count == uncompressed.length) {
+                uncompressed = Arrays.copyOf(uncompressed, count * 2);
+                compressed = Arrays.copyOf(compressed, count * 2);
+            }
+            uncompressed[count] = total;
+            compressed[count] = pos;
+            count++;
+            long memberEnd;
+            if (header.memberLength > 0) {
+                memberEnd = pos + header.memberLength;
+                total += readInt(channel, memberEnd - 4) & 0xFFFFFFFFL;
+            } else {
+                long[] result = inflateMember(channel, header.dataStart);
+                total += result[0];
+                memberEnd = result[1] + 8;
+            }
+            pos = memberEnd;
+        } while (pos < fileSize && Header.isMember(channel, pos));
+        // 连续的空成员不需要单独的检查点
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (n > 0 && uncompressed[i] == uncompressed[n - 1]) {
+                continue;
+            }
+            uncompressed[n] = uncompressed[i];
+            compressed[n] = compressed[i];
+            n++;
+        }
+        return new GzipIndex(Arrays.copyOf(uncompressed, n), Arrays.copyOf(compressed, n), total, fileSize);
+    }
+
+    /**
+     * 解压一个成员的 deflate 数据。
+     *
+     * @return {解压长度, deflate 数据结束的压缩偏移}
+     */
+    private static long[] inflateMember(FileChannel channel, long dataStart) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] in = new byte[MimeInputStream.DEFAULT_BUFFER_SIZE];
+            byte[] out = new byte[MimeInputStream.DEFAULT_BUFFER_SIZE * 4];
+            long inPos = dataStart;
+            long total = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    int read = channel.read(ByteBuffer.wrap(in), inPos);
+                    if (read <= 0) {
+                        throw new EOFException("Unexpected end of gzip file");
+                    }
+                    inflater.setInput(in, 0, read);
+                    inPos += read;
+                }
+                try {
+                    total += inflater.inflate(out);
+                } catch (DataFormatException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+                if (inflater.needsDictionary()) {
+                    throw new IOException("Invalid gzip data: preset dictionary");
+                }
+            }
+            return new long[]{total, inPos - inflater.getRemaining()};
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new EOFException("Unexpected end of gzip file");
+            }
+        }
+        return buf.getInt(0);
+    }
+
+    /**
+     * 将索引写入输出流。
+     *
+     * @param out 输出流，写入后不关闭
+     * @throws IOException 如果写入时发生I/O错误
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeLong(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(size);
+        data.writeLong(compressedSize);
+        data.writeInt(uncompressed.length);
+        for (int i = 0; i < uncompressed.length; i++) {
+            data.writeLong(uncompressed[i]);
+            data.writeLong(compressed[i]);
+        }
+        data.flush();
+    }
+
+    /**
+     * 从输入流中读取由 {@link #write(OutputStream)} 写出的索引。
+     *
+     * @param in 输入流，读取后不关闭
+     * @return 读取的索引
+     * @throws IOException 如果读取时发生I/O错误，或数据不是有效的索引
+     */
+    public static GzipIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readLong() != MAGIC) {
+            throw new IOException("Not a gzip index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported gzip index version: " + version);
+        }
+        long size = data.readLong();
+        long compressedSize = data.readLong();
+        int count = data.readInt();
+        if (count <= 0) {
+            throw new IOException("Invalid gzip index: " + count + " checkpoints");
+        }
+        long[] uncompressed = new long[count];
+        long[] compressed = new long[count];
+        for (int i = 0; i < count; i++) {
+            uncompressed[i] = data.readLong();
+            compressed[i] = data.readLong();
+            if (i > 0 && (uncompressed[i] <= uncompressed[i - 1] || compressed[i] <= compressed[i - 1])) {
+                throw new IOException("Invalid gzip index: checkpoints out of order");
+            }
+        }
+        return new GzipIndex(uncompressed, compressed, size, compressedSize);
+    }
+
+    /**
+     * 获取解压后的总长度。
+     *
+     * @return 解压后的字节数
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 获取索引对应的压缩文件长度。
+     *
+     * @return 压缩文件的字节数
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * 获取检查点数量。
+     *
+     * @return 检查点数量
+     */
+    public int getCheckpointCount() {
+        return uncompressed.length;
+    }
+
+    /**
+     * 查找不大于指定解压后偏移的最近检查点。
+     *
+     * @param offset 解压后偏移
+     * @return 检查点序号
+     */
+    int floor(long offset) {
+        int i = Arrays.binarySearch(uncompressed, offset);
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+
+    long uncompressedOffset(int checkpoint) {
+        return uncompressed[checkpoint];
+    }
+
+    long compressedOffset(int checkpoint) {
+        return compressed[checkpoint];
+    }
+
+    /**
+     * gzip 成员头部（RFC 1952）的解析结果。
+     */
+    static final class Header {
+        /** deflate 数据在压缩文件中的起始偏移 */
+        final long dataStart;
+        /** 扩展字段 {@link #EXTRA_ID} 记录的成员压缩长度，没有该字段时为 -1 */
+        final long memberLength;
+
+        private Header(long dataStart, long memberLength) {
+            this.dataStart = dataStart;
+            this.memberLength = memberLength;
+        }
+
+        /**
+         * 判断指定偏移处是否为 gzip 成员的开始（魔数与压缩方法）。
+         */
+        static boolean isMember(FileChannel channel, long pos) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(3);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, pos + buf.position()) < 0) {
+                    return false;
+                }
+            }
+            return buf.get(0) == (byte) 0x1f && buf.get(1) == (byte) 0x8b && buf.get(2) == 8;
+        }
+
+        /**
+         * 解析指定偏移处的成员头部。
+         */
+        static Header read(FileChannel channel, long pos) throws IOException {
+            HeaderReader in = new HeaderReader(channel, pos);
+            if (in.read() != 0x1f || in.read() != 0x8b) {
+                throw new IOException("Not in gzip format");
+            }
+            if (in.read() != 8) {
+                throw new IOException("Unsupported gzip compression method");
+            }
+            int flags = in.read();
+            in.skip(6); // MTIME, XFL, OS
+            long memberLength = -1;
+            if ((flags & FEXTRA) != 0) {
+                int xlen = in.readShort();
+                long extraEnd = in.position() + xlen;
+                while (in.position() + 4 <= extraEnd) {
+                    int si1 = in.read();
+                    int si2 = in.read();
+                    int len = in.readShort();
+                    if (si1 == EXTRA_ID[0] && si2 == EXTRA_ID[1] && len == 4) {
+                        memberLength = in.readShort() | ((long) in.readShort() << 16);
+                    } else {
+                        in.skip(len);
+                    }
+                }
+                in.seek(extraEnd);
+            }
+            if ((flags & FNAME) != 0) {
+                while (in.read() != 0) {
+                    // 跳过以 0 结尾的文件名
+                }
+            }
+            if ((flags & FCOMMENT) != 0) {
+                while (in.read() != 0) {
+                    // 跳过以 0 结尾的注释
+                }
+            }
+            if ((flags & FHCRC) != 0) {
+                in.skip(2);
+            }
+            return new Header(in.position(), memberLength);
+        }
+    }
+
+    /**
+     * 逐字节读取成员头部的简单读取器，头部通常只有十几个字节。
+     */
+    private static final class HeaderReader {
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(64);
+        private long bufPos;
+        private long pos;
+
+        HeaderReader(FileChannel channel, long pos) {
+            this.channel = channel;
+            this.pos = pos;
+            this.buf.limit(0);
+        }
+
+        long position() {
+            return pos;
+        }
+
+        void seek(long pos) {
+            this.pos = pos;
+        }
+
+        void skip(long n) {
+            pos += n;
+        }
+
+        int read() throws IOException {
+            if (pos < bufPos || pos >= bufPos + buf.limit()) {
+                buf.clear();
+                int read = channel.read(buf, pos);
+                if (read <= 0) {
+                    throw new EOFException("Unexpected end of gzip header");
+                }
+                buf.flip();
+                bufPos = pos;
+            }
+            return buf.get((int) (pos++ - bufPos)) & 0xFF;
+        }
+
+        int readShort() throws IOException {
+            return read() | (read() << 8);
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package io.github.jaloon.eml.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 直接读取 gzip 压缩邮件（.eml.gz）的 {@link MimeInputStream} 实现，按需解压，不需要先将整个邮件解压到内存。
+ * <p>
+ * 所有偏移均为解压后的偏移。定位依赖 {@link GzipIndex} 中的检查点（gzip 成员的起始位置）：
+ * <ul>
+ *   <li><strong>顺序读取</strong>：每个流实例维护独立的解压状态与输出窗口，向后读取时继续解压，不重复解压</li>
+ *   <li><strong>随机定位</strong>：目标位于当前解压位置之前，或两者之间存在检查点时，从目标之前最近的检查点重新开始解压</li>
+ *   <li><strong>子流</strong>：{@link #newStream} 创建的子流共享文件通道与索引，拥有独立的解压状态，
+ *       读取某个附件时只需从该附件之前最近的检查点开始解压</li>
+ * </ul>
+ * <p>
+ * 注意：{@link java.util.zip.Inflater} 不支持在 deflate 数据流中间恢复解压状态，因此检查点只能位于成员边界。
+ * 普通的单成员 gzip 文件只能从头解压；需要随机访问的归档应使用 {@link #compress} 写成多成员 gzip，
+ * 写出的文件仍是标准 gzip 格式，可以由 gunzip 等工具解压。
+ * <p>
+ * 单个流实例不是线程安全的，并发读取时每个线程应使用各自的子流。
+ *
+ * @see MimeInputStream#gzip(Path)
+ */
+public class GzipMimeInputStream extends MimeInputStream {
+    /** {@link #compress} 默认的成员解压长度：1 MB */
+    public static final int DEFAULT_MEMBER_SIZE = 1024 * 1024;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    /** gzip 成员尾部长度：CRC32 与 ISIZE */
+    private static final int TRAILER_SIZE = 8;
+
+    /** 由所有子流共享的文件通道与索引 */
+    private final Source source;
+    /** 此流在解压后数据中的起始偏移 */
+    private final long start;
+    /** 此流的数据量 */
+    private final long size;
+    /** 当前读取位置（解压后偏移） */
+    private long pos;
+    /** 最后一次调用 mark 方法时 pos 字段的值 */
+    private long mark;
+    /** 是否关闭 */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /** 解压器，首次读取时创建 */
+    private Inflater inflater;
+    /** 压缩数据输入缓冲区 */
+    private byte[] input;
+    /** 下一次读取压缩数据的文件偏移 */
+    private long inPos;
+    /** 解压器下一个输出字节的解压后偏移 */
+    private long outPos;
+    /** 已解压到最后一个成员的末尾 */
+    private boolean eof;
+    /** 输出窗口，保存最近一次解压出的数据 */
+    private byte[] window;
+    /** 输出窗口第一个字节的解压后偏移 */
+    private long winPos;
+    /** 输出窗口中的有效字节数 */
+    private int winLen;
+    /** {@link #readLine()} 复用的行切片 */
+    private LineSlice lineSlice;
+
+    /**
+     * 打开 gzip 文件，使用给定的索引创建覆盖全部解压后数据的流。
+     *
+     * @param path  gzip 文件路径
+     * @param index 该文件的索引，可以是通过 {@link GzipIndex#read} 加载的持久化索引
+     * @throws IOException 如果打开文件时发生I/O错误，或索引与文件不匹配
+     */
+    public GzipMimeInputStream(Path path, GzipIndex index) throws IOException {
+        this(open(path, index), 0, index.getSize());
+    }
+
+    private GzipMimeInputStream(Source source, long start, long size) {
+        this.source = source;
+        this.start = start;
+        this.size = size;
+        this.pos = start;
+        this.mark = start;
+    }
+
+    private static Source open(Path path, GzipIndex index) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() != index.getCompressedSize()) {
+                throw new IOException("Gzip index does not match file: " + path);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Source(channel, index);
+    }
+
+    /**
+     * 将数据压缩为多成员 gzip 格式，每个成员包含 {@code memberSize} 字节的解压后数据，
+     * 并在成员头部的扩展字段中记录成员的压缩长度，使 {@link GzipIndex#build} 无需解压即可构建索引。
+     *
+     * @param in         要压缩的数据，读取到末尾后不关闭
+     * @param out        gzip 输出，写入后不关闭
+     * @param memberSize 每个成员的解压后长度，即检查点间隔，必须大于 0
+     * @return 压缩前的数据长度
+     * @throws IOException 如果读写时发生I/O错误
+     */
+    public static long compress(InputStream in, OutputStream out, int memberSize) throws IOException {
+        if (memberSize <= 0)
+            throw new IllegalArgumentException("memberSize <= 0");
+        byte[] data = new byte[Math.min(memberSize, DEFAULT_MEMBER_SIZE * 16)];
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+        long total = 0;
+        try {
+            while (true) {
+                long memberTotal = 0;
+                deflater.reset();
+                crc.reset();
+                member.reset();
+                int read;
+                while (memberTotal < memberSize
+                        && (read = in.read(data, 0, (int) Math.min(data.length, memberSize - memberTotal))) > 0) {
+                    crc.update(data, 0, read);
+                    deflater.setInput(data, 0, read);
+                    while (!deflater.needsInput()) {
+                        member.write(buf, 0, deflater.deflate(buf));
+                    }
+                    memberTotal += read;
+                }
+                if (memberTotal == 0 && total > 0) {
+                    break;
+                }
+                deflater.finish();
+                while (!deflater.finished()) {
+                    member.write(buf, 0, deflater.deflate(buf));
+                }
+                writeMember(out, member, crc.getValue(), memberTotal);
+                total += memberTotal;
+                if (memberTotal < memberSize) {
+                    break;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        out.flush();
+        return total;
+    }
+
+    /**
+     * 写出一个 gzip 成员：头部（含 'E' 'M' 扩展字段）、deflate 数据与尾部。
+     */
+    private static void writeMember(OutputStream out, ByteArrayOutputStream deflated, long crc, long length) throws IOException {
+        int headerSize = 10 + 2 + 8;
+        long memberLength = headerSize + deflated.size() + TRAILER_SIZE;
+        byte[] header = {
+                0x1f, (byte) 0x8b, 8, 4, // ID1 ID2 CM FLG(FEXTRA)
+                0, 0, 0, 0,              // MTIME
+                0, (byte) 0xff,          // XFL OS(unknown)
+                8, 0,                    // XLEN
+                GzipIndex.EXTRA_ID[0], GzipIndex.EXTRA_ID[1], 4, 0,
+                (byte) memberLength, (byte) (memberLength >>> 8), (byte) (memberLength >>> 16), (byte) (memberLength >>> 24)
+        };
+        out.write(header);
+        deflated.writeTo(out);
+        writeInt(out, crc);
+        writeInt(out, length);
+    }
+
+    private static void writeInt(OutputStream out, long value) throws IOException {
+        out.write((int) value & 0xFF);
+        out.write((int) (value >>> 8) & 0xFF);
+        out.write((int) (value >>> 16) & 0xFF);
+        out.write((int) (value >>> 24) & 0xFF);
+    }
+
+    /**
+     * 获取此流使用的索引。
+     *
+     * @return gzip 索引
+     */
+    public GzipIndex getIndex() {
+        return source.index;
+    }
+
+    /**
+     * 创建一个新的子流，与当前流共享文件通道与索引，拥有独立的读取位置与解压状态。
+     *
+     * @param start 新流的起始位置（包含），相对于当前流的开始位置，必须非负
+     * @param end   新流的结束位置（不包含），为 -1 时表示与当前流在相同位置结束
+     * @return 新的子流；若范围为空则返回空流
+     * @throws IOException 如果当前流已被关闭
+     */
+    @Override
+    public MimeInputStream newStream(long start, long end) throws IOException {
+        ensureOpen();
+        if (start < 0)
+            throw new IllegalArgumentException("start < 0");
+        if (end == -1 || end > this.size)
+            end = this.size;
+        long size = end - start;
+        if (size <= 0) {
+            return EmptyMimeInputStream.getInstance();
+        }
+        source.refCount.getAndIncrement();
+        return new GzipMimeInputStream(source, this.start + start, size);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed.get())
+            throw new IOException("Stream closed");
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        ensureOpen();
+        pos = start + offset;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        ensureOpen();
+        return pos - start;
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        ensureOpen();
+        return pos;
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /** 子流拥有独立的解压状态，对共享文件通道使用定位读取 */
+    @Override
+    public boolean supportsConcurrentRead() {
+        return true;
+    }
+
+    private boolean isBuffered(long position) {
+        return position >= winPos && position < winPos + winLen;
+    }
+
+    /**
+     * 解压直到输出窗口包含当前读取位置。
+     *
+     * @return 窗口中的有效字节数，到达数据末尾时返回 -1
+     * @throws IOException 如果读取或解压时发生错误
+     */
+    private int fill() throws IOException {
+        ensureOpen();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+            input = new byte[DEFAULT_BUFFER_SIZE];
+            window = new byte[DEFAULT_BUFFER_SIZE];
+            reposition(pos);
+        } else {
+            GzipIndex index = source.index;
+            if (pos < outPos || index.uncompressedOffset(index.floor(pos)) > outPos) {
+                reposition(pos);
+            }
+        }
+        while (true) {
+            int n = inflateWindow();
+            if (n < 0) {
+                winLen = 0;
+                return -1;
+            }
+            if (pos < winPos + winLen) {
+                return winLen;
+            }
+        }
+    }
+
+    /**
+     * 定位到不大于目标偏移的最近检查点，从该成员开头重新解压。
+     */
+    private void reposition(long target) throws IOException {
+        GzipIndex index = source.index;
+        int checkpoint = index.floor(target);
+        inflater.reset();
+        inPos = GzipIndex.Header.read(source.channel, index.compressedOffset(checkpoint)).dataStart;
+        outPos = index.uncompressedOffset(checkpoint);
+        eof = false;
+        winLen = 0;
+    }
+
+    /**
+     * 解压下一段数据到输出窗口，成员结束时自动进入下一个成员。
+     *
+     * @return 解压出的字节数，到达最后一个成员末尾时返回 -1
+     */
+    private int inflateWindow() throws IOException {
+        while (!eof) {
+            if (inflater.finished()) {
+                long next = inPos - inflater.getRemaining() + TRAILER_SIZE;
+                if (next >= source.index.getCompressedSize() || !GzipIndex.Header.isMember(source.channel, next)) {
+                    eof = true;
+                    break;
+                }
+                inflater.reset();
+                inPos = GzipIndex.Header.read(source.channel, next).dataStart;
+                continue;
+            }
+            if (inflater.needsInput()) {
+                int read = source.channel.read(ByteBuffer.wrap(input), inPos);
+                if (read <= 0) {
+                    throw new EOFException("Unexpected end of gzip file");
+                }
+                inflater.setInput(input, 0, read);
+                inPos += read;
+            }
+            int n;
+            try {
+                n = inflater.inflate(window);
+            } catch (DataFormatException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            if (n > 0) {
+                winPos = outPos;
+                winLen = n;
+                outPos += n;
+                return n;
+            }
+            if (inflater.needsDictionary()) {
+                throw new IOException("Invalid gzip data: preset dictionary");
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        ensureOpen();
+        if (pos >= start + size) {
+            return -1;
+        }
+        if (!isBuffered(pos) && fill() <= 0) {
+            return -1;
+        }
+        return window[(int) (pos++ - winPos)] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = start + size - pos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        if (!isBuffered(pos) && fill() <= 0) {
+            return -1;
+        }
+        int index = (int) (pos - winPos);
+        int n = (int) Math.min(Math.min(len, remaining), winLen - index);
+        System.arraycopy(window, index, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (lineSlice == null) {
+            lineSlice = new LineSlice();
+        }
+        return readLine(lineSlice) ? lineSlice.toString() : null;
+    }
+
+    /** 在输出窗口中扫描行，跨越窗口的行分段复制到切片的暂存数组 */
+    @Override
+    public boolean readLine(LineSlice line, int max) throws IOException {
+        ensureOpen();
+        if (max <= 0)
+            throw new IllegalArgumentException("max <= 0");
+        long end = start + size;
+        if (pos >= end) {
+            return false;
+        }
+        line.reset(0);
+        while (pos < end) {
+            if (!isBuffered(pos) && fill() <= 0) {
+                break;
+            }
+            int from = (int) (pos - winPos);
+            int limit = (int) Math.min(winLen, end - winPos);
+            int stop = (int) Math.min(limit, from + (long) (max - line.length()));
+            int i = from;
+            while (i < stop && window[i] != LF && window[i] != CR) {
+                i++;
+            }
+            line.append(window, from, i - from);
+            pos = winPos + i;
+            if (i < limit) {
+                if (window[i] != LF && window[i] != CR) {
+                    line.setTruncated(true);
+                    break;
+                }
+                pos++;
+                if (window[i] == CR && pos < end && (isBuffered(pos) || fill() > 0) && window[(int) (pos - winPos)] == LF) {
+                    pos++;
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    /** 跳过的数据仍需解压，但不复制到调用方；跨越检查点时直接重新定位 */
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(start + size - pos, n);
+        if (skipped <= 0) {
+            return 0;
+        }
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        long remaining = start + size - pos;
+        return isBuffered(pos) ? (int) Math.min(remaining, winPos + winLen - pos) : 0;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        mark = pos;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        ensureOpen();
+        pos = mark;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * 关闭此流并释放解压器，引用计数归零时关闭共享的文件通道。
+     *
+     * @throws IOException 如果在关闭文件通道时发生I/O错误
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.getAndSet(true)) return;
+        endInflater();
+        if (source.refCount.decrementAndGet() <= 0) {
+            source.channel.close();
+        }
+    }
+
+    /**
+     * 强制关闭共享的文件通道，无论是否仍有其他子流引用它。
+     *
+     * @throws IOException 如果在关闭文件通道时发生I/O错误
+     */
+    @Override
+    public void forceClose() throws IOException {
+        closed.set(true);
+        endInflater();
+        source.refCount.set(0);
+        source.channel.close();
+    }
+
+    private void endInflater() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    /**
+     * 由所有子流共享的文件通道、索引与引用计数。
+     */
+    private static final class Source {
+        final FileChannel channel;
+        final GzipIndex index;
+        final AtomicInteger refCount = new AtomicInteger(1);
+
+        Source(FileChannel channel, GzipIndex index) {
+            this.channel = channel;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.jaloon.eml.io;
+
+/**
+ * 可复用的行切片，由 {@link MimeInputStream#readLine(LineSlice)} 填充，表示一行的原始字节（不含行结束符）。
+ * <p>
+ * 与返回 {@link String} 的 {@link MimeInputStream#readLine()} 不同，读取行切片不会为每一行分配字符数组和字符串：
+ * <ul>
+ *   <li>内存型实现（如 {@link ByteArrayMimeInputStream}）直接引用底层数组中的行范围，不复制数据</li>
+ *   <li>文件型实现将行字节复制到切片自有的暂存数组中，暂存数组按需扩容并在后续读取中复用</li>
+ * </ul>
+ * 切片内容仅在下一次读取之前有效，需要保留时应调用 {@link #toString()} 转换为字符串。
+ * 此类不是线程安全的，每个解析过程应使用各自的实例。
+ */
+public final class LineSlice {
+    /** 暂存数组的初始大小，可容纳常见的 base64 行与头部行 */
+    private static final int INITIAL_CAPACITY = 128;
+
+    /** 行字节所在的数组，可能是底层数据数组或 {@link #scratch} */
+    private byte[] array;
+    /** 行在 {@link #array} 中的起始偏移 */
+    private int offset;
+    /** 行长度（字节数），不含行结束符 */
+    private int length;
+    /** 切片自有的暂存数组，供需要复制数据的实现使用 */
+    private byte[] scratch;
+    /** 最近一次读取是否因达到长度上限而未读完整行 */
+    private boolean truncated;
+
+    /**
+     * 创建一个空的行切片。
+     */
+    public LineSlice() {
+        this.array = new byte[0];
+    }
+
+    /**
+     * 获取行字节所在的数组。数组可能与流共享，调用方不得修改。
+     *
+     * @return 行字节所在的数组
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    /**
+     * 获取行在 {@link #array()} 中的起始偏移。
+     *
+     * @return 行的起始偏移
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * 获取行长度（字节数），不含行结束符。
+     *
+     * @return 行长度
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 判断是否为空行。
+     *
+     * @return 行长度为 0 时返回 true
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * 判断最近一次读取是否因达到 {@link MimeInputStream#readLine(LineSlice, int)} 的长度上限而只读取了行的前一部分。
+     * 此时行的剩余部分与行结束符尚未读取，下一次读取从剩余部分开始。
+     *
+     * @return 只读取了行的前一部分时返回 true
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 获取行中指定位置的字节。
+     *
+     * @param index 行内偏移，范围为 [0, {@link #length()})
+     * @return 该位置的字节
+     */
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return array[offset + index];
+    }
+
+    /**
+     * 判断行内容是否与给定字节序列完全相同。
+     *
+     * @param bytes 要比较的字节序列
+     * @return 内容相同时返回 true
+     */
+    public boolean contentEquals(byte[] bytes) {
+        return length == bytes.length && regionMatches(0, bytes);
+    }
+
+    /**
+     * 判断行是否以给定字节序列开头。
+     *
+     * @param prefix 前缀字节序列
+     * @return 以该序列开头时返回 true
+     */
+    public boolean startsWith(byte[] prefix) {
+        return length >= prefix.length && regionMatches(0, prefix);
+    }
+
+    /**
+     * 判断行是否以给定字节序列结尾。
+     *
+     * @param suffix 后缀字节序列
+     * @return 以该序列结尾时返回 true
+     */
+    public boolean endsWith(byte[] suffix) {
+        return length >= suffix.length && regionMatches(length - suffix.length, suffix);
+    }
+
+    private boolean regionMatches(int from, byte[] bytes) {
+        int base = offset + from;
+        for (int i = 0; i < bytes.length; i++) {
+            if (array[base + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按 ISO-8859-1 将行内容转换为字符串，与 {@link MimeInputStream#readLine()} 的结果一致。
+     *
+     * @return 行内容字符串
+     */
+    @Override
+    public String toString() {
+        if (length == 0) return "";
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (array[offset + i] & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 直接引用底层数组中的行范围（零拷贝）。
+     */
+    void wrap(byte[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+        this.truncated = false;
+    }
+
+    /**
+     * 清空切片并切换到暂存数组，返回容量不小于 {@code capacity} 的暂存数组，供实现直接写入行字节。
+     * 写入完成后应调用 {@link #setLength(int)} 设置行长度。
+     */
+    byte[] reset(int capacity) {
+        ensureCapacity(capacity, 0);
+        array = scratch;
+        offset = 0;
+        length = 0;
+        truncated = false;
+        return scratch;
+    }
+
+    /**
+     * 扩容暂存数组并保留其前 {@code keep} 个字节，返回容量不小于 {@code capacity} 的暂存数组。
+     * 用于实现先将数据读入暂存数组、再确定行长度的情况，须在 {@link #reset(int)} 之后调用。
+     */
+    byte[] grow(int capacity, int keep) {
+        ensureCapacity(capacity, keep);
+        array = scratch;
+        return scratch;
+    }
+
+    /**
+     * 设置暂存数组中有效的行长度。
+     */
+    void setLength(int length) {
+        this.length = length;
+    }
+
+    /**
+     * 标记本次读取是否因达到长度上限而未读完整行。
+     */
+    void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * 将一段字节追加到暂存数组中的行末尾，用于行跨越多个读取窗口的情况。须在 {@link #reset(int)} 之后调用。
+     */
+    void append(byte[] b, int off, int len) {
+        if (len <= 0) return;
+        ensureCapacity(length + len, length);
+        array = scratch;
+        System.arraycopy(b, off, scratch, length, len);
+        length += len;
+    }
+
+    /**
+     * 以字符串内容填充暂存数组，供没有原生字节级实现的流使用。
+     */
+    void set(String line) {
+        int len = line.length();
+        byte[] bytes = reset(len);
+        for (int i = 0; i < len; i++) {
+            bytes[i] = (byte) line.charAt(i);
+        }
+        length = len;
+    }
+
+    private void ensureCapacity(int capacity, int keep) {
+        if (scratch != null && scratch.length >= capacity) {
+            return;
+        }
+        int newCapacity = scratch == null ? INITIAL_CAPACITY : scratch.length;
+        while (newCapacity < capacity) {
+            newCapacity = newCapacity << 1 > 0 ? newCapacity << 1 : Integer.MAX_VALUE - 8;
+            if (newCapacity == Integer.MAX_VALUE - 8) {
+                break;
+            }
+        }
+        if (newCapacity < capacity) {
+            throw new OutOfMemoryError("Line too long: " + capacity);
+        }
+        byte[] grown = new byte[newCapacity];
+        if (scratch != null && keep > 0) {
+            System.arraycopy(scratch, 0, grown, 0, keep);
+        }
+        scratch = grown;
+    }
+}
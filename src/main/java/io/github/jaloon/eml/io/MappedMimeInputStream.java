@@ -0,0 +1,278 @@
+package io.github.jaloon.eml.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射（{@link java.nio.MappedByteBuffer}）的 {@link MimeInputStream} 实现。
+ * <p>
+ * 打开文件时通过 {@link FileChannel#map} 将整个文件映射到内存，之后的读取、寻址和行扫描
+ * 都直接访问映射内存，不再产生 seek + read 系统调用：
+ * <ul>
+ *   <li><strong>零拷贝</strong>：{@link #newStream} 返回映射区域的切片，与原流共享同一份映射</li>
+ *   <li><strong>无堆内存复制</strong>：文件内容由操作系统页缓存承载，不占用 Java 堆</li>
+ *   <li><strong>支持 mark/reset</strong>：每个流独立维护读取位置与标记位置</li>
+ *   <li><strong>随机访问</strong>：实现 {@link MimeBytes}，字节级扫描器可直接在映射内存中扫描</li>
+ * </ul>
+ * <p>
+ * 映射建立后即关闭文件通道，映射区域在所有引用它的流被 GC 回收后由 JVM 释放。
+ * 单个映射最大为 {@link Integer#MAX_VALUE} 字节，更大的文件由 {@link MimeInputStream#of(File, FileAccessMode)}
+ * 分段映射为 {@link SegmentedMimeInputStream}。
+ *
+ * @see FileAccessMode#MAPPED
+ */
+class MappedMimeInputStream extends MimeInputStream implements MimeBytes {
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    /** 当前流对应的映射切片（小端序），position/limit 不使用，所有访问均为绝对索引 */
+    private final ByteBuffer buffer;
+    /** 切片在文件中的起始偏移 */
+    private final long start;
+    /** 切片长度（字节数） */
+    private final int length;
+    /** 当前读取位置（相对于切片起始） */
+    private int pos;
+    /** mark 标记位置（相对于切片起始） */
+    private int mark;
+    /** 是否关闭 */
+    private volatile boolean closed;
+
+    /**
+     * 映射整个文件并创建流。
+     *
+     * @param file 作为输入源的文件，长度不能超过 {@link Integer#MAX_VALUE}
+     * @throws IOException 如果打开或映射文件时发生I/O错误
+     */
+    MappedMimeInputStream(File file) throws IOException {
+        this(map(file), 0);
+    }
+
+    /**
+     * 基于已有映射切片创建流。
+     *
+     * @param buffer 映射切片
+     * @param start  切片在文件中的起始偏移
+     */
+    private MappedMimeInputStream(ByteBuffer buffer, long start) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.start = start;
+        this.length = buffer.capacity();
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * 创建一个零拷贝的子流，引用当前映射的 [start, end) 子范围。
+     *
+     * @param start 新流的起始位置（包含），相对于当前流的开始位置
+     * @param end   新流的结束位置（不包含），为 -1 时表示与当前流在相同位置结束
+     * @return 新的映射子流；若范围为空则返回空流
+     * @throws IOException 如果当前流已被关闭
+     */
+    @Override
+    public MimeInputStream newStream(long start, long end) throws IOException {
+        ensureOpen();
+        if (start < 0)
+            throw new IllegalArgumentException("start < 0");
+        if (end == -1 || end > length)
+            end = length;
+        if (end - start <= 0) {
+            return EmptyMimeInputStream.getInstance();
+        }
+        ByteBuffer dup = buffer.duplicate();
+        dup.limit((int) end).position((int) start);
+        return new MappedMimeInputStream(dup.slice(), this.start + start);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        ensureOpen();
+        this.pos = (int) Math.min(Math.max(offset, 0), length);
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        ensureOpen();
+        return pos;
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        ensureOpen();
+        return start + pos;
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getSize() {
+        return length;
+    }
+
+    @Override
+    public boolean supportsConcurrentRead() {
+        return true;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        ensureOpen();
+        if (pos >= length) return null;
+        int lineStart = pos;
+        while (pos < length) {
+            byte b = buffer.get(pos);
+            if (b == CR || b == LF) break;
+            pos++;
+        }
+        int lineEnd = pos;
+        if (pos < length && buffer.get(pos) == CR) pos++;
+        if (pos < length && buffer.get(pos) == LF) pos++;
+        int len = lineEnd - lineStart;
+        if (len == 0) return "";
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char) (buffer.get(lineStart + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /** 在映射内存中扫描行，并将行字节复制到切片的暂存数组 */
+    @Override
+    public boolean readLine(LineSlice line, int max) throws IOException {
+        ensureOpen();
+        if (max <= 0)
+            throw new IllegalArgumentException("max <= 0");
+        if (pos >= length) return false;
+        int lineStart = pos;
+        int stop = (int) Math.min(length, (long) pos + max);
+        while (pos < stop) {
+            byte b = buffer.get(pos);
+            if (b == CR || b == LF) break;
+            pos++;
+        }
+        int len = pos - lineStart;
+        byte[] bytes = line.reset(len);
+        for (int i = 0; i < len; i++) {
+            bytes[i] = buffer.get(lineStart + i);
+        }
+        line.setLength(len);
+        line.setTruncated(pos < length && buffer.get(pos) != CR && buffer.get(pos) != LF);
+        if (pos < length && buffer.get(pos) == CR) pos++;
+        if (pos < length && buffer.get(pos) == LF) pos++;
+        return true;
+    }
+
+    /** 读取相对于切片起始的指定偏移处的字节，不改变读取位置 */
+    @Override
+    public byte get(long index) {
+        return buffer.get((int) index);
+    }
+
+    /** 映射切片为小端序，一次读取 8 个字节 */
+    @Override
+    public long getLong(long index) {
+        return buffer.getLong((int) index);
+    }
+
+    @Override
+    public int read() throws IOException {
+        ensureOpen();
+        if (pos >= length) return -1;
+        return buffer.get(pos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= length) return -1;
+        int toRead = Math.min(len, length - pos);
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(pos);
+        dup.get(b, off, toRead);
+        pos += toRead;
+        return toRead;
+    }
+
+    /** 将映射内存中的剩余数据一次性批量写入目标通道 */
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        ensureOpen();
+        int remaining = length - pos;
+        if (remaining <= 0) return 0;
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(pos);
+        writeFully(target, dup);
+        pos = length;
+        return remaining;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        if (n <= 0) {
+            return 0;
+        }
+        int skipped = (int) Math.min(n, length - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return length - pos;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        mark = pos;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        ensureOpen();
+        pos = mark;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * 关闭此流。映射内存无法显式释放，关闭后由 JVM 在映射不再被引用时回收。
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
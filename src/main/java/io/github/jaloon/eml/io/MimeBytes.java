@@ -0,0 +1,97 @@
+package io.github.jaloon.eml.io;
+
+import java.io.IOException;
+
+/**
+ * 可按 long 偏移随机访问的 MIME 字节数据。
+ * <p>
+ * 由数据已完整驻留在内存（堆数组、内存映射或分段缓冲区）中的 {@link MimeInputStream} 实现，
+ * 数据不在内存中的流可以通过 {@link WindowedMimeBytes} 按数据块访问，
+ * 供 {@link io.github.jaloon.eml.parser.QuicklyAttachmentParser} 等字节级扫描器直接访问，
+ * 无需先把流内容复制到新的字节数组中。所有偏移均相对于数据起始位置，访问不改变流的读取位置。
+ *
+ * @see ByteArrayMimeInputStream
+ * @see SegmentedMimeInputStream
+ * @see WindowedMimeBytes
+ */
+public interface MimeBytes {
+    /**
+     * 获取数据长度。
+     *
+     * @return 数据长度（字节数）
+     */
+    long getSize();
+
+    /**
+     * 读取指定偏移处的字节。
+     *
+     * @param index 相对于数据起始位置的偏移，范围为 [0, {@link #getSize()})
+     * @return 该偏移处的字节
+     */
+    byte get(long index);
+
+    /**
+     * 按小端序读取从指定偏移开始的 8 个字节，即返回值的最低字节为 {@code get(index)}。
+     * <p>
+     * 供按字（word-at-a-time）扫描的算法使用。默认实现逐字节拼接，
+     * 内存型实现会覆盖此方法，以一次 8 字节的读取完成。
+     *
+     * @param index 相对于数据起始位置的偏移，范围为 [0, {@link #getSize()} - 8]
+     * @return 以小端序拼接的 8 个字节
+     */
+    default long getLong(long index) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (get(index + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * 查找 [from, to) 范围内第一个等于指定字节的位置。
+     * <p>
+     * 默认实现逐字节比较，基于数组的实现会覆盖此方法，通过 {@link ByteScanner} 批量扫描。
+     *
+     * @param b    要查找的字节
+     * @param from 起始偏移（含）
+     * @param to   结束偏移（不含）
+     * @return 该字节的偏移，未找到返回 -1
+     */
+    default long indexOf(byte b, long from, long to) {
+        for (long i = from; i < to; i++) {
+            if (get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找 [from, to) 范围内第一个行结束符（CR 或 LF）的位置。
+     * <p>
+     * 默认实现逐字节比较，基于数组的实现会覆盖此方法，通过 {@link ByteScanner} 批量扫描。
+     *
+     * @param from 起始偏移（含）
+     * @param to   结束偏移（不含）
+     * @return 行结束符的偏移，未找到返回 -1
+     */
+    default long indexOfLineEnd(long from, long to) {
+        for (long i = from; i < to; i++) {
+            byte b = get(i);
+            if (b == '\r' || b == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 创建引用 [start, end) 子范围的零拷贝流。
+     *
+     * @param start 起始偏移（包含）
+     * @param end   结束偏移（不包含）
+     * @return 引用该子范围的 MimeInputStream
+     * @throws IOException 如果创建流时发生I/O错误
+     */
+    MimeInputStream newStream(long start, long end) throws IOException;
+}
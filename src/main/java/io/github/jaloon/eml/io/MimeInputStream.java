@@ -3,14 +3,40 @@ package io.github.jaloon.eml.io;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * MimeInputStream 是一个抽象类，继承自 InputStream，用于处理 MIME 类型的输入流。
  * 它提供了额外的方法来控制和查询流的位置，并支持读取文本行。
  */
 public abstract class MimeInputStream extends InputStream {
+    /**
+     * {@link FileAccessMode#BUFFERED} 方式下每个流的默认预读窗口大小（字节）。
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    /**
+     * {@link #of(InputStream, int)} 默认的内存缓冲上限（字节），超过该大小的数据将转存到临时文件。
+     */
+    public static final int DEFAULT_MEMORY_THRESHOLD = 4 * 1024 * 1024;
+    /**
+     * 内存缓冲区可分配的最大数组长度，部分虚拟机在数组中保留头部字段。
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    /**
+     * {@link #readLine(LineSlice, int)} 默认实现首次读取的块大小，可容纳常见的 base64 行与头部行。
+     */
+    private static final int LINE_BLOCK_SIZE = 256;
+
     /**
      * 返回一个空的 MimeInputStream 实例。
      *
@@ -31,6 +57,141 @@ public abstract class MimeInputStream extends InputStream {
         return new FileSharedMimeInputStream(file);
     }
 
+    /**
+     * 以指定的文件访问方式从给定的文件创建一个MimeInputStream实例。
+     * <p>
+     * {@link FileAccessMode#MAPPED} 方式下，长度超过 {@link Integer#MAX_VALUE} 的文件无法整体映射，
+     * 将按 1 GB 分段映射为 {@link SegmentedMimeInputStream}。
+     *
+     * @param file 文件对象，表示要从中读取数据的文件
+     * @param mode 文件访问方式
+     * @return 一个MimeInputStream实例，用于处理指定文件中的MIME类型数据
+     * @throws IOException 如果在尝试访问文件时发生I/O错误
+     */
+    public static MimeInputStream of(File file, FileAccessMode mode) throws IOException {
+        switch (mode) {
+            case MAPPED:
+                if (file.length() <= Integer.MAX_VALUE) {
+                    return new MappedMimeInputStream(file);
+                }
+                return SegmentedMimeInputStream.map(file);
+            case CHANNEL:
+                return new ChannelMimeInputStream(file.toPath(), DEFAULT_BUFFER_SIZE, StandardOpenOption.READ);
+            case BUFFERED:
+                return new FileSharedMimeInputStream(file, DEFAULT_BUFFER_SIZE);
+            case RANDOM_ACCESS:
+            default:
+                return new FileSharedMimeInputStream(file);
+        }
+    }
+
+    /**
+     * 基于已打开的异步文件通道创建一个MimeInputStream实例。
+     * <p>
+     * 返回的流及其子流通过定位读取访问通道，读取时在调用线程上等待异步读取完成；
+     * 通道在返回的流及其所有子流关闭后关闭。
+     * <p>
+     * 异步读取由打开通道时指定的线程池完成，因此不能在该线程池的线程上读取返回的流：
+     * 线程池的线程全部在等待读取时，异步读取无法执行，读取将永远阻塞。
+     *
+     * @param channel 异步文件通道
+     * @return 覆盖整个文件的MimeInputStream实例
+     * @throws IOException 如果获取文件大小时发生I/O错误
+     */
+    public static MimeInputStream of(AsynchronousFileChannel channel) throws IOException {
+        return new ChannelMimeInputStream(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 从 gzip 压缩的邮件文件（如 .eml.gz）创建一个按需解压的MimeInputStream实例。
+     * <p>
+     * 打开前扫描文件构建 {@link GzipIndex}；需要多次打开同一文件时，可以持久化索引后使用
+     * {@link GzipMimeInputStream#GzipMimeInputStream(Path, GzipIndex)} 打开，避免重复扫描。
+     *
+     * @param path gzip 文件路径
+     * @return 以解压后偏移寻址的MimeInputStream实例
+     * @throws IOException 如果读取文件时发生I/O错误，或文件不是有效的 gzip 格式
+     */
+    public static MimeInputStream gzip(Path path) throws IOException {
+        return new GzipMimeInputStream(path, GzipIndex.build(path));
+    }
+
+    /**
+     * 从给定的文件创建一个带预读窗口的MimeInputStream实例。
+     * <p>
+     * 返回的流及其通过 {@link #newStream} 创建的所有子流各自维护指定大小的预读窗口，
+     * 逐字节读取和行扫描均在窗口内完成，仅在窗口耗尽时访问文件。
+     *
+     * @param file       文件对象，表示要从中读取数据的文件
+     * @param bufferSize 每个流的预读窗口大小（字节），必须大于 0
+     * @return 一个带预读窗口的MimeInputStream实例
+     * @throws IOException 如果在尝试访问文件时发生I/O错误
+     */
+    public static MimeInputStream buffered(File file, int bufferSize) throws IOException {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("bufferSize <= 0");
+        return new FileSharedMimeInputStream(file, bufferSize);
+    }
+
+    /**
+     * 从不可寻址的输入流（如网络连接、消息队列）创建一个MimeInputStream实例。
+     * <p>
+     * 输入数据首先缓冲在内存中；若总大小不超过 {@code memoryThreshold}，返回直接引用缓冲区的
+     * {@link ByteArrayMimeInputStream}；一旦超过该阈值，已缓冲的数据与剩余数据将写入临时文件，
+     * 并返回基于该文件的 {@link ChannelMimeInputStream}。临时文件在返回的流及其所有子流关闭后自动删除。
+     * <p>
+     * 此方法会读取输入流直到末尾，但不会关闭它。
+     *
+     * @param in              输入流
+     * @param memoryThreshold 内存缓冲上限（字节），必须非负
+     * @return 包含输入流全部数据的MimeInputStream实例
+     * @throws IOException 如果在读取输入流或写入临时文件时发生I/O错误
+     */
+    public static MimeInputStream of(InputStream in, int memoryThreshold) throws IOException {
+        if (memoryThreshold < 0)
+            throw new IllegalArgumentException("memoryThreshold < 0");
+        byte[] buf = new byte[Math.min(memoryThreshold, DEFAULT_BUFFER_SIZE) + 1];
+        int count = 0;
+        int read;
+        while ((read = in.read(buf, count, buf.length - count)) >= 0) {
+            count += read;
+            if (count > memoryThreshold) {
+                return spill(in, buf, count);
+            }
+            if (count == buf.length) {
+                int length = (int) Math.min((long) memoryThreshold + 1, Math.min(buf.length * 2L, MAX_ARRAY_SIZE));
+                if (length <= count) {
+                    // 阈值接近数组长度上限时缓冲区无法继续扩容，此时同样写入临时文件
+                    return spill(in, buf, count);
+                }
+                buf = Arrays.copyOf(buf, length);
+            }
+        }
+        return count == 0 ? empty() : new ByteArrayMimeInputStream(buf, 0, count);
+    }
+
+    /**
+     * 将已缓冲的数据及输入流中的剩余数据写入临时文件，返回读取后即删除该文件的流。
+     */
+    private static MimeInputStream spill(InputStream in, byte[] buffered, int count) throws IOException {
+        Path temp = Files.createTempFile("eml-parser", ".eml");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(buffered, 0, count);
+                byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buf)) >= 0) {
+                    out.write(buf, 0, read);
+                }
+            }
+            return new ChannelMimeInputStream(temp, DEFAULT_BUFFER_SIZE,
+                    StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
     /**
      * 创建一个新的MimeInputStream，该流从指定的开始位置到结束位置读取数据。
      *
@@ -89,6 +250,89 @@ public abstract class MimeInputStream extends InputStream {
      */
     public abstract String readLine() throws IOException;
 
+    /**
+     * 读取一行原始字节到可复用的行切片中，不为每一行创建字符串。
+     * 行结束符的定义与 {@link #readLine()} 相同，切片内容不包括行终止字符。
+     * <p>
+     * 等同于不限制行长度的 {@link #readLine(LineSlice, int)}。
+     *
+     * @param line 用于接收行内容的切片，其内容在下一次读取前有效
+     * @return 读取到一行时返回 true，如果已到达流的末尾则返回 false
+     * @throws IOException 如果发生I/O错误
+     */
+    public boolean readLine(LineSlice line) throws IOException {
+        return readLine(line, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 读取一行原始字节到可复用的行切片中，最多读取 {@code max} 个字节的行内容。
+     * <p>
+     * 行长度超过 {@code max} 时只读取其前 {@code max} 个字节，{@link LineSlice#isTruncated()} 返回 true，
+     * 读取位置停在这些字节之后，下一次读取从行的剩余部分开始。因此处理不可信数据时，
+     * 单次读取消耗的内存与时间不会超过上限，不会因为缺少行结束符而读入整个流。
+     * <p>
+     * 默认实现按块读取到切片的暂存数组中扫描行结束符，再通过 {@link #seek(long)} 退回多读的字节；
+     * 内存型与预读型实现会覆盖此方法，直接在底层数据或预读窗口中扫描。
+     *
+     * @param line 用于接收行内容的切片，其内容在下一次读取前有效
+     * @param max  最多读取的行内容字节数，必须大于 0
+     * @return 读取到一行（或行的前一部分）时返回 true，如果已到达流的末尾则返回 false
+     * @throws IOException 如果发生I/O错误
+     */
+    public boolean readLine(LineSlice line, int max) throws IOException {
+        if (max <= 0)
+            throw new IllegalArgumentException("max <= 0");
+        long lineStart = getPosition();
+        // 最多需要 max 个字节的行内容、1 个字节的行结束符，以及 \r 之后判断是否为 \r\n 的 1 个字节
+        long want = Math.min((long) max + 2, MAX_ARRAY_SIZE);
+        byte[] bytes = line.reset((int) Math.min(want, LINE_BLOCK_SIZE));
+        int count = 0;
+        int i = 0;
+        boolean eof = false;
+        while (true) {
+            long stop = Math.min(count, (long) max + 1);
+            while (i < stop && bytes[i] != '\r' && bytes[i] != '\n') {
+                i++;
+            }
+            if (i > max || eof || (i < count && (bytes[i] == '\n' || i + 1 < count))) {
+                break;
+            }
+            int room = (int) Math.min(bytes.length, want) - count;
+            if (room <= 0) {
+                if (bytes.length >= want) {
+                    throw new OutOfMemoryError("Line too long: " + count);
+                }
+                bytes = line.grow((int) Math.min(want, bytes.length * 2L), count);
+                room = (int) Math.min(bytes.length, want) - count;
+            }
+            int read = read(bytes, count, room);
+            if (read < 0) {
+                eof = true;
+            } else {
+                count += read;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        int length;
+        int consumed;
+        if (i > max) {
+            length = max;
+            consumed = max;
+        } else if (i < count) {
+            length = i;
+            consumed = bytes[i] == '\r' && i + 1 < count && bytes[i + 1] == '\n' ? i + 2 : i + 1;
+        } else {
+            length = count;
+            consumed = count;
+        }
+        line.setLength(length);
+        line.setTruncated(i > max);
+        seek(lineStart + consumed);
+        return true;
+    }
+
     /**
      * 读取一行，并转换成指定编码
      *
@@ -104,6 +348,72 @@ public abstract class MimeInputStream extends InputStream {
         return new String(line.getBytes(StandardCharsets.ISO_8859_1), charset);
     }
 
+    /**
+     * 将当前位置到流末尾的全部原始字节写入目标通道，并将读取位置移动到流末尾。
+     * <p>
+     * 默认实现通过 {@link #DEFAULT_BUFFER_SIZE} 大小的缓冲区复制；文件型实现使用
+     * {@link java.nio.channels.FileChannel#transferTo}（由内核完成复制），内存型实现则一次性批量写入。
+     *
+     * @param target 目标通道
+     * @return 写入的字节数
+     * @throws IOException 如果在读取或写入过程中发生I/O错误
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = read(buf, 0, buf.length)) > 0) {
+            writeFully(target, ByteBuffer.wrap(buf, 0, read));
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * 将缓冲区的剩余数据全部写入目标通道。
+     *
+     * @param target 目标通道
+     * @param src    数据缓冲区
+     * @throws IOException 如果写入过程中发生I/O错误
+     */
+    static void writeFully(WritableByteChannel target, ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            target.write(src);
+        }
+    }
+
+    /**
+     * 通过 {@link FileChannel#transferTo} 将文件中 [position, position + count) 范围的数据写入目标通道。
+     *
+     * @param channel  源文件通道
+     * @param position 起始文件偏移量
+     * @param count    要传输的字节数
+     * @param target   目标通道
+     * @return 实际传输的字节数
+     * @throws IOException 如果在传输过程中发生I/O错误
+     */
+    static long transferFully(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        long total = 0;
+        while (total < count) {
+            long n = channel.transferTo(position + total, count - total, target);
+            if (n <= 0) break;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * 判断能否在多个线程中同时读取此流通过 {@link #newStream} 创建的不同子流（每个线程使用各自的子流）。
+     * <p>
+     * 单个流实例本身不要求线程安全；此方法只说明子流之间是否共享可变的读取状态。
+     * 默认返回 {@code false}，内存型实现以及通过定位读取访问文件的实现返回 {@code true}。
+     *
+     * @return 不同子流可以并发读取时返回 {@code true}
+     */
+    public boolean supportsConcurrentRead() {
+        return false;
+    }
+
     /**
      * 强制关闭当前的输入流。此方法确保所有系统资源被释放，即使在异常情况下也尝试执行清理操作。
      *
@@ -0,0 +1,214 @@
+package io.github.jaloon.eml.io;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 {@link BufferPool} 借出数组的 {@link MimeInputStream} 实现，读取与寻址均委托给 {@link ByteArrayMimeInputStream}。
+ * <p>
+ * 当前流与 {@link #newStream} 创建的所有子流共享同一个数组和引用计数：
+ * <ul>
+ *   <li><strong>零拷贝</strong>：子流直接引用数组的子范围</li>
+ *   <li><strong>引用计数归还</strong>：每个流关闭时减少引用计数，归零时数组归还到池中；
+ *       只要仍有子流（如附件内容体）未关闭，数组就不会被复用</li>
+ *   <li><strong>关闭检查</strong>：流关闭后的读取抛出 {@link IOException}，避免读到已被复用的数组内容</li>
+ * </ul>
+ * <p>
+ * 注意：{@link #forceClose()} 与 {@link #close()} 相同，只释放当前流的引用，
+ * 以免在其他子流仍在读取时归还数组。
+ *
+ * @see BufferPool#wrap(byte[], int)
+ */
+public class PooledMimeInputStream extends MimeInputStream implements MimeBytes {
+
+    /** 实际执行读取的字节数组流 */
+    private final ByteArrayMimeInputStream delegate;
+    /** 由所有子流共享的数组租约 */
+    private final Lease lease;
+    /** 是否关闭 */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    PooledMimeInputStream(BufferPool pool, byte[] buffer, int length) {
+        this(new ByteArrayMimeInputStream(buffer, 0, length), new Lease(pool, buffer));
+    }
+
+    private PooledMimeInputStream(ByteArrayMimeInputStream delegate, Lease lease) {
+        this.delegate = delegate;
+        this.lease = lease;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed.get())
+            throw new IOException("Stream closed");
+    }
+
+    /** 读取指定偏移处的字节；调用方需保证当前流未关闭，解析器的扫描游标为此持有自己的子流 */
+    @Override
+    public byte get(long index) {
+        return delegate.get(index);
+    }
+
+    @Override
+    public long getLong(long index) {
+        return delegate.getLong(index);
+    }
+
+    @Override
+    public long indexOf(byte b, long from, long to) {
+        return delegate.indexOf(b, from, to);
+    }
+
+    @Override
+    public long indexOfLineEnd(long from, long to) {
+        return delegate.indexOfLineEnd(from, to);
+    }
+
+    /**
+     * 创建一个零拷贝的子流，与当前流共享数组并增加引用计数。
+     */
+    @Override
+    public MimeInputStream newStream(long start, long end) throws IOException {
+        ensureOpen();
+        if (end == -1)
+            end = delegate.getSize();
+        if (end - start <= 0) {
+            return EmptyMimeInputStream.getInstance();
+        }
+        lease.retain();
+        return new PooledMimeInputStream((ByteArrayMimeInputStream) delegate.newStream(start, end), lease);
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        ensureOpen();
+        delegate.seek(offset);
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        ensureOpen();
+        return delegate.getPosition();
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        ensureOpen();
+        return delegate.getFilePointer();
+    }
+
+    @Override
+    public long getStart() {
+        return delegate.getStart();
+    }
+
+    @Override
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    @Override
+    public boolean supportsConcurrentRead() {
+        return delegate.supportsConcurrentRead();
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        ensureOpen();
+        return delegate.readLine();
+    }
+
+    @Override
+    public boolean readLine(LineSlice line, int max) throws IOException {
+        ensureOpen();
+        return delegate.readLine(line, max);
+    }
+
+    @Override
+    public int read() throws IOException {
+        ensureOpen();
+        return delegate.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        return delegate.read(b, off, len);
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        ensureOpen();
+        return delegate.transferTo(target);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        return delegate.skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return delegate.available();
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        delegate.mark(readAheadLimit);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        ensureOpen();
+        delegate.reset();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * 关闭此流并减少引用计数，引用计数归零时将数组归还到池中。
+     */
+    @Override
+    public void close() {
+        if (closed.getAndSet(true)) return;
+        lease.release();
+    }
+
+    /**
+     * 与 {@link #close()} 相同：数组可能仍被其他子流引用，不能强制归还。
+     */
+    @Override
+    public void forceClose() {
+        close();
+    }
+
+    /**
+     * 数组租约：记录借出的数组及引用它的流的数量。
+     */
+    private static final class Lease {
+        private final BufferPool pool;
+        private final byte[] buffer;
+        private final AtomicInteger refCount = new AtomicInteger(1);
+
+        Lease(BufferPool pool, byte[] buffer) {
+            this.pool = pool;
+            this.buffer = buffer;
+        }
+
+        void retain() {
+            refCount.getAndIncrement();
+        }
+
+        void release() {
+            if (refCount.decrementAndGet() == 0) {
+                pool.release(buffer);
+            }
+        }
+    }
+}
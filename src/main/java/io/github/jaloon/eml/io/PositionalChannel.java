@@ -0,0 +1,112 @@
+package io.github.jaloon.eml.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 支持定位读取（不修改共享读取位置）的文件通道抽象，由 {@link ChannelMimeInputStream} 使用。
+ * 统一 {@link FileChannel} 与 {@link AsynchronousFileChannel} 两种通道的定位读取方式。
+ */
+interface PositionalChannel extends Closeable {
+
+    /**
+     * 从指定文件偏移量开始读取数据到缓冲区，不修改通道的位置。
+     *
+     * @param dst      目标缓冲区
+     * @param position 文件偏移量
+     * @return 读取的字节数，到达文件末尾时返回 -1
+     * @throws IOException 如果读取时发生I/O错误
+     */
+    int read(ByteBuffer dst, long position) throws IOException;
+
+    /**
+     * 获取文件大小。
+     *
+     * @return 文件大小（字节）
+     * @throws IOException 如果获取大小时发生I/O错误
+     */
+    long size() throws IOException;
+
+    /**
+     * 将文件中 [position, position + count) 范围的数据写入目标通道。
+     *
+     * @param position 起始文件偏移量
+     * @param count    要传输的字节数
+     * @param target   目标通道
+     * @return 实际传输的字节数
+     * @throws IOException 如果传输时发生I/O错误
+     */
+    long transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * 按路径打开同步文件通道，传输由 {@link FileChannel#transferTo} 在内核中完成。
+     * 通道被某个线程的中断关闭后重新打开，详见 {@link ReopeningFileChannel}。
+     *
+     * @param path    文件路径
+     * @param options 打开文件通道的选项
+     * @return 定位读取通道
+     * @throws IOException 如果在打开文件时发生I/O错误
+     */
+    static PositionalChannel open(Path path, OpenOption... options) throws IOException {
+        return new ReopeningFileChannel(path, options);
+    }
+
+    /**
+     * 包装异步文件通道，读取在调用线程上等待异步操作完成。
+     */
+    static PositionalChannel of(AsynchronousFileChannel channel) {
+        return new PositionalChannel() {
+            @Override
+            public int read(ByteBuffer dst, long position) throws IOException {
+                try {
+                    return channel.read(dst, position).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(e.getMessage());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException(cause);
+                }
+            }
+
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+                ByteBuffer buf = ByteBuffer.allocate((int) Math.min(count, MimeInputStream.DEFAULT_BUFFER_SIZE * 8));
+                long total = 0;
+                while (total < count) {
+                    buf.clear();
+                    if (count - total < buf.capacity()) {
+                        buf.limit((int) (count - total));
+                    }
+                    int read = read(buf, position + total);
+                    if (read <= 0) break;
+                    buf.flip();
+                    MimeInputStream.writeFully(target, buf);
+                    total += read;
+                }
+                return total;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.jaloon.eml.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按路径打开、可在被中断关闭后重新打开的 {@link FileChannel}，由 {@link ChannelMimeInputStream} 的所有子流共享。
+ * <p>
+ * {@link FileChannel} 是可中断通道：任一线程在读取时被中断，通道即被关闭，共享同一通道的其他子流随之失效。
+ * 为使一个子流的中断不影响其他子流：
+ * <ul>
+ *   <li>读取不响应中断：读取前清除当前线程的中断状态，读取结束后恢复，调用方仍可检查中断状态</li>
+ *   <li>读取过程中到达的中断（或其他线程的中断）关闭通道时，重新打开通道并重试读取</li>
+ *   <li>{@link #transferTo} 无法得知被中断前已写入目标通道的字节数，因此不重试：重新打开通道后抛出异常，
+ *       之后的读取不受影响</li>
+ * </ul>
+ * 通道由 {@link #close()} 关闭后不再重新打开。打开选项包含 {@link StandardOpenOption#DELETE_ON_CLOSE} 时，
+ * 文件在 {@link #close()} 时删除，而不是在底层通道关闭时删除，以便重新打开。
+ */
+final class ReopeningFileChannel implements PositionalChannel {
+
+    private final Path path;
+    private final OpenOption[] options;
+    private final boolean deleteOnClose;
+    /** 当前打开的通道，被中断关闭后替换为重新打开的通道 */
+    private volatile FileChannel channel;
+    /** 是否已由 {@link #close()} 关闭 */
+    private volatile boolean closed;
+
+    /**
+     * 打开指定文件。
+     *
+     * @param path    文件路径
+     * @param options 打开文件通道的选项
+     * @throws IOException 如果在打开文件时发生I/O错误
+     */
+    ReopeningFileChannel(Path path, OpenOption... options) throws IOException {
+        List<OpenOption> list = new ArrayList<>(options.length);
+        boolean delete = false;
+        for (OpenOption option : options) {
+            if (option == StandardOpenOption.DELETE_ON_CLOSE) {
+                delete = true;
+            } else {
+                list.add(option);
+            }
+        }
+        this.path = path;
+        this.options = list.toArray(new OpenOption[0]);
+        this.deleteOnClose = delete;
+        this.channel = FileChannel.open(path, this.options);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                FileChannel current = channel;
+                int start = dst.position();
+                try {
+                    return current.read(dst, position);
+                } catch (ClosedChannelException e) {
+                    interrupted |= Thread.interrupted();
+                    reopen(current, e);
+                    dst.position(start);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                FileChannel current = channel;
+                try {
+                    return current.size();
+                } catch (ClosedChannelException e) {
+                    interrupted |= Thread.interrupted();
+                    reopen(current, e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        FileChannel current = channel;
+        try {
+            return MimeInputStream.transferFully(current, position, count, target);
+        } catch (ClosedChannelException e) {
+            interrupted |= Thread.interrupted();
+            reopen(current, e);
+            throw e;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 若通道仍是 {@code current} 且未由 {@link #close()} 关闭，则重新打开通道；已关闭时抛出原异常。
+     */
+    private synchronized void reopen(FileChannel current, ClosedChannelException cause) throws IOException {
+        if (closed) {
+            throw cause;
+        }
+        if (channel == current && !current.isOpen()) {
+            channel = FileChannel.open(path, options);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            channel.close();
+        } finally {
+            if (deleteOnClose) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package io.github.jaloon.eml.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于分段缓冲区的 {@link MimeInputStream} 实现，所有偏移均为 long，用于承载超过 2 GB 的邮件数据。
+ * <p>
+ * 数据由若干个 {@link ByteBuffer} 段顺序拼接而成，段可以是堆内字节数组，也可以是文件的内存映射区域。
+ * 除最后一段外，所有段的容量必须相同且为 2 的幂，从而可以通过移位与掩码在常数时间内定位任意偏移。
+ * <p>
+ * 设计特点：
+ * <ul>
+ *   <li><strong>零拷贝</strong>：{@link #newStream} 创建的子流共享同一组段，无数据复制开销</li>
+ *   <li><strong>跨段访问</strong>：读取、行扫描与 {@link MimeBytes#get(long)} 透明地跨越段边界</li>
+ *   <li><strong>支持 mark/reset</strong>：每个流独立维护读取位置与标记位置</li>
+ * </ul>
+ *
+ * @see MimeInputStream#of(File, FileAccessMode) 超过 2 GB 的文件以 {@link FileAccessMode#MAPPED} 方式打开时分段映射
+ */
+public class SegmentedMimeInputStream extends MimeInputStream implements MimeBytes {
+
+    /** 默认段大小的位移量，即每段 1 GB */
+    public static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    /** 数据段，position/limit 不使用，所有访问均为绝对索引 */
+    private final ByteBuffer[] segments;
+    /** 段大小的位移量 */
+    private final int shift;
+    /** 段内偏移掩码 */
+    private final long mask;
+    /** 数据在全部段中的起始偏移 */
+    private final long start;
+    /** 数据长度（字节数） */
+    private final long size;
+    /** 当前读取位置（相对于 start） */
+    private long pos;
+    /** mark 标记位置（相对于 start） */
+    private long mark;
+
+    /**
+     * 创建引用全部段的流。
+     *
+     * @param segments 数据段，除最后一段外容量必须相同且为 2 的幂
+     */
+    public SegmentedMimeInputStream(ByteBuffer[] segments) {
+        this(segments, segmentShift(segments), 0, totalSize(segments));
+    }
+
+    private SegmentedMimeInputStream(ByteBuffer[] segments, int shift, long start, long size) {
+        this.segments = segments;
+        this.shift = shift;
+        this.mask = (1L << shift) - 1;
+        this.start = start;
+        this.size = size;
+    }
+
+    private static int segmentShift(ByteBuffer[] segments) {
+        if (segments.length <= 1) {
+            // 单段时任意 int 偏移都落在第 0 段
+            return 31;
+        }
+        int capacity = segments[0].capacity();
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Segment capacity must be a power of two: " + capacity);
+        }
+        for (int i = 1; i < segments.length - 1; i++) {
+            if (segments[i].capacity() != capacity) {
+                throw new IllegalArgumentException("Segments must have the same capacity except the last one");
+            }
+        }
+        if (segments[segments.length - 1].capacity() > capacity) {
+            throw new IllegalArgumentException("The last segment is larger than the others");
+        }
+        return Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private static long totalSize(ByteBuffer[] segments) {
+        long total = 0;
+        for (ByteBuffer segment : segments) {
+            total += segment.capacity();
+        }
+        return total;
+    }
+
+    /**
+     * 将文件按 {@link #DEFAULT_SEGMENT_SHIFT} 大小分段映射到内存。
+     *
+     * @param file 作为输入源的文件
+     * @return 覆盖整个文件的分段流
+     * @throws IOException 如果打开或映射文件时发生I/O错误
+     */
+    static SegmentedMimeInputStream map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long segmentSize = 1L << DEFAULT_SEGMENT_SHIFT;
+            ByteBuffer[] segments = new ByteBuffer[(int) ((fileSize + segmentSize - 1) >>> DEFAULT_SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << DEFAULT_SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, fileSize - position));
+            }
+            return new SegmentedMimeInputStream(segments, DEFAULT_SEGMENT_SHIFT, 0, fileSize);
+        }
+    }
+
+    /**
+     * 从输入流中读取指定数量的字节，存入按 {@link #DEFAULT_SEGMENT_SHIFT} 大小分段的堆内缓冲区。
+     * 适用于无法放入单个字节数组（超过 {@link Integer#MAX_VALUE}）的数据。
+     *
+     * @param in   输入流
+     * @param size 要读取的字节数
+     * @return 包含所读数据的分段流；若输入流提前结束，流的大小为实际读取的字节数
+     * @throws IOException 如果读取输入流时发生I/O错误
+     */
+    public static SegmentedMimeInputStream readFully(InputStream in, long size) throws IOException {
+        long segmentSize = 1L << DEFAULT_SEGMENT_SHIFT;
+        ByteBuffer[] segments = new ByteBuffer[(int) ((size + segmentSize - 1) >>> DEFAULT_SEGMENT_SHIFT)];
+        long total = 0;
+        for (int i = 0; i < segments.length; i++) {
+            byte[] chunk = new byte[(int) Math.min(segmentSize, size - total)];
+            int offset = 0;
+            while (offset < chunk.length) {
+                int read = in.read(chunk, offset, chunk.length - offset);
+                if (read < 0) break;
+                offset += read;
+            }
+            segments[i] = ByteBuffer.wrap(chunk);
+            total += offset;
+            if (offset < chunk.length) break;
+        }
+        return new SegmentedMimeInputStream(segments, DEFAULT_SEGMENT_SHIFT, 0, total);
+    }
+
+    /** 读取相对于 start 的指定偏移处的字节，不改变读取位置 */
+    @Override
+    public byte get(long index) {
+        long abs = start + index;
+        return segments[(int) (abs >>> shift)].get((int) (abs & mask));
+    }
+
+    /** 8 个字节位于同一段内时一次读取，跨段时逐字节拼接 */
+    @Override
+    public long getLong(long index) {
+        long abs = start + index;
+        ByteBuffer segment = segments[(int) (abs >>> shift)];
+        int i = (int) (abs & mask);
+        if (i + 8 > segment.capacity()) {
+            return MimeBytes.super.getLong(index);
+        }
+        long value = segment.getLong(i);
+        return segment.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    @Override
+    public int read() {
+        if (pos >= size) return -1;
+        return get(pos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= size) return -1;
+        int toRead = (int) Math.min(len, size - pos);
+        int done = 0;
+        while (done < toRead) {
+            long abs = start + pos;
+            ByteBuffer segment = segments[(int) (abs >>> shift)].duplicate();
+            int index = (int) (abs & mask);
+            int n = Math.min(toRead - done, segment.capacity() - index);
+            segment.position(index);
+            segment.get(b, off + done, n);
+            done += n;
+            pos += n;
+        }
+        return toRead;
+    }
+
+    /** 将剩余数据按段批量写入目标通道 */
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long total = 0;
+        while (pos < size) {
+            long abs = start + pos;
+            ByteBuffer segment = segments[(int) (abs >>> shift)].duplicate();
+            int index = (int) (abs & mask);
+            int n = (int) Math.min(size - pos, segment.capacity() - index);
+            segment.limit(index + n).position(index);
+            writeFully(target, segment);
+            pos += n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * 创建一个零拷贝的子流，引用当前流的 [start, end) 子范围。
+     */
+    @Override
+    public MimeInputStream newStream(long start, long end) {
+        if (start < 0)
+            throw new IllegalArgumentException("start < 0");
+        if (end == -1 || end > size)
+            end = size;
+        if (end - start <= 0) {
+            return EmptyMimeInputStream.getInstance();
+        }
+        return new SegmentedMimeInputStream(segments, shift, this.start + start, end - start);
+    }
+
+    /** 将读取位置重置为相对于 start 的指定偏移 */
+    @Override
+    public void seek(long offset) {
+        this.pos = Math.min(Math.max(offset, 0), size);
+    }
+
+    /** 返回当前读取位置（相对于 start） */
+    @Override
+    public long getPosition() {
+        return pos;
+    }
+
+    /** 返回当前在全部段中的绝对位置（start + pos） */
+    @Override
+    public long getFilePointer() {
+        return start + pos;
+    }
+
+    /** 返回数据在全部段中的起始偏移 */
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    /** 返回数据长度（字节数） */
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean supportsConcurrentRead() {
+        return true;
+    }
+
+    /**
+     * 读取一行数据（不含行结束符），支持 \r\n、\r、\n 三种行结束格式。
+     * 返回 null 表示已到达数据末尾。
+     */
+    @Override
+    public String readLine() {
+        if (pos >= size) return null;
+        long lineStart = pos;
+        byte b;
+        while (pos < size && (b = get(pos)) != CR && b != LF) {
+            pos++;
+        }
+        long lineEnd = pos;
+        if (pos < size && get(pos) == CR) pos++;
+        if (pos < size && get(pos) == LF) pos++;
+        int len = (int) (lineEnd - lineStart);
+        if (len <= 0) return "";
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char) (get(lineStart + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /** 跨段扫描行，并将行字节复制到切片的暂存数组 */
+    @Override
+    public boolean readLine(LineSlice line, int max) {
+        if (max <= 0)
+            throw new IllegalArgumentException("max <= 0");
+        if (pos >= size) return false;
+        long lineStart = pos;
+        long stop = Math.min(size, pos + max);
+        byte b;
+        while (pos < stop && (b = get(pos)) != CR && b != LF) {
+            pos++;
+        }
+        int len = (int) (pos - lineStart);
+        byte[] bytes = line.reset(len);
+        for (int i = 0; i < len; i++) {
+            bytes[i] = get(lineStart + i);
+        }
+        line.setLength(len);
+        line.setTruncated(pos < size && get(pos) != CR && get(pos) != LF);
+        if (pos < size && get(pos) == CR) pos++;
+        if (pos < size && get(pos) == LF) pos++;
+        return true;
+    }
+
+    @Override
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, size - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - pos);
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        mark = pos;
+    }
+
+    @Override
+    public void reset() {
+        pos = mark;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // 无需释放资源，堆内段由 GC 回收，映射段在不再被引用时由 JVM 释放
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.jaloon.eml.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * 基于数据块窗口的 {@link MimeBytes} 视图，使数据不在内存中的 {@link MimeInputStream}（如
+ * {@link FileAccessMode#RANDOM_ACCESS}、{@link FileAccessMode#CHANNEL} 方式打开的文件）也可以被字节级扫描器直接访问。
+ * <p>
+ * 数据按固定大小的数据块读入少量缓存块，访问的偏移不在缓存中时以一次定位读取载入所在的数据块，替换最久未使用的缓存块。
+ * 扫描器基本按偏移递增的顺序访问数据，回看的范围也很小，因此每个数据块通常只读取一次；
+ * 占用的堆内存为缓存块的总大小，与数据长度无关。
+ * <p>
+ * {@link #newStream} 直接返回源流的子流（对文件而言即为文件的子流），不复制数据。
+ * {@link #get} 等访问方法不能抛出受检异常，读取数据块时发生的 I/O 错误包装在 {@link UncheckedIOException} 中抛出。
+ * <p>
+ * 视图通过源流的一个独立子流读取数据，不改变源流的读取位置；使用完毕后应调用 {@link #close()} 关闭该子流。
+ * 此类不是线程安全的。
+ */
+public final class WindowedMimeBytes implements MimeBytes, Closeable {
+    /** 默认数据块大小 */
+    public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+    /** 默认缓存块数量 */
+    public static final int DEFAULT_BLOCK_COUNT = 4;
+
+    private final MimeInputStream source;
+    /** 读取数据块的独立子流 */
+    private final MimeInputStream reader;
+    private final long size;
+    private final int blockSize;
+    /** 数据块大小的位移量 */
+    private final int shift;
+    /** 缓存块及其对应的数据块序号（未载入时为 -1）、有效长度与最近访问序号 */
+    private final byte[][] blocks;
+    private final long[] blockIndex;
+    private final int[] blockLength;
+    private final long[] lastUsed;
+    private long clock;
+    /** 最近一次访问的缓存块 */
+    private int current;
+
+    /**
+     * 以默认的数据块大小与缓存块数量创建视图。
+     *
+     * @param source 源流，大小必须已知
+     * @throws IOException 如果创建读取子流时发生I/O错误
+     */
+    public WindowedMimeBytes(MimeInputStream source) throws IOException {
+        this(source, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT);
+    }
+
+    /**
+     * 创建视图，此时不读取任何数据。
+     *
+     * @param source     源流，大小必须已知
+     * @param blockSize  数据块大小，必须为 2 的幂
+     * @param blockCount 缓存块数量，必须大于 0
+     * @throws IOException 如果创建读取子流时发生I/O错误
+     */
+    public WindowedMimeBytes(MimeInputStream source, int blockSize, int blockCount) throws IOException {
+        if (blockSize <= 0 || Integer.bitCount(blockSize) != 1)
+            throw new IllegalArgumentException("Block size must be a power of two: " + blockSize);
+        if (blockCount <= 0)
+            throw new IllegalArgumentException("blockCount <= 0");
+        this.source = source;
+        this.size = source.getSize();
+        this.reader = source.newStream(0, size);
+        this.blockSize = blockSize;
+        this.shift = Integer.numberOfTrailingZeros(blockSize);
+        this.blocks = new byte[blockCount][];
+        this.blockIndex = new long[blockCount];
+        this.blockLength = new int[blockCount];
+        this.lastUsed = new long[blockCount];
+        Arrays.fill(blockIndex, -1);
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte get(long index) {
+        return blocks[block(index >>> shift)][(int) index & (blockSize - 1)];
+    }
+
+    /** 在各数据块内通过 {@link ByteScanner#getDefault()} 扫描 */
+    @Override
+    public long indexOf(byte b, long from, long to) {
+        for (long pos = from; pos < to; ) {
+            long index = pos >>> shift;
+            int slot = block(index);
+            long base = index << shift;
+            int end = (int) Math.min(blockLength[slot], to - base);
+            int i = ByteScanner.getDefault().indexOf(blocks[slot], (int) (pos - base), end, b);
+            if (i >= 0) {
+                return base + i;
+            }
+            pos = base + end;
+        }
+        return -1;
+    }
+
+    /** 在各数据块内通过 {@link ByteScanner#getDefault()} 扫描 */
+    @Override
+    public long indexOfLineEnd(long from, long to) {
+        for (long pos = from; pos < to; ) {
+            long index = pos >>> shift;
+            int slot = block(index);
+            long base = index << shift;
+            int end = (int) Math.min(blockLength[slot], to - base);
+            int i = ByteScanner.getDefault().indexOfLineEnd(blocks[slot], (int) (pos - base), end);
+            if (i >= 0) {
+                return base + i;
+            }
+            pos = base + end;
+        }
+        return -1;
+    }
+
+    /**
+     * 返回源流的子流，不复制数据。
+     */
+    @Override
+    public MimeInputStream newStream(long start, long end) throws IOException {
+        return source.newStream(start, end);
+    }
+
+    /**
+     * 返回包含指定数据块的缓存块，不在缓存中时载入。
+     */
+    private int block(long index) {
+        if (blockIndex[current] == index) {
+            return current;
+        }
+        int slot = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            if (blockIndex[i] == index) {
+                return touch(i);
+            }
+            if (lastUsed[i] < lastUsed[slot]) {
+                slot = i;
+            }
+        }
+        try {
+            load(slot, index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return touch(slot);
+    }
+
+    private int touch(int slot) {
+        lastUsed[slot] = ++clock;
+        current = slot;
+        return slot;
+    }
+
+    private void load(int slot, long index) throws IOException {
+        long base = index << shift;
+        int length = (int) Math.min(blockSize, size - base);
+        if (length <= 0) {
+            throw new IndexOutOfBoundsException("offset " + base + " >= size " + size);
+        }
+        if (blocks[slot] == null) {
+            blocks[slot] = new byte[(int) Math.min(blockSize, size)];
+        }
+        // 读取失败时该缓存块不再对应任何数据块
+        blockIndex[slot] = -1;
+        reader.seek(base);
+        int count = 0;
+        while (count < length) {
+            int read = reader.read(blocks[slot], count, length - count);
+            if (read < 0) {
+                throw new IOException("Unexpected end of stream at offset " + (base + count));
+            }
+            count += read;
+        }
+        blockIndex[slot] = index;
+        blockLength[slot] = length;
+    }
+
+    /**
+     * 关闭读取数据块的子流。已通过 {@link #newStream} 创建的子流不受影响。
+     *
+     * @throws IOException 如果关闭子流时发生I/O错误
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.part.MimePart;
+import io.github.jaloon.eml.part.StandardMimePart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 基于 {@link AsynchronousFileChannel} 的异步多部分解析器。
+ * <p>
+ * 与 {@link MultipartParser#standard()} 在调用线程上逐行阻塞读取不同，此解析器以固定大小的数据块发起异步读取，
+ * 每次读取完成后在 I/O 线程上将数据块交给 {@link MultipartScanner} 扫描，并立即发起下一次读取，
+ * 调用线程不会因文件 I/O 而阻塞，适合在事件驱动的服务中批量解析邮件。
+ * <p>
+ * 解析得到的 MIME 部分与标准解析器一致。扫描完成后异步文件通道即被关闭，各部分的内容体基于新打开的文件通道
+ * （{@link FileAccessMode#CHANNEL}）以定位读取的方式按需读取，所有部分的内容体关闭后该文件通道随之关闭。
+ * 读取内容体不依赖传入的线程池，因此可以在 future 的回调中（即线程池的线程上）直接读取，不会因等待线程池而死锁。
+ */
+public final class AsyncMultipartParser {
+    /** 每次异步读取的数据块大小 */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private AsyncMultipartParser() {}
+
+    /**
+     * 异步解析指定的邮件文件，将邮件体分解为多个单独的MIME部分。
+     *
+     * @param path     邮件文件路径
+     * @param executor 执行异步 I/O 完成回调的线程池，同时作为异步文件通道的线程池
+     * @return 解析完成时包含所有MIME部分的 future；邮件不是多部分格式时结果为空列表，
+     * 发生I/O错误时以 {@link IOException} 异常完成
+     */
+    public static CompletableFuture<List<MimePart>> parse(Path path, ExecutorService executor) {
+        CompletableFuture<List<MimePart>> future = new CompletableFuture<>();
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(path, Collections.singleton(StandardOpenOption.READ), executor);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        new ReadTask(path, channel, future).readNext();
+        return future;
+    }
+
+    /**
+     * 一次解析任务：串行地发起异步读取，并在完成回调中推进扫描。
+     */
+    private static final class ReadTask implements CompletionHandler<Integer, Void>, MultipartScanner.Listener {
+        private final Path path;
+        private final AsynchronousFileChannel channel;
+        private final CompletableFuture<List<MimePart>> future;
+        private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        private final MultipartScanner scanner = new MultipartScanner(this);
+        /** 已扫描出的部分：头部信息与内容体范围 */
+        private final List<List<String>> partHeaders = new ArrayList<>();
+        private final List<long[]> partRanges = new ArrayList<>();
+        /** 下一次读取的文件偏移量 */
+        private long position;
+
+        ReadTask(Path path, AsynchronousFileChannel channel, CompletableFuture<List<MimePart>> future) {
+            this.path = path;
+            this.channel = channel;
+            this.future = future;
+        }
+
+        void readNext() {
+            buffer.clear();
+            try {
+                channel.read(buffer, position, null, this);
+            } catch (RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            try {
+                if (read > 0) {
+                    scanner.feed(buffer.array(), 0, read);
+                    position += read;
+                }
+                if (read < 0 || scanner.isDone()) {
+                    scanner.finish();
+                    channel.close();
+                    future.complete(createParts());
+                } else {
+                    readNext();
+                }
+            } catch (IOException | RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                exc.addSuppressed(e);
+            }
+            future.completeExceptionally(exc);
+        }
+
+        @Override
+        public void onHeaders(List<String> headers, long bodyStart) {
+            // 邮件头部由调用方按需解析，此处只关心各部分的范围
+        }
+
+        @Override
+        public void onPart(List<String> headers, long bodyStart, long end) {
+            partHeaders.add(headers);
+            partRanges.add(new long[]{bodyStart, end});
+        }
+
+        /**
+         * 基于新打开的同步文件通道创建各部分的内容体子流，根流关闭后由子流的引用计数维持通道打开。
+         * 内容体不通过异步文件通道读取：其读取需要等待线程池完成异步操作，在线程池的线程上调用时可能死锁。
+         */
+        private List<MimePart> createParts() throws IOException {
+            if (partRanges.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<MimePart> parts = new ArrayList<>(partRanges.size());
+            try (MimeInputStream root = MimeInputStream.of(path.toFile(), FileAccessMode.CHANNEL)) {
+                for (int i = 0; i < partRanges.size(); i++) {
+                    long[] range = partRanges.get(i);
+                    parts.add(StandardMimePart.of(partHeaders.get(i), root.newStream(range[0], range[1])));
+                }
+            }
+            return parts;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.MimeBytes;
+
+/**
+ * boundary 查找器：在 {@link MimeBytes} 中查找已编译的 boundary 模式（通常为 {@code --boundary}）首次出现的位置。
+ * <p>
+ * 查找器由 {@link Factory} 针对每个 boundary 编译一次（如构建跳转表），之后可在同一层级的所有 part 间重复使用。
+ * 内置四种实现：
+ * <ul>
+ *   <li>{@link #NAIVE}：逐字节比较的朴素算法，作为参照实现</li>
+ *   <li>{@link #HORSPOOL}：Boyer-Moore-Horspool 算法，根据窗口末字节跳过不可能匹配的位置，
+ *       boundary 越长、在内容中越少出现，跳跃越大</li>
+ *   <li>{@link #SWAR}：按字（8 字节）并行查找模式首字节（SIMD within a register），
+ *       在 base64 等不含 {@code '-'} 的内容中每次前进 8 字节</li>
+ *   <li>{@link #SCAN}：通过 {@link MimeBytes#indexOf(byte, long, long)} 批量查找模式首字节，
+ *       基于数组的数据在向量实现可用时按向量宽度比较（参见 {@link io.github.jaloon.eml.io.ByteScanner}）</li>
+ * </ul>
+ * 查找器是无状态的，可以被多个线程同时使用。
+ *
+ * @see QuicklyAttachmentParser.Builder#boundarySearcher(Factory)
+ */
+public interface BoundarySearcher {
+
+    /** 朴素查找，逐字节比较 */
+    Factory NAIVE = NaiveBoundarySearcher::new;
+    /** Boyer-Moore-Horspool 查找 */
+    Factory HORSPOOL = HorspoolBoundarySearcher::new;
+    /** 按字并行查找首字节 */
+    Factory SWAR = SwarBoundarySearcher::new;
+    /** 批量扫描首字节 */
+    Factory SCAN = ScanBoundarySearcher::new;
+
+    /**
+     * 在字节数据的 [from, to) 范围内查找模式首次出现的位置，匹配必须完整位于该范围内。
+     *
+     * @param data 待搜索的字节数据
+     * @param from 搜索起始偏移（含）
+     * @param to   搜索结束偏移（不含）
+     * @return 匹配起始偏移，未找到返回 -1
+     */
+    long indexOf(MimeBytes data, long from, long to);
+
+    /**
+     * 针对指定模式编译查找器的工厂。
+     */
+    @FunctionalInterface
+    interface Factory {
+        /**
+         * 编译查找器。
+         *
+         * @param pattern 要查找的模式，长度至少为 1，调用方不得在编译后修改
+         * @return 针对该模式的查找器
+         */
+        BoundarySearcher compile(byte[] pattern);
+    }
+}
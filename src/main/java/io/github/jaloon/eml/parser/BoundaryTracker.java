@@ -0,0 +1,244 @@
+package io.github.jaloon.eml.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 逐行识别 multipart 邮件体中的 boundary 行，确定每个 part 的范围。
+ * <p>
+ * 由逐行读取可寻址流的 {@link StandardMultipartParser} 与按数据块推送的 {@link MultipartScanner} 共用，
+ * 两者对同一封邮件得到相同的 part 范围。输入的行不含行结束符，偏移均相对于邮件体起始位置：
+ * <ul>
+ *   <li>行内容为 {@code --boundary}：结束上一个 part，从下一行开始新的 part</li>
+ *   <li>行以 {@code --boundary} 结尾：行首的其余字节计入上一个 part，从下一行开始新的 part</li>
+ *   <li>行以 {@code --boundary--} 结尾：结束最后一个 part，之后的数据被忽略</li>
+ * </ul>
+ * part 结束于其最后一个非 boundary 行的行结束符之后，part 头部结束于第一个空行。
+ * 每输入一行后通过 {@link #hasPart()} 判断是否有 part 的范围已确定。
+ * 此类不是线程安全的。
+ */
+final class BoundaryTracker {
+
+    /**
+     * 行的类型
+     */
+    enum Line {
+        /** part 头部行（含折叠续行） */
+        HEADER,
+        /** 空行 */
+        BLANK,
+        /** 内容体行，或第一个 boundary 之前的前言 */
+        CONTENT,
+        /** boundary 行 */
+        BOUNDARY,
+        /** 结束边界行 */
+        CLOSE
+    }
+
+    /** boundary 起始行 {@code --boundary} */
+    private final byte[] boundaryStart;
+    /** boundary 结束行 {@code --boundary--} */
+    private final byte[] boundaryEnd;
+
+    /** 当前 part 的起始偏移，-1 表示不在 part 中 */
+    private long start = -1;
+    /** 当前 part 的结束偏移，-1 表示未确定 */
+    private long end = -1;
+    /** 当前 part 内容体的起始偏移，-1 表示头部尚未结束 */
+    private long bodyStart = -1;
+    /** 是否位于 part 头部 */
+    private boolean inHeaders;
+    /** 是否已遇到结束边界或输入结束 */
+    private boolean closed;
+
+    /** 最近一行是否确定了一个 part 的范围，及该 part 的范围 */
+    private boolean ready;
+    private long partStart;
+    private long partBodyStart;
+    private long partEnd;
+
+    /**
+     * 创建识别指定 boundary 的实例。
+     *
+     * @param boundary multipart 的 boundary 参数
+     */
+    BoundaryTracker(String boundary) {
+        this.boundaryStart = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.boundaryEnd = ("--" + boundary + "--").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 获取结束边界行的长度，超长行至少需要保留行尾这么多字节才能识别 boundary。
+     *
+     * @return {@code --boundary--} 的字节数
+     */
+    int patternLength() {
+        return boundaryEnd.length;
+    }
+
+    /**
+     * 输入完整的一行。
+     *
+     * @param b       行字节所在数组
+     * @param off     行字节的起始偏移
+     * @param len     行字节数，不含行结束符
+     * @param lineEnd 行结束符之后的偏移
+     * @return 行的类型
+     */
+    Line accept(byte[] b, int off, int len, long lineEnd) {
+        return accept(b, off, len, len, lineEnd);
+    }
+
+    /**
+     * 输入一行，只给出该行行尾的部分字节，用于不保留超长内容体行的扫描器。
+     *
+     * @param b       行尾字节所在数组
+     * @param off     行尾字节的起始偏移
+     * @param count   给出的行尾字节数
+     * @param length  行的实际长度，不含行结束符
+     * @param lineEnd 行结束符之后的偏移
+     * @return 行的类型
+     */
+    Line accept(byte[] b, int off, int count, long length, long lineEnd) {
+        ready = false;
+        if (length == 0) {
+            if (inHeaders) {
+                inHeaders = false;
+                bodyStart = lineEnd;
+            }
+            end = lineEnd;
+            return Line.BLANK;
+        }
+        if (length == boundaryStart.length && endsWith(b, off, count, boundaryStart)) {
+            if (start >= 0 && end > 0) {
+                complete();
+            }
+            startPart(lineEnd);
+            return Line.BOUNDARY;
+        }
+        if (endsWith(b, off, count, boundaryStart)) {
+            if (start >= 0) {
+                long prefix = length - boundaryStart.length;
+                end = end < 0 ? prefix : end + prefix;
+                complete();
+            }
+            startPart(lineEnd);
+            return Line.BOUNDARY;
+        }
+        if (endsWith(b, off, count, boundaryEnd)) {
+            if (start >= 0 && end > 0) {
+                complete();
+            }
+            start = -1;
+            end = -1;
+            closed = true;
+            return Line.CLOSE;
+        }
+        end = lineEnd;
+        return inHeaders ? Line.HEADER : Line.CONTENT;
+    }
+
+    /**
+     * 输入结束：缺少结束边界时，最后一个 part 的范围在此确定。
+     *
+     * @return 有 part 的范围在此确定时返回 true
+     */
+    boolean finish() {
+        ready = false;
+        if (!closed && start >= 0 && end > 0) {
+            complete();
+        }
+        closed = true;
+        return ready;
+    }
+
+    /**
+     * 是否已遇到结束边界或输入结束。
+     *
+     * @return 之后不会再确定新的 part 时返回 true
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 是否位于 part 头部，即下一行若不是 boundary 行或空行则为头部行。
+     *
+     * @return 位于 part 头部时返回 true
+     */
+    boolean inHeaders() {
+        return inHeaders;
+    }
+
+    /**
+     * 获取当前 part 的起始偏移。
+     *
+     * @return 当前 part 的起始偏移，不在 part 中时返回 -1
+     */
+    long currentStart() {
+        return start;
+    }
+
+    /**
+     * 最近输入的一行（或 {@link #finish()}）是否确定了一个 part 的范围。
+     *
+     * @return 确定了 part 的范围时返回 true，可以通过 {@link #partStart()} 等方法获取
+     */
+    boolean hasPart() {
+        return ready;
+    }
+
+    /**
+     * 获取已确定的 part 的起始偏移，即 part 头部的起始位置。
+     *
+     * @return part 的起始偏移
+     */
+    long partStart() {
+        return partStart;
+    }
+
+    /**
+     * 获取已确定的 part 内容体的起始偏移。part 没有以空行结束的头部时等于其结束偏移。
+     *
+     * @return part 内容体的起始偏移
+     */
+    long partBodyStart() {
+        return partBodyStart;
+    }
+
+    /**
+     * 获取已确定的 part 的结束偏移。
+     *
+     * @return part 的结束偏移（不含）
+     */
+    long partEnd() {
+        return partEnd;
+    }
+
+    private void startPart(long pos) {
+        start = pos;
+        end = -1;
+        bodyStart = -1;
+        inHeaders = true;
+    }
+
+    private void complete() {
+        ready = true;
+        partStart = start;
+        partEnd = end;
+        partBodyStart = bodyStart < 0 ? end : Math.min(bodyStart, end);
+        inHeaders = false;
+    }
+
+    private static boolean endsWith(byte[] b, int off, int count, byte[] pattern) {
+        if (count < pattern.length) {
+            return false;
+        }
+        int base = off + count - pattern.length;
+        for (int i = 0; i < pattern.length; i++) {
+            if (b[base + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,401 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.io.MimeBytes;
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.part.AttachmentPart;
+import io.github.jaloon.eml.part.MimePart;
+import io.github.jaloon.eml.part.MultiMimePart;
+import io.github.jaloon.eml.part.StandardMimePart;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 邮件结构索引：记录邮件中每个非 multipart 的 part（正文与附件）的偏移、类型、传输编码与附件名，
+ * 再次打开同一邮件时无需重新扫描 boundary 即可构建 MIME 部分。
+ * <p>
+ * 索引通过 {@link #build(Path)} 扫描一次邮件文件生成，可以通过 {@link #write(OutputStream)} 写入调用方提供的存储，
+ * 或通过 {@link #loadOrBuild(Path)} 以旁路文件（{@link #sidecarOf}，即 {@code mail.eml.idx}）的形式保存在邮件旁边。
+ * 索引记录了邮件文件的大小与最后修改时间，文件变化后 {@link #isValidFor(Path)} 返回 {@code false}，需要重新构建。
+ * <p>
+ * 索引实现了 {@link MultipartParser}，{@link #parse} 返回的附件与 {@link MultipartParser#quickly()} 一致，
+ * 但只需读取每个附件的头部（通常几百字节）：
+ * <pre>{@code
+ * try (EmlMessage message = EmlMessage.open(path)) {
+ *     List<MimePart> attachments = message.getIndex().parse(message);
+ * }
+ * }</pre>
+ * 索引是不可变的，可以被多个线程同时使用。
+ */
+public final class EmlIndex implements MultipartParser {
+    /** 持久化格式的魔数 */
+    private static final long MAGIC = 0x454d4c5354494458L; // "EMLSTIDX"
+    /** 持久化格式的版本 */
+    private static final int VERSION = 1;
+    /** 旁路索引文件的扩展名 */
+    private static final String SIDECAR_SUFFIX = ".idx";
+
+    /** 邮件文件大小，用于校验索引与文件是否匹配 */
+    private final long fileSize;
+    /** 邮件文件最后修改时间（毫秒），用于校验索引与文件是否匹配 */
+    private final long lastModified;
+    /** 邮件体在文件中的起始偏移（即邮件头部的长度） */
+    private final long bodyOffset;
+    private final List<Entry> entries;
+
+    private EmlIndex(long fileSize, long lastModified, long bodyOffset, List<Entry> entries) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.bodyOffset = bodyOffset;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 索引中的一个 part。所有偏移均为在邮件文件中的偏移。
+     */
+    public static final class Entry {
+        private final int depth;
+        private final long partOffset;
+        private final long bodyOffset;
+        private final long endOffset;
+        private final boolean attachment;
+        private final String contentType;
+        private final String transferEncoding;
+        private final String filename;
+
+        Entry(int depth, long partOffset, long bodyOffset, long endOffset, boolean attachment,
+              String contentType, String transferEncoding, String filename) {
+            this.depth = depth;
+            this.partOffset = partOffset;
+            this.bodyOffset = bodyOffset;
+            this.endOffset = endOffset;
+            this.attachment = attachment;
+            this.contentType = contentType;
+            this.transferEncoding = transferEncoding;
+            this.filename = filename;
+        }
+
+        /**
+         * 返回嵌套深度，邮件的直接子 part 为 1。
+         *
+         * @return 嵌套深度
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * 返回 part 的起始偏移（含头部）。
+         *
+         * @return 起始偏移
+         */
+        public long getPartOffset() {
+            return partOffset;
+        }
+
+        /**
+         * 返回 part 内容体的起始偏移，[partOffset, bodyOffset) 为 part 的头部。
+         *
+         * @return 内容体起始偏移
+         */
+        public long getBodyOffset() {
+            return bodyOffset;
+        }
+
+        /**
+         * 返回 part 的结束偏移（不含）。
+         *
+         * @return 结束偏移
+         */
+        public long getEndOffset() {
+            return endOffset;
+        }
+
+        /**
+         * 判断 part 是否为附件（{@code Content-Disposition: attachment}）。
+         *
+         * @return 附件返回 true
+         */
+        public boolean isAttachment() {
+            return attachment;
+        }
+
+        /**
+         * 返回 {@code Content-Type} 头部的值。
+         *
+         * @return 内容类型，不存在时返回 null
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * 返回 {@code Content-Transfer-Encoding} 头部的值。
+         *
+         * @return 传输编码，不存在时返回 null
+         */
+        public String getTransferEncoding() {
+            return transferEncoding;
+        }
+
+        /**
+         * 返回附件名，与 {@link MultipartParser#quickly()} 提取的附件名一致。
+         *
+         * @return 附件名，非附件或没有文件名时返回 null
+         */
+        public String getFilename() {
+            return filename;
+        }
+    }
+
+    /**
+     * 扫描邮件文件，构建结构索引。
+     *
+     * @param path 邮件文件路径
+     * @return 新构建的索引
+     * @throws IOException 如果读取文件时发生I/O错误
+     */
+    public static EmlIndex build(Path path) throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        try (EmlMessage message = EmlMessage.of(path.toFile(), FileAccessMode.MAPPED)) {
+            MimeInputStream body = message.getBody();
+            long base = message.getSize() - body.getSize();
+            List<Entry> entries = new ArrayList<>();
+            String boundary = message.getBoundary();
+            if (boundary != null && body instanceof MimeBytes) {
+                MimeBytes data = (MimeBytes) body;
+                QuicklyAttachmentParser.getInstance().visitLeaves(data, boundary, (depth, partStart, bodyStart, partEnd, info) -> {
+                    // 轻量级扫描只取头部首行，内容类型从完整解析（拼接折叠行）的头部中提取
+                    String contentType = null;
+                    for (String header : QuicklyAttachmentParser.parseHeadersFromBytes(data, partStart, bodyStart)) {
+                        if (header.startsWith("Content-Type:")) {
+                            contentType = header.substring(13).trim();
+                            break;
+                        }
+                    }
+                    entries.add(new Entry(depth, base + partStart, base + bodyStart, base + partEnd, info.isAttachment,
+                            contentType, info.transferEncoding, info.isAttachment ? info.attachName() : null));
+                });
+            }
+            return new EmlIndex(message.getSize(), lastModified, base, entries);
+        }
+    }
+
+    /**
+     * 返回邮件文件的旁路索引文件路径，即在邮件文件名后追加 {@code .idx}。
+     *
+     * @param path 邮件文件路径
+     * @return 旁路索引文件路径
+     */
+    public static Path sidecarOf(Path path) {
+        return path.resolveSibling(path.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * 加载邮件文件的旁路索引；旁路索引不存在、无法读取或已过期时重新构建，并尝试写入旁路索引文件。
+     * <p>
+     * 旁路索引先写入临时文件再替换，并发打开同一邮件时不会读到写了一半的索引。
+     * 写入失败（如邮件所在目录只读）不影响返回的索引，下次调用时将再次构建。
+     *
+     * @param path 邮件文件路径
+     * @return 与邮件文件匹配的索引
+     * @throws IOException 如果读取邮件文件时发生I/O错误
+     */
+    public static EmlIndex loadOrBuild(Path path) throws IOException {
+        Path sidecar = sidecarOf(path);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(sidecar))) {
+            EmlIndex index = read(in);
+            if (index.isValidFor(path)) {
+                return index;
+            }
+        } catch (IOException ignored) {
+            // 尚未建立索引，或索引损坏、版本不兼容，重新构建
+        }
+        EmlIndex index = build(path);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName().toString(), ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                index.write(out);
+            }
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 判断索引是否与邮件文件当前的大小与最后修改时间一致。
+     *
+     * @param path 邮件文件路径
+     * @return 一致时返回 true
+     * @throws IOException 如果读取文件属性时发生I/O错误
+     */
+    public boolean isValidFor(Path path) throws IOException {
+        return Files.size(path) == fileSize && Files.getLastModifiedTime(path).toMillis() == lastModified;
+    }
+
+    /**
+     * 将索引写入输出流。
+     *
+     * @param out 输出流，写入后不关闭
+     * @throws IOException 如果写入时发生I/O错误
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeLong(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(fileSize);
+        data.writeLong(lastModified);
+        data.writeLong(bodyOffset);
+        data.writeInt(entries.size());
+        for (Entry entry : entries) {
+            data.writeInt(entry.depth);
+            data.writeLong(entry.partOffset);
+            data.writeLong(entry.bodyOffset);
+            data.writeLong(entry.endOffset);
+            data.writeBoolean(entry.attachment);
+            writeString(data, entry.contentType);
+            writeString(data, entry.transferEncoding);
+            writeString(data, entry.filename);
+        }
+        data.flush();
+    }
+
+    /**
+     * 从输入流中读取由 {@link #write(OutputStream)} 写出的索引。
+     *
+     * @param in 输入流，读取后不关闭
+     * @return 读取的索引
+     * @throws IOException 如果读取时发生I/O错误，或数据不是有效的索引
+     */
+    public static EmlIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readLong() != MAGIC) {
+            throw new IOException("Not an eml index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported eml index version: " + version);
+        }
+        long fileSize = data.readLong();
+        long lastModified = data.readLong();
+        long bodyOffset = data.readLong();
+        int count = data.readInt();
+        if (count < 0 || bodyOffset < 0 || bodyOffset > fileSize) {
+            throw new IOException("Invalid eml index");
+        }
+        List<Entry> entries = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            int depth = data.readInt();
+            long partOffset = data.readLong();
+            long partBody = data.readLong();
+            long endOffset = data.readLong();
+            if (partOffset < bodyOffset || partBody < partOffset || endOffset < partBody || endOffset > fileSize) {
+                throw new IOException("Invalid eml index: part " + i + " out of range");
+            }
+            boolean attachment = data.readBoolean();
+            entries.add(new Entry(depth, partOffset, partBody, endOffset, attachment,
+                    readString(data), readString(data), readString(data)));
+        }
+        return new EmlIndex(fileSize, lastModified, bodyOffset, entries);
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    /**
+     * 返回索引对应的邮件文件大小。
+     *
+     * @return 文件字节数
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * 返回索引对应的邮件文件最后修改时间。
+     *
+     * @return 自 1970-01-01T00:00:00Z 起的毫秒数
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * 按出现顺序返回所有非 multipart 的 part。
+     *
+     * @return 不可修改的索引项列表
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 根据索引构建邮件中的所有附件，不扫描 boundary，只读取每个附件的头部。
+     *
+     * @param message 索引对应的邮件，如 {@link EmlMessage#open(Path, EmlIndex)} 打开的邮件
+     * @return 附件列表，与 {@link MultipartParser#quickly()} 的结果一致
+     * @throws IOException 如果读取附件头部时发生I/O错误，或邮件与索引不匹配
+     */
+    @Override
+    public List<MimePart> parse(MultiMimePart message) throws IOException {
+        List<MimePart> parts = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.attachment) {
+                parts.add(part(message, entry));
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * 根据索引项构建单个 MIME 部分，例如只预览正文或只下载某个附件。
+     *
+     * @param message 索引对应的邮件
+     * @param entry   本索引中的索引项
+     * @return 附件返回 {@link AttachmentPart}，其他 part 返回 {@link StandardMimePart}
+     * @throws IOException 如果读取头部时发生I/O错误，或邮件与索引不匹配
+     */
+    public MimePart part(MultiMimePart message, Entry entry) throws IOException {
+        MimeInputStream body = message.getBody();
+        if (body.getSize() != fileSize - bodyOffset) {
+            throw new IOException("Eml index does not match message");
+        }
+        List<String> headers;
+        try (MimeInputStream in = body.newStream(entry.partOffset - bodyOffset, entry.bodyOffset - bodyOffset)) {
+            headers = MimePart.parseHeaders(in);
+        }
+        MimeInputStream partBody = entry.endOffset > entry.bodyOffset
+                ? body.newStream(entry.bodyOffset - bodyOffset, entry.endOffset - bodyOffset)
+                : MimeInputStream.empty();
+        if (entry.attachment) {
+            return new AttachmentPart(entry.filename, headers, partBody);
+        }
+        return StandardMimePart.of(headers, partBody);
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.MimeBytes;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool boundary 查找。
+ * <p>
+ * 编译时为模式构建坏字符跳转表：窗口末字节在模式中（除最后一个位置外）最后出现的位置决定窗口可以安全右移的距离，
+ * 末字节不在模式中时直接跳过整个模式长度。40 字节左右的 boundary 在 base64 内容中平均每次可跳过数十字节，
+ * 只读取很少一部分字节。
+ */
+class HorspoolBoundarySearcher implements BoundarySearcher {
+    private final byte[] pattern;
+    /** 以窗口末字节（无符号）为下标的跳转距离 */
+    private final int[] shift = new int[256];
+
+    HorspoolBoundarySearcher(byte[] pattern) {
+        this.pattern = pattern;
+        int m = pattern.length;
+        Arrays.fill(shift, m);
+        for (int i = 0; i < m - 1; i++) {
+            shift[pattern[i] & 0xFF] = m - 1 - i;
+        }
+    }
+
+    @Override
+    public long indexOf(MimeBytes data, long from, long to) {
+        int m = pattern.length;
+        byte last = pattern[m - 1];
+        long limit = to - m;
+        long i = from;
+        while (i <= limit) {
+            byte b = data.get(i + m - 1);
+            if (b == last && matches(data, i)) {
+                return i;
+            }
+            i += shift[b & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean matches(MimeBytes data, long offset) {
+        for (int j = pattern.length - 2; j >= 0; j--) {
+            if (data.get(offset + j) != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
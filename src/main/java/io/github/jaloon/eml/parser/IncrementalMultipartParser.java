@@ -0,0 +1,197 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.part.MimePart;
+import io.github.jaloon.eml.part.StandardMimePart;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 增量多部分解析器：解析仍在写入中的邮件文件，每次调用 {@link #poll} 只扫描上次之后新追加的数据，
+ * 并返回在此期间确定了范围（即遇到了下一个 boundary）的 MIME 部分。
+ * <p>
+ * 适合 MTA 边接收边落盘的场景：附件提取可以与邮件接收重叠进行，无需等待文件写完后再从头解析。
+ * 扫描状态（当前行、boundary、当前 part 的头部等）保存在 {@link MultipartScanner} 中，
+ * 已扫描的数据不会被重复读取，也不会保留在内存中。
+ * <p>
+ * 返回的 MIME 部分与 {@link MultipartParser#standard()} 对完整文件的解析结果一致，
+ * 其内容体为文件的子流（{@link FileAccessMode#CHANNEL}），只引用已写入的范围，可以在文件继续写入时读取；
+ * 部分的内容体关闭后对应的文件通道随之关闭，与解析器本身是否关闭无关。
+ * <p>
+ * 示例：
+ * <pre>{@code
+ * try (IncrementalMultipartParser parser = new IncrementalMultipartParser(path)) {
+ *     while (!receiver.isComplete()) {
+ *         parser.poll().forEach(this::extract);
+ *         receiver.awaitData();
+ *     }
+ *     parser.finish().forEach(this::extract);
+ * }
+ * }</pre>
+ * 此类不是线程安全的，同一时刻只能由一个线程调用。
+ */
+public final class IncrementalMultipartParser implements Closeable {
+    /** 每次读取的数据块大小 */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path path;
+    /** 读取新追加数据的文件通道 */
+    private final FileChannel channel;
+    private final MultipartScanner scanner = new MultipartScanner(new Collector());
+    private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+    /** 邮件头部，扫描完邮件头部之前为 null */
+    private List<String> headers;
+    /** 本次调用中新确定的部分：头部信息与内容体范围 */
+    private final List<List<String>> partHeaders = new ArrayList<>();
+    private final List<long[]> partRanges = new ArrayList<>();
+    /** 是否已调用 {@link #finish} */
+    private boolean finished;
+
+    /**
+     * 打开要增量解析的邮件文件，此时不读取任何数据。
+     *
+     * @param path 邮件文件路径，文件可以仍在写入中
+     * @throws IOException 如果在打开文件时发生I/O错误
+     */
+    public IncrementalMultipartParser(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * 扫描文件当前末尾之前新追加的数据。
+     *
+     * @return 新确定范围的部分，按在邮件中出现的顺序排列；没有新的部分时返回空列表
+     * @throws IOException 如果读取文件时发生I/O错误
+     */
+    public List<MimePart> poll() throws IOException {
+        return poll(channel.size());
+    }
+
+    /**
+     * 扫描到指定的文件长度为止。写入方能够告知已提交的长度时，可以避免扫描写入到一半的数据块。
+     *
+     * @param length 已写入的文件长度，不大于上次扫描到的位置时不读取数据；超过文件当前大小时只读到文件末尾
+     * @return 新确定范围的部分，按在邮件中出现的顺序排列；没有新的部分时返回空列表
+     * @throws IOException 如果读取文件时发生I/O错误，或已调用过 {@link #finish}
+     */
+    public List<MimePart> poll(long length) throws IOException {
+        ensureOpen();
+        if (finished)
+            throw new IOException("Parser finished");
+        long position = scanner.getPosition();
+        while (position < length && !scanner.isDone()) {
+            buffer.clear();
+            buffer.limit((int) Math.min(CHUNK_SIZE, length - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            scanner.feed(buffer.array(), 0, read);
+            position += read;
+        }
+        return drainParts();
+    }
+
+    /**
+     * 文件写入完成：扫描剩余的数据，并将缺少结束边界的最后一个部分一并返回。之后不能再调用 {@link #poll}。
+     *
+     * @return 剩余的部分，按在邮件中出现的顺序排列
+     * @throws IOException 如果读取文件时发生I/O错误
+     */
+    public List<MimePart> finish() throws IOException {
+        List<MimePart> parts = new ArrayList<>(poll());
+        finished = true;
+        scanner.finish();
+        parts.addAll(drainParts());
+        return parts;
+    }
+
+    /**
+     * 是否已扫描完毕：遇到邮件的结束边界、邮件不是多部分格式，或已调用 {@link #finish}。
+     *
+     * @return 之后不会再返回新的部分时返回 true
+     */
+    public boolean isDone() {
+        return finished || scanner.isDone();
+    }
+
+    /**
+     * 获取已扫描的字节数，即下一次 {@link #poll} 开始读取的文件偏移量。
+     *
+     * @return 已扫描的字节数
+     */
+    public long getPosition() {
+        return scanner.getPosition();
+    }
+
+    /**
+     * 获取邮件头部信息。
+     *
+     * @return 邮件头部信息列表，尚未扫描到邮件头部之后的空行时返回 null
+     */
+    public List<String> getHeaders() {
+        return headers == null ? null : Collections.unmodifiableList(headers);
+    }
+
+    /**
+     * 收集扫描结果，部分在下一次返回时才创建内容体子流。
+     */
+    private final class Collector implements MultipartScanner.Listener {
+        @Override
+        public void onHeaders(List<String> headers, long bodyStart) {
+            IncrementalMultipartParser.this.headers = headers;
+        }
+
+        @Override
+        public void onPart(List<String> headers, long bodyStart, long end) {
+            partHeaders.add(headers);
+            partRanges.add(new long[]{bodyStart, end});
+        }
+    }
+
+    /**
+     * 为新确定的部分创建内容体子流。每批部分共享一个新打开的文件通道，其大小覆盖这些部分的全部范围，
+     * 根流关闭后由子流的引用计数维持通道打开。
+     */
+    private List<MimePart> drainParts() throws IOException {
+        if (partRanges.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<MimePart> parts = new ArrayList<>(partRanges.size());
+        try (MimeInputStream root = MimeInputStream.of(path.toFile(), FileAccessMode.CHANNEL)) {
+            for (int i = 0; i < partRanges.size(); i++) {
+                long[] range = partRanges.get(i);
+                parts.add(StandardMimePart.of(partHeaders.get(i), root.newStream(range[0], range[1])));
+            }
+        } finally {
+            partHeaders.clear();
+            partRanges.clear();
+        }
+        return parts;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!channel.isOpen())
+            throw new IOException("Parser closed");
+    }
+
+    /**
+     * 关闭读取新数据的文件通道。已返回的部分不受影响。
+     *
+     * @throws IOException 如果关闭文件通道时发生I/O错误
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.part.MimePart;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 按需推进的 MIME 部分迭代器：只有在调用方请求下一个部分时，才由 {@link Cursor} 继续扫描 boundary。
+ * <p>
+ * 扫描过程中发生的 {@link IOException} 以 {@link UncheckedIOException} 抛出。
+ */
+final class LazyPartIterator implements Iterator<MimePart> {
+
+    /**
+     * 解析器的扫描游标，每次调用扫描到下一个部分为止。
+     */
+    @FunctionalInterface
+    interface Cursor {
+        /**
+         * 扫描下一个部分。
+         *
+         * @return 下一个部分，没有更多部分时返回 null
+         * @throws IOException 如果读取过程中发生I/O错误
+         */
+        MimePart next() throws IOException;
+    }
+
+    private final Cursor cursor;
+    /** 已扫描但尚未返回的部分 */
+    private MimePart next;
+    /** 游标是否已扫描完毕 */
+    private boolean exhausted;
+
+    LazyPartIterator(Cursor cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * 将游标扫描完毕，收集所有部分。
+     *
+     * @param cursor 扫描游标
+     * @return 所有部分组成的列表
+     * @throws IOException 如果读取过程中发生I/O错误
+     */
+    static List<MimePart> toList(Cursor cursor) throws IOException {
+        List<MimePart> parts = new ArrayList<>();
+        MimePart part;
+        while ((part = cursor.next()) != null) {
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !exhausted) {
+            try {
+                next = cursor.next();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            exhausted = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public MimePart next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        MimePart part = next;
+        next = null;
+        return part;
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.jaloon.eml.parser;
+
+/**
+ * {@link StreamingMimeParser} 的事件回调接口，以类似 SAX 的方式接收邮件结构。
+ * <p>
+ * 解析器按邮件中的出现顺序依次推送事件，每个实体（邮件本身或其中的 part）对应一组事件：
+ * <pre>
+ * startPart(depth)
+ *   header(...)      每个头部一次，折叠行已按 {@link io.github.jaloon.eml.part.MimePart#parseHeaders} 的方式拼接
+ *   bodyChunk(...)   非 multipart 实体的内容体，可能分为多次推送
+ *   ...              multipart 实体的子 part 事件，depth 加 1
+ * endPart()
+ * </pre>
+ * 内容体为原始字节，未做传输编码（base64、quoted-printable 等）解码；multipart 的 preamble 与 epilogue 不会推送。
+ * <p>
+ * 每个回调返回 {@code true} 表示继续解析，返回 {@code false} 则立即停止解析，之后不会再推送任何事件。
+ * 所有方法均有返回 {@code true} 的默认实现，使用者只需覆盖关心的事件。
+ *
+ * @see StreamingMimeParser
+ */
+public interface MimeHandler {
+
+    /**
+     * 开始一个实体。
+     *
+     * @param depth 实体的嵌套深度，邮件本身为 0，邮件的直接子 part 为 1，依此类推
+     * @return 是否继续解析
+     */
+    default boolean startPart(int depth) {
+        return true;
+    }
+
+    /**
+     * 当前实体的一个头部。
+     *
+     * @param header 完整的头部行，如 {@code Content-Type: text/plain; charset=utf-8}
+     * @return 是否继续解析
+     */
+    default boolean header(String header) {
+        return true;
+    }
+
+    /**
+     * 当前实体内容体的一段原始字节。数组在回调返回后会被复用，需要保留时应复制。
+     *
+     * @param b   数据所在数组
+     * @param off 数据起始偏移
+     * @param len 数据长度
+     * @return 是否继续解析
+     */
+    default boolean bodyChunk(byte[] b, int off, int len) {
+        return true;
+    }
+
+    /**
+     * 结束当前实体。
+     *
+     * @return 是否继续解析
+     */
+    default boolean endPart() {
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.part.MimePart;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * MIME 树中的一个节点，由 {@link MimeTreeParser} 创建。
+ * <p>
+ * 每个节点对应邮件本身或其中的一个 part：multipart 节点的子节点按出现顺序排列，
+ * 其余节点为叶子节点，内容体通过 {@link #getPart()} 按需读取。
+ */
+public final class MimeNode {
+    private final MimePart part;
+    private final int depth;
+    private final boolean multipart;
+    private final List<MimeNode> children;
+
+    MimeNode(MimePart part, int depth, boolean multipart, List<MimeNode> children) {
+        this.part = part;
+        this.depth = depth;
+        this.multipart = multipart;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    /**
+     * 返回此节点对应的 MIME 部分。
+     *
+     * @return MIME 部分，根节点为传入解析器的邮件本身
+     */
+    public MimePart getPart() {
+        return part;
+    }
+
+    /**
+     * 返回节点的嵌套深度，根节点为 0，根节点的直接子节点为 1，依此类推。
+     *
+     * @return 嵌套深度
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 判断此节点是否为已展开的 multipart 节点。
+     *
+     * @return 声明了 boundary 的 multipart 节点返回 {@code true}，即使其中没有任何子 part
+     */
+    public boolean isMultipart() {
+        return multipart;
+    }
+
+    /**
+     * 返回按出现顺序排列的子节点。
+     *
+     * @return 不可修改的子节点列表，叶子节点返回空列表
+     */
+    public List<MimeNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * 以先序（父节点在前，子节点按出现顺序在后）遍历以此节点为根的子树。
+     *
+     * @return 包含此节点及其所有后代节点的顺序流
+     */
+    public Stream<MimeNode> stream() {
+        return Stream.concat(Stream.of(this), children.stream().flatMap(MimeNode::stream));
+    }
+
+    @Override
+    public String toString() {
+        return "MimeNode{depth=" + depth + ", contentType=" + part.getContentType() + ", children=" + children.size() + '}';
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.part.MimePart;
+import io.github.jaloon.eml.part.MultiMimePart;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 构建完整 MIME 树的解析器。
+ * <p>
+ * {@link MultipartParser#standard()} 只解析一层 multipart，{@link MultipartParser#quickly()} 虽然递归但只保留附件；
+ * 此解析器逐层使用标准解析器展开所有 multipart（如 multipart/mixed → multipart/alternative → multipart/related），
+ * 返回包含每个节点及其子节点的 {@link MimeNode} 树。
+ * <p>
+ * 某一层扫描完成后，各个子 part 的字节范围即已确定，子树之间互不依赖。指定 {@link ForkJoinPool} 时，
+ * 内容体不小于拆分阈值的 multipart 子树会作为独立任务提交到线程池并行展开，较小的子树仍在当前线程中展开，
+ * 避免任务调度开销超过解析本身。并行展开要求邮件内容体的子流支持并发读取
+ * （见 {@link MimeInputStream#supportsConcurrentRead()}），否则自动退化为顺序展开。
+ * <p>
+ * 解析器本身不保存解析状态，可以在多个线程间共享。
+ */
+public final class MimeTreeParser {
+    /** 默认拆分阈值：内容体不小于此大小的 multipart 子树才会提交为独立任务 */
+    public static final long DEFAULT_FORK_THRESHOLD = 64 * 1024;
+
+    private final ForkJoinPool pool;
+    private final long forkThreshold;
+
+    /**
+     * 创建在调用线程中顺序展开的解析器。
+     */
+    public MimeTreeParser() {
+        this.pool = null;
+        this.forkThreshold = Long.MAX_VALUE;
+    }
+
+    /**
+     * 创建使用指定线程池并行展开子树的解析器，拆分阈值为 {@link #DEFAULT_FORK_THRESHOLD}。
+     *
+     * @param pool 展开子树的线程池
+     */
+    public MimeTreeParser(ForkJoinPool pool) {
+        this(pool, DEFAULT_FORK_THRESHOLD);
+    }
+
+    /**
+     * 创建使用指定线程池并行展开子树的解析器。
+     *
+     * @param pool          展开子树的线程池
+     * @param forkThreshold 拆分阈值（字节），内容体不小于此大小的 multipart 子树才会提交为独立任务
+     */
+    public MimeTreeParser(ForkJoinPool pool, long forkThreshold) {
+        if (forkThreshold < 0)
+            throw new IllegalArgumentException("forkThreshold < 0");
+        this.pool = Objects.requireNonNull(pool, "pool");
+        this.forkThreshold = forkThreshold;
+    }
+
+    /**
+     * 解析给定的邮件，展开其中所有层级的 multipart。
+     *
+     * @param message 要解析的邮件
+     * @return MIME 树的根节点，对应邮件本身；邮件不是多部分格式时根节点为叶子节点
+     * @throws IOException 如果在读取或解析过程中发生I/O错误
+     */
+    public MimeNode parse(MultiMimePart message) throws IOException {
+        boolean parallel = pool != null && message.getBody().supportsConcurrentRead();
+        NodeTask task = new NodeTask(message, 0, parallel);
+        try {
+            return parallel ? pool.invoke(task) : task.invoke();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 判断 MIME 部分是否为需要展开的 multipart：内容类型为 multipart 且声明了 boundary。
+     */
+    private static boolean isMultipart(MimePart part) {
+        if (!part.isMultipart()) {
+            return false;
+        }
+        String contentType = part.getContentType();
+        return contentType != null && contentType.startsWith("multipart/")
+                && StringUtils.isNotEmpty(part.getBoundary());
+    }
+
+    /**
+     * 展开一棵子树的任务：扫描当前层级得到子 part，再逐个展开子 part。
+     * 任务内发生的 {@link IOException} 以 {@link UncheckedIOException} 抛出，由 {@link #parse} 还原。
+     */
+    private final class NodeTask extends RecursiveTask<MimeNode> {
+        private static final long serialVersionUID = 1L;
+
+        private final MimePart part;
+        private final int depth;
+        private final boolean parallel;
+
+        NodeTask(MimePart part, int depth, boolean parallel) {
+            this.part = part;
+            this.depth = depth;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected MimeNode compute() {
+            try {
+                if (!isMultipart(part)) {
+                    return new MimeNode(part, depth, false, Collections.emptyList());
+                }
+                MultiMimePart multipart = part instanceof MultiMimePart
+                        ? (MultiMimePart) part : new MultiMimePart(part.getHeaders(), part.getBody());
+                List<MimePart> parts = MultipartParser.standard().parse(multipart);
+                List<NodeTask> tasks = new ArrayList<>(parts.size());
+                List<Boolean> forked = new ArrayList<>(parts.size());
+                for (MimePart child : parts) {
+                    NodeTask task = new NodeTask(child, depth + 1, parallel);
+                    boolean fork = parallel && isMultipart(child) && child.getBody().getSize() >= forkThreshold;
+                    if (fork) {
+                        task.fork();
+                    }
+                    tasks.add(task);
+                    forked.add(fork);
+                }
+                List<MimeNode> children = new ArrayList<>(tasks.size());
+                for (int i = 0; i < tasks.size(); i++) {
+                    children.add(forked.get(i) ? tasks.get(i).join() : tasks.get(i).compute());
+                }
+                return new MimeNode(part, depth, true, children);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
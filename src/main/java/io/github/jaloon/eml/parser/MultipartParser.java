@@ -4,7 +4,13 @@ import io.github.jaloon.eml.part.MimePart;
 import io.github.jaloon.eml.part.MultiMimePart;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -24,6 +30,62 @@ public interface MultipartParser {
      */
     List<MimePart> parse(MultiMimePart message) throws IOException;
 
+    /**
+     * 解析给定的多部分MIME消息，只返回满足筛选条件的MIME部分。
+     * <p>
+     * 默认实现先调用 {@link #parse} 解析全部部分，再逐个应用 {@link PartFilter#test}；
+     * {@link #quickly()} 在创建附件对象之前即完成筛选，不满足条件的附件不会分配头部列表和内容体子流。
+     *
+     * @param message 要解析的多部分MIME消息
+     * @param filter  筛选条件
+     * @return 满足条件的MIME部分组成的列表
+     * @throws IOException 如果在读取或解析过程中发生I/O错误
+     */
+    default List<MimePart> parse(MultiMimePart message, PartFilter filter) throws IOException {
+        List<MimePart> parts = new ArrayList<>();
+        for (MimePart part : parse(message)) {
+            if (filter.test(part)) {
+                parts.add(part);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * 按需解析给定的多部分MIME消息：每次调用 {@link Iterator#hasNext()} 时才继续扫描到下一个MIME部分。
+     * <p>
+     * 只需要前几个部分（如第一个附件，或仅判断是否存在附件）时，可以避免扫描邮件的剩余部分。
+     * 迭代过程中发生的I/O错误以 {@link java.io.UncheckedIOException} 抛出。
+     * 默认实现调用 {@link #parse} 一次性解析全部部分，内置解析器均提供了按需扫描的实现。
+     *
+     * @param message 要解析的多部分MIME消息
+     * @return 按顺序返回各个MIME部分的迭代器
+     * @throws IOException 如果在准备解析时发生I/O错误
+     */
+    default Iterator<MimePart> iterator(MultiMimePart message) throws IOException {
+        return parse(message).iterator();
+    }
+
+    /**
+     * 以顺序流的形式按需解析给定的多部分MIME消息，语义与 {@link #iterator} 相同。
+     * <p>
+     * 例如查找第一个 PDF 附件，找到后不再扫描剩余部分：
+     * <pre>{@code
+     * Optional<MimePart> pdf = MultipartParser.quickly().stream(message)
+     *         .filter(part -> part.getAttachName().endsWith(".pdf"))
+     *         .findFirst();
+     * }</pre>
+     *
+     * @param message 要解析的多部分MIME消息
+     * @return 按顺序包含各个MIME部分的流
+     * @throws IOException 如果在准备解析时发生I/O错误
+     */
+    default Stream<MimePart> stream(MultiMimePart message) throws IOException {
+        Iterator<MimePart> iterator = iterator(message);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     /**
      * 返回一个遵循标准实现的多部分解析器实例。
      * <p>
@@ -48,4 +110,27 @@ public interface MultipartParser {
     static MultipartParser quickly() {
         return QuicklyAttachmentParser.getInstance();
     }
+
+    /**
+     * 返回一个在解析过程中检查资源上限的标准解析器，超过上限时抛出 {@link ParserLimitException}。
+     *
+     * @param limits 解析资源上限
+     * @return 新的标准解析器实例
+     */
+    static MultipartParser standard(ParserLimits limits) {
+        if (limits == null)
+            throw new NullPointerException("limits");
+        return new StandardMultipartParser(limits);
+    }
+
+    /**
+     * 返回一个在解析过程中检查资源上限的快速附件提取解析器，超过上限时抛出 {@link ParserLimitException}。
+     * 需要同时定制其他选项时使用 {@link QuicklyAttachmentParser#builder()}。
+     *
+     * @param limits 解析资源上限
+     * @return 新的快速附件提取解析器实例
+     */
+    static MultipartParser quickly(ParserLimits limits) {
+        return QuicklyAttachmentParser.builder().limits(limits).build();
+    }
 }
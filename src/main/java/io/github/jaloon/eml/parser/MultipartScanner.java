@@ -0,0 +1,278 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.part.MimePart;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 推送式 multipart 扫描器：按任意大小的数据块依次输入邮件的原始字节，逐行识别邮件头部与 boundary 行，
+ * 并通过与 {@link StandardMultipartParser} 共用的 {@link BoundaryTracker} 确定每个 part 的头部和内容体范围。
+ * <p>
+ * 扫描器不要求输入可寻址，也不保留已扫描的数据：
+ * <ul>
+ *   <li>邮件头部与 part 头部行完整保留并转换为字符串，折叠行按 {@link MimePart#parseHeaders} 的方式拼接</li>
+ *   <li>内容体行只保留行尾若干字节用于 boundary 比较，超长的内容体行不会导致内存增长</li>
+ *   <li>行结束符支持 \r\n、\r、\n，跨数据块的 \r\n 会被正确识别</li>
+ * </ul>
+ * 扫描结果通过 {@link Listener} 回调，所有偏移均为相对于邮件起始位置的绝对偏移。
+ * 此类不是线程安全的，同一时刻只能由一个线程输入数据。
+ */
+class MultipartScanner {
+    /** 回车符 \r */
+    private static final byte CR = '\r';
+    /** 换行符 \n */
+    private static final byte LF = '\n';
+    /** 内容体行最多完整保留的字节数，超过后只保留行尾；头部行总是完整保留 */
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+    /** 超长内容体行截断后至少保留的行尾字节数 */
+    private static final int LINE_TAIL_BYTES = 1024;
+
+    /**
+     * 扫描结果回调
+     */
+    interface Listener {
+        /**
+         * 邮件头部扫描完成。
+         *
+         * @param headers   邮件头部信息列表
+         * @param bodyStart 邮件体起始偏移
+         */
+        void onHeaders(List<String> headers, long bodyStart);
+
+        /**
+         * 一个 part 的范围已确定。
+         *
+         * @param headers   part 头部信息列表
+         * @param bodyStart part 内容体起始偏移
+         * @param end       part 内容体结束偏移（不含）
+         */
+        void onPart(List<String> headers, long bodyStart, long end);
+    }
+
+    private final Listener listener;
+
+    /** 下一个输入字节的绝对偏移 */
+    private long position;
+    /** 当前行已保留的字节，超长的内容体行只保留行尾 */
+    private byte[] line = new byte[256];
+    /** 当前行已保留的字节数 */
+    private int lineCount;
+    /** 当前行的实际长度（不含行结束符） */
+    private long lineLength;
+    /** 上一个输入字节是否为 \r，需要等待下一个字节判断是否为 \r\n */
+    private boolean afterCR;
+    /** 是否已完成扫描（遇到结束边界或邮件不含 boundary） */
+    private boolean done;
+
+    /** 是否仍在扫描邮件头部 */
+    private boolean inMessageHeaders = true;
+    /** 邮件头部信息 */
+    private final List<String> headers = new ArrayList<>();
+    /** 邮件体起始偏移 */
+    private long bodyStart;
+    /** 邮件体的 boundary 识别，邮件头部扫描完成后创建 */
+    private BoundaryTracker boundaries;
+    /** 超长内容体行截断后保留的行尾字节数 */
+    private int tailBytes = LINE_TAIL_BYTES;
+    /** 当前 part 的头部信息 */
+    private List<String> partHeaders;
+
+    MultipartScanner(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 是否已完成扫描。完成后继续输入的数据将被忽略。
+     *
+     * @return 遇到结束边界或邮件不含 boundary 时返回 true
+     */
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * 获取已输入的字节数。
+     *
+     * @return 下一个输入字节的绝对偏移
+     */
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * 输入一块数据。
+     *
+     * @param b   数据所在数组
+     * @param off 数据起始偏移
+     * @param len 数据长度
+     */
+    void feed(byte[] b, int off, int len) {
+        int i = off;
+        int limit = off + len;
+        while (i < limit && !done) {
+            if (afterCR) {
+                afterCR = false;
+                if (b[i] == LF) {
+                    i++;
+                    position++;
+                }
+                endLine();
+                continue;
+            }
+            int j = i;
+            while (j < limit && b[j] != CR && b[j] != LF) {
+                j++;
+            }
+            append(b, i, j - i);
+            position += j - i;
+            if (j == limit) {
+                break;
+            }
+            position++;
+            if (b[j] == CR) {
+                afterCR = true;
+            } else {
+                endLine();
+            }
+            i = j + 1;
+        }
+    }
+
+    /**
+     * 输入结束：处理最后一个不完整的行，并输出缺少结束边界的最后一个 part。
+     */
+    void finish() {
+        if (done) {
+            return;
+        }
+        if (afterCR || lineLength > 0) {
+            afterCR = false;
+            endLine();
+        }
+        if (done) {
+            return;
+        }
+        if (inMessageHeaders) {
+            inMessageHeaders = false;
+            listener.onHeaders(headers, position);
+        } else if (boundaries.finish()) {
+            emitPart();
+        }
+        done = true;
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (len <= 0) {
+            return;
+        }
+        lineLength += len;
+        if (lineCount + len <= MAX_LINE_BYTES || inHeaders()) {
+            if (lineCount + len > line.length) {
+                int capacity = Math.max(line.length * 2, lineCount + len);
+                byte[] grown = new byte[inHeaders() ? capacity : Math.min(MAX_LINE_BYTES, capacity)];
+                System.arraycopy(line, 0, grown, 0, lineCount);
+                line = grown;
+            }
+            System.arraycopy(b, off, line, lineCount, len);
+            lineCount += len;
+            return;
+        }
+        // 超长的内容体行：只保留行尾用于 boundary 比较
+        if (line.length < tailBytes) {
+            line = Arrays.copyOf(line, tailBytes);
+        }
+        if (len >= tailBytes) {
+            System.arraycopy(b, off + len - tailBytes, line, 0, tailBytes);
+            lineCount = tailBytes;
+        } else {
+            int keep = Math.min(tailBytes - len, lineCount);
+            System.arraycopy(line, lineCount - keep, line, 0, keep);
+            System.arraycopy(b, off, line, keep, len);
+            lineCount = keep + len;
+        }
+    }
+
+    /**
+     * 当前行是否为头部行（或可能是 part 头部行），头部行需要完整保留。
+     */
+    private boolean inHeaders() {
+        return inMessageHeaders || boundaries != null && boundaries.inHeaders();
+    }
+
+    private void endLine() {
+        processLine(position);
+        lineCount = 0;
+        lineLength = 0;
+    }
+
+    /**
+     * 处理一个完整的行。
+     *
+     * @param lineEnd 行结束符之后的偏移
+     */
+    private void processLine(long lineEnd) {
+        if (inMessageHeaders) {
+            if (lineLength == 0) {
+                inMessageHeaders = false;
+                bodyStart = lineEnd;
+                listener.onHeaders(headers, bodyStart);
+                initBoundary();
+            } else {
+                addHeader(headers, lineString());
+            }
+            return;
+        }
+        // 偏移相对于邮件体起始位置，part 范围的确定与 StandardMultipartParser 相同
+        BoundaryTracker.Line type = boundaries.accept(line, 0, lineCount, lineLength, lineEnd - bodyStart);
+        if (boundaries.hasPart()) {
+            emitPart();
+        }
+        if (type == BoundaryTracker.Line.HEADER) {
+            addHeader(partHeaders, lineString());
+        } else if (type == BoundaryTracker.Line.BOUNDARY) {
+            partHeaders = new ArrayList<>();
+        } else if (type == BoundaryTracker.Line.CLOSE) {
+            done = true;
+        }
+    }
+
+    private void initBoundary() {
+        String boundary = null;
+        for (String header : headers) {
+            if (header.startsWith("Content-Type:")) {
+                boundary = MimePart.getHeadItem(header, "boundary");
+                break;
+            }
+        }
+        if (StringUtils.isEmpty(boundary)) {
+            done = true;
+            return;
+        }
+        boundaries = new BoundaryTracker(boundary);
+        tailBytes = Math.max(LINE_TAIL_BYTES, boundaries.patternLength());
+    }
+
+    private void emitPart() {
+        listener.onPart(partHeaders, bodyStart + boundaries.partBodyStart(), bodyStart + boundaries.partEnd());
+    }
+
+    private static void addHeader(List<String> headers, String line) {
+        char first = line.charAt(0);
+        if ((first == ' ' || first == '\t') && !headers.isEmpty()) {
+            headers.set(headers.size() - 1, headers.get(headers.size() - 1) + "\n" + line);
+        } else {
+            headers.add(line);
+        }
+    }
+
+    private String lineString() {
+        char[] chars = new char[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            chars[i] = (char) (line[i] & 0xFF);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.MimeBytes;
+
+/**
+ * 朴素 boundary 查找：逐个位置比较首字节，首字节相同时再比较完整模式。
+ * 实现简单、没有预处理开销，作为其他查找算法的参照实现。
+ */
+class NaiveBoundarySearcher implements BoundarySearcher {
+    private final byte[] pattern;
+
+    NaiveBoundarySearcher(byte[] pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public long indexOf(MimeBytes data, long from, long to) {
+        long limit = to - pattern.length;
+        byte first = pattern[0];
+        outer:
+        for (long i = from; i <= limit; i++) {
+            // 快速跳过首字节不匹配的位置
+            if (data.get(i) != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (data.get(i + j) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
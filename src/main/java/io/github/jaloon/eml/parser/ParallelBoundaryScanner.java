@@ -0,0 +1,126 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.MimeBytes;
+import io.github.jaloon.eml.io.MimeInputStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 在 {@link ForkJoinPool} 上并行查找 boundary 模式的全部出现位置。
+ * <p>
+ * 扫描范围被二分拆分为不超过段大小的若干段，每段的扫描范围向后延伸 {@code 模式长度 - 1} 个字节，
+ * 使跨越段边界的匹配能被前一段找到；每段只保留起始位置位于本段内的匹配，避免重复。
+ * 各段结果按段的顺序拼接，得到升序排列的全部匹配位置（包括相互重叠的匹配），
+ * 因此"大于等于 pos 的第一个候选位置"与从 pos 开始顺序查找的结果一致。
+ * <p>
+ * 每段通过 {@link MimeBytes#newStream} 创建独立的子视图扫描，不同线程之间不共享读取状态。
+ */
+final class ParallelBoundaryScanner {
+    /** 最小段大小，避免段过小时任务调度开销超过扫描本身 */
+    static final long MIN_SEGMENT_SIZE = 64 * 1024;
+    /** 每个工作线程平均分到的段数，用于平衡各段扫描耗时的差异 */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private ParallelBoundaryScanner() {}
+
+    /**
+     * 按线程池的并行度计算段大小，并行查找模式在 [from, to) 范围内的全部出现位置。
+     *
+     * @param pool          执行扫描的线程池
+     * @param searcher      针对模式编译的查找器
+     * @param patternLength 模式长度
+     * @param data          字节数据
+     * @param from          扫描起始偏移（含）
+     * @param to            扫描结束偏移（不含）
+     * @return 升序排列的匹配起始偏移
+     */
+    static long[] scan(ForkJoinPool pool, BoundarySearcher searcher, int patternLength, MimeBytes data, long from, long to) {
+        long segments = (long) pool.getParallelism() * SEGMENTS_PER_THREAD;
+        long segmentSize = Math.max(MIN_SEGMENT_SIZE, (to - from + segments - 1) / segments);
+        return scan(pool, searcher, patternLength, data, from, to, segmentSize);
+    }
+
+    /**
+     * 以指定的段大小并行查找模式在 [from, to) 范围内的全部出现位置。
+     *
+     * @param segmentSize 段大小，必须大于 0
+     * @return 升序排列的匹配起始偏移
+     */
+    static long[] scan(ForkJoinPool pool, BoundarySearcher searcher, int patternLength, MimeBytes data,
+                       long from, long to, long segmentSize) {
+        return pool.invoke(new SegmentTask(searcher, patternLength, data, from, to, to, segmentSize));
+    }
+
+    /**
+     * 扫描 [lo, hi) 内起始的匹配，匹配可以延伸到 limit 之前。
+     */
+    private static final class SegmentTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final BoundarySearcher searcher;
+        private final int patternLength;
+        private final MimeBytes data;
+        private final long lo, hi, limit;
+        private final long segmentSize;
+
+        SegmentTask(BoundarySearcher searcher, int patternLength, MimeBytes data,
+                    long lo, long hi, long limit, long segmentSize) {
+            this.searcher = searcher;
+            this.patternLength = patternLength;
+            this.data = data;
+            this.lo = lo;
+            this.hi = hi;
+            this.limit = limit;
+            this.segmentSize = segmentSize;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (hi - lo <= segmentSize) {
+                try {
+                    return scanSegment();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            long mid = lo + (hi - lo) / 2;
+            SegmentTask right = new SegmentTask(searcher, patternLength, data, mid, hi, limit, segmentSize);
+            right.fork();
+            long[] left = new SegmentTask(searcher, patternLength, data, lo, mid, limit, segmentSize).compute();
+            long[] rest = right.join();
+            long[] merged = Arrays.copyOf(left, left.length + rest.length);
+            System.arraycopy(rest, 0, merged, left.length, rest.length);
+            return merged;
+        }
+
+        private long[] scanSegment() throws IOException {
+            // 向后延伸模式长度 - 1 个字节，找到起始于本段、结束于下一段的匹配
+            long end = Math.min(limit, hi + patternLength - 1);
+            try (MimeInputStream view = data.newStream(lo, end)) {
+                MimeBytes bytes = view instanceof MimeBytes ? (MimeBytes) view : data;
+                long base = bytes == data ? 0 : lo;
+                long[] found = new long[8];
+                int count = 0;
+                long pos = lo - base;
+                long segmentEnd = hi - base;
+                long scanEnd = end - base;
+                while (pos < segmentEnd) {
+                    long index = searcher.indexOf(bytes, pos, scanEnd);
+                    if (index < 0 || index >= segmentEnd) {
+                        break;
+                    }
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count << 1);
+                    }
+                    found[count++] = index + base;
+                    pos = index + 1;
+                }
+                return Arrays.copyOf(found, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.jaloon.eml.parser;
+
+import java.io.IOException;
+
+/**
+ * 解析邮件时超过了 {@link ParserLimits} 中的某项上限。
+ * <p>
+ * 通过 {@link MultipartParser#iterator} 或 {@link MultipartParser#stream} 按需解析时，
+ * 此异常包装在 {@link java.io.UncheckedIOException} 中抛出。
+ */
+public class ParserLimitException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final ParserLimits.Limit limit;
+    private final long max;
+
+    /**
+     * 创建一个超过上限的异常。
+     *
+     * @param limit 被超过的上限种类
+     * @param max   上限值
+     */
+    public ParserLimitException(ParserLimits.Limit limit, long max) {
+        super("Parser limit exceeded: " + limit + " > " + max);
+        this.limit = limit;
+        this.max = max;
+    }
+
+    /**
+     * 获取被超过的上限种类。
+     *
+     * @return 上限种类
+     */
+    public ParserLimits.Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * 获取被超过的上限值。
+     *
+     * @return 上限值
+     */
+    public long getMax() {
+        return max;
+    }
+}
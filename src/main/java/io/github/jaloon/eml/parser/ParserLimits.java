@@ -0,0 +1,238 @@
+package io.github.jaloon.eml.parser;
+
+/**
+ * 解析资源上限：限制解析单封邮件时的嵌套深度、part 数量、头部大小、头部行长度与扫描的字节总数，
+ * 使来自不可信来源的邮件（如被刻意构造的深层嵌套或海量 part）的解析开销有确定的上界。
+ * <p>
+ * 上限在解析器的扫描循环中检查，超过任一上限时立即停止解析并抛出 {@link ParserLimitException}。
+ * 各项上限的含义：
+ * <ul>
+ *   <li>嵌套深度：邮件体的直接子 part 深度为 1，嵌套 multipart 的子 part 深度依次加 1；
+ *       {@link MultipartParser#standard()} 不展开嵌套，其 part 深度总是 1</li>
+ *   <li>part 数量：扫描到的 part 总数，包括正文、附件与嵌套的 multipart 本身，不论是否被返回</li>
+ *   <li>头部字节数：单个 part 从起始位置到头部结束空行之前的字节数，含各头部行的行结束符</li>
+ *   <li>头部行长度：单个头部的字节数，折叠头部按所有续行的总长度计算（不含行结束符）</li>
+ *   <li>扫描字节数：查找 boundary 时扫描的字节总数；{@link MultipartParser#quickly()} 对每一层嵌套
+ *       multipart 的范围分别计数，内层范围被重复扫描时重复计入；启用了单遍扫描
+ *       （{@link QuicklyAttachmentParser.Builder#singlePass}）时 body 只计入一次</li>
+ * </ul>
+ * 未设置的上限不做限制，{@link #NONE} 不做任何限制。上限是不可变的，可以被多个解析器共享。
+ * <pre>{@code
+ * ParserLimits limits = ParserLimits.builder()
+ *         .maxDepth(8)
+ *         .maxParts(1000)
+ *         .maxHeaderBytes(64 * 1024)
+ *         .maxLineLength(16 * 1024)
+ *         .maxScanBytes(100L << 20)
+ *         .build();
+ * List<MimePart> parts = MultipartParser.quickly(limits).parse(message);
+ * }</pre>
+ */
+public final class ParserLimits {
+    /** 不做任何限制 */
+    public static final ParserLimits NONE = builder().build();
+
+    /**
+     * 资源上限的种类。
+     */
+    public enum Limit {
+        /** 嵌套深度 */
+        DEPTH,
+        /** part 数量 */
+        PARTS,
+        /** 单个 part 的头部字节数 */
+        HEADER_BYTES,
+        /** 单个头部（含折叠续行）的长度 */
+        LINE_LENGTH,
+        /** 扫描的字节总数 */
+        SCAN_BYTES
+    }
+
+    private final int maxDepth;
+    private final int maxParts;
+    private final int maxHeaderBytes;
+    private final int maxLineLength;
+    private final long maxScanBytes;
+
+    private ParserLimits(Builder builder) {
+        this.maxDepth = builder.maxDepth;
+        this.maxParts = builder.maxParts;
+        this.maxHeaderBytes = builder.maxHeaderBytes;
+        this.maxLineLength = builder.maxLineLength;
+        this.maxScanBytes = builder.maxScanBytes;
+    }
+
+    /**
+     * 创建一个用于定制上限的构建器。未设置任何上限时，构建的结果与 {@link #NONE} 相同。
+     *
+     * @return 新的构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ParserLimits 的构建器。
+     */
+    public static final class Builder {
+        private int maxDepth = Integer.MAX_VALUE;
+        private int maxParts = Integer.MAX_VALUE;
+        private int maxHeaderBytes = Integer.MAX_VALUE;
+        private int maxLineLength = Integer.MAX_VALUE;
+        private long maxScanBytes = Long.MAX_VALUE;
+
+        private Builder() {}
+
+        /**
+         * 设置最大嵌套深度。
+         *
+         * @param maxDepth 最大嵌套深度，必须大于 0
+         * @return 当前构建器
+         */
+        public Builder maxDepth(int maxDepth) {
+            this.maxDepth = positive(maxDepth, "maxDepth");
+            return this;
+        }
+
+        /**
+         * 设置最多扫描的 part 数量。
+         *
+         * @param maxParts 最大 part 数量，必须大于 0
+         * @return 当前构建器
+         */
+        public Builder maxParts(int maxParts) {
+            this.maxParts = positive(maxParts, "maxParts");
+            return this;
+        }
+
+        /**
+         * 设置单个 part 头部的最大字节数。
+         *
+         * @param maxHeaderBytes 最大头部字节数，必须大于 0
+         * @return 当前构建器
+         */
+        public Builder maxHeaderBytes(int maxHeaderBytes) {
+            this.maxHeaderBytes = positive(maxHeaderBytes, "maxHeaderBytes");
+            return this;
+        }
+
+        /**
+         * 设置单个头部（含折叠续行）的最大长度。
+         *
+         * @param maxLineLength 最大头部长度，必须大于 0
+         * @return 当前构建器
+         */
+        public Builder maxLineLength(int maxLineLength) {
+            this.maxLineLength = positive(maxLineLength, "maxLineLength");
+            return this;
+        }
+
+        /**
+         * 设置查找 boundary 时最多扫描的字节总数。
+         *
+         * @param maxScanBytes 最大扫描字节数，必须大于 0
+         * @return 当前构建器
+         */
+        public Builder maxScanBytes(long maxScanBytes) {
+            if (maxScanBytes <= 0)
+                throw new IllegalArgumentException("maxScanBytes <= 0");
+            this.maxScanBytes = maxScanBytes;
+            return this;
+        }
+
+        /**
+         * 构建上限配置。
+         *
+         * @return 新的上限配置
+         */
+        public ParserLimits build() {
+            return new ParserLimits(this);
+        }
+
+        private static int positive(int value, String name) {
+            if (value <= 0)
+                throw new IllegalArgumentException(name + " <= 0");
+            return value;
+        }
+    }
+
+    /**
+     * 返回最大嵌套深度。
+     *
+     * @return 最大嵌套深度，未限制时为 {@link Integer#MAX_VALUE}
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 返回最多扫描的 part 数量。
+     *
+     * @return 最大 part 数量，未限制时为 {@link Integer#MAX_VALUE}
+     */
+    public int getMaxParts() {
+        return maxParts;
+    }
+
+    /**
+     * 返回单个 part 头部的最大字节数。
+     *
+     * @return 最大头部字节数，未限制时为 {@link Integer#MAX_VALUE}
+     */
+    public int getMaxHeaderBytes() {
+        return maxHeaderBytes;
+    }
+
+    /**
+     * 返回单个头部（含折叠续行）的最大长度。
+     *
+     * @return 最大头部长度，未限制时为 {@link Integer#MAX_VALUE}
+     */
+    public int getMaxLineLength() {
+        return maxLineLength;
+    }
+
+    /**
+     * 返回查找 boundary 时最多扫描的字节总数。
+     *
+     * @return 最大扫描字节数，未限制时为 {@link Long#MAX_VALUE}
+     */
+    public long getMaxScanBytes() {
+        return maxScanBytes;
+    }
+
+    /**
+     * 检查实际值是否超过上限。
+     *
+     * @param limit  上限种类
+     * @param actual 实际值
+     * @throws ParserLimitException 如果实际值超过上限
+     */
+    void check(Limit limit, long actual) throws ParserLimitException {
+        long max = max(limit);
+        if (actual > max) {
+            throw new ParserLimitException(limit, max);
+        }
+    }
+
+    private long max(Limit limit) {
+        switch (limit) {
+            case DEPTH:
+                return maxDepth;
+            case PARTS:
+                return maxParts;
+            case HEADER_BYTES:
+                return maxHeaderBytes;
+            case LINE_LENGTH:
+                return maxLineLength;
+            default:
+                return maxScanBytes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParserLimits{maxDepth=" + maxDepth + ", maxParts=" + maxParts + ", maxHeaderBytes=" + maxHeaderBytes
+                + ", maxLineLength=" + maxLineLength + ", maxScanBytes=" + maxScanBytes + '}';
+    }
+}
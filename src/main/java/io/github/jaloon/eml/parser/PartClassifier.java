@@ -0,0 +1,99 @@
+package io.github.jaloon.eml.parser;
+
+/**
+ * part 分类器：{@link QuicklyAttachmentParser} 定位到每个 part 后，根据预扫描的头部（{@link PartHeaders}）决定如何处理该 part。
+ * <p>
+ * 分类在字节层面进行：分类器只通过 {@link PartHeaders} 的查询方法比较头部字节，被跳过的 part 不会创建任何 String；
+ * 只有被保留的 part 才会完整解析头部并创建 {@link io.github.jaloon.eml.part.AttachmentPart}，
+ * 只有被展开的 part 才会解析 boundary 参数。
+ * <p>
+ * 分类器可以返回 null 表示不作判断，由 {@link #chain} 组合的下一个分类器继续判断；所有分类器都不作判断时跳过该 part。
+ * 内置的分类器：
+ * <ul>
+ *   <li>{@link #MULTIPART}：含有 boundary 参数的 {@code multipart/*} 展开为子层级</li>
+ *   <li>{@link #ATTACHMENT}：{@code Content-Disposition} 的类型为 {@code attachment}</li>
+ *   <li>{@link #INLINE_IMAGE}：{@code image/*} 类型，且 {@code Content-Disposition} 为 {@code inline} 或含有 {@code Content-ID}
+ *       （如 multipart/related 中被 HTML 正文引用的图片）</li>
+ *   <li>{@link #NAMED}：{@code Content-Type} 含有 {@code name} 参数，但没有 {@code Content-Disposition}</li>
+ *   <li>{@link #MESSAGE_RFC822}：{@code message/rfc822} 类型的转发邮件，整体保留</li>
+ *   <li>{@link #MS_TNEF}：Outlook 的 {@code application/ms-tnef}（即 winmail.dat），整体保留</li>
+ * </ul>
+ * 默认的分类器 {@link #DEFAULT} 与之前的行为一致，只提取 {@code attachment}；{@link #EXTENDED} 组合了全部内置分类器。例如：
+ * <pre>{@code
+ * MultipartParser parser = QuicklyAttachmentParser.builder()
+ *         .classifier(PartClassifier.chain(PartClassifier.EXTENDED,
+ *                 headers -> headers.valueStartsWith("Content-Type", "text/calendar") ? PartClassifier.Decision.KEEP : null))
+ *         .build();
+ * }</pre>
+ * 分类器应是无状态的，可以被多个线程同时使用。
+ *
+ * @see QuicklyAttachmentParser.Builder#classifier(PartClassifier)
+ */
+@FunctionalInterface
+public interface PartClassifier {
+
+    /**
+     * 对 part 的处理方式。
+     */
+    enum Decision {
+        /** 保留：作为附件返回 */
+        KEEP,
+        /** 跳过：不创建任何对象 */
+        SKIP,
+        /** 展开：作为嵌套 multipart 扫描其中的 part；没有 boundary 参数的 part 无法展开，按跳过处理 */
+        RECURSE
+    }
+
+    /** 展开含有 boundary 参数的 multipart */
+    PartClassifier MULTIPART = headers -> headers.valueStartsWith("Content-Type", "multipart/")
+            && headers.hasParameter("Content-Type", "boundary") ? Decision.RECURSE : null;
+    /** 保留 {@code Content-Disposition: attachment} */
+    PartClassifier ATTACHMENT = headers -> headers.hasType("Content-Disposition", "attachment") ? Decision.KEEP : null;
+    /** 保留内嵌图片 */
+    PartClassifier INLINE_IMAGE = headers -> headers.valueStartsWith("Content-Type", "image/")
+            && (headers.hasType("Content-Disposition", "inline") || headers.contains("Content-ID")) ? Decision.KEEP : null;
+    /** 保留只在 {@code Content-Type} 中给出文件名的 part */
+    PartClassifier NAMED = headers -> !headers.contains("Content-Disposition")
+            && headers.hasParameter("Content-Type", "name") ? Decision.KEEP : null;
+    /** 保留转发的邮件 */
+    PartClassifier MESSAGE_RFC822 = headers -> headers.hasType("Content-Type", "message/rfc822") ? Decision.KEEP : null;
+    /** 保留 TNEF 封装的 Outlook 附件 */
+    PartClassifier MS_TNEF = headers -> headers.hasType("Content-Type", "application/ms-tnef")
+            || headers.hasType("Content-Type", "application/vnd.ms-tnef") ? Decision.KEEP : null;
+
+    /** 默认分类器：展开 multipart，只保留 {@code attachment} */
+    PartClassifier DEFAULT = chain(MULTIPART, ATTACHMENT);
+    /** 组合全部内置分类器 */
+    PartClassifier EXTENDED = chain(MULTIPART, ATTACHMENT, MESSAGE_RFC822, MS_TNEF, INLINE_IMAGE, NAMED);
+
+    /**
+     * 判断 part 的处理方式。
+     *
+     * @param headers 预扫描的 part 头部，只在本次调用期间有效
+     * @return 处理方式，不作判断时返回 null
+     */
+    Decision classify(PartHeaders headers);
+
+    /**
+     * 按顺序组合多个分类器，返回第一个不为 null 的判断结果。
+     *
+     * @param classifiers 要组合的分类器，不能含有 null
+     * @return 组合后的分类器
+     */
+    static PartClassifier chain(PartClassifier... classifiers) {
+        PartClassifier[] copy = classifiers.clone();
+        for (PartClassifier classifier : copy) {
+            if (classifier == null)
+                throw new NullPointerException("classifier");
+        }
+        return headers -> {
+            for (PartClassifier classifier : copy) {
+                Decision decision = classifier.classify(headers);
+                if (decision != null) {
+                    return decision;
+                }
+            }
+            return null;
+        };
+    }
+}
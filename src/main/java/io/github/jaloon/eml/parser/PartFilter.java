@@ -0,0 +1,248 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.part.MimePart;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * MIME 部分的筛选条件，传入 {@link MultipartParser#parse(io.github.jaloon.eml.part.MultiMimePart, PartFilter)}
+ * 后只返回满足条件的部分。
+ * <p>
+ * 支持以下条件，未设置的条件不参与筛选，已设置的条件必须同时满足：
+ * <ul>
+ *   <li>内容类型：与 {@code Content-Type} 的媒体类型（不含参数）匹配任一通配模式，如 {@code application/vnd.*}；
+ *       缺少 {@code Content-Type} 时按 {@code text/plain} 处理</li>
+ *   <li>文件名：与附件名匹配任一通配模式，如 {@code *.docx}；没有文件名的部分不满足此条件</li>
+ *   <li>内容体大小：原始（传输编码后）内容体的字节数位于 [最小值, 最大值] 范围内</li>
+ *   <li>处置类型：{@code Content-Disposition} 的类型，如 {@code attachment}、{@code inline}</li>
+ * </ul>
+ * 通配模式中 {@code *} 匹配任意多个字符，{@code ?} 匹配单个字符，匹配时不区分大小写。
+ * <p>
+ * {@link MultipartParser#quickly()} 在扫描到 boundary、仅解析出判断所需的几个头部后即应用筛选，
+ * 不满足条件的附件不会创建头部列表、{@link io.github.jaloon.eml.part.AttachmentPart} 或内容体子流。例如只提取 Office 文档与压缩包：
+ * <pre>{@code
+ * PartFilter filter = PartFilter.builder()
+ *         .filename("*.docx", "*.xlsx", "*.pptx", "*.zip", "*.7z", "*.rar")
+ *         .maxSize(100L << 20)
+ *         .build();
+ * List<MimePart> parts = MultipartParser.quickly().parse(message, filter);
+ * }</pre>
+ * 筛选条件是不可变的，可以被多个线程同时使用。
+ */
+public final class PartFilter implements Predicate<MimePart> {
+    private final List<String> contentTypes;
+    private final List<String> filenames;
+    private final String disposition;
+    private final long minSize;
+    private final long maxSize;
+
+    private PartFilter(Builder builder) {
+        this.contentTypes = Collections.unmodifiableList(new ArrayList<>(builder.contentTypes));
+        this.filenames = Collections.unmodifiableList(new ArrayList<>(builder.filenames));
+        this.disposition = builder.disposition;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+    }
+
+    /**
+     * 创建一个用于定制筛选条件的构建器。未设置任何条件时，构建的筛选条件接受所有部分。
+     *
+     * @return 新的构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * PartFilter 的构建器。
+     */
+    public static final class Builder {
+        private final List<String> contentTypes = new ArrayList<>();
+        private final List<String> filenames = new ArrayList<>();
+        private String disposition;
+        private long minSize = 0;
+        private long maxSize = Long.MAX_VALUE;
+
+        private Builder() {}
+
+        /**
+         * 添加内容类型的通配模式，部分的媒体类型匹配其中任一模式即满足条件。
+         *
+         * @param patterns 通配模式，如 {@code application/pdf}、{@code image/*}
+         * @return 当前构建器
+         */
+        public Builder contentType(String... patterns) {
+            contentTypes.addAll(lowerCase(patterns));
+            return this;
+        }
+
+        /**
+         * 添加文件名的通配模式，部分的附件名匹配其中任一模式即满足条件。
+         *
+         * @param patterns 通配模式，如 {@code *.pdf}、{@code report-????.xlsx}
+         * @return 当前构建器
+         */
+        public Builder filename(String... patterns) {
+            filenames.addAll(lowerCase(patterns));
+            return this;
+        }
+
+        /**
+         * 设置内容体的最小字节数（含）。
+         *
+         * @param minSize 最小字节数，不能小于 0
+         * @return 当前构建器
+         */
+        public Builder minSize(long minSize) {
+            if (minSize < 0)
+                throw new IllegalArgumentException("minSize < 0");
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * 设置内容体的最大字节数（含）。
+         *
+         * @param maxSize 最大字节数，不能小于 0
+         * @return 当前构建器
+         */
+        public Builder maxSize(long maxSize) {
+            if (maxSize < 0)
+                throw new IllegalArgumentException("maxSize < 0");
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * 设置 {@code Content-Disposition} 的处置类型，不区分大小写。
+         *
+         * @param disposition 处置类型，如 {@code attachment}；为 null 时不限制
+         * @return 当前构建器
+         */
+        public Builder disposition(String disposition) {
+            this.disposition = disposition == null ? null : disposition.toLowerCase(Locale.ROOT);
+            return this;
+        }
+
+        /**
+         * 构建筛选条件。
+         *
+         * @return 新的筛选条件
+         */
+        public PartFilter build() {
+            if (minSize > maxSize)
+                throw new IllegalArgumentException("minSize > maxSize");
+            return new PartFilter(this);
+        }
+
+        private static List<String> lowerCase(String[] patterns) {
+            List<String> result = new ArrayList<>(patterns.length);
+            for (String pattern : patterns) {
+                if (pattern == null)
+                    throw new NullPointerException("pattern");
+                result.add(pattern.toLowerCase(Locale.ROOT));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 判断已解析的 MIME 部分是否满足筛选条件。
+     * <p>
+     * 内容类型、处置类型与附件名按快速解析器扫描头部的规则从头部列表中提取：头部名称不区分大小写，
+     * 同名头部以最后一个为准，附件名缺少 filename 参数时取 {@code Content-Type} 的 name 参数。
+     * 因此对同一封邮件，解析时传入筛选条件与解析后逐个调用此方法得到的结果相同。
+     *
+     * @param part MIME 部分
+     * @return 满足条件时返回 true
+     * @throws UncheckedIOException 如果获取内容体大小时发生I/O错误
+     */
+    @Override
+    public boolean test(MimePart part) {
+        QuicklyAttachmentParser.HeaderInfo info = QuicklyAttachmentParser.HeaderInfo.of(part.getHeaders());
+        long size;
+        try {
+            size = part.getBody().getSize();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return matches(info.contentType, info.disposition, info.attachName(), size);
+    }
+
+    /**
+     * 根据判断所需的最少信息检查筛选条件，供解析器在创建 MIME 部分之前调用。
+     *
+     * @param contentType {@code Content-Type} 头部的值（可含参数），不存在时为 null
+     * @param disposition {@code Content-Disposition} 头部的值（可含参数），不存在时为 null
+     * @param filename    附件名，不存在时为 null
+     * @param size        原始内容体的字节数
+     * @return 满足条件时返回 true
+     */
+    boolean matches(String contentType, String disposition, String filename, long size) {
+        if (size < minSize || size > maxSize) {
+            return false;
+        }
+        if (this.disposition != null && !this.disposition.equals(type(disposition))) {
+            return false;
+        }
+        if (!contentTypes.isEmpty()) {
+            String mediaType = type(contentType);
+            if (!matchesAny(contentTypes, mediaType == null ? "text/plain" : mediaType)) {
+                return false;
+            }
+        }
+        return filenames.isEmpty() || filename != null && matchesAny(filenames, filename.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 提取头部值中分号之前的类型部分并转为小写。
+     */
+    private static String type(String value) {
+        if (value == null) {
+            return null;
+        }
+        int semi = value.indexOf(';');
+        String type = (semi < 0 ? value : value.substring(0, semi)).trim().toLowerCase(Locale.ROOT);
+        return type.isEmpty() ? null : type;
+    }
+
+    private static boolean matchesAny(List<String> patterns, String text) {
+        for (String pattern : patterns) {
+            if (glob(pattern, text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 通配匹配：{@code *} 匹配任意多个字符，{@code ?} 匹配单个字符。遇到不匹配时回退到最近一个 {@code *} 之后重试。
+     */
+    static boolean glob(String pattern, String text) {
+        int p = 0, t = 0, star = -1, mark = 0;
+        while (t < text.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+                p++;
+                t++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = t;
+            } else if (star >= 0) {
+                p = star + 1;
+                t = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+}
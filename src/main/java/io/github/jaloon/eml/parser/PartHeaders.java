@@ -0,0 +1,236 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.MimeBytes;
+
+/**
+ * 预扫描的 part 头部，供 {@link PartClassifier} 在字节层面判断 part 的类型。
+ * <p>
+ * 快速解析器定位到一个 part 后只记录各头部的字节范围（名称起止、值的结束位置，折叠续行计入所属头部），
+ * 不创建任何 String；此类的查询方法直接在这些范围上按 ASCII 不区分大小写比较。
+ * 同名头部出现多次时以最后一个为准。头部的值中可能含有折叠续行的行结束符，比较时与空白字符同样对待。
+ * <p>
+ * 同一个实例在解析过程中被依次用于各个 part，只在 {@link PartClassifier#classify} 调用期间有效，分类器不能保留其引用。
+ */
+public final class PartHeaders {
+    private MimeBytes data;
+    /** 每个头部占 3 个元素：名称起始偏移、冒号偏移、值的结束偏移（不含行结束符） */
+    private long[] ranges = new long[24];
+    private int count;
+    private int depth;
+    private long bodySize;
+
+    PartHeaders() {}
+
+    /**
+     * 预扫描 [start, end) 范围内的头部行，遇到空行停止。不含冒号的行不是头部，被忽略。
+     *
+     * @param data     字节数据
+     * @param start    头部起始偏移
+     * @param end      头部扫描上限（body 起始位置）
+     * @param depth    part 的嵌套深度
+     * @param bodySize 原始内容体的字节数
+     * @return 当前实例
+     */
+    PartHeaders scan(MimeBytes data, long start, long end, int depth, long bodySize) {
+        this.data = data;
+        this.count = 0;
+        this.depth = depth;
+        this.bodySize = bodySize;
+        long pos = start;
+        while (pos < end) {
+            long lineEnd = data.indexOfLineEnd(pos, end);
+            if (lineEnd < 0) {
+                lineEnd = end;
+            }
+            if (lineEnd == pos) {
+                break;
+            }
+            byte first = data.get(pos);
+            if (first == ' ' || first == '\t') {
+                // 折叠续行，延伸上一个头部的值
+                if (count > 0) {
+                    ranges[count * 3 - 1] = lineEnd;
+                }
+            } else {
+                long colon = data.indexOf((byte) ':', pos, lineEnd);
+                if (colon > pos) {
+                    add(pos, colon, lineEnd);
+                }
+            }
+            pos = lineEnd;
+            if (pos < end && data.get(pos) == '\r') pos++;
+            if (pos < end && data.get(pos) == '\n') pos++;
+        }
+        return this;
+    }
+
+    private void add(long nameStart, long colon, long valueEnd) {
+        int i = count * 3;
+        if (i + 3 > ranges.length) {
+            long[] grown = new long[ranges.length * 2];
+            System.arraycopy(ranges, 0, grown, 0, i);
+            ranges = grown;
+        }
+        ranges[i] = nameStart;
+        ranges[i + 1] = colon;
+        ranges[i + 2] = valueEnd;
+        count++;
+    }
+
+    /**
+     * 返回 part 的嵌套深度，邮件体的直接子 part 为 1。
+     *
+     * @return 嵌套深度
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * 返回原始（传输编码后）内容体的字节数。
+     *
+     * @return 内容体字节数
+     */
+    public long bodySize() {
+        return bodySize;
+    }
+
+    /**
+     * 判断是否存在指定名称的头部。
+     *
+     * @param name 头部名称，如 {@code Content-ID}，不区分大小写
+     * @return 存在时返回 true
+     */
+    public boolean contains(String name) {
+        return find(name) >= 0;
+    }
+
+    /**
+     * 判断头部的值（去掉前导空白后）是否以指定前缀开头，不区分大小写。
+     *
+     * @param name   头部名称，不区分大小写
+     * @param prefix ASCII 前缀，如 {@code image/}
+     * @return 头部存在且值以该前缀开头时返回 true
+     */
+    public boolean valueStartsWith(String name, String prefix) {
+        int i = find(name);
+        if (i < 0) {
+            return false;
+        }
+        long pos = skipSpace(ranges[i + 1] + 1, ranges[i + 2]);
+        return regionMatches(pos, ranges[i + 2], prefix);
+    }
+
+    /**
+     * 判断头部值中分号之前的类型是否与指定类型相同，不区分大小写。
+     * 例如 {@code Content-Disposition: attachment; filename="a.txt"} 的类型为 {@code attachment}。
+     *
+     * @param name 头部名称，不区分大小写
+     * @param type 类型，如 {@code attachment}、{@code message/rfc822}
+     * @return 头部存在且类型相同时返回 true
+     */
+    public boolean hasType(String name, String type) {
+        int i = find(name);
+        if (i < 0) {
+            return false;
+        }
+        long end = ranges[i + 2];
+        long pos = skipSpace(ranges[i + 1] + 1, end);
+        if (!regionMatches(pos, end, type)) {
+            return false;
+        }
+        pos = skipSpace(pos + type.length(), end);
+        return pos == end || data.get(pos) == ';';
+    }
+
+    /**
+     * 判断头部是否含有指定参数，包括 RFC 2231 编码的形式（如 {@code name*} 与 {@code name*0}）。
+     *
+     * @param name      头部名称，不区分大小写
+     * @param parameter 参数名，如 {@code name}、{@code filename}，不区分大小写
+     * @return 头部存在且含有该参数时返回 true
+     */
+    public boolean hasParameter(String name, String parameter) {
+        int i = find(name);
+        if (i < 0) {
+            return false;
+        }
+        long end = ranges[i + 2];
+        for (long semi = data.indexOf((byte) ';', ranges[i + 1] + 1, end); semi >= 0;
+             semi = data.indexOf((byte) ';', semi + 1, end)) {
+            long pos = skipSpace(semi + 1, end);
+            if (regionMatches(pos, end, parameter)) {
+                pos = skipSpace(pos + parameter.length(), end);
+                if (pos < end && (data.get(pos) == '=' || data.get(pos) == '*')) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取头部的值，去掉首尾空白，折叠续行保留原样。此方法会创建 String，快速路径上应优先使用其他查询方法。
+     *
+     * @param name 头部名称，不区分大小写
+     * @return 头部的值，不存在时返回 null
+     */
+    public String value(String name) {
+        int i = find(name);
+        if (i < 0) {
+            return null;
+        }
+        long start = ranges[i + 1] + 1;
+        char[] chars = new char[(int) (ranges[i + 2] - start)];
+        for (int k = 0; k < chars.length; k++) {
+            chars[k] = (char) (data.get(start + k) & 0xFF);
+        }
+        return new String(chars).trim();
+    }
+
+    /**
+     * 查找指定名称的最后一个头部。
+     *
+     * @return 该头部在 ranges 中的下标，不存在时返回 -1
+     */
+    private int find(String name) {
+        for (int i = (count - 1) * 3; i >= 0; i -= 3) {
+            long nameEnd = ranges[i + 1];
+            // 允许名称与冒号之间有空白
+            while (nameEnd > ranges[i] && isSpace(data.get(nameEnd - 1))) {
+                nameEnd--;
+            }
+            if (nameEnd - ranges[i] == name.length() && regionMatches(ranges[i], nameEnd, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(long pos, long end, String text) {
+        if (end - pos < text.length()) {
+            return false;
+        }
+        for (int k = 0; k < text.length(); k++) {
+            if (lowerCase(data.get(pos + k)) != lowerCase((byte) text.charAt(k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long skipSpace(long pos, long end) {
+        while (pos < end && isSpace(data.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static int lowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+}
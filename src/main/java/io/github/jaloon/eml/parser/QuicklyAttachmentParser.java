@@ -1,38 +1,71 @@
 package io.github.jaloon.eml.parser;
 
+import io.github.jaloon.eml.io.BufferPool;
 import io.github.jaloon.eml.io.ByteArrayMimeInputStream;
+import io.github.jaloon.eml.io.MimeBytes;
 import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.io.PooledMimeInputStream;
+import io.github.jaloon.eml.io.SegmentedMimeInputStream;
+import io.github.jaloon.eml.io.WindowedMimeBytes;
 import io.github.jaloon.eml.part.AttachmentPart;
 import io.github.jaloon.eml.part.MimePart;
 import io.github.jaloon.eml.part.MultiMimePart;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * QuicklyAttachmentParser 是一个高性能附件提取解析器，专注于从多部分 MIME 消息中快速提取附件部分。
  * <p>
  * 核心优化策略（参考 JavaMail 的 MimeMultipart 实现）：
  * <ol>
- *   <li>将整个 multipart body 一次性读入内存字节数组（{@link #readAllBytes}），
+ *   <li>直接在内存中的 multipart body（{@link MimeBytes}）上扫描；body 不在内存中（如以
+ *       {@link io.github.jaloon.eml.io.FileAccessMode#RANDOM_ACCESS} 打开的文件）时一次性读入内存，
  *       避免大量 seek + 逐字节 read 的 I/O 开销</li>
- *   <li>使用字节级边界扫描（{@link #findNextBoundary}）替代 readLine 逐行扫描，
- *       将 I/O 操作从 O(行数) 降低到 O(数据量/缓冲区大小)</li>
+ *   <li>使用字节级边界扫描（{@link BoundarySearcher}，默认为 Boyer-Moore-Horspool 算法）替代 readLine 逐行扫描，
+ *       将 I/O 操作从 O(行数) 降低到 O(数据量/缓冲区大小)，且大部分字节无需读取</li>
  *   <li>仅解析每个 part 的头部信息（通常几百字节），跳过 body 内容</li>
+ *   <li>可替换的 part 分类（通过 {@link Builder#classifier} 配置）：在预扫描的头部字节上判断保留、跳过或展开，
+ *       被跳过的 part 不创建任何 String</li>
  *   <li>使用轻量级头部扫描（{@link #scanHeaders}）替代完整的
  *       {@link MimePart#parseHeaders(MimeInputStream)} 调用，
  *       避免为非附件部分创建 ArrayList 和 String 对象</li>
- *   <li>支持嵌套 multipart 递归处理，限定递归范围避免重复扫描</li>
+ *   <li>支持嵌套 multipart，以层级栈代替递归，限定子层级的扫描范围避免重复扫描</li>
+ *   <li>支持按需扫描（{@link #iterator}），只推进到调用方需要的附件为止；
+ *       也可以按字节预算分片扫描（{@link #scan}），挂起后从保存的位置继续</li>
+ *   <li>所有偏移均为 long，可跨越 {@link SegmentedMimeInputStream} 的段边界扫描超过 2 GB 的 body</li>
+ *   <li>可选的并行扫描（通过 {@link Builder#parallelScan} 配置）：超过阈值的层级在 {@link ForkJoinPool}
+ *       上分段并行查找 boundary，适合数百 MB 的单封邮件</li>
+ *   <li>可选的 {@link BufferPool}（通过 {@link #builder()} 配置）：body 读入的数组从池中借出，
+ *       在邮件关闭且所有附件内容体关闭后归还，减少大数组分配对年轻代的压力</li>
+ *   <li>可选的资源上限（通过 {@link Builder#limits} 配置）：进入嵌套层级、定位 part 与扫描头部时检查
+ *       {@link ParserLimits}，处理不可信邮件时开销有确定的上界</li>
+ *   <li>可选的单遍扫描（通过 {@link Builder#singlePass} 配置）：同时匹配所有已打开层级的 boundary，
+ *       深层嵌套的邮件中每个字节只扫描一次</li>
+ *   <li>可选的按块访问（通过 {@link Builder#windowedBody} 配置）：body 不在内存中时通过 {@link WindowedMimeBytes}
+ *       按数据块定位读取，不复制整个 body</li>
  * </ol>
  * <p>
+ * 附件内容体的生命周期：body 在内存中（{@link MimeBytes}）时，附件内容体为其零拷贝切片；
+ * 否则默认读入内存（或从 {@link BufferPool} 借出的数组），附件内容体在邮件关闭后仍可读取。
+ * 启用 {@link Builder#windowedBody} 时附件内容体为 body 流（通常即邮件文件）的子流，
+ * 与 body 流共享底层文件，邮件关闭后不能再读取，需要在关闭邮件之前读取完毕。
+ * <p>
  * 非标准格式兼容性：
  * <ul>
  *   <li>boundary 不以换行开头（如 {@code </html>--boundary}）：
- *       {@link #findNextBoundary} 不要求 boundary 前必须是 LF/CR</li>
+ *       boundary 查找不要求 boundary 前必须是 LF/CR</li>
  *   <li>缺少结束边界 {@code --boundary--}：当找不到下一个 boundary 时，
  *       将剩余数据作为最后一个 part 处理</li>
  *   <li>RFC 2822 折叠头部：{@link #scanHeaders} 自动拼接以空格/tab 开头的续行</li>
@@ -46,6 +79,8 @@ public class QuicklyAttachmentParser implements MultipartParser {
 
     /** 读取缓冲区大小，用于无法预知大小时的回退读取策略 */
     private static final int BUFFER_SIZE = 65536;
+    /** 单个字节数组的最大长度，超过该大小的 body 读入分段缓冲区 */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
     /** 回车符 \r，MIME 规范中行结束符的一部分 */
     private static final byte CR = '\r';
     /** 换行符 \n，MIME 规范中行结束符的一部分 */
@@ -65,7 +100,196 @@ public class QuicklyAttachmentParser implements MultipartParser {
         return instance;
     }
 
-    private QuicklyAttachmentParser() {}
+    /** 读入 body 时借用数组的缓冲池，为 null 时每次分配新数组 */
+    private final BufferPool bufferPool;
+    /** boundary 查找器工厂 */
+    private final BoundarySearcher.Factory boundarySearcher;
+    /** 并行扫描 boundary 的线程池，为 null 时不并行扫描 */
+    private final ForkJoinPool scanPool;
+    /** 启用并行扫描的层级大小阈值（字节） */
+    private final long parallelThreshold;
+    /** 解析资源上限 */
+    private final ParserLimits limits;
+    /** 是否以单遍扫描同时匹配所有层级的 boundary */
+    private final boolean singlePass;
+    /** part 分类器 */
+    private final PartClassifier classifier;
+    /** body 不在内存中时是否按数据块访问 */
+    private final boolean windowedBody;
+
+    private QuicklyAttachmentParser() {
+        this(new Builder());
+    }
+
+    private QuicklyAttachmentParser(Builder builder) {
+        this.bufferPool = builder.bufferPool;
+        this.boundarySearcher = builder.boundarySearcher;
+        this.scanPool = builder.scanPool;
+        this.parallelThreshold = builder.parallelThreshold;
+        this.limits = builder.limits;
+        this.singlePass = builder.singlePass;
+        this.classifier = builder.classifier;
+        this.windowedBody = builder.windowedBody;
+    }
+
+    /**
+     * 创建一个用于定制解析器的构建器。未定制任何选项时，构建的解析器与 {@link #getInstance()} 行为相同。
+     *
+     * @return 新的构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * QuicklyAttachmentParser 的构建器。
+     */
+    public static final class Builder {
+        private BufferPool bufferPool;
+        private BoundarySearcher.Factory boundarySearcher = BoundarySearcher.HORSPOOL;
+        private ForkJoinPool scanPool;
+        private long parallelThreshold;
+        private ParserLimits limits = ParserLimits.NONE;
+        private boolean singlePass;
+        private PartClassifier classifier = PartClassifier.DEFAULT;
+        private boolean windowedBody;
+
+        private Builder() {}
+
+        /**
+         * 设置读入 body 时使用的缓冲池。
+         * <p>
+         * body 流本身不支持随机访问（如 {@link io.github.jaloon.eml.io.FileAccessMode#RANDOM_ACCESS} 打开的文件）时，
+         * 解析器从池中借出数组读入 body，该数组注册到邮件上（{@link MultiMimePart#register}），
+         * 在邮件关闭、扫描游标扫描完毕，且所有引用它的附件内容体关闭后归还到池中。
+         * 附件内容体引用借出的数组，在邮件关闭后仍可读取；{@link #iterator}、{@link #scan} 等未扫描完毕的游标
+         * 在邮件关闭后仍可继续扫描，中途放弃的游标使数组不再归还到池中，由垃圾回收释放。
+         * <p>
+         * 缓冲池优先于 {@link #windowedBody}：同时设置时读入借出的数组。
+         *
+         * @param bufferPool 缓冲池，为 null 时不使用缓冲池
+         * @return 当前构建器
+         */
+        public Builder bufferPool(BufferPool bufferPool) {
+            this.bufferPool = bufferPool;
+            return this;
+        }
+
+        /**
+         * 设置 boundary 查找算法，默认为 {@link BoundarySearcher#HORSPOOL}。
+         *
+         * @param boundarySearcher boundary 查找器工厂，不能为 null
+         * @return 当前构建器
+         */
+        public Builder boundarySearcher(BoundarySearcher.Factory boundarySearcher) {
+            if (boundarySearcher == null)
+                throw new NullPointerException("boundarySearcher");
+            this.boundarySearcher = boundarySearcher;
+            return this;
+        }
+
+        /**
+         * 启用并行 boundary 扫描：扫描范围不小于阈值的 multipart 层级，在创建该层级时将范围分段，
+         * 在线程池上并行查找全部 boundary 候选位置，之后该层级的 part 定位直接使用候选位置，不再顺序查找。
+         * <p>
+         * 相邻分段之间重叠 boundary 长度减 1 个字节，跨越分段边界的 boundary 不会遗漏；分段数约为线程池并行度的 4 倍，
+         * 每段不小于 64 KB。并行扫描会一次查找完整个层级，因此对该层级而言 {@link QuicklyAttachmentParser#iterator} 不再按需扫描；
+         * 小于阈值的层级仍按原方式顺序、按需扫描，不产生任务开销。body 不在内存中、按数据块访问时不并行扫描。
+         *
+         * @param pool      执行扫描的线程池，不能为 null
+         * @param threshold 启用并行扫描的层级大小阈值（字节），必须大于 0
+         * @return 当前构建器
+         */
+        public Builder parallelScan(ForkJoinPool pool, long threshold) {
+            if (pool == null)
+                throw new NullPointerException("pool");
+            if (threshold <= 0)
+                throw new IllegalArgumentException("threshold <= 0");
+            this.scanPool = pool;
+            this.parallelThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * 设置解析资源上限，默认为 {@link ParserLimits#NONE}。超过上限时解析抛出 {@link ParserLimitException}。
+         * <p>
+         * 扫描字节数在进入每一层 multipart 时按该层的范围计入，因此按需扫描（{@link QuicklyAttachmentParser#iterator}）
+         * 提前结束时也按整层计算；头部字节数与头部长度在定位 part 内容体时检查，不会扫描超过上限的头部数据。
+         *
+         * @param limits 解析资源上限，不能为 null
+         * @return 当前构建器
+         */
+        public Builder limits(ParserLimits limits) {
+            if (limits == null)
+                throw new NullPointerException("limits");
+            this.limits = limits;
+            return this;
+        }
+
+        /**
+         * 启用单遍扫描：从头到尾只扫描一遍 body，在每个 {@code --} 处同时匹配所有已打开层级的 boundary，
+         * 定位出完整的 part 树，而不是按层级分别扫描（内层范围在每一层都被重复扫描）。
+         * <p>
+         * 默认方式使用 {@link BoundarySearcher} 跳跃查找，单层或浅层嵌套的邮件通常更快；
+         * 单遍扫描逐个检查 {@code '-'} 字节，适合 multipart/mixed 嵌套 multipart/alternative 再嵌套 multipart/related
+         * 这类深层嵌套的邮件（如 Outlook 发出的邮件）。各层 boundary 符合 RFC 2046（不含行结束符，且互不为前缀）时，
+         * 两种方式提取的附件相同。单遍扫描不使用 {@link #boundarySearcher} 设置的算法，也不能与 {@link #parallelScan} 同时启用。
+         *
+         * @param singlePass 是否启用单遍扫描，默认为 false
+         * @return 当前构建器
+         */
+        public Builder singlePass(boolean singlePass) {
+            this.singlePass = singlePass;
+            return this;
+        }
+
+        /**
+         * 设置 part 分类器，默认为 {@link PartClassifier#DEFAULT}（展开 multipart，只提取 {@code attachment}）。
+         * 例如同时提取内嵌图片、转发的邮件与 winmail.dat 等，可以使用 {@link PartClassifier#EXTENDED}。
+         * <p>
+         * 分类器对每个非 multipart 的 part 在其结束位置确定之后调用；启用单遍扫描时，
+         * 形如 multipart 的 part 在打开时即需要决定是否展开，此时 {@link PartHeaders#bodySize()} 为 -1。
+         * 分类结果为保留的 part 再应用 {@link PartFilter}。遍历邮件结构（{@link EmlIndex}）时不使用分类器。
+         *
+         * @param classifier part 分类器，不能为 null
+         * @return 当前构建器
+         */
+        public Builder classifier(PartClassifier classifier) {
+            if (classifier == null)
+                throw new NullPointerException("classifier");
+            this.classifier = classifier;
+            return this;
+        }
+
+        /**
+         * 设置 body 不在内存中（如以 {@link io.github.jaloon.eml.io.FileAccessMode#RANDOM_ACCESS} 打开的文件）时
+         * 是否按数据块访问，而不是一次性读入内存。
+         * <p>
+         * 启用后通过 {@link WindowedMimeBytes} 按数据块定位读取扫描到的范围，堆内存占用与 body 大小无关，
+         * 附件内容体为 body 流的子流，不复制数据。子流与邮件共享底层文件：<b>邮件关闭后附件内容体不能再读取</b>，
+         * 调用方需要在关闭邮件之前读取完附件。默认不启用，附件内容体为读入内存的副本，在邮件关闭后仍可读取。
+         * 设置了 {@link #bufferPool} 时此选项不起作用；大小未知的 body 总是读入内存。
+         *
+         * @param windowedBody 是否按数据块访问 body，默认为 false
+         * @return 当前构建器
+         */
+        public Builder windowedBody(boolean windowedBody) {
+            this.windowedBody = windowedBody;
+            return this;
+        }
+
+        /**
+         * 构建解析器。构建出的解析器是线程安全的，可以在多个线程间共享。
+         *
+         * @return 新的解析器实例
+         * @throws IllegalStateException 如果同时启用了单遍扫描与并行扫描
+         */
+        public QuicklyAttachmentParser build() {
+            if (singlePass && scanPool != null)
+                throw new IllegalStateException("singlePass and parallelScan are mutually exclusive");
+            return new QuicklyAttachmentParser(this);
+        }
+    }
 
     /**
      * 解析 multipart 消息并提取附件列表。
@@ -73,8 +297,10 @@ public class QuicklyAttachmentParser implements MultipartParser {
      * 解析流程：
      * <ol>
      *   <li>校验是否为 multipart 消息且含有 boundary</li>
-     *   <li>将整个 body 一次性读入内存字节数组（{@link #readAllBytes}）</li>
-     *   <li>调用 {@link #parseRange} 在字节数组中扫描 boundary 并提取附件</li>
+     *   <li>获取可随机访问的 body 数据：body 流本身实现 {@link MimeBytes} 时直接使用（零拷贝）；
+     *       配置了缓冲池时读入借出的数组（{@link #readPooled}）；启用了 {@link Builder#windowedBody} 时
+     *       通过 {@link WindowedMimeBytes} 按数据块访问；否则一次性读入内存（{@link #readAllBytes}）</li>
+     *   <li>通过 {@link AttachmentCursor}（单遍扫描时为 {@link SinglePassCursor}）在字节数据中扫描 boundary 并提取附件</li>
      * </ol>
      *
      * @param message 待解析的 multipart 消息
@@ -83,35 +309,199 @@ public class QuicklyAttachmentParser implements MultipartParser {
      */
     @Override
     public List<MimePart> parse(MultiMimePart message) throws IOException {
-        if (!message.isMultipart()) {
+        PartCursor cursor = cursor(message, null);
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+        return LazyPartIterator.toList(cursor);
+    }
+
+    /**
+     * 解析 multipart 消息，只提取满足筛选条件的附件。
+     * <p>
+     * 筛选在轻量级头部扫描（{@link #scanHeaders}）之后、完整解析头部之前进行：
+     * 不满足条件的附件不会创建头部列表、{@link AttachmentPart} 或内容体子流。
+     *
+     * @param message 待解析的 multipart 消息
+     * @param filter  筛选条件
+     * @return 满足条件的附件列表，若无附件则返回空列表
+     * @throws IOException 读取 body 数据时发生 I/O 错误
+     */
+    @Override
+    public List<MimePart> parse(MultiMimePart message, PartFilter filter) throws IOException {
+        if (filter == null)
+            throw new NullPointerException("filter");
+        PartCursor cursor = cursor(message, filter);
+        if (cursor == null) {
             return Collections.emptyList();
         }
+        return LazyPartIterator.toList(cursor);
+    }
+
+    /**
+     * 按需提取附件：每次请求下一个附件时才继续查找 boundary，找到下一个附件即返回。
+     * <p>
+     * boundary 扫描和头部解析只推进到调用方需要的位置；启用了 {@link Builder#windowedBody} 时，也只读取扫描到的数据块。
+     *
+     * @param message 待解析的 multipart 消息
+     * @return 按顺序返回各个附件的迭代器，若不是 multipart 消息则返回空迭代器
+     * @throws IOException 读取 body 数据时发生 I/O 错误
+     */
+    @Override
+    public Iterator<MimePart> iterator(MultiMimePart message) throws IOException {
+        PartCursor cursor = cursor(message, null);
+        if (cursor == null) {
+            return Collections.emptyIterator();
+        }
+        return new LazyPartIterator(cursor);
+    }
+
+    /**
+     * 创建可分片执行的附件扫描：每次调用 {@link Scan#next(long)} 只查找有限字节的 boundary，
+     * 预算用完时保存扫描位置并返回，下次调用从该位置继续。适合在固定时间片内交替处理多封邮件。
+     * <p>
+     * body 的准备方式同 {@link #parse}；启用了 {@link Builder#windowedBody} 时只读取扫描到的数据块。
+     *
+     * @param message 待解析的 multipart 消息
+     * @return 附件扫描，若不是 multipart 消息则返回已扫描完毕的扫描
+     * @throws IOException 读取 body 数据时发生 I/O 错误
+     */
+    public Scan scan(MultiMimePart message) throws IOException {
+        return new Scan(cursor(message, null));
+    }
+
+    /**
+     * 可分片执行的附件扫描，由 {@link #scan(MultiMimePart)} 创建。
+     * <p>
+     * 扫描状态保存在显式的层级栈中（每层记录已编码的 boundary 模式与扫描位置），挂起与恢复不依赖调用栈；
+     * 单遍扫描时只需保存一个扫描位置。
+     * 例如每个时间片最多扫描 1 MB：
+     * <pre>{@code
+     * QuicklyAttachmentParser.Scan scan = QuicklyAttachmentParser.getInstance().scan(message);
+     * while (!scan.isDone()) {
+     *     MimePart attachment = scan.next(1 << 20);
+     *     if (attachment != null) {
+     *         handle(attachment);
+     *     } else {
+     *         yieldToOtherWork();
+     *     }
+     * }
+     * }</pre>
+     * 此类不是线程安全的，但可以在不同线程上先后调用。
+     */
+    public static final class Scan {
+        private final PartCursor cursor;
+
+        private Scan(PartCursor cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * 继续扫描到下一个附件为止，查找 boundary 最多扫描约 budget 个字节（为不遗漏跨越预算末尾的 boundary，
+         * 实际读取最多再多 boundary 长度个字节）。解析附件头部的开销不计入预算。
+         *
+         * @param budget 查找 boundary 的字节预算，必须大于 0
+         * @return 下一个附件；预算用完或扫描完毕时返回 null，可通过 {@link #isDone()} 区分
+         * @throws IOException 扫描过程中发生 I/O 错误，或超过了解析资源上限
+         */
+        public MimePart next(long budget) throws IOException {
+            if (budget <= 0)
+                throw new IllegalArgumentException("budget <= 0");
+            return cursor == null ? null : cursor.next(budget);
+        }
+
+        /**
+         * 判断是否已扫描完毕。
+         *
+         * @return 扫描完毕、之后不会再返回附件时返回 true
+         */
+        public boolean isDone() {
+            return cursor == null || cursor.isDone();
+        }
+    }
+
+    /**
+     * 准备可随机访问的 body 数据并创建扫描游标。
+     *
+     * @param filter 附件筛选条件，为 null 时提取所有附件
+     * @return 扫描游标，不是 multipart 消息或缺少 boundary 时返回 null
+     */
+    private PartCursor cursor(MultiMimePart message, PartFilter filter) throws IOException {
+        if (!message.isMultipart()) {
+            return null;
+        }
         String boundary = message.getBoundary();
         if (boundary == null) {
-            return Collections.emptyList();
+            return null;
+        }
+        MimeInputStream body = message.getBody();
+        MimeBytes data;
+        if (body instanceof MimeBytes) {
+            data = (MimeBytes) body;
+        } else if (bufferPool != null && body.getSize() <= MAX_ARRAY_SIZE) {
+            PooledMimeInputStream pooled = readPooled(body);
+            message.register(pooled);
+            if (pooled.getSize() > 0) {
+                return leasedCursor(pooled, boundary, filter);
+            }
+            data = pooled;
+        } else if (windowedBody && body.getSize() > 0) {
+            // 按数据块访问，附件内容体为 body 流的子流；视图在邮件关闭时关闭
+            WindowedMimeBytes view = new WindowedMimeBytes(body);
+            message.register(view);
+            data = view;
+        } else {
+            data = readAllBytes(body);
         }
-        byte[] data = readAllBytes(message.getBody());
-        List<MimePart> attachments = new ArrayList<>();
-        parseRange(data, 0, data.length, boundary, attachments);
-        return attachments;
+        return newCursor(data, boundary, filter, null);
     }
 
     /**
-     * 将 MimeInputStream 的全部内容读入字节数组。
+     * 创建持有借出数组自身引用的扫描游标，游标扫描完毕时释放该引用。
      * <p>
-     * 提供两种读取策略：
+     * 邮件关闭只释放邮件持有的引用，仍在使用的游标（如分片执行的 {@link Scan}）继续扫描同一个数组，
+     * 不会读到已归还到池中、可能正被其他解析复用的数组。
+     */
+    private PartCursor leasedCursor(PooledMimeInputStream pooled, String boundary, PartFilter filter) throws IOException {
+        MimeInputStream lease = pooled.newStream(0, pooled.getSize());
+        try {
+            PartCursor cursor = newCursor((MimeBytes) lease, boundary, filter, null);
+            cursor.lease = lease;
+            return cursor;
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    private PartCursor newCursor(MimeBytes data, String boundary, PartFilter filter, LeafVisitor visitor) throws IOException {
+        if (singlePass) {
+            return new SinglePassCursor(data, boundary, filter, visitor);
+        }
+        return new AttachmentCursor(data, boundary, filter, visitor);
+    }
+
+    /**
+     * 将 MimeInputStream 的全部内容读入内存。
+     * <p>
+     * 提供三种读取策略：
      * <ul>
-     *   <li>已知大小（size > 0）：按精确大小分配数组，一次读取到位</li>
+     *   <li>已知大小（0 < size <= {@link #MAX_ARRAY_SIZE}）：按精确大小分配数组，一次读取到位</li>
+     *   <li>超大数据（size > {@link #MAX_ARRAY_SIZE}）：读入 {@link SegmentedMimeInputStream} 分段缓冲区</li>
      *   <li>未知大小（size <= 0）：使用 {@link ByteArrayOutputStream} 动态扩展读取</li>
      * </ul>
      *
      * @param in 待读取的 MIME 输入流
-     * @return 包含流全部内容的字节数组
+     * @return 包含流全部内容的可随机访问字节数据
      * @throws IOException 读取过程中发生 I/O 错误
      */
-    private static byte[] readAllBytes(MimeInputStream in) throws IOException {
+    private static MimeBytes readAllBytes(MimeInputStream in) throws IOException {
         long size = in.getSize();
-        if (size > 0 && size <= Integer.MAX_VALUE) {
+        if (size > MAX_ARRAY_SIZE) {
+            in.seek(0);
+            return SegmentedMimeInputStream.readFully(in, size);
+        }
+        if (size > 0) {
             byte[] data = new byte[(int) size];
             in.seek(0);
             int offset = 0;
@@ -122,12 +512,7 @@ public class QuicklyAttachmentParser implements MultipartParser {
                 offset += read;
                 remaining -= read;
             }
-            if (offset < data.length) {
-                byte[] trimmed = new byte[offset];
-                System.arraycopy(data, 0, trimmed, 0, offset);
-                return trimmed;
-            }
-            return data;
+            return new ByteArrayMimeInputStream(data, 0, offset);
         }
         in.seek(0);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -136,120 +521,710 @@ public class QuicklyAttachmentParser implements MultipartParser {
         while ((read = in.read(buf)) > 0) {
             baos.write(buf, 0, read);
         }
-        return baos.toByteArray();
+        return new ByteArrayMimeInputStream(baos.toByteArray());
+    }
+
+    /**
+     * 将 MimeInputStream 的全部内容读入从缓冲池借出的数组。
+     * <p>
+     * 已知大小时借出一个足够大的数组一次读取到位；未知大小时从 {@link #BUFFER_SIZE} 开始按倍数借出更大的数组，
+     * 并将较小的数组归还。读取失败时数组立即归还。
+     *
+     * @param in 待读取的 MIME 输入流，大小不超过 {@link #MAX_ARRAY_SIZE}
+     * @return 引用借出数组的流，所有引用它的流关闭后数组归还到池中
+     * @throws IOException 读取过程中发生 I/O 错误
+     */
+    private PooledMimeInputStream readPooled(MimeInputStream in) throws IOException {
+        long size = in.getSize();
+        byte[] buf = bufferPool.acquire(size > 0 ? (int) size : BUFFER_SIZE);
+        int count = 0;
+        try {
+            in.seek(0);
+            int limit = size > 0 ? (int) size : buf.length;
+            while (true) {
+                if (count == limit) {
+                    if (size > 0 || limit == MAX_ARRAY_SIZE) break;
+                    byte[] grown = bufferPool.acquire((int) Math.min(MAX_ARRAY_SIZE, (long) buf.length << 1));
+                    System.arraycopy(buf, 0, grown, 0, count);
+                    bufferPool.release(buf);
+                    buf = grown;
+                    limit = Math.min(buf.length, MAX_ARRAY_SIZE);
+                }
+                int read = in.read(buf, count, limit - count);
+                if (read < 0) break;
+                count += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            bufferPool.release(buf);
+            throw e;
+        }
+        return bufferPool.wrap(buf, count);
+    }
+
+    /**
+     * 遍历 multipart body 中所有非 multipart 的 part（包括正文与附件）的回调，供 {@link EmlIndex} 记录邮件结构。
+     */
+    interface LeafVisitor {
+        /**
+         * 访问一个非 multipart 的 part。
+         *
+         * @param depth     嵌套深度，body 的直接子 part 为 1
+         * @param partStart part 起始偏移（含头部）
+         * @param bodyStart part 内容体起始偏移
+         * @param partEnd   part 结束偏移（不含下一个 boundary）
+         * @param info      轻量级头部扫描结果
+         */
+        void visit(int depth, long partStart, long bodyStart, long partEnd, HeaderInfo info);
+    }
+
+    /**
+     * 按出现顺序访问 multipart body 中所有非 multipart 的 part，不创建任何 MIME 部分对象。
+     *
+     * @param data     multipart body 的字节数据
+     * @param boundary body 的 boundary
+     * @param visitor  访问回调
+     * @throws IOException 扫描过程中发生 I/O 错误
+     */
+    void visitLeaves(MimeBytes data, String boundary, LeafVisitor visitor) throws IOException {
+        // 访问模式下游标不返回任何部分，一次调用即扫描完毕
+        newCursor(data, boundary, null, visitor).next();
     }
 
     // ===== 核心解析逻辑 =====
 
     /**
-     * 在字节数组的 [from, to) 范围内扫描 multipart boundary，逐个提取附件。
+     * 扫描游标的公共部分：记录已定位的 part 数量，并处理定位到的非 multipart part。
+     */
+    private abstract class PartCursor implements LazyPartIterator.Cursor {
+        final MimeBytes data;
+        /** 附件筛选条件，为 null 时提取所有附件 */
+        private final PartFilter filter;
+        /** 叶子 part 访问回调，不为 null 时只访问 part 而不返回附件 */
+        final LeafVisitor visitor;
+        /** 预扫描的头部，在各个 part 间复用 */
+        final PartHeaders headers = new PartHeaders();
+        /** 已定位的 part 数量 */
+        private int count;
+        /** 游标持有的借出数组的引用，扫描完毕时关闭；不使用缓冲池时为 null */
+        private Closeable lease;
+
+        PartCursor(MimeBytes data, PartFilter filter, LeafVisitor visitor) {
+            this.data = data;
+            this.filter = filter;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public MimePart next() throws IOException {
+            return next(Long.MAX_VALUE);
+        }
+
+        /**
+         * 继续扫描到下一个附件为止，查找 boundary 最多扫描 budget 个字节。
+         * 按数据块访问的 body 读取失败时抛出的 {@link UncheckedIOException} 在此还原为 {@link IOException}。
+         * 扫描完毕时释放游标持有的借出数组引用，已返回的附件内容体各自持有引用，不受影响。
+         *
+         * @param budget 查找 boundary 的字节预算
+         * @return 下一个附件；扫描完毕或预算用完时返回 null，可通过 {@link #isDone()} 区分
+         */
+        MimePart next(long budget) throws IOException {
+            MimePart part;
+            try {
+                part = advance(budget);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (lease != null && isDone()) {
+                lease.close();
+                lease = null;
+            }
+            return part;
+        }
+
+        abstract MimePart advance(long budget) throws IOException;
+
+        abstract boolean isDone();
+
+        /**
+         * 计入一个已定位的 part，检查 part 数量上限。
+         */
+        void countPart() throws ParserLimitException {
+            limits.check(ParserLimits.Limit.PARTS, ++count);
+        }
+
+        /**
+         * 在预扫描的头部上调用分类器，分类器不作判断时跳过该 part。
+         *
+         * @param depth     嵌套深度，body 的直接子 part 为 1
+         * @param partStart part 内容起始偏移（含头部）
+         * @param bodyStart part 内容体起始偏移
+         * @param bodySize  原始内容体的字节数，未知时为 -1
+         * @return 处理方式
+         */
+        PartClassifier.Decision classify(int depth, long partStart, long bodyStart, long bodySize) {
+            PartClassifier.Decision decision = classifier.classify(headers.scan(data, partStart, bodyStart, depth, bodySize));
+            return decision == null ? PartClassifier.Decision.SKIP : decision;
+        }
+
+        /**
+         * 保留一个 part：满足筛选条件时完整解析头部，构造 {@link AttachmentPart}。
+         *
+         * @param partStart part 内容起始偏移（含头部）
+         * @param bodyStart part 内容体起始偏移
+         * @param partEnd   part 内容结束偏移（不含下一个 boundary）
+         * @return 附件 part，不满足筛选条件时返回 null
+         */
+        MimePart keep(long partStart, long bodyStart, long partEnd) throws IOException {
+            HeaderInfo info = scanHeaders(data, partStart, bodyStart);
+            String filename = info.attachName();
+            if (filter != null && !filter.matches(info.contentType, info.disposition, filename, Math.max(0, partEnd - bodyStart))) {
+                return null;
+            }
+            List<String> headers = parseHeadersFromBytes(data, partStart, bodyStart);
+            MimeInputStream bodyStream = createBodyStream(data, bodyStart, partEnd);
+            return new AttachmentPart(filename, headers, bodyStream);
+        }
+    }
+
+    /**
+     * 附件扫描游标：保存每一层 multipart 的扫描位置，每次调用扫描到下一个附件为止。
+     * <p>
+     * 嵌套 multipart 不再递归解析，而是将子层级压入层级栈，优先扫描完子层级后再回到外层，
+     * 附件的返回顺序与其在邮件中出现的顺序一致。
+     */
+    private final class AttachmentCursor extends PartCursor {
+        /** 由外到内的 multipart 层级，栈顶为当前扫描的层级 */
+        private final Deque<Level> levels = new ArrayDeque<>();
+        /** 已进入的各层级的范围之和 */
+        private long scanned;
+
+        AttachmentCursor(MimeBytes data, String boundary, PartFilter filter, LeafVisitor visitor) throws IOException {
+            super(data, filter, visitor);
+            pushLevel(0, data.getSize(), boundary);
+        }
+
+        /**
+         * 进入一层 multipart，进入前检查嵌套深度与扫描字节数。
+         */
+        private void pushLevel(long from, long to, String boundary) throws IOException {
+            limits.check(ParserLimits.Limit.DEPTH, levels.size() + 1);
+            scanned += to - from;
+            limits.check(ParserLimits.Limit.SCAN_BYTES, scanned);
+            levels.push(new Level(data, from, to, boundary));
+        }
+
+        @Override
+        MimePart advance(long budget) throws IOException {
+            long remaining = budget;
+            while (!levels.isEmpty()) {
+                Level level = levels.peek();
+                boolean found = level.advance(data, remaining);
+                remaining -= level.searched;
+                if (!found) {
+                    if (level.suspended) {
+                        return null;
+                    }
+                    levels.pop();
+                    continue;
+                }
+                MimePart attachment = processPart(level.partStart, level.partEnd);
+                if (attachment != null) {
+                    return attachment;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        boolean isDone() {
+            return levels.isEmpty();
+        }
+
+        /**
+         * 处理单个 MIME part：
+         * <ol>
+         *   <li>设置了 {@link LeafVisitor} → {@code multipart/*} 类型将子层级压入层级栈，其他 part 的范围与头部信息交给回调</li>
+         *   <li>分类为展开 → 将子层级压入层级栈，下次扫描从子层级开始</li>
+         *   <li>分类为保留 → 满足筛选条件时构造 {@link AttachmentPart} 返回</li>
+         *   <li>分类为跳过（如 text/html 正文） → 直接跳过，不创建任何对象</li>
+         * </ol>
+         *
+         * @param partStart part 内容起始偏移（含头部）
+         * @param partEnd   part 内容结束偏移（不含下一个 boundary）
+         * @return 附件 part，其他类型返回 null
+         */
+        private MimePart processPart(long partStart, long partEnd) throws IOException {
+            countPart();
+            // 先在上限内定位头部结束位置，头部扫描不会超出该位置
+            long bodyStart = findBodyStart(data, partStart, partEnd, limits);
+            if (visitor != null) {
+                HeaderInfo info = scanHeaders(data, partStart, bodyStart);
+                if (info.isMultipart && info.boundary != null) {
+                    if (bodyStart < partEnd) {
+                        pushLevel(bodyStart, partEnd, info.boundary);
+                    }
+                } else {
+                    visitor.visit(levels.size(), partStart, bodyStart, partEnd, info);
+                }
+                return null;
+            }
+            switch (classify(levels.size(), partStart, bodyStart, partEnd - bodyStart)) {
+                case RECURSE:
+                    // 嵌套 multipart：扫描 body 范围内的子层级
+                    String boundary = scanHeaders(data, partStart, bodyStart).boundary;
+                    if (boundary != null && bodyStart < partEnd) {
+                        pushLevel(bodyStart, partEnd, boundary);
+                    }
+                    return null;
+                case KEEP:
+                    return keep(partStart, bodyStart, partEnd);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 单遍扫描游标：从头到尾只扫描一遍 body，维护当前已打开的各层 multipart 的 boundary，
+     * 在每个 {@code --} 处同时匹配所有这些 boundary。
+     * <p>
+     * 所有 boundary 模式都以 {@code --} 开头，因此以 {@link MimeBytes#indexOf(byte, long, long)} 批量查找 {@code '-'}
+     * 作为共同前缀的匹配，只在其后紧跟 {@code '-'} 时才逐层比较模式的剩余部分。匹配的优先级与按层级扫描一致：
+     * 外层的 boundary 结束外层的 part，同时结束其中所有未关闭的内层 part；内层 boundary 只在其所属 part 的内容体范围内有效。
+     * <p>
+     * 打开一个 part 时即扫描其头部：头部在空行处结束时直接从内容体继续扫描，嵌套 multipart 的子层级随之打开；
+     * part 的结束位置要到遇到下一个 boundary 时才确定，届时再对非 multipart 的 part 分类。
+     * 头部未在空行处结束（如头部中出现 boundary，或缺少空行）时，在 part 结束后按其实际范围重新定位内容体，
+     * 与 {@link AttachmentCursor} 的结果一致。
+     */
+    private final class SinglePassCursor extends PartCursor {
+        /** 由外到内已打开的层级，下标 0 为 body 本身 */
+        private final List<OpenLevel> open = new ArrayList<>();
+        /** 已定位、尚未返回的附件 */
+        private final Deque<MimePart> ready = new ArrayDeque<>();
+        /** 下一次查找 {@code '-'} 的起始偏移 */
+        private long scanPos;
+        /** 是否已扫描完毕 */
+        private boolean done;
+        /** 最近一次 {@link #headerStop} 是否在空行处停止 */
+        private boolean blankLine;
+
+        SinglePassCursor(MimeBytes data, String boundary, PartFilter filter, LeafVisitor visitor) throws IOException {
+            super(data, filter, visitor);
+            // body 的每个字节只扫描一次
+            limits.check(ParserLimits.Limit.SCAN_BYTES, data.getSize());
+            openLevel(0, boundary);
+        }
+
+        private void openLevel(long from, String boundary) throws ParserLimitException {
+            limits.check(ParserLimits.Limit.DEPTH, open.size() + 1);
+            open.add(new OpenLevel(from, boundary));
+        }
+
+        @Override
+        MimePart advance(long budget) throws IOException {
+            long size = data.getSize();
+            long remaining = budget;
+            while (ready.isEmpty() && !done) {
+                long stop = size - scanPos <= remaining ? size : scanPos + Math.max(remaining, 0);
+                long p = data.indexOf((byte) '-', scanPos, stop);
+                if (p < 0) {
+                    remaining -= stop - scanPos;
+                    scanPos = stop;
+                    if (stop < size) {
+                        // 预算用完，下次从 scanPos 继续
+                        break;
+                    }
+                    finish(size);
+                    continue;
+                }
+                remaining -= p + 1 - scanPos;
+                int level = p + 1 < size && data.get(p + 1) == '-' ? match(p) : -1;
+                if (level < 0) {
+                    scanPos = p + 1;
+                } else {
+                    boundary(level, p);
+                }
+            }
+            return ready.poll();
+        }
+
+        @Override
+        boolean isDone() {
+            return done && ready.isEmpty();
+        }
+
+        /**
+         * 由外到内检查 p 处是否为某个已打开层级的 boundary。
+         *
+         * @return 匹配的层级下标，都不匹配时返回 -1
+         */
+        private int match(long p) {
+            for (int i = 0; i < open.size(); i++) {
+                OpenLevel level = open.get(i);
+                if (p >= level.from && level.matches(data, p)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 处理第 i 层位于 p 处的 boundary：结束更内层以及该层当前的 part，并打开该层的下一个 part。
+         */
+        private void boundary(int i, long p) throws IOException {
+            long size = data.getSize();
+            // 回退 boundary 前的行结束符，得到 part 内容的精确结束位置
+            long end = trimLineEnd(data, p);
+            for (int j = open.size() - 1; j > i; j--) {
+                closePart(j, end);
+                open.remove(j);
+            }
+            OpenLevel level = open.get(i);
+            long after = p + level.pattern.length;
+            if (level.started) {
+                closePart(i, end);
+                if (after + 2 <= size && data.get(after) == '-' && data.get(after + 1) == '-') {
+                    // 结束边界 --boundary--：关闭该层，外层的 part 继续
+                    open.remove(i);
+                    done = i == 0;
+                    scanPos = after + 2;
+                    return;
+                }
+            } else {
+                // 起始 boundary，其前为 preamble
+                level.started = true;
+            }
+            openPart(i, skipLineEnd(data, after, size));
+        }
+
+        /**
+         * 打开第 i 层从 start 开始的 part，扫描其头部；嵌套 multipart 打开子层级。
+         */
+        private void openPart(int i, long start) throws IOException {
+            OpenLevel level = open.get(i);
+            level.partStart = start;
+            level.container = false;
+            long stop = headerStop(start);
+            level.bodyStart = findBodyStart(data, start, stop, limits);
+            level.headerEnded = blankLine;
+            level.info = null;
+            level.decision = null;
+            scanPos = level.headerEnded ? level.bodyStart : stop;
+            if (!level.headerEnded) {
+                return;
+            }
+            String boundary = null;
+            if (visitor != null) {
+                level.info = scanHeaders(data, start, level.bodyStart);
+                if (level.info.isMultipart) {
+                    boundary = level.info.boundary;
+                }
+            } else {
+                headers.scan(data, start, level.bodyStart, i + 1, -1);
+                // 形如 multipart 的 part 需要在扫描其内容之前决定是否展开，此时内容体大小未知
+                if (headers.valueStartsWith("Content-Type", "multipart/") && headers.hasParameter("Content-Type", "boundary")) {
+                    level.decision = classify(i + 1, start, level.bodyStart, -1);
+                    if (level.decision == PartClassifier.Decision.RECURSE) {
+                        boundary = scanHeaders(data, start, level.bodyStart).boundary;
+                    }
+                }
+            }
+            if (boundary != null) {
+                countPart();
+                level.container = true;
+                openLevel(level.bodyStart, boundary);
+            }
+        }
+
+        /**
+         * 查找头部的扫描终点：空行之后的位置，或含有已打开层级 boundary 的行的起始位置。
+         * 配置了头部字节数上限时最多查找到上限之后，由 {@link #findBodyStart} 报告超限。
+         */
+        private long headerStop(long start) {
+            long size = data.getSize();
+            int maxHeaderBytes = limits.getMaxHeaderBytes();
+            long limit = size - start > maxHeaderBytes ? start + maxHeaderBytes + 1 : size;
+            long pos = start;
+            blankLine = false;
+            while (pos < limit) {
+                long lineEnd = findLineEnd(data, pos, limit);
+                if (lineEnd == pos) {
+                    blankLine = true;
+                    return skipLineEnd(data, lineEnd, size);
+                }
+                for (long p = data.indexOf((byte) '-', pos, lineEnd); p >= 0; p = data.indexOf((byte) '-', p + 1, lineEnd)) {
+                    if (p + 1 < size && data.get(p + 1) == '-' && match(p) >= 0) {
+                        return pos;
+                    }
+                }
+                pos = skipLineEnd(data, lineEnd, size);
+            }
+            return pos;
+        }
+
+        /**
+         * 结束第 i 层当前的 part，对非 multipart 的 part 分类，保留的 part 加入待返回的附件。
+         */
+        private void closePart(int i, long end) throws IOException {
+            OpenLevel level = open.get(i);
+            long start = level.partStart;
+            level.partStart = -1;
+            if (start < 0 || end <= start || level.container) {
+                return;
+            }
+            countPart();
+            long bodyStart = level.bodyStart;
+            HeaderInfo info = level.info;
+            PartClassifier.Decision decision = level.decision;
+            if (!level.headerEnded || bodyStart > end) {
+                // 头部未在 part 范围内的空行处结束，按实际范围重新定位；此时内容体为空，即使是 multipart 也不含任何 part
+                bodyStart = findBodyStart(data, start, end, limits);
+                info = visitor == null ? null : scanHeaders(data, start, bodyStart);
+                decision = null;
+            }
+            if (visitor != null) {
+                if (!info.isMultipart || info.boundary == null) {
+                    visitor.visit(i + 1, start, bodyStart, end, info);
+                }
+                return;
+            }
+            if (decision == null) {
+                decision = classify(i + 1, start, bodyStart, end - bodyStart);
+            }
+            MimePart attachment = decision == PartClassifier.Decision.KEEP ? keep(start, bodyStart, end) : null;
+            if (attachment != null) {
+                ready.add(attachment);
+            }
+        }
+
+        /**
+         * 扫描到 body 末尾：缺少结束边界的各层以剩余数据作为最后一个 part。
+         */
+        private void finish(long size) throws IOException {
+            for (int j = open.size() - 1; j >= 0; j--) {
+                closePart(j, size);
+            }
+            open.clear();
+            done = true;
+        }
+    }
+
+    /**
+     * 单遍扫描中一个已打开层级的状态。
+     */
+    private static final class OpenLevel {
+        /** 该层 boundary 有效范围的起始偏移（所属 part 的内容体起始位置） */
+        final long from;
+        /** boundary 起始标记 {@code --boundary} */
+        final byte[] pattern;
+        /** 是否已找到起始 boundary */
+        boolean started;
+        /** 当前 part 的起始偏移，没有打开的 part 时为 -1 */
+        long partStart = -1;
+        /** 当前 part 的内容体起始偏移 */
+        long bodyStart;
+        /** 遍历邮件结构时当前 part 的头部扫描结果 */
+        HeaderInfo info;
+        /** 打开形如 multipart 的 part 时的分类结果，其他 part 在结束时分类 */
+        PartClassifier.Decision decision;
+        /** 当前 part 的头部是否在空行处结束 */
+        boolean headerEnded;
+        /** 当前 part 是否为已打开子层级的嵌套 multipart */
+        boolean container;
+
+        OpenLevel(long from, String boundary) {
+            this.from = from;
+            this.pattern = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * 检查 p 处是否为该层的 boundary，调用方已确认 p 处为 {@code --}。
+         */
+        boolean matches(MimeBytes data, long p) {
+            if (p + pattern.length > data.getSize()) {
+                return false;
+            }
+            for (int k = 2; k < pattern.length; k++) {
+                if (data.get(p + k) != pattern[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 一层 multipart 的扫描状态：在字节数据的 [from, to) 范围内逐个定位 part。
      * <p>
      * 扫描流程：
      * <ol>
      *   <li>查找第一个 {@code --boundary} 作为起始标记，跳过 preamble 区域</li>
-     *   <li>循环查找下一个 {@code --boundary}，每两个 boundary 之间为一个 part</li>
-     *   <li>调用 {@link #processPart} 判断 part 类型（嵌套 multipart / 附件 / 正文）</li>
+     *   <li>每次 {@link #advance} 查找下一个 {@code --boundary}，两个 boundary 之间为一个 part</li>
      *   <li>遇到 {@code --boundary--} 结束标记时停止扫描</li>
      * </ol>
      * <p>
      * 兼容性说明：
      * <ul>
-     *   <li>某些邮件缺少结束边界 {@code --boundary--}，当 {@link #findNextBoundary} 返回 -1 时，
+     *   <li>某些邮件缺少结束边界 {@code --boundary--}，当查找不到下一个 boundary 时，
      *       将剩余数据作为最后一个 part 处理，与 {@link StandardMultipartParser} 行为一致</li>
      *   <li>某些邮件的 boundary 不以换行开头（如 {@code </html>--boundary}），
-     *       {@link #findNextBoundary} 不要求 boundary 前必须是 LF/CR</li>
+     *       boundary 查找不要求 boundary 前必须是 LF/CR。{@link StandardMultipartParser} 通过
+     *       {@code line.endsWith(boundary)} 处理了这种情况；由于 boundary 模式通常足够长（30+ 字节），
+     *       在正文内容中不会产生误匹配</li>
      * </ul>
-     *
-     * @param data       包含 multipart body 的字节数组
-     * @param from       扫描起始偏移（含）
-     * @param to         扫描结束偏移（不含）
-     * @param boundary   当前层级的 boundary 字符串（不含前缀 {@code --}）
-     * @param attachments 附件收集列表
+     * <p>
+     * boundary 模式 {@code --boundary} 在创建层级时按 ISO-8859-1 编码一次，查找器也只编译一次，在该层级的所有 part 间复用；
+     * 结束标记通过检查模式之后的 {@code --} 识别，不再单独编码。
+     * 启用并行扫描且层级范围不小于阈值时，创建层级时即由 {@link ParallelBoundaryScanner} 找出全部候选位置，
+     * {@link #nextBoundary} 从候选位置中取出不小于当前位置的第一个，与顺序查找的结果一致。
+     * <p>
+     * 每次 {@link #advance} 可以指定查找 boundary 的字节预算：预算内未找到 boundary 时记录已查找到的位置并挂起，
+     * 下次从该位置继续查找，供 {@link Scan} 分片扫描。
      */
-    private void parseRange(byte[] data, int from, int to, String boundary, List<MimePart> attachments) {
-        byte[] bStart = ("--" + boundary).getBytes();
-        byte[] bEnd = ("--" + boundary + "--").getBytes();
-        int bStartLen = bStart.length;
-
-        int firstBoundary = indexOf(data, bStart, from, to);
-        if (firstBoundary < 0) {
-            // 未找到起始 boundary，可能是数据损坏或 boundary 不匹配，直接返回
-            return;
-        }
-
-        // 跳过起始 boundary 行，pos 定位到第一个 part 的起始位置
-        int pos = firstBoundary + bStartLen;
-        pos = skipLineEnd(data, pos, to);
-
-        while (pos < to) {
-            // 在当前 part 之后查找下一个 boundary
-            int nextBoundary = findNextBoundary(data, pos, to, bStart);
-            if (nextBoundary < 0) {
-                // 未找到后续 boundary（包括结束边界 --boundary--），
-                // 说明邮件缺少结束标记（非标准格式，常见于某些邮件客户端导出的 EML）。
-                // 将 [pos, to) 剩余数据作为最后一个 part 处理，
-                // 与 StandardMultipartParser 在 readLine 返回 null 时处理最后一个 part 的行为一致。
-                processPart(data, pos, to, attachments);
-                break;
+    private final class Level {
+        /** 扫描结束偏移（不含） */
+        private final long to;
+        /** boundary 起始标记 {@code --boundary} */
+        private final byte[] bStart;
+        private final BoundarySearcher searcher;
+        /** 并行扫描得到的全部 boundary 候选位置（升序），顺序扫描时为 null */
+        private long[] candidates;
+        /** 下一个待检查的候选位置下标 */
+        private int candidate;
+        /** 下一个 part 的起始偏移，找到起始 boundary 之前为层级的起始偏移 */
+        private long pos;
+        /** 下一次查找 boundary 的起始偏移，挂起后可能大于 pos */
+        private long searchFrom;
+        /** 是否已找到起始 boundary */
+        private boolean started;
+        /** 是否已扫描完毕 */
+        private boolean finished;
+        /** 最近一次 {@link #advance} 是否因预算用完而挂起 */
+        boolean suspended;
+        /** 最近一次 {@link #advance} 查找 boundary 扫描的字节数 */
+        long searched;
+        /** 最近一次定位到的 part 范围 */
+        long partStart, partEnd;
+
+        Level(MimeBytes data, long from, long to, String boundary) throws IOException {
+            this.to = to;
+            this.bStart = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+            this.searcher = boundarySearcher.compile(bStart);
+            this.pos = from;
+            this.searchFrom = from;
+            // 按数据块访问的 body 不能在多个线程间共享，只在内存中的 body 上并行扫描
+            if (scanPool != null && to - from >= parallelThreshold && !(data instanceof WindowedMimeBytes)) {
+                try {
+                    candidates = ParallelBoundaryScanner.scan(scanPool, searcher, bStart.length, data, from, to);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
             }
+        }
 
-            // 回退 boundary 前的行结束符（\r\n 或 \n），得到 part 内容的精确结束位置
-            int partEnd = trimLineEnd(data, nextBoundary);
-            // 检查是否为结束边界 --boundary--（在 --boundary 后紧跟 --）
-            boolean isEnd = matchesAt(data, nextBoundary, bEnd);
+        /**
+         * 定位下一个 part，范围保存在 {@link #partStart} 与 {@link #partEnd} 中。
+         *
+         * @param budget 本次查找 boundary 最多扫描的字节数
+         * @return 找到下一个 part 时返回 true；当前层级扫描完毕，或预算用完而挂起（{@link #suspended}）时返回 false
+         */
+        boolean advance(MimeBytes data, long budget) {
+            suspended = false;
+            searched = 0;
+            if (!started && !finished) {
+                long firstBoundary = nextBoundary(data, budget);
+                if (suspended) {
+                    return false;
+                }
+                if (firstBoundary < 0) {
+                    // 未找到起始 boundary，可能是数据损坏或 boundary 不匹配
+                    finished = true;
+                    return false;
+                }
+                // 跳过起始 boundary 行，pos 定位到第一个 part 的起始位置
+                started = true;
+                pos = skipLineEnd(data, firstBoundary + bStart.length, to);
+            }
+            while (!finished && pos < to) {
+                long start = pos;
+                // 在当前 part 之后查找下一个 boundary
+                long nextBoundary = nextBoundary(data, budget - searched);
+                if (suspended) {
+                    return false;
+                }
+                if (nextBoundary < 0) {
+                    // 未找到后续 boundary（包括结束边界 --boundary--），
+                    // 说明邮件缺少结束标记（非标准格式，常见于某些邮件客户端导出的 EML）。
+                    // 将 [pos, to) 剩余数据作为最后一个 part 处理，
+                    // 与 StandardMultipartParser 在 readLine 返回 null 时处理最后一个 part 的行为一致。
+                    finished = true;
+                    return found(start, to);
+                }
+
+                // 回退 boundary 前的行结束符（\r\n 或 \n），得到 part 内容的精确结束位置
+                long end = trimLineEnd(data, nextBoundary);
+                // 检查是否为结束边界 --boundary--（在 --boundary 后紧跟 --）
+                if (isCloseDelimiter(data, nextBoundary + bStart.length)) {
+                    finished = true;
+                } else {
+                    // 跳过当前 boundary 行，pos 定位到下一个 part 的起始位置
+                    pos = skipLineEnd(data, nextBoundary + bStart.length, to);
+                }
 
-            // 仅在 part 有实际内容时才处理（排除空 part 和连续 boundary）
-            if (partEnd > pos) {
-                processPart(data, pos, partEnd, attachments);
+                // 仅在 part 有实际内容时才处理（排除空 part 和连续 boundary）
+                if (end > start) {
+                    return found(start, end);
+                }
             }
+            finished = true;
+            return false;
+        }
 
-            if (isEnd) {
-                break;
+        /**
+         * 在预算内查找 pos 之后的下一个 boundary。
+         * <p>
+         * 预算不足以查找到层级末尾时只查找起始位置位于预算范围内的 boundary（查找范围向后多取模式长度减 1 个字节），
+         * 未找到时下次从预算范围的末尾继续，不会遗漏跨越该位置的 boundary。
+         *
+         * @return boundary 起始偏移，未找到返回 -1，预算用完时设置 {@link #suspended}
+         */
+        private long nextBoundary(MimeBytes data, long budget) {
+            long from = Math.max(pos, searchFrom);
+            if (candidates != null) {
+                while (candidate < candidates.length && candidates[candidate] < from) {
+                    candidate++;
+                }
+                return candidate < candidates.length ? candidates[candidate] : -1;
             }
+            if (to - from <= budget) {
+                searched += to - from;
+                return searcher.indexOf(data, from, to);
+            }
+            long limit = from + Math.max(budget, 0);
+            long found = searcher.indexOf(data, from, Math.min(to, limit + bStart.length - 1));
+            if (found >= 0) {
+                searched += found - from;
+                return found;
+            }
+            searched += limit - from;
+            searchFrom = limit;
+            suspended = true;
+            return -1;
+        }
 
-            // 跳过当前 boundary 行，pos 定位到下一个 part 的起始位置
-            pos = nextBoundary + bStartLen;
-            pos = skipLineEnd(data, pos, to);
+        /**
+         * 检查 boundary 模式之后是否紧跟 {@code --}。
+         */
+        private boolean isCloseDelimiter(MimeBytes data, long offset) {
+            return offset + 2 <= data.getSize() && data.get(offset) == '-' && data.get(offset + 1) == '-';
         }
-    }
 
-    /**
-     * 处理单个 MIME part：根据头部信息判断类型，执行相应操作。
-     * <p>
-     * 决策优先级：
-     * <ol>
-     *   <li>{@code multipart/*} 类型 → 递归调用 {@link #parseRange} 处理嵌套子 part</li>
-     *   <li>{@code Content-Disposition: attachment} → 构造 {@link AttachmentPart} 加入结果列表</li>
-     *   <li>其他（正文等） → 直接跳过，不创建任何对象</li>
-     * </ol>
-     *
-     * @param data        字节数组
-     * @param partStart   part 内容起始偏移（含头部）
-     * @param partEnd     part 内容结束偏移（不含下一个 boundary）
-     * @param attachments 附件收集列表
-     */
-    private void processPart(byte[] data, int partStart, int partEnd, List<MimePart> attachments) {
-        HeaderInfo info = scanHeaders(data, partStart, partEnd);
-
-        if (info.isMultipart && info.boundary != null) {
-            // 嵌套 multipart：定位 body 起始位置后递归解析子层级
-            int bodyStart = findBodyStart(data, partStart, partEnd);
-            if (bodyStart < partEnd) {
-                parseRange(data, bodyStart, partEnd, info.boundary, attachments);
-            }
-        } else if (info.isAttachment) {
-            // 附件 part：完整解析头部并构造 AttachmentPart
-            int bodyStart = findBodyStart(data, partStart, partEnd);
-            List<String> headers = parseHeadersFromBytes(data, partStart, bodyStart);
-            // filename 优先从 Content-Disposition 提取，回退到 Content-Type 的 name 参数
-            String filename = info.filename;
-            if (StringUtils.isBlank(filename) && StringUtils.isNotBlank(info.contentType)) {
-                filename = MimePart.getHeadItem(info.contentType, "name");
-            }
-            MimeInputStream bodyStream = createBodyStream(data, bodyStart, partEnd);
-            attachments.add(new AttachmentPart(filename, headers, bodyStream));
+        private boolean found(long start, long end) {
+            partStart = start;
+            partEnd = end;
+            return true;
         }
-        // 非 multipart 且非附件的 part（如 text/html 正文）直接跳过
     }
 
     // ===== 轻量级头部扫描 =====
@@ -260,99 +1235,131 @@ public class QuicklyAttachmentParser implements MultipartParser {
      * 相比完整的 {@link MimePart#parseHeaders(MimeInputStream)}，
      * 此结构避免了为非附件 part 创建 ArrayList 和大量 String 对象。
      */
-    private static class HeaderInfo {
+    static class HeaderInfo {
         /** Content-Type 头部值（不含前缀），用于判断 multipart 和回退提取 name */
         String contentType;
+        /** Content-Transfer-Encoding 头部值（不含前缀） */
+        String transferEncoding;
         /** multipart 的 boundary 参数值 */
         String boundary;
+        /** Content-Disposition 头部值（不含前缀），用于筛选处置类型 */
+        String disposition;
         /** Content-Disposition 中提取的 filename */
         String filename;
         /** 是否为 multipart/* 类型 */
         boolean isMultipart;
-        /** 是否含有 Content-Disposition: attachment */
+        /** Content-Disposition 的类型是否为 attachment */
         boolean isAttachment;
+
+        /**
+         * 附件名：优先从 Content-Disposition 的 filename 提取，回退到 Content-Type 的 name 参数。
+         */
+        String attachName() {
+            if (StringUtils.isBlank(filename) && StringUtils.isNotBlank(contentType)) {
+                return MimePart.getHeadItem(contentType, "name");
+            }
+            return filename;
+        }
+
+        /**
+         * 从已解析的头部列表提取信息，与快速解析器扫描字节时的规则相同，供 {@link PartFilter#test} 使用。
+         *
+         * @param headers 头部行列表，折叠续行已拼接到所属头部
+         * @return 提取结果
+         */
+        static HeaderInfo of(List<String> headers) {
+            HeaderInfo info = new HeaderInfo();
+            for (String header : headers) {
+                info.accept(header);
+            }
+            return info;
+        }
+
+        /**
+         * 记录一个完整的头部（含折叠续行）。头部名称按 ASCII 不区分大小写匹配，同名头部出现多次时以最后一个为准。
+         */
+        void accept(String header) {
+            if (header.length() > 13 && header.regionMatches(true, 0, "Content-Type:", 0, 13)) {
+                contentType = header.substring(13).trim();
+                isMultipart = contentType.regionMatches(true, 0, "multipart/", 0, 10);
+                boundary = isMultipart ? MimePart.getHeadItem(contentType, "boundary") : null;
+            } else if (header.length() > 20 && header.regionMatches(true, 0, "Content-Disposition:", 0, 20)) {
+                disposition = header.substring(20).trim();
+                isAttachment = isType(disposition, "attachment");
+                filename = MimePart.getHeadItem(header, "filename");
+            } else if (header.length() > 26 && header.regionMatches(true, 0, "Content-Transfer-Encoding:", 0, 26)) {
+                transferEncoding = header.substring(26).trim();
+            }
+        }
     }
 
     /**
-     * 轻量级头部扫描：逐行扫描 part 头部，仅提取 Content-Type 和 Content-Disposition。
+     * 轻量级头部扫描：逐行扫描 part 头部，仅提取 Content-Type、Content-Disposition 和 Content-Transfer-Encoding。
      * <p>
      * 关键设计：
      * <ul>
-     *   <li>遇到空行（头部与 body 的分隔符）立即停止扫描</li>
+     *   <li>只对被分类为保留或展开的 part（以及遍历邮件结构时的所有 part）调用，被跳过的 part 只做字节层面的预扫描
+     *       （{@link PartHeaders}）</li>
+     *   <li>只为上述三个头部创建 String，头部名称不区分大小写，同名头部以最后一个为准；遇到空行（头部与 body 的分隔符）立即停止扫描</li>
      *   <li>Content-Type 为 multipart/* 时不提前 return，继续扫描以检查是否存在
      *       Content-Disposition: attachment（某些邮件的嵌套 multipart 同时含有两者）</li>
-     *   <li>Content-Disposition 可能跨多行（RFC 2822 折叠头部，续行以空格或 tab 开头），
-     *       先完整拼接所有折叠行，再统一提取 filename 参数，避免续行上的 filename 被遗漏</li>
+     *   <li>头部可能跨多行（RFC 2822 折叠头部，续行以空格或 tab 开头），
+     *       先完整拼接所有折叠行，再统一提取参数，避免续行上的 filename、boundary 被遗漏</li>
      * </ul>
+     * 提取规则由 {@link HeaderInfo#accept} 实现，{@link PartFilter#test} 对已解析的部分使用相同的规则。
      *
-     * @param data  字节数组
+     * @param data  字节数据
      * @param start 头部起始偏移
-     * @param end   头部结束偏移（part 内容结束位置，含 body）
+     * @param end   头部扫描上限（body 起始位置）
      * @return 扫描结果
      */
-    private static HeaderInfo scanHeaders(byte[] data, int start, int end) {
+    private static HeaderInfo scanHeaders(MimeBytes data, long start, long end) {
         HeaderInfo info = new HeaderInfo();
-        int pos = start;
-        // 延迟提取 filename，等折叠头部完整拼接后再提取
-        String fullDispLine = null;
-
+        long pos = start;
         while (pos < end) {
-            int lineEnd = findLineEnd(data, pos, end);
+            long lineEnd = findLineEnd(data, pos, end);
             if (lineEnd == pos) {
                 break;
             }
 
-            int nextLineStart = skipLineEnd(data, lineEnd, end);
-            int lineLen = lineEnd - pos;
+            long nextLineStart = skipLineEnd(data, lineEnd, end);
+            long lineLen = lineEnd - pos;
 
-            if (lineLen > 14 && startsWith(data, pos, "Content-Type:")) {
-                String ct = bytesToString(data, pos + 13, lineEnd).trim();
-                info.contentType = ct;
-                if (ct.startsWith("multipart/")) {
-                    info.isMultipart = true;
-                    info.boundary = MimePart.getHeadItem(ct, "boundary");
-                    // 不再提前 return，继续扫描后续头部以检查 Content-Disposition
-                }
-            } else if (lineLen > 31 && startsWith(data, pos, "Content-Disposition: attachment")) {
-                info.isAttachment = true;
+            if (lineLen > 13 && startsWithIgnoreCase(data, pos, "Content-Type:")
+                    || lineLen > 20 && startsWithIgnoreCase(data, pos, "Content-Disposition:")
+                    || lineLen > 26 && startsWithIgnoreCase(data, pos, "Content-Transfer-Encoding:")) {
                 // 拼接折叠头部（续行以空格或 tab 开头）
-                StringBuilder dispLine = new StringBuilder(bytesToString(data, pos, Math.min(nextLineStart, end)));
-                nextLineStart = getNextLineStart(data, end, nextLineStart, dispLine);
-                fullDispLine = dispLine.toString();
+                StringBuilder line = new StringBuilder(bytesToString(data, pos, lineEnd));
+                nextLineStart = getNextLineStart(data, end, nextLineStart, line);
+                info.accept(line.toString());
             }
 
             pos = nextLineStart;
         }
-
-        // 折叠头部完整拼接后再提取 filename，避免续行上的 filename 被遗漏
-        if (fullDispLine != null) {
-            info.filename = MimePart.getHeadItem(fullDispLine, "filename");
-        }
-
         return info;
     }
 
     /**
-     * 从字节数组的 [start, end) 范围完整解析头部行列表（仅用于附件 part）。
+     * 从字节数据的 [start, end) 范围完整解析头部行列表（仅用于附件 part）。
      * <p>
      * 支持 RFC 2822 折叠头部：续行以空格或 tab 开头时，拼接到上一行。
      * 遇到空行（连续两个行结束符）停止解析。
      *
-     * @param data  字节数组
+     * @param data  字节数据
      * @param start 头部起始偏移
      * @param end   扫描上限（通常为 body 起始位置）
      * @return 解析后的头部行列表，每行为一个完整字符串（含折叠续行）
      */
-    private static List<String> parseHeadersFromBytes(byte[] data, int start, int end) {
+    static List<String> parseHeadersFromBytes(MimeBytes data, long start, long end) {
         List<String> headers = new ArrayList<>();
-        int pos = start;
+        long pos = start;
         while (pos < end) {
-            int lineEnd = findLineEnd(data, pos, end);
+            long lineEnd = findLineEnd(data, pos, end);
             if (lineEnd == pos) {
                 break;
             }
             StringBuilder line = new StringBuilder(bytesToString(data, pos, lineEnd));
-            int nextPos = skipLineEnd(data, lineEnd, end);
+            long nextPos = skipLineEnd(data, lineEnd, end);
             nextPos = getNextLineStart(data, end, nextPos, line);
             headers.add(line.toString());
             pos = nextPos;
@@ -363,16 +1370,16 @@ public class QuicklyAttachmentParser implements MultipartParser {
     /**
      * 获取下一行的起始偏移，支持 RFC 2822 头部折叠（续行以空格或 tab 开头）。
      *
-     * @param data          字节数组
+     * @param data          字节数据
      * @param end           扫描上限
      * @param nextLineStart 下一行的起始偏移
-     * @param dispLine      当前头部行，用于拼接折叠行
+     * @param line          当前头部行，用于拼接折叠行
      * @return 下一行的起始偏移
      */
-    private static int getNextLineStart(byte[] data, int end, int nextLineStart, StringBuilder dispLine) {
-        while (nextLineStart < end && (data[nextLineStart] == ' ' || data[nextLineStart] == '\t')) {
-            int foldEnd = findLineEnd(data, nextLineStart, end);
-            dispLine.append("\n").append(bytesToString(data, nextLineStart, foldEnd));
+    private static long getNextLineStart(MimeBytes data, long end, long nextLineStart, StringBuilder line) {
+        while (nextLineStart < end && (data.get(nextLineStart) == ' ' || data.get(nextLineStart) == '\t')) {
+            long foldEnd = findLineEnd(data, nextLineStart, end);
+            line.append("\n").append(bytesToString(data, nextLineStart, foldEnd));
             nextLineStart = skipLineEnd(data, foldEnd, end);
         }
         return nextLineStart;
@@ -383,152 +1390,102 @@ public class QuicklyAttachmentParser implements MultipartParser {
      * <p>
      * MIME 规范中，头部与 body 由一个空行分隔（连续两个行结束符）。
      * 此方法从头扫描，找到第一个空行后返回 body 起始偏移。
+     * <p>
+     * 扫描时同时检查资源上限：空行之前的字节数（含各头部行的行结束符）不能超过头部字节数上限，
+     * 查找行结束符的范围也限定在该上限内；每个头部（折叠续行计入所属头部）的长度不能超过头部长度上限。
      *
-     * @param data  字节数组
-     * @param start 扫描起始偏移
-     * @param end   扫描上限
+     * @param data   字节数据
+     * @param start  扫描起始偏移
+     * @param end    扫描上限
+     * @param limits 解析资源上限
      * @return body 起始偏移；若未找到空行则返回 end
+     * @throws ParserLimitException 如果头部超过上限
      */
-    private static int findBodyStart(byte[] data, int start, int end) {
-        int pos = start;
+    private static long findBodyStart(MimeBytes data, long start, long end, ParserLimits limits) throws ParserLimitException {
+        int maxHeaderBytes = limits.getMaxHeaderBytes();
+        long limit = end - start > maxHeaderBytes ? start + maxHeaderBytes : end;
+        long headerLength = 0;
+        long pos = start;
         while (pos < end) {
-            int lineEnd = findLineEnd(data, pos, end);
+            if (pos > limit) {
+                throw new ParserLimitException(ParserLimits.Limit.HEADER_BYTES, maxHeaderBytes);
+            }
+            long lineEnd = findLineEnd(data, pos, Math.min(end, limit + 1));
             if (lineEnd == pos) {
                 return skipLineEnd(data, lineEnd, end);
             }
+            if (lineEnd > limit) {
+                throw new ParserLimitException(ParserLimits.Limit.HEADER_BYTES, maxHeaderBytes);
+            }
+            byte first = data.get(pos);
+            headerLength = first == ' ' || first == '\t' ? headerLength + lineEnd - pos : lineEnd - pos;
+            limits.check(ParserLimits.Limit.LINE_LENGTH, headerLength);
             pos = skipLineEnd(data, lineEnd, end);
         }
         return end;
     }
 
-    // ===== 字节数组操作工具方法 =====
-
-    /**
-     * 在字节数组的 [from, to) 范围内查找模式首次出现的位置。
-     * 使用暴力匹配算法，适用于 boundary 模式的查找。
-     *
-     * @param data    待搜索的字节数组
-     * @param pattern 待匹配的模式字节数组
-     * @param from    搜索起始偏移（含）
-     * @param to      搜索结束偏移（不含）
-     * @return 匹配起始偏移，未找到返回 -1
-     */
-    private static int indexOf(byte[] data, byte[] pattern, int from, int to) {
-        int limit = to - pattern.length;
-        outer:
-        for (int i = from; i <= limit; i++) {
-            for (int j = 0; j < pattern.length; j++) {
-                if (data[i + j] != pattern[j]) {
-                    continue outer;
-                }
-            }
-            return i;
-        }
-        return -1;
-    }
-
-    /**
-     * 检查字节数组在指定偏移处是否与模式完全匹配。
-     *
-     * @param data    待检查的字节数组
-     * @param offset  匹配起始偏移
-     * @param pattern 待匹配的模式字节数组
-     * @return 完全匹配返回 true
-     */
-    private static boolean matchesAt(byte[] data, int offset, byte[] pattern) {
-        if (offset + pattern.length > data.length) return false;
-        for (int i = 0; i < pattern.length; i++) {
-            if (data[offset + i] != pattern[i]) return false;
-        }
-        return true;
-    }
+    // ===== 字节数据操作工具方法 =====
 
     /**
-     * 检查字节数组在指定偏移处是否以给定 ASCII 前缀开头。
+     * 检查字节数据在指定偏移处是否以给定 ASCII 前缀开头，不区分大小写（头部名称不区分大小写）。
      * 仅支持 ASCII 字符的前缀比较。
      *
-     * @param data   待检查的字节数组
+     * @param data   待检查的字节数据
      * @param offset 检查起始偏移
      * @param prefix ASCII 前缀字符串
      * @return 匹配返回 true
      */
-    private static boolean startsWith(byte[] data, int offset, String prefix) {
-        if (offset + prefix.length() > data.length) return false;
+    private static boolean startsWithIgnoreCase(MimeBytes data, long offset, String prefix) {
+        if (offset + prefix.length() > data.getSize()) return false;
         for (int i = 0; i < prefix.length(); i++) {
-            if (data[offset + i] != (byte) prefix.charAt(i)) return false;
+            byte b = data.get(offset + i);
+            char c = prefix.charAt(i);
+            if (b != c && Character.toLowerCase((char) b) != Character.toLowerCase(c)) return false;
         }
         return true;
     }
 
     /**
-     * 在字节数组的 [from, to) 范围内查找下一个 boundary 出现位置。
-     * <p>
-     * 匹配模式为 {@code --boundary}（RFC 2046 规定的 boundary 前缀）。
-     * <p>
-     * <strong>不要求 boundary 前必须是 LF/CR</strong>：某些非标准邮件中，
-     * boundary 可能紧跟在前一个 part 的内容后面（如 {@code </html>--boundary}），
-     * {@link StandardMultipartParser} 通过 {@code line.endsWith(boundary)} 处理了这种情况。
-     * 由于 boundary 模式通常足够长（30+ 字节），在正文内容中不会产生误匹配。
-     *
-     * @param data   字节数组
-     * @param from   搜索起始偏移
-     * @param to     搜索结束偏移
-     * @param bStart boundary 前缀字节数组（{@code --boundary}）
-     * @return boundary 起始偏移，未找到返回 -1
+     * 判断头部值中分号之前的类型是否与指定类型相同，不区分大小写。
      */
-    private static int findNextBoundary(byte[] data, int from, int to, byte[] bStart) {
-        int limit = to - bStart.length;
-        for (int i = from; i <= limit; i++) {
-            // 快速跳过首字节不匹配的位置，减少 matchesAt 调用次数
-            if (data[i] != bStart[0]) {
-                continue;
-            }
-            if (matchesAt(data, i, bStart)) {
-                // 不要求 boundary 前面必须是 LF/CR。
-                // 某些邮件中 boundary 可能紧跟在前一个 part 的内容后面（如 </html>--boundary），
-                // StandardMultipartParser 通过 line.endsWith(boundary) 处理了这种情况。
-                // 由于 boundary 模式足够长（通常 30+ 字节），不会产生误匹配。
-                return i;
-            }
-        }
-        return -1;
+    private static boolean isType(String value, String type) {
+        int semi = value.indexOf(';');
+        return (semi < 0 ? value : value.substring(0, semi)).trim().equalsIgnoreCase(type);
     }
 
     /**
      * 查找行结束符的位置（CR 或 LF 首次出现的位置）。
      *
-     * @param data 字节数组
+     * @param data 字节数据
      * @param pos  搜索起始偏移
      * @param end  搜索结束偏移
      * @return 行结束符的偏移位置；若未找到则返回 end
      */
-    private static int findLineEnd(byte[] data, int pos, int end) {
-        for (int i = pos; i < end; i++) {
-            if (data[i] == CR || data[i] == LF) {
-                return i;
-            }
-        }
-        return end;
+    private static long findLineEnd(MimeBytes data, long pos, long end) {
+        long i = data.indexOfLineEnd(pos, end);
+        return i < 0 ? end : i;
     }
 
     /**
      * 跳过行结束符序列，支持 \r\n、\r、\n 三种格式。
      *
-     * @param data 字节数组
+     * @param data 字节数据
      * @param pos  行结束符起始偏移
-     * @param end  数组边界
+     * @param end  数据边界
      * @return 跳过行结束符后的下一个位置
      */
-    private static int skipLineEnd(byte[] data, int pos, int end) {
+    private static long skipLineEnd(MimeBytes data, long pos, long end) {
         if (pos >= end) return pos;
-        if (data[pos] == CR) {
+        byte b = data.get(pos);
+        if (b == CR) {
             pos++;
-            if (pos < end && data[pos] == LF) {
+            if (pos < end && data.get(pos) == LF) {
                 pos++;
             }
             return pos;
         }
-        if (data[pos] == LF) {
+        if (b == LF) {
             return pos + 1;
         }
         return pos;
@@ -539,46 +1496,45 @@ public class QuicklyAttachmentParser implements MultipartParser {
      * <p>
      * MIME 规范中 boundary 前的 \r\n 属于分隔符而非 part 内容，需要排除。
      *
-     * @param data        字节数组
+     * @param data        字节数据
      * @param boundaryPos boundary 的起始偏移
      * @return part 内容的精确结束偏移（不含行结束符）
      */
-    private static int trimLineEnd(byte[] data, int boundaryPos) {
-        int pos = boundaryPos;
-        if (pos > 0 && data[pos - 1] == LF) pos--;
-        if (pos > 0 && data[pos - 1] == CR) pos--;
+    private static long trimLineEnd(MimeBytes data, long boundaryPos) {
+        long pos = boundaryPos;
+        if (pos > 0 && data.get(pos - 1) == LF) pos--;
+        if (pos > 0 && data.get(pos - 1) == CR) pos--;
         return pos;
     }
 
     /**
-     * 将字节数组的指定范围转换为 ISO-8859-1 字符串。
+     * 将字节数据的指定范围转换为 ISO-8859-1 字符串。
      * MIME 头部默认使用 ISO-8859-1 编码，通过 {@code & 0xFF} 无符号转换保证正确性。
      */
-    private static String bytesToString(byte[] data, int start, int end) {
-        int len = end - start;
+    private static String bytesToString(MimeBytes data, long start, long end) {
+        int len = (int) (end - start);
         if (len <= 0) return "";
         char[] chars = new char[len];
         for (int i = 0; i < len; i++) {
-            chars[i] = (char) (data[start + i] & 0xFF);
+            chars[i] = (char) (data.get(start + i) & 0xFF);
         }
         return new String(chars);
     }
 
     /**
-     * 为附件 part 的 body 创建零拷贝的 {@link ByteArrayMimeInputStream}。
-     * 直接引用原始字节数组的子范围，无数据复制开销。
+     * 为附件 part 的 body 创建零拷贝的子流，直接引用原始字节数据的子范围，无数据复制开销。
      *
-     * @param data  字节数组
+     * @param data  字节数据
      * @param start body 起始偏移
      * @param end   body 结束偏移
      * @return 指向 body 区域的 MimeInputStream；若范围为空则返回空流
+     * @throws IOException 创建子流时发生 I/O 错误
      */
-    private static MimeInputStream createBodyStream(byte[] data, int start, int end) {
-        int len = end - start;
-        if (len <= 0) {
+    private static MimeInputStream createBodyStream(MimeBytes data, long start, long end) throws IOException {
+        if (end - start <= 0) {
             return MimeInputStream.empty();
         }
-        return new ByteArrayMimeInputStream(data, start, len);
+        return data.newStream(start, end);
     }
 
 }
@@ -0,0 +1,45 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.ByteScanner;
+import io.github.jaloon.eml.io.MimeBytes;
+
+/**
+ * 批量扫描首字节的 boundary 查找。
+ * <p>
+ * 通过 {@link MimeBytes#indexOf(byte, long, long)} 查找模式首字节（{@code '-'}）的候选位置，
+ * 只在候选位置比较完整模式。基于数组的数据由 {@link ByteScanner#getDefault()} 扫描，
+ * 向量实现可用时每次比较一个向量宽度的字节。
+ */
+class ScanBoundarySearcher implements BoundarySearcher {
+    private final byte[] pattern;
+
+    ScanBoundarySearcher(byte[] pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public long indexOf(MimeBytes data, long from, long to) {
+        long limit = to - pattern.length;
+        long i = from;
+        while (i <= limit) {
+            i = data.indexOf(pattern[0], i, limit + 1);
+            if (i < 0) {
+                return -1;
+            }
+            if (matches(data, i)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private boolean matches(MimeBytes data, long offset) {
+        for (int j = 1; j < pattern.length; j++) {
+            if (data.get(offset + j) != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
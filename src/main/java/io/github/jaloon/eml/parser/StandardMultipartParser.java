@@ -1,13 +1,14 @@
 package io.github.jaloon.eml.parser;
 
+import io.github.jaloon.eml.io.LineSlice;
 import io.github.jaloon.eml.io.MimeInputStream;
 import io.github.jaloon.eml.part.MimePart;
 import io.github.jaloon.eml.part.MultiMimePart;
 import io.github.jaloon.eml.part.StandardMimePart;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -30,19 +31,26 @@ class StandardMultipartParser implements MultipartParser {
         if (instance == null) {
             synchronized (StandardMultipartParser.class) {
                 if (instance == null) {
-                    instance = new StandardMultipartParser();
+                    instance = new StandardMultipartParser(ParserLimits.NONE);
                 }
             }
         }
         return instance;
     }
 
+    /** 解析资源上限 */
+    private final ParserLimits limits;
+
     /**
-     * 私有构造函数，防止外部直接实例化StandardMultipartParser。
-     * 该类遵循单例模式设计，因此不允许通过构造函数创建多个实例。
-     * 使用者应通过调用{@link #getInstance()}方法来获取唯一实例。
+     * 创建使用指定资源上限的解析器。
+     * 不限制资源时使用者应通过调用{@link #getInstance()}方法来获取唯一实例，
+     * 需要上限时通过 {@link MultipartParser#standard(ParserLimits)} 创建。
+     *
+     * @param limits 解析资源上限
      */
-    private StandardMultipartParser() {}
+    StandardMultipartParser(ParserLimits limits) {
+        this.limits = limits;
+    }
 
     /**
      * 解析给定的多部分MIME消息，并将其分解为多个单独的MIME部分。
@@ -56,52 +64,166 @@ class StandardMultipartParser implements MultipartParser {
         if (!message.isMultipart()) {
             return Collections.emptyList();
         }
-        String boundaryStart = "--" + message.getBoundary();
-        String boundaryEnd = boundaryStart + "--";
-        MimeInputStream body = message.getBody();
-        List<MimePart> parts = new ArrayList<>();
-        String line;
-        long start = -1, end = -1;
-        while ((line = body.readLine()) != null) {
-            if (line.isEmpty()) {
-                end = body.getPosition();
-                continue;
+        return LazyPartIterator.toList(new PartCursor(message, limits));
+    }
+
+    /**
+     * 按需解析给定的多部分MIME消息，每次请求下一个部分时才继续逐行扫描。
+     *
+     * @param message 要解析的多部分MIME消息
+     * @return 按顺序返回各个MIME部分的迭代器。如果输入的消息不是多部分格式，则返回空迭代器。
+     * @throws IOException 如果在读取或处理MIME消息时发生I/O错误
+     */
+    @Override
+    public Iterator<MimePart> iterator(MultiMimePart message) throws IOException {
+        if (!message.isMultipart()) {
+            return Collections.emptyIterator();
+        }
+        return new LazyPartIterator(new PartCursor(message, limits));
+    }
+
+    /**
+     * 逐行扫描的游标，保存两次调用之间的扫描状态。
+     * <p>
+     * 每次最多读取 {@link #CHUNK_SIZE} 个字节的行内容，且不超过剩余的扫描字节数；
+     * 超长的行分段读取，只保留行尾用于识别 boundary，因此缺少行结束符的超长行不会被整行读入内存。
+     * 每读取一段即检查扫描字节数；位于 part 头部时（boundary 之后、第一个空行之前）同时检查头部字节数与
+     * 头部长度（折叠续行计入所属头部），part 数量在创建 part 时检查。
+     */
+    private static final class PartCursor implements LazyPartIterator.Cursor {
+        /** 单次读取的最大行内容字节数 */
+        private static final int CHUNK_SIZE = MimeInputStream.DEFAULT_BUFFER_SIZE;
+
+        private final BoundaryTracker boundaries;
+        private final MimeInputStream body;
+        // 逐行比较原始字节，内容体行不会转换为字符串
+        private final LineSlice line = new LineSlice();
+        /** 超长行的行尾，长度为识别 boundary 所需的字节数 */
+        private final byte[] tail;
+        /** 行尾中有效的字节数 */
+        private int tailCount;
+        /** 是否已遇到结束边界或读到末尾 */
+        private boolean finished;
+        private final ParserLimits limits;
+        /** 已创建的 part 数量 */
+        private int count;
+        /** 当前头部（含折叠续行）的长度 */
+        private long headerLength;
+
+        PartCursor(MultiMimePart message, ParserLimits limits) throws IOException {
+            this.limits = limits;
+            this.boundaries = new BoundaryTracker(message.getBoundary());
+            this.body = message.getBody();
+            this.tail = new byte[boundaries.patternLength()];
+        }
+
+        @Override
+        public MimePart next() throws IOException {
+            if (finished) {
+                return null;
             }
-            if (line.equals(boundaryStart)) {
-                body.mark(0);
-                if (start >= 0 && end > 0) {
-                    parts.add(StandardMimePart.of(body, start, end));
+            MimePart part = null;
+            BoundaryTracker.Line type;
+            while (part == null && (type = nextLine()) != null) {
+                if (type == BoundaryTracker.Line.BOUNDARY) {
+                    headerLength = 0;
+                }
+                if (boundaries.hasPart()) {
+                    // 创建 part 时会读取其头部，之后回到当前行之后继续扫描
+                    body.mark(0);
+                    part = newPart();
+                    body.reset();
                 }
-                body.reset();
-                start = body.getPosition();
-                end = -1;
-                continue;
+                if (type == BoundaryTracker.Line.CLOSE) {
+                    finished = true;
+                    return part;
+                }
+            }
+            if (part != null) {
+                return part;
             }
-            if (line.endsWith(boundaryStart)) {
-                body.mark(0);
-                if (start >= 0) {
-                    int len = line.length() - boundaryStart.length();
-                    end = end < 0 ? len : end + len;
-                    parts.add(StandardMimePart.of(body, start, end));
+            finished = true;
+            return boundaries.finish() ? newPart() : null;
+        }
+
+        /**
+         * 读取下一行并交给 {@link BoundaryTracker} 识别，同时检查资源上限。
+         *
+         * @return 行的类型，已到达末尾时返回 null
+         */
+        private BoundaryTracker.Line nextLine() throws IOException {
+            boolean header = boundaries.inHeaders();
+            if (!body.readLine(line, chunkSize(header))) {
+                return null;
+            }
+            limits.check(ParserLimits.Limit.SCAN_BYTES, body.getPosition());
+            if (!line.isTruncated()) {
+                BoundaryTracker.Line type = boundaries.accept(line.array(), line.offset(), line.length(), body.getPosition());
+                if (type == BoundaryTracker.Line.HEADER) {
+                    checkHeader(foldedLength() + line.length());
                 }
-                body.reset();
-                start = body.getPosition();
-                end = -1;
-                continue;
+                return type;
             }
-            if (line.endsWith(boundaryEnd)) {
-                if (start >= 0 && end > 0) {
-                    parts.add(StandardMimePart.of(body, start, end));
+            // 超长行：逐段读取并保留行尾，位于头部时每读取一段都检查头部上限
+            long base = header ? foldedLength() : 0;
+            long length = 0;
+            tailCount = 0;
+            while (true) {
+                length += line.length();
+                keepTail(line.array(), line.offset(), line.length());
+                if (header) {
+                    checkHeader(base + length);
                 }
-                start = -1;
-                end = -1;
-                break;
+                if (!line.isTruncated() || !body.readLine(line, chunkSize(header))) {
+                    break;
+                }
+                limits.check(ParserLimits.Limit.SCAN_BYTES, body.getPosition());
+            }
+            return boundaries.accept(tail, 0, tailCount, length, body.getPosition());
+        }
+
+        /**
+         * 计算单次读取的最大行内容字节数：不超过 {@link #CHUNK_SIZE}，也不超过剩余的扫描字节数；
+         * 位于头部时同时不超过头部长度与剩余的头部字节数。各上限均多读 1 个字节，使超限的读取能够被检查到。
+         */
+        private int chunkSize(boolean header) throws IOException {
+            long position = body.getPosition();
+            long max = Math.min(CHUNK_SIZE - 1L, limits.getMaxScanBytes() - position);
+            if (header) {
+                max = Math.min(max, limits.getMaxLineLength());
+                max = Math.min(max, limits.getMaxHeaderBytes() - (position - boundaries.currentStart()));
+            }
+            return (int) Math.max(1, max + 1);
+        }
+
+        /** 当前行为折叠续行时返回所属头部已有的长度，否则返回 0 */
+        private long foldedLength() {
+            byte first = line.byteAt(0);
+            return first == ' ' || first == '\t' ? headerLength : 0;
+        }
+
+        private void checkHeader(long length) throws IOException {
+            limits.check(ParserLimits.Limit.HEADER_BYTES, body.getPosition() - boundaries.currentStart());
+            headerLength = length;
+            limits.check(ParserLimits.Limit.LINE_LENGTH, headerLength);
+        }
+
+        /** 将一段行内容追加到行尾，只保留最后 {@code tail.length} 个字节 */
+        private void keepTail(byte[] b, int off, int len) {
+            if (len >= tail.length) {
+                System.arraycopy(b, off + len - tail.length, tail, 0, tail.length);
+                tailCount = tail.length;
+                return;
             }
-            end = body.getPosition();
+            int keep = Math.min(tailCount, tail.length - len);
+            System.arraycopy(tail, tailCount - keep, tail, 0, keep);
+            System.arraycopy(b, off, tail, keep, len);
+            tailCount = keep + len;
         }
-        if (start >= 0 && end > 0) {
-            parts.add(StandardMimePart.of(body, start, end));
+
+        private MimePart newPart() throws IOException {
+            limits.check(ParserLimits.Limit.PARTS, ++count);
+            return StandardMimePart.of(body, boundaries.partStart(), boundaries.partEnd());
         }
-        return parts;
     }
 }
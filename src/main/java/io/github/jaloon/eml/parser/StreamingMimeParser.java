@@ -0,0 +1,490 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.part.MimePart;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式 MIME 事件解析器：单次顺序读取邮件，将邮件结构以事件的形式推送给 {@link MimeHandler}。
+ * <p>
+ * 与 {@link MultipartParser} 的实现不同，此解析器不要求输入可寻址，也不会构建 {@code List<MimePart>}：
+ * <ul>
+ *   <li><strong>常量内存</strong>：只保留当前行的有限字节（超长行只保留用于 boundary 比较的行尾）
+ *       和一个固定大小的输出缓冲区，内容体读到即推送，适合处理任意大小的邮件</li>
+ *   <li><strong>递归</strong>：嵌套的 multipart 在同一次读取中展开，子 part 的深度依次加 1</li>
+ *   <li><strong>提前结束</strong>：任一回调返回 {@code false} 时立即停止读取；
+ *       邮件的结束边界 {@code --boundary--} 之后的数据不会被读取</li>
+ * </ul>
+ * 行与 boundary 的识别规则与 {@link MultipartParser#standard()} 一致，每个非 multipart part 推送的内容体
+ * 与标准解析器得到的 part 内容体相同。
+ * <p>
+ * 示例：判断邮件是否包含附件，找到第一个附件头部即停止读取：
+ * <pre>{@code
+ * boolean[] found = new boolean[1];
+ * try (InputStream in = Files.newInputStream(path)) {
+ *     StreamingMimeParser.parse(in, new MimeHandler() {
+ *         public boolean header(String header) {
+ *             found[0] = header.startsWith("Content-Disposition: attachment");
+ *             return !found[0];
+ *         }
+ *     });
+ * }
+ * }</pre>
+ */
+public final class StreamingMimeParser {
+    /** 每次从输入流读取的数据块大小 */
+    private static final int READ_SIZE = 64 * 1024;
+
+    private StreamingMimeParser() {}
+
+    /**
+     * 解析包含完整邮件内容（头部与邮件体）的输入流。
+     *
+     * @param in      邮件输入流，从当前位置读取，解析结束后不会被关闭
+     * @param handler 事件回调
+     * @return 解析到邮件末尾（或邮件的结束边界）时返回 true，被回调停止时返回 false
+     * @throws IOException 如果读取输入流时发生I/O错误
+     */
+    public static boolean parse(InputStream in, MimeHandler handler) throws IOException {
+        Walker walker = new Walker(handler);
+        return walker.startMessage() && walker.run(in);
+    }
+
+    /**
+     * 解析已读取头部的邮件或 part（如 {@link io.github.jaloon.eml.EmlMessage}），
+     * 头部直接取自 {@link MimePart#getHeaders()}，内容体从头顺序读取一次。
+     *
+     * @param part    要解析的邮件或 part，解析过程不会改变其内容体的读取位置
+     * @param handler 事件回调
+     * @return 解析到内容体末尾（或结束边界）时返回 true，被回调停止时返回 false
+     * @throws IOException 如果读取内容体时发生I/O错误
+     */
+    public static boolean parse(MimePart part, MimeHandler handler) throws IOException {
+        Walker walker = new Walker(handler);
+        if (!walker.startMessage() || !walker.headers(part.getHeaders())) {
+            return false;
+        }
+        MimeInputStream body = part.getBody();
+        try (MimeInputStream in = body.newStream(0, body.getSize())) {
+            return walker.run(in);
+        }
+    }
+
+    /**
+     * 一次解析过程的状态机。
+     */
+    private static final class Walker {
+        /** 回车符 \r */
+        private static final byte CR = '\r';
+        /** 换行符 \n */
+        private static final byte LF = '\n';
+        private static final byte[] CRLF = {CR, LF};
+        private static final byte[] CR_ONLY = {CR};
+        private static final byte[] LF_ONLY = {LF};
+        private static final byte[] NO_TERMINATOR = {};
+        /** 单行最多保留的字节数，超过后内容体行先行推送，其他行只保留行尾 */
+        private static final int MAX_LINE_BYTES = 64 * 1024;
+        /** 非内容体的超长行截断后至少保留的行尾字节数 */
+        private static final int LINE_TAIL_BYTES = 1024;
+        /** 内容体输出缓冲区大小 */
+        private static final int OUTPUT_BYTES = 8 * 1024;
+
+        /** 读取当前实体的头部 */
+        private static final int HEADERS = 0;
+        /** 读取非 multipart 实体的内容体 */
+        private static final int BODY = 1;
+        /** 位于最内层 multipart 的第一个 boundary 之前（preamble） */
+        private static final int PREAMBLE = 2;
+        /** 已遇到 boundary，等待下一行开始新的 part */
+        private static final int PENDING = 3;
+        /** 位于最内层 multipart 的结束边界之后（epilogue） */
+        private static final int EPILOGUE = 4;
+
+        private final MimeHandler handler;
+        /** 由外到内的 multipart 层级 */
+        private final List<Level> levels = new ArrayList<>();
+        private int mode = HEADERS;
+        /** 是否已被回调停止 */
+        private boolean stopped;
+        /** 是否已完成解析（遇到邮件的结束边界） */
+        private boolean done;
+
+        /** 当前行已保留的字节 */
+        private byte[] line = new byte[256];
+        /** 当前行已保留的字节数 */
+        private int lineCount;
+        /** 当前行的实际长度（不含行结束符） */
+        private long lineLength;
+        /** 上一个输入字节是否为 \r，需要等待下一个字节判断是否为 \r\n */
+        private boolean afterCR;
+
+        /** 尚未推送的头部，需要等待下一行判断是否为折叠行 */
+        private String pendingHeader;
+        /** 当前实体的第一个 Content-Type 头部 */
+        private String contentType;
+
+        /** 内容体输出缓冲区 */
+        private final byte[] out = new byte[OUTPUT_BYTES];
+        private int outCount;
+
+        Walker(MimeHandler handler) {
+            this.handler = handler;
+        }
+
+        boolean startMessage() {
+            return check(handler.startPart(0));
+        }
+
+        /**
+         * 推送已解析的头部并结束头部阶段。
+         */
+        boolean headers(List<String> headers) {
+            for (String header : headers) {
+                if (!header(header)) {
+                    return false;
+                }
+            }
+            return endHeaders();
+        }
+
+        /**
+         * 读取输入流直到末尾、邮件的结束边界或被回调停止。
+         */
+        boolean run(InputStream in) throws IOException {
+            byte[] buf = new byte[READ_SIZE];
+            int n;
+            while (!done && !stopped && (n = in.read(buf)) != -1) {
+                feed(buf, 0, n);
+            }
+            if (!done && !stopped) {
+                finish();
+            }
+            return !stopped;
+        }
+
+        private void feed(byte[] b, int off, int len) {
+            int i = off;
+            int limit = off + len;
+            while (i < limit && !done && !stopped) {
+                if (afterCR) {
+                    afterCR = false;
+                    if (b[i] == LF) {
+                        i++;
+                        endLine(CRLF);
+                    } else {
+                        endLine(CR_ONLY);
+                    }
+                    continue;
+                }
+                int j = i;
+                while (j < limit && b[j] != CR && b[j] != LF) {
+                    j++;
+                }
+                append(b, i, j - i);
+                if (j == limit) {
+                    break;
+                }
+                if (b[j] == CR) {
+                    afterCR = true;
+                } else {
+                    endLine(LF_ONLY);
+                }
+                i = j + 1;
+            }
+        }
+
+        private void finish() {
+            if (afterCR) {
+                afterCR = false;
+                endLine(CR_ONLY);
+            } else if (lineLength > 0) {
+                endLine(NO_TERMINATOR);
+            }
+            if (!stopped && !done) {
+                complete();
+            }
+        }
+
+        /**
+         * 关闭所有实体并结束解析。
+         */
+        private void complete() {
+            done = true;
+            if (closeInside(-1)) {
+                check(handler.endPart());
+            }
+        }
+
+        private void append(byte[] b, int off, int len) {
+            lineLength += len;
+            while (len > 0) {
+                if (lineCount == MAX_LINE_BYTES && !compact()) {
+                    return;
+                }
+                if (lineCount == line.length) {
+                    byte[] grown = new byte[Math.min(MAX_LINE_BYTES, line.length * 2)];
+                    System.arraycopy(line, 0, grown, 0, lineCount);
+                    line = grown;
+                }
+                int n = Math.min(len, line.length - lineCount);
+                System.arraycopy(b, off, line, lineCount, n);
+                lineCount += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * 超长行：内容体行推送除行尾外的字节，其他行丢弃行首，只保留可能构成 boundary 的行尾。
+         */
+        private boolean compact() {
+            int keep = 0;
+            for (Level level : levels) {
+                keep = Math.max(keep, level.end.length);
+            }
+            if (mode == BODY) {
+                if (!emit(line, 0, lineCount - keep)) {
+                    return false;
+                }
+            } else {
+                keep = Math.max(keep, LINE_TAIL_BYTES);
+            }
+            System.arraycopy(line, lineCount - keep, line, 0, keep);
+            lineCount = keep;
+            return true;
+        }
+
+        private void endLine(byte[] terminator) {
+            processLine(terminator);
+            lineCount = 0;
+            lineLength = 0;
+        }
+
+        private void processLine(byte[] terminator) {
+            if (lineLength > 0 && matchBoundary()) {
+                return;
+            }
+            switch (mode) {
+                case PENDING:
+                    levels.get(levels.size() - 1).partOpen = true;
+                    if (!check(handler.startPart(levels.size()))) {
+                        return;
+                    }
+                    mode = HEADERS;
+                    headerLine();
+                    break;
+                case HEADERS:
+                    headerLine();
+                    break;
+                case BODY:
+                    if (emit(line, 0, lineCount)) {
+                        emit(terminator, 0, terminator.length);
+                    }
+                    break;
+                default:
+                    // preamble 与 epilogue 不推送
+                    break;
+            }
+        }
+
+        /**
+         * 由外到内依次将当前行与各层级的 boundary 比较，匹配时关闭相应的实体。
+         *
+         * @return 当前行是否为 boundary 行
+         */
+        private boolean matchBoundary() {
+            for (int k = 0; k < levels.size(); k++) {
+                Level level = levels.get(k);
+                if (level.closed) {
+                    continue;
+                }
+                if (lineLength == level.start.length && endsWith(level.start)) {
+                    if (closeInside(k)) {
+                        mode = PENDING;
+                    }
+                    return true;
+                }
+                if (endsWith(level.start)) {
+                    // boundary 不以换行开头，行首部分属于当前 part 的内容体
+                    if (mode == BODY && !emit(line, 0, lineCount - level.start.length)) {
+                        return true;
+                    }
+                    if (closeInside(k)) {
+                        mode = PENDING;
+                    }
+                    return true;
+                }
+                if (endsWith(level.end)) {
+                    if (k == 0) {
+                        complete();
+                    } else if (closeInside(k)) {
+                        level.closed = true;
+                        mode = EPILOGUE;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 关闭第 k 层 multipart 中当前打开的 part 及其内部的所有实体；k 为 -1 时关闭所有层级（邮件本身除外）。
+         */
+        private boolean closeInside(int k) {
+            if (mode == HEADERS && !flushHeader()) {
+                return false;
+            }
+            if (mode == BODY && !flush()) {
+                return false;
+            }
+            while (levels.size() - 1 > k) {
+                Level inner = levels.remove(levels.size() - 1);
+                if (inner.partOpen && !check(handler.endPart())) {
+                    return false;
+                }
+                if (!levels.isEmpty()) {
+                    // 内层 multipart 本身是外层的一个 part
+                    levels.get(levels.size() - 1).partOpen = false;
+                    if (!check(handler.endPart())) {
+                        return false;
+                    }
+                }
+            }
+            if (k >= 0) {
+                Level level = levels.get(k);
+                if (level.partOpen) {
+                    level.partOpen = false;
+                    return check(handler.endPart());
+                }
+            }
+            return true;
+        }
+
+        private void headerLine() {
+            if (lineLength == 0) {
+                if (flushHeader()) {
+                    endHeaders();
+                }
+                return;
+            }
+            String text = lineString();
+            char first = text.charAt(0);
+            if ((first == ' ' || first == '\t') && pendingHeader != null) {
+                pendingHeader = pendingHeader + "\n" + text;
+            } else if (flushHeader()) {
+                pendingHeader = text;
+            }
+        }
+
+        private boolean flushHeader() {
+            if (pendingHeader == null) {
+                return true;
+            }
+            String header = pendingHeader;
+            pendingHeader = null;
+            return header(header);
+        }
+
+        private boolean header(String header) {
+            if (contentType == null && header.startsWith("Content-Type:")) {
+                contentType = header.substring(13).trim();
+            }
+            return check(handler.header(header));
+        }
+
+        /**
+         * 头部结束：multipart 实体进入新的层级，其他实体开始读取内容体。
+         */
+        private boolean endHeaders() {
+            String boundary = null;
+            if (contentType != null && contentType.startsWith("multipart/")) {
+                boundary = MimePart.getHeadItem(contentType, "boundary");
+            }
+            contentType = null;
+            if (StringUtils.isEmpty(boundary)) {
+                mode = BODY;
+            } else {
+                levels.add(new Level(boundary));
+                mode = PREAMBLE;
+            }
+            return true;
+        }
+
+        private boolean emit(byte[] b, int off, int len) {
+            if (len <= 0) {
+                return true;
+            }
+            if (outCount + len > out.length && !flush()) {
+                return false;
+            }
+            if (len >= out.length) {
+                return check(handler.bodyChunk(b, off, len));
+            }
+            System.arraycopy(b, off, out, outCount, len);
+            outCount += len;
+            return true;
+        }
+
+        private boolean flush() {
+            if (outCount == 0) {
+                return true;
+            }
+            int count = outCount;
+            outCount = 0;
+            return check(handler.bodyChunk(out, 0, count));
+        }
+
+        private boolean check(boolean proceed) {
+            if (!proceed) {
+                stopped = true;
+            }
+            return proceed;
+        }
+
+        private boolean endsWith(byte[] pattern) {
+            if (lineLength < pattern.length || lineCount < pattern.length) {
+                return false;
+            }
+            int offset = lineCount - pattern.length;
+            for (int i = 0; i < pattern.length; i++) {
+                if (line[offset + i] != pattern[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String lineString() {
+            char[] chars = new char[lineCount];
+            for (int i = 0; i < lineCount; i++) {
+                chars[i] = (char) (line[i] & 0xFF);
+            }
+            return new String(chars);
+        }
+    }
+
+    /**
+     * 一层 multipart 的 boundary 及状态。
+     */
+    private static final class Level {
+        /** boundary 起始行 {@code --boundary} */
+        final byte[] start;
+        /** boundary 结束行 {@code --boundary--} */
+        final byte[] end;
+        /** 是否有打开的子 part */
+        boolean partOpen;
+        /** 是否已遇到结束边界 */
+        boolean closed;
+
+        Level(String boundary) {
+            this.start = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+            this.end = ("--" + boundary + "--").getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -11,6 +11,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -111,7 +113,7 @@ public interface MimePart extends Closeable {
     default String getContentType() {
         return getHeaders().stream()
                 .filter(line -> line.startsWith("Content-Type:"))
-                .map(line -> line.substring(14).trim())
+                .map(line -> line.substring(13).trim())
                 .findFirst()
                 .orElse(null);
     }
@@ -149,6 +151,43 @@ public interface MimePart extends Closeable {
         }
     }
 
+    /**
+     * 将当前MIME部分解码后的内容写入目标通道。无论内容体当前读取到何处，总是从内容体开头写入完整内容。
+     * <p>
+     * 对于没有内容传输编码或编码为 {@code 7bit}、{@code 8bit}、{@code binary} 的部分，内容即原始字节，
+     * 直接调用 {@link MimeInputStream#transferTo(WritableByteChannel)}：文件型内容体由内核完成复制，
+     * 内存型内容体一次性批量写入。其他编码（如 base64）先解码再写入。
+     * <p>
+     * 如需归档仍处于编码状态的原始内容，可调用 {@code getBody().transferTo(target)}。
+     *
+     * @param target 目标通道
+     * @return 写入的字节数
+     * @throws IOException 如果在读取、解码或写入过程中发生I/O错误
+     */
+    default long transferTo(WritableByteChannel target) throws IOException {
+        String encoding = getTransferEncoding();
+        if (isMultipart() || encoding == null || encoding.equalsIgnoreCase("7bit")
+                || encoding.equalsIgnoreCase("8bit") || encoding.equalsIgnoreCase("binary")) {
+            MimeInputStream body = getBody();
+            body.seek(0);
+            return body.transferTo(target);
+        }
+        getBody().seek(0);
+        InputStream in = getInputStream();
+        byte[] buf = new byte[MimeInputStream.DEFAULT_BUFFER_SIZE];
+        ByteBuffer wrapper = ByteBuffer.wrap(buf);
+        long total = 0;
+        int read;
+        while ((read = in.read(buf)) > 0) {
+            wrapper.clear().limit(read);
+            while (wrapper.hasRemaining()) {
+                target.write(wrapper);
+            }
+            total += read;
+        }
+        return total;
+    }
+
     /**
      * 解析头部信息
      *
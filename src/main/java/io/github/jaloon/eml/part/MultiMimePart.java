@@ -2,6 +2,9 @@ package io.github.jaloon.eml.part;
 
 import io.github.jaloon.eml.io.MimeInputStream;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -9,6 +12,10 @@ import java.util.List;
  * 多部分消息包含多个正文部分，每个部分都有自己的标题和内容，通常用于发送带有附件或混合内容类型的电子邮件。
  */
 public class MultiMimePart extends AbstractMimePart {
+    /**
+     * 与此消息生命周期绑定的资源（如解析器借出的缓冲区），在消息关闭时一并关闭。
+     */
+    private final List<Closeable> resources = new ArrayList<>();
 
     /**
      * 构造一个新的 MultiMimePart 实例。
@@ -41,4 +48,61 @@ public class MultiMimePart extends AbstractMimePart {
         return false;
     }
 
+    /**
+     * 注册一个与此消息生命周期绑定的资源，该资源将在消息关闭时一并关闭。
+     * <p>
+     * 供解析器使用：解析过程中为此消息分配的资源（如从缓冲池借出的数组）无需由调用方单独释放。
+     *
+     * @param resource 要在消息关闭时关闭的资源
+     */
+    public void register(Closeable resource) {
+        synchronized (resources) {
+            resources.add(resource);
+        }
+    }
+
+    /**
+     * 关闭消息内容体以及所有已注册的资源。
+     *
+     * @throws IOException 如果在关闭内容体或资源时发生I/O错误
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            closeResources();
+        }
+    }
+
+    /**
+     * 按注册顺序关闭所有已注册的资源，并清空注册列表。单个资源关闭失败不影响其余资源的关闭。
+     *
+     * @throws IOException 如果关闭某个资源时发生I/O错误，其余异常作为 suppressed 异常附加
+     */
+    protected void closeResources() throws IOException {
+        List<Closeable> toClose;
+        synchronized (resources) {
+            if (resources.isEmpty()) {
+                return;
+            }
+            toClose = new ArrayList<>(resources);
+            resources.clear();
+        }
+        IOException error = null;
+        for (Closeable resource : toClose) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
 }
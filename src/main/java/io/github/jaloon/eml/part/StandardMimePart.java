@@ -68,11 +68,24 @@ public class StandardMimePart extends AbstractMimePart {
         in.seek(partOffset);
         List<String> headers = MimePart.parseHeaders(in);
         MimeInputStream body = in.newStream(in.getPosition(), partEnd);
+        return of(headers, body);
+    }
+
+    /**
+     * 使用已解析的头部信息和内容体创建一个新的StandardMimePart对象。
+     * <p>
+     * 适用于头部已在扫描过程中解析完成的场景（如异步解析、索引恢复），无需再从输入流中读取头部。
+     *
+     * @param headers MIME部分的头部信息列表，折叠头部已拼接为一行
+     * @param body    MIME部分的内容体
+     * @return 新创建的StandardMimePart对象
+     */
+    public static StandardMimePart of(List<String> headers, MimeInputStream body) {
         StandardMimePart part = new StandardMimePart(headers, body);
         String attachHeader = null;
         for (String header : headers) {
             if (header.startsWith("Content-Type:")) {
-                part.contentType = header.substring(14).trim();
+                part.contentType = header.substring(13).trim();
                 if (part.contentType.startsWith("multipart/")) {
                     part.multipart = true;
                     part.boundary = MimePart.getHeadItem(part.contentType, "boundary");
@@ -0,0 +1,52 @@
+package io.github.jaloon.eml.io;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 {@code jdk.incubator.vector} 的 {@link ByteScanner} 实现。
+ * <p>
+ * 每次加载一个首选宽度的向量（AVX2 下为 32 字节，AVX-512 下为 64 字节），与目标字节逐道比较，
+ * 比较结果的掩码非空时取第一个置位的下标；不足一个向量宽度的尾部由标量实现处理。
+ * <p>
+ * 此类只随多版本 JAR 的 {@code META-INF/versions/17} 发布，由 {@link ByteScanner#vector()} 通过反射加载，
+ * 运行时未添加 {@code jdk.incubator.vector} 模块时加载失败并回退到标量实现。
+ */
+final class VectorByteScanner extends ByteScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    @Override
+    public int indexOfLineEnd(byte[] a, int from, int to) {
+        int step = SPECIES.length();
+        int i = from;
+        for (int bound = to - step; i <= bound; i += step) {
+            ByteVector v = ByteVector.fromArray(SPECIES, a, i);
+            VectorMask<Byte> mask = v.eq(CR).or(v.eq(LF));
+            if (mask.anyTrue()) {
+                return i + mask.firstTrue();
+            }
+        }
+        return scalarIndexOfLineEnd(a, i, to);
+    }
+
+    @Override
+    public int indexOf(byte[] a, int from, int to, byte b) {
+        int step = SPECIES.length();
+        int i = from;
+        for (int bound = to - step; i <= bound; i += step) {
+            VectorMask<Byte> mask = ByteVector.fromArray(SPECIES, a, i).eq(b);
+            if (mask.anyTrue()) {
+                return i + mask.firstTrue();
+            }
+        }
+        return scalarIndexOf(a, i, to, b);
+    }
+
+    @Override
+    public String toString() {
+        return "vector(" + SPECIES.vectorBitSize() + ")";
+    }
+}
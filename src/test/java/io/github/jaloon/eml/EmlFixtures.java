@@ -0,0 +1,53 @@
+package io.github.jaloon.eml;
+
+import io.github.jaloon.eml.io.MimeInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 测试共用的邮件样本与读取工具。
+ */
+public final class EmlFixtures {
+    /** 测试资源目录中的样本邮件 */
+    public static final List<String> EMLS = Collections.unmodifiableList(Arrays.asList(
+            "IMAP20250814163022.eml", "IMAP20250825140909.eml", "STMP_outlook.eml", "WEB20250512092651.eml"));
+
+    private EmlFixtures() {}
+
+    /**
+     * 获取测试资源目录中的文件。
+     *
+     * @param name 文件名
+     * @return 测试资源文件
+     */
+    public static File file(String name) {
+        URL url = EmlFixtures.class.getClassLoader().getResource("");
+        assert url != null;
+        return new File(url.getPath(), name);
+    }
+
+    /**
+     * 读取内容体的全部原始字节，不改变内容体的读取位置。
+     *
+     * @param body 内容体
+     * @return 原始字节
+     * @throws IOException 如果读取时发生I/O错误
+     */
+    public static byte[] readAll(MimeInputStream body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MimeInputStream in = body.newStream(0, body.getSize())) {
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                out.write(buf, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.jaloon.eml;
+
+import io.github.jaloon.eml.io.FileAccessMode;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EmlHeadersTest {
+    @Test
+    public void testMatchesMessage() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            for (EmlHeaders headers : Arrays.asList(EmlMessage.headersOf(file.toPath()), EmlMessage.headersOf(file.toPath(), 1 << 20))) {
+                try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                    assertFalse(eml, headers.isTruncated());
+                    assertEquals(eml, message.getHeaders(), headers.getHeaders());
+                    assertEquals(eml, message.getSize(), headers.getSize());
+                    assertEquals(eml, message.getFrom(), headers.getFrom());
+                    assertEquals(eml, message.getTo(), headers.getTo());
+                    assertEquals(eml, message.getSubject(), headers.getSubject());
+                    assertNotNull(headers.getDate());
+                    assertEquals(eml, headers.getDate(), headers.getHeader("date"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLimitAndLineEnds() throws IOException {
+        Path path = Files.createTempFile("eml-headers", ".eml");
+        try {
+            String head = "Subject: hello\r\nX-Long: a\r\n b\r\n";
+            Files.write(path, (head + "\r\nbody\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            EmlHeaders headers = EmlMessage.headersOf(path);
+            assertEquals(Arrays.asList("Subject: hello", "X-Long: a\n b"), headers.getHeaders());
+            assertEquals("hello", headers.getSubject());
+            assertNull(headers.getFrom());
+            assertNull(headers.getHeader("Subject-X"));
+
+            // 上限内只有第一行完整
+            headers = EmlMessage.headersOf(path, 20);
+            assertTrue(headers.isTruncated());
+            assertEquals(Arrays.asList("Subject: hello"), headers.getHeaders());
+
+            // 上限恰好包含空行时不截断
+            headers = EmlMessage.headersOf(path, head.length() + 2);
+            assertFalse(headers.isTruncated());
+            assertEquals(2, headers.getHeaders().size());
+
+            Files.write(path, "Subject: lf\n\nbody\n".getBytes(StandardCharsets.ISO_8859_1));
+            assertEquals(Arrays.asList("Subject: lf"), EmlMessage.headersOf(path).getHeaders());
+
+            // 头部超过单次读取的分块大小时需要多次读取
+            char[] pad = new char[20000];
+            Arrays.fill(pad, 'x');
+            Files.write(path, ("X-Pad: " + new String(pad) + "\r\nSubject: pad\r\n\r\nbody").getBytes(StandardCharsets.ISO_8859_1));
+            headers = EmlMessage.headersOf(path);
+            assertEquals(2, headers.getHeaders().size());
+            assertEquals("pad", headers.getSubject());
+
+            Files.write(path, "\r\nbody\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            assertTrue(EmlMessage.headersOf(path).getHeaders().isEmpty());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package io.github.jaloon.eml.io;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MimeInputStreamTest {
+    private File emlFile;
+
+    @Before
+    public void getFile() {
+        URL url = this.getClass().getClassLoader().getResource("STMP_outlook.eml");
+        assert url != null;
+        emlFile = new File(url.getPath());
+    }
+
+    @Test
+    public void testMappedReadLine() throws IOException {
+        try (MimeInputStream expected = MimeInputStream.of(emlFile, FileAccessMode.RANDOM_ACCESS);
+             MimeInputStream actual = MimeInputStream.of(emlFile, FileAccessMode.MAPPED)) {
+            assertLinesEqual(expected, actual);
+        }
+    }
+
+    @Test
+    public void testMappedNewStream() throws IOException {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        try (MimeInputStream in = MimeInputStream.of(emlFile, FileAccessMode.MAPPED)) {
+            MimeInputStream sub = in.newStream(100, 2100);
+            assertEquals(100, sub.getStart());
+            assertEquals(2000, sub.getSize());
+            byte[] buf = new byte[2000];
+            assertEquals(2000, sub.read(buf, 0, buf.length));
+            assertArrayEquals(copyOf(data, 100, 2100), buf);
+            sub.seek(10);
+            assertEquals(data[110] & 0xFF, sub.read());
+            assertEquals(111, sub.getFilePointer());
+        }
+    }
+
+    @Test
+    public void testBufferedReadLine() throws IOException {
+        try (MimeInputStream expected = MimeInputStream.of(emlFile, FileAccessMode.RANDOM_ACCESS);
+             MimeInputStream actual = MimeInputStream.buffered(emlFile, 64)) {
+            assertLinesEqual(expected, actual);
+        }
+        try (MimeInputStream in = MimeInputStream.buffered(emlFile, 64)) {
+            byte[] data = Files.readAllBytes(emlFile.toPath());
+            MimeInputStream sub = in.newStream(1000, 5000);
+            byte[] buf = new byte[4000];
+            int offset = 0;
+            while (offset < 100) {
+                buf[offset++] = (byte) sub.read();
+            }
+            while (offset < buf.length) {
+                offset += sub.read(buf, offset, buf.length - offset);
+            }
+            assertEquals(-1, sub.read());
+            assertArrayEquals(copyOf(data, 1000, 5000), buf);
+        }
+    }
+
+    @Test
+    public void testBufferedDrain() throws IOException {
+        File file = createBase64File(1 << 20);
+        try {
+            assertEquals(drain(MimeInputStream.of(file, FileAccessMode.RANDOM_ACCESS)),
+                    drain(MimeInputStream.of(file, FileAccessMode.BUFFERED)));
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void testReadToEndOfStream() throws IOException {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        for (FileAccessMode mode : FileAccessMode.values()) {
+            try (MimeInputStream in = MimeInputStream.of(emlFile, mode);
+                 MimeInputStream sub = in.newStream(100, 2100)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertEquals(mode.name(), data.length, IOUtils.copy(in, out));
+                assertArrayEquals(mode.name(), data, out.toByteArray());
+                assertEquals(mode.name(), -1, in.read(new byte[16]));
+                assertEquals(mode.name(), -1, in.read());
+
+                byte[] buf = new byte[3000];
+                int offset = 0;
+                int read;
+                while ((read = sub.read(buf, offset, buf.length - offset)) != -1) {
+                    assertTrue(mode.name(), read > 0);
+                    offset += read;
+                }
+                assertEquals(mode.name(), 2000, offset);
+                assertArrayEquals(mode.name(), copyOf(data, 100, 2100), copyOf(buf, 0, offset));
+            }
+        }
+    }
+
+    @Test
+    public void testChannelConcurrentRead() throws Exception {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        try (MimeInputStream expected = MimeInputStream.of(emlFile, FileAccessMode.RANDOM_ACCESS);
+             MimeInputStream actual = MimeInputStream.of(emlFile, FileAccessMode.CHANNEL)) {
+            assertLinesEqual(expected, actual);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (MimeInputStream in = MimeInputStream.of(emlFile, FileAccessMode.CHANNEL)) {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            int step = data.length / 8;
+            for (int i = 0; i < 8; i++) {
+                MimeInputStream sub = in.newStream((long) i * step, (long) (i + 1) * step);
+                futures.add(executor.submit(() -> {
+                    try (MimeInputStream s = sub) {
+                        byte[] buf = new byte[step];
+                        for (int j = 0; j < step; j++) {
+                            buf[j] = (byte) s.read();
+                        }
+                        return buf;
+                    }
+                }));
+            }
+            for (int i = 0; i < 8; i++) {
+                assertArrayEquals(copyOf(data, i * step, (i + 1) * step), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testChannelInterrupt() throws Exception {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        try (MimeInputStream in = MimeInputStream.of(emlFile, FileAccessMode.CHANNEL)) {
+            // 带着中断状态读取：读取成功，中断状态保留
+            Thread.currentThread().interrupt();
+            try (MimeInputStream sub = in.newStream(0, -1)) {
+                assertArrayEquals(data, IOUtils.toByteArray(sub));
+                assertTrue(Thread.currentThread().isInterrupted());
+            } finally {
+                Thread.interrupted();
+            }
+            // 反复中断正在读取的线程，该线程与当前线程的子流都读到完整数据
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        try (MimeInputStream sub = in.newStream(0, -1)) {
+                            assertArrayEquals(IOUtils.toByteArray(sub), data);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            reader.start();
+            while (reader.isAlive()) {
+                reader.interrupt();
+                try (MimeInputStream sub = in.newStream(0, -1)) {
+                    assertArrayEquals(data, IOUtils.toByteArray(sub));
+                }
+            }
+            assertNull(String.valueOf(failure.get()), failure.get());
+            try (MimeInputStream sub = in.newStream(0, -1)) {
+                assertArrayEquals(data, IOUtils.toByteArray(sub));
+            }
+        }
+    }
+
+    @Test
+    public void testSpillToDisk() throws IOException {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        try (MimeInputStream inMemory = MimeInputStream.of(new ByteArrayInputStream(data), data.length);
+             MimeInputStream spilled = MimeInputStream.of(new ByteArrayInputStream(data), 1024)) {
+            assertTrue(inMemory instanceof ByteArrayMimeInputStream);
+            assertTrue(spilled instanceof ChannelMimeInputStream);
+            assertEquals(data.length, inMemory.getSize());
+            assertEquals(data.length, spilled.getSize());
+            try (MimeInputStream expected = MimeInputStream.of(emlFile)) {
+                assertLinesEqual(expected, spilled);
+            }
+            byte[] buf = new byte[data.length];
+            inMemory.seek(0);
+            assertEquals(data.length, inMemory.read(buf, 0, buf.length));
+            assertArrayEquals(data, buf);
+        }
+    }
+
+    @Test
+    public void testTransferTo() throws IOException {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        byte[] expected = copyOf(data, 300, data.length - 300);
+        for (FileAccessMode mode : FileAccessMode.values()) {
+            try (MimeInputStream in = MimeInputStream.of(emlFile, mode)) {
+                MimeInputStream sub = in.newStream(300, data.length - 300);
+                sub.seek(10);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertEquals(expected.length - 10, sub.transferTo(Channels.newChannel(out)));
+                assertArrayEquals(copyOf(expected, 10, expected.length), out.toByteArray());
+                assertEquals(-1, sub.read());
+            }
+        }
+        Path target = Files.createTempFile("eml-parser", ".bin");
+        try (MimeInputStream in = new ByteArrayMimeInputStream(data, 300, expected.length);
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            assertEquals(expected.length, in.transferTo(channel));
+        }
+        try {
+            assertArrayEquals(expected, Files.readAllBytes(target));
+        } finally {
+            Files.delete(target);
+        }
+    }
+
+    @Test
+    public void testLineSlice() throws IOException {
+        byte[] data = "a\r\nbc\rdef\n\r\n\nghijklmnop\r\r\nqrstuvwxyz0123456789\rend".getBytes(StandardCharsets.ISO_8859_1);
+        Path path = Files.createTempFile("eml-parser", ".txt");
+        try {
+            Files.write(path, data);
+            File file = path.toFile();
+            List<MimeInputStream> streams = new ArrayList<>();
+            for (FileAccessMode mode : FileAccessMode.values()) {
+                streams.add(MimeInputStream.of(file, mode));
+            }
+            streams.add(MimeInputStream.buffered(file, 3));
+            streams.add(new ChannelMimeInputStream(path, 2, StandardOpenOption.READ));
+            ByteBuffer[] segments = new ByteBuffer[(data.length + 3) / 4];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = ByteBuffer.wrap(copyOf(data, i * 4, Math.min(data.length, i * 4 + 4)));
+            }
+            streams.add(new SegmentedMimeInputStream(segments));
+            for (MimeInputStream actual : streams) {
+                try (MimeInputStream expected = new ByteArrayMimeInputStream(data)) {
+                    LineSlice line = new LineSlice();
+                    String text;
+                    while ((text = expected.readLine()) != null) {
+                        assertTrue(actual.readLine(line));
+                        assertEquals(text, line.toString());
+                        assertFalse(line.isTruncated());
+                        assertEquals(expected.getPosition(), actual.getPosition());
+                    }
+                    assertFalse(actual.readLine(line));
+                    // 限制行长度时超长行分段读取，各段拼接后与完整的行相同
+                    for (int max = 1; max <= 4; max++) {
+                        expected.seek(0);
+                        actual.seek(0);
+                        while ((text = expected.readLine()) != null) {
+                            StringBuilder joined = new StringBuilder();
+                            do {
+                                assertTrue(actual.readLine(line, max));
+                                assertTrue(line.length() <= max);
+                                joined.append(line);
+                            } while (line.isTruncated());
+                            assertEquals(text, joined.toString());
+                            assertEquals(expected.getPosition(), actual.getPosition());
+                        }
+                        assertFalse(actual.readLine(line, max));
+                    }
+                } finally {
+                    actual.close();
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        Path multi = Files.createTempFile("eml-parser", ".eml.gz");
+        Path single = Files.createTempFile("eml-parser", ".eml.gz");
+        try {
+            try (OutputStream out = Files.newOutputStream(multi)) {
+                assertEquals(data.length, GzipMimeInputStream.compress(new ByteArrayInputStream(data), out, 1000));
+            }
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(single))) {
+                out.write(data);
+            }
+            // 多成员文件可以被标准 gzip 解压
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(multi))) {
+                assertArrayEquals(data, drainBytes(in));
+            }
+            GzipIndex index = GzipIndex.build(multi);
+            assertEquals(data.length, index.getSize());
+            assertEquals((data.length + 999) / 1000, index.getCheckpointCount());
+            assertEquals(1, GzipIndex.build(single).getCheckpointCount());
+            ByteArrayOutputStream persisted = new ByteArrayOutputStream();
+            index.write(persisted);
+            GzipIndex loaded = GzipIndex.read(new ByteArrayInputStream(persisted.toByteArray()));
+            assertEquals(index.getCheckpointCount(), loaded.getCheckpointCount());
+
+            for (MimeInputStream in : new MimeInputStream[]{new GzipMimeInputStream(multi, loaded), MimeInputStream.gzip(single)}) {
+                try (MimeInputStream root = in;
+                     MimeInputStream expected = new ByteArrayMimeInputStream(data)) {
+                    assertLinesEqual(expected, root);
+                    // 随机顺序读取子流，跨越成员边界并向前定位
+                    Random random = new Random(7);
+                    for (int i = 0; i < 50; i++) {
+                        int from = random.nextInt(data.length);
+                        int to = from + random.nextInt(Math.min(5000, data.length - from) + 1);
+                        MimeInputStream sub = root.newStream(from, to);
+                        byte[] buf = new byte[to - from];
+                        int n = 0;
+                        while (n < buf.length) {
+                            int read = sub.read(buf, n, buf.length - n);
+                            if (read < 0) break;
+                            n += read;
+                        }
+                        assertArrayEquals(copyOf(data, from, to), buf);
+                        sub.seek(0);
+                        assertEquals(to > from ? data[from] & 0xFF : -1, sub.read());
+                        sub.close();
+                    }
+                }
+            }
+        } finally {
+            Files.delete(multi);
+            Files.delete(single);
+        }
+    }
+
+    @Test
+    public void testWindowedMimeBytes() throws IOException {
+        byte[] data = Files.readAllBytes(emlFile.toPath());
+        MimeBytes expected = new ByteArrayMimeInputStream(data, 100, data.length - 150);
+        Random random = new Random(31);
+        for (FileAccessMode mode : new FileAccessMode[]{FileAccessMode.RANDOM_ACCESS, FileAccessMode.CHANNEL}) {
+            try (MimeInputStream in = MimeInputStream.of(emlFile, mode);
+                 WindowedMimeBytes view = new WindowedMimeBytes(in.newStream(100, data.length - 50), 64, 3)) {
+                long size = expected.getSize();
+                assertEquals(size, view.getSize());
+                // 随机访问使缓存块被反复替换
+                for (int i = 0; i < 2000; i++) {
+                    long index = (long) (random.nextDouble() * size);
+                    assertEquals(mode + " " + index, expected.get(index), view.get(index));
+                }
+                for (int i = 0; i < 200; i++) {
+                    long from = (long) (random.nextDouble() * size);
+                    long to = from + (long) (random.nextDouble() * Math.min(size - from, 1000));
+                    assertEquals(expected.indexOf((byte) '-', from, to), view.indexOf((byte) '-', from, to));
+                    assertEquals(expected.indexOfLineEnd(from, to), view.indexOfLineEnd(from, to));
+                }
+                MimeInputStream sub = view.newStream(10, 2010);
+                byte[] buf = new byte[2000];
+                assertEquals(2000, sub.read(buf, 0, buf.length));
+                assertArrayEquals(copyOf(data, 110, 2110), buf);
+                sub.close();
+            }
+        }
+    }
+
+    @Test
+    public void testByteScanner() {
+        List<ByteScanner> scanners = new ArrayList<>();
+        scanners.add(ByteScanner.getDefault());
+        if (ByteScanner.vector() != null) {
+            scanners.add(ByteScanner.vector());
+        }
+        ByteScanner scalar = ByteScanner.scalar();
+        Random random = new Random(17);
+        for (int round = 0; round < 500; round++) {
+            byte[] data = new byte[random.nextInt(300)];
+            for (int i = 0; i < data.length; i++) {
+                // 以较低概率出现目标字节，使匹配落在向量主循环和尾部的不同位置
+                int r = random.nextInt(200);
+                data[i] = r == 0 ? (byte) '\r' : r == 1 ? (byte) '\n' : r == 2 ? (byte) '-' : (byte) ('A' + r % 26);
+            }
+            int from = data.length == 0 ? 0 : random.nextInt(data.length);
+            int to = from + random.nextInt(data.length - from + 1);
+            for (ByteScanner scanner : scanners) {
+                assertEquals(scanner.toString(), scalar.indexOfLineEnd(data, from, to), scanner.indexOfLineEnd(data, from, to));
+                assertEquals(scanner.toString(), scalar.indexOf(data, from, to, (byte) '-'), scanner.indexOf(data, from, to, (byte) '-'));
+            }
+        }
+    }
+
+    @Test
+    public void testByteScannerLines() throws IOException {
+        File file = createBase64File(1 << 20);
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            List<ByteScanner> scanners = new ArrayList<>();
+            scanners.add(ByteScanner.scalar());
+            scanners.add(ByteScanner.getDefault());
+            if (ByteScanner.vector() != null) {
+                scanners.add(ByteScanner.vector());
+            }
+            List<Integer> expected = lineEnds(ByteScanner.scalar(), data);
+            // 每行 76 个字符，\r 与 \n 各计一次
+            assertEquals(data.length / 78 * 2, expected.size());
+            for (ByteScanner scanner : scanners) {
+                assertEquals(scanner.toString(), expected, lineEnds(scanner, data));
+                assertEquals(scanner.toString(), -1, scanner.indexOf(data, 0, data.length, (byte) '-'));
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    private static List<Integer> lineEnds(ByteScanner scanner, byte[] data) {
+        List<Integer> ends = new ArrayList<>();
+        for (int pos = 0; pos < data.length; ) {
+            int end = scanner.indexOfLineEnd(data, pos, data.length);
+            if (end < 0) break;
+            ends.add(end);
+            pos = end + 1;
+        }
+        return ends;
+    }
+
+    private static byte[] drainBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int read;
+        while ((read = in.read(buf)) > 0) {
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    static File createBase64File(int size) throws IOException {
+        StringBuilder sb = new StringBuilder(size + size / 38);
+        Random random = new Random(size);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        while (sb.length() < size) {
+            for (int i = 0; i < 76; i++) {
+                sb.append(alphabet.charAt(random.nextInt(64)));
+            }
+            sb.append("\r\n");
+        }
+        File file = Files.createTempFile("eml-parser", ".b64").toFile();
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+
+    /** 逐字节读取整个流，返回所有字节的校验和 */
+    static long drain(MimeInputStream in) throws IOException {
+        long sum = 0;
+        try (MimeInputStream sub = in.newStream(0, -1)) {
+            int b;
+            while ((b = sub.read()) >= 0) {
+                sum = sum * 31 + b;
+            }
+        } finally {
+            in.close();
+        }
+        return sum;
+    }
+
+    static void assertLinesEqual(MimeInputStream expected, MimeInputStream actual) throws IOException {
+        String line;
+        while ((line = expected.readLine()) != null) {
+            assertEquals(line, actual.readLine());
+            assertEquals(expected.getPosition(), actual.getPosition());
+        }
+        assertNull(actual.readLine());
+    }
+
+    static byte[] copyOf(byte[] data, int from, int to) {
+        byte[] copy = new byte[to - from];
+        System.arraycopy(data, from, copy, 0, copy.length);
+        return copy;
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncMultipartParserTest {
+    @Test
+    public void testParseMatchesStandard() throws IOException, ExecutionException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (String eml : EmlFixtures.EMLS) {
+                File file = EmlFixtures.file(eml);
+                List<String> expected;
+                try (EmlMessage message = EmlMessage.of(file)) {
+                    expected = QuicklyAttachmentParserTest.describeParts(MultipartParser.standard().parse(message));
+                }
+                assertFalse(eml, expected.isEmpty());
+                List<MimePart> parts = AsyncMultipartParser.parse(file.toPath(), executor).get();
+                assertEquals(eml, expected, QuicklyAttachmentParserTest.describeParts(parts));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadBodiesOnExecutor() throws Exception {
+        // 单线程的线程池：在回调中读取内容体时，线程池中没有空闲线程可以完成异步读取
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            File file = EmlFixtures.file(EmlFixtures.EMLS.get(0));
+            List<String> expected;
+            try (EmlMessage message = EmlMessage.of(file)) {
+                expected = QuicklyAttachmentParserTest.describeParts(MultipartParser.standard().parse(message));
+            }
+            List<String> actual = AsyncMultipartParser.parse(file.toPath(), executor).thenApplyAsync(parts -> {
+                try {
+                    return QuicklyAttachmentParserTest.describeParts(parts);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor).get(30, TimeUnit.SECONDS);
+            assertEquals(expected, actual);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLongLines() throws Exception {
+        StringBuilder value = new StringBuilder();
+        while (value.length() < 40 * 1024) {
+            value.append("x").append(value.length());
+        }
+        String eml = "Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n"
+                + "--b\r\nContent-Type: text/plain\r\nX-Long: " + value + "\r\n\t" + value + "\r\n\r\nfirst\r\n"
+                + "--b\r\nContent-Type: text/plain\r\n\r\n" + value + value + "--b\r\n\r\nthird\r\n--b--\r\n";
+        byte[] data = eml.getBytes(StandardCharsets.ISO_8859_1);
+        Path path = Files.createTempFile("eml-async", ".eml");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Files.write(path, data);
+            List<String> expected;
+            try (EmlMessage message = EmlMessage.of(path.toFile())) {
+                expected = QuicklyAttachmentParserTest.describeParts(MultipartParser.standard().parse(message));
+            }
+            assertEquals(3, expected.size());
+            // 超长的头部行完整保留，超长的内容体行末尾的 boundary 仍被识别
+            assertTrue(expected.get(0).contains("X-Long: " + value + "\n\t" + value));
+            List<MimePart> parts = AsyncMultipartParser.parse(path, executor).get();
+            assertEquals(expected, QuicklyAttachmentParserTest.describeParts(parts));
+            List<String> scanned = scan(data, data.length);
+            for (int chunk : new int[]{1, 7, 1000, 20000}) {
+                assertEquals("chunk " + chunk, scanned, scan(data, chunk));
+            }
+        } finally {
+            executor.shutdown();
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testScannerChunkBoundaries() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            byte[] data = Files.readAllBytes(EmlFixtures.file(eml).toPath());
+            List<String> expected = scan(data, data.length);
+            for (int chunk = 1; chunk <= 7; chunk++) {
+                assertEquals(eml + " chunk " + chunk, expected, scan(data, chunk));
+            }
+        }
+    }
+
+    private static List<String> scan(byte[] data, int chunk) {
+        List<String> result = new ArrayList<>();
+        MultipartScanner scanner = new MultipartScanner(new MultipartScanner.Listener() {
+            @Override
+            public void onHeaders(List<String> headers, long bodyStart) {
+                result.add(headers + "@" + bodyStart);
+            }
+
+            @Override
+            public void onPart(List<String> headers, long bodyStart, long end) {
+                result.add(headers + "@" + bodyStart + "-" + end);
+            }
+        });
+        for (int off = 0; off < data.length && !scanner.isDone(); off += chunk) {
+            scanner.feed(data, off, Math.min(chunk, data.length - off));
+        }
+        scanner.finish();
+        return result;
+    }
+}
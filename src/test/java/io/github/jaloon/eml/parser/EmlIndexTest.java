@@ -0,0 +1,126 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EmlIndexTest {
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("eml-index");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testMatchesQuickParser() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            Path path = Files.copy(EmlFixtures.file(eml).toPath(), dir.resolve(eml));
+            List<String> expected = QuicklyAttachmentParserTest.describe(EmlMessage.of(path.toFile(), FileAccessMode.MAPPED));
+            assertFalse(eml, expected.isEmpty());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            EmlIndex.build(path).write(out);
+            EmlIndex index = EmlIndex.read(new ByteArrayInputStream(out.toByteArray()));
+            assertTrue(eml, index.getEntries().size() > expected.size());
+            EmlMessage message = EmlMessage.open(path, index);
+            assertEquals(eml, expected, QuicklyAttachmentParserTest.describe(message, message.getIndex().parse(message)));
+
+            // 非附件的 part（如正文）同样可以按索引单独构建
+            try (EmlMessage reopened = EmlMessage.open(path, index)) {
+                for (EmlIndex.Entry entry : index.getEntries()) {
+                    MimePart part = index.part(reopened, entry);
+                    assertEquals(entry.getContentType(), part.getContentType());
+                    assertEquals(entry.getEndOffset() - entry.getBodyOffset(), part.getBody().getSize());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testContentTypeWithoutSpace() throws IOException {
+        String eml = "Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n"
+                + "--b\r\nContent-Type:text/html\r\n\r\n<p>html</p>\r\n"
+                + "--b\r\nContent-Type:\ttext/plain\r\n\r\ntext\r\n"
+                + "--b--\r\n";
+        Path path = dir.resolve("no-space.eml");
+        Files.write(path, eml.getBytes(StandardCharsets.ISO_8859_1));
+        EmlIndex index = EmlIndex.build(path);
+        assertEquals(2, index.getEntries().size());
+        assertEquals("text/html", index.getEntries().get(0).getContentType());
+        assertEquals("text/plain", index.getEntries().get(1).getContentType());
+        try (EmlMessage message = EmlMessage.open(path, index)) {
+            for (EmlIndex.Entry entry : index.getEntries()) {
+                assertEquals(entry.getContentType(), index.part(message, entry).getContentType());
+            }
+        }
+    }
+
+    @Test
+    public void testSidecar() throws IOException {
+        String eml = EmlFixtures.EMLS.get(0);
+        Path path = Files.copy(EmlFixtures.file(eml).toPath(), dir.resolve(eml));
+        Path sidecar = EmlIndex.sidecarOf(path);
+        assertEquals(eml + ".idx", sidecar.getFileName().toString());
+
+        List<String> expected;
+        try (EmlMessage message = EmlMessage.open(path)) {
+            assertNotNull(message.getIndex());
+            expected = QuicklyAttachmentParserTest.describe(message, message.getIndex().parse(message));
+        }
+        assertTrue(Files.exists(sidecar));
+        FileTime written = Files.getLastModifiedTime(sidecar);
+        EmlIndex index = EmlIndex.loadOrBuild(path);
+        assertEquals(written, Files.getLastModifiedTime(sidecar));
+
+        // 文件变化后旧索引失效
+        Files.write(path, "\r\n".getBytes(), StandardOpenOption.APPEND);
+        assertFalse(index.isValidFor(path));
+        try {
+            EmlMessage.open(path, index);
+            fail("stale index accepted");
+        } catch (IOException expectedException) {
+            // 索引已过期
+        }
+        try (EmlMessage message = EmlMessage.open(path)) {
+            assertTrue(message.getIndex().isValidFor(path));
+            assertEquals(expected, QuicklyAttachmentParserTest.describe(message, message.getIndex().parse(message)));
+        }
+
+        // 损坏的旁路索引被重新构建
+        Files.write(sidecar, new byte[]{1, 2, 3});
+        assertTrue(EmlIndex.loadOrBuild(path).isValidFor(path));
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalMultipartParserTest {
+    @Test
+    public void testGrowingFileMatchesStandard() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            List<String> expected;
+            try (EmlMessage message = EmlMessage.of(file)) {
+                expected = QuicklyAttachmentParserTest.describeParts(MultipartParser.standard().parse(message));
+            }
+            assertFalse(eml, expected.isEmpty());
+            byte[] data = Files.readAllBytes(file.toPath());
+            for (int chunk : new int[]{997, 64 * 1024}) {
+                Path path = Files.createTempFile("eml-incremental", ".eml");
+                try (OutputStream out = Files.newOutputStream(path);
+                     IncrementalMultipartParser parser = new IncrementalMultipartParser(path)) {
+                    List<MimePart> parts = new ArrayList<>();
+                    for (int off = 0; off < data.length; off += chunk) {
+                        out.write(data, off, Math.min(chunk, data.length - off));
+                        out.flush();
+                        parts.addAll(parser.poll());
+                        assertEquals(Math.min(off + chunk, data.length), parser.getPosition());
+                    }
+                    parts.addAll(parser.finish());
+                    assertTrue(parser.isDone());
+                    assertEquals(eml + " chunk " + chunk, expected, QuicklyAttachmentParserTest.describeParts(parts));
+                } finally {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPartsEmittedOnBoundary() throws IOException {
+        String head = "Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n--b\r\n"
+                + "Content-Type: text/plain\r\n\r\nfirst\r\n";
+        String second = "--b\r\nContent-Type: text/plain\r\n\r\nsecond";
+        Path path = Files.createTempFile("eml-incremental", ".eml");
+        try (IncrementalMultipartParser parser = new IncrementalMultipartParser(path)) {
+            assertTrue(parser.poll().isEmpty());
+            assertNull(parser.getHeaders());
+
+            Files.write(path, head.getBytes(StandardCharsets.ISO_8859_1));
+            assertTrue(parser.poll().isEmpty());
+            assertEquals(1, parser.getHeaders().size());
+
+            // 只扫描到已提交的长度，boundary 行不完整时不返回部分
+            Files.write(path, (head + second).getBytes(StandardCharsets.ISO_8859_1));
+            assertTrue(parser.poll(head.length() + 3).isEmpty());
+            List<MimePart> parts = parser.poll();
+            assertEquals(1, parts.size());
+            assertEquals("first\r\n", read(parts.get(0)));
+            assertFalse(parser.isDone());
+
+            // 缺少结束边界时由 finish 返回最后一个部分
+            parts = parser.finish();
+            assertEquals(1, parts.size());
+            assertEquals("second", read(parts.get(0)));
+            assertTrue(parser.isDone());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static String read(MimePart part) throws IOException {
+        byte[] bytes = new byte[(int) part.getBody().getSize()];
+        part.getBody().seek(0);
+        int n = part.getBody().read(bytes);
+        part.getBody().close();
+        return new String(bytes, 0, Math.max(n, 0), StandardCharsets.ISO_8859_1);
+    }
+}
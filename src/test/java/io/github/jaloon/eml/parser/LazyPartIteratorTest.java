@@ -0,0 +1,105 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyPartIteratorTest {
+    @Test
+    public void testIteratorMatchesParse() throws IOException {
+        for (MultipartParser parser : Arrays.asList(MultipartParser.standard(), MultipartParser.quickly())) {
+            for (String eml : EmlFixtures.EMLS) {
+                File file = EmlFixtures.file(eml);
+                List<String> expected;
+                try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                    expected = describe(parser.parse(message));
+                }
+                assertFalse(eml, expected.isEmpty());
+                try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                    List<MimePart> parts = new ArrayList<>();
+                    parser.iterator(message).forEachRemaining(parts::add);
+                    assertEquals(eml, expected, describe(parts));
+                }
+                try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                    assertEquals(eml, expected, describe(parser.stream(message).collect(Collectors.toList())));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStopEarly() throws IOException {
+        byte[] data = largeMessage();
+        AtomicLong scanned = new AtomicLong();
+        MultipartParser parser = QuicklyAttachmentParser.builder().boundarySearcher(pattern -> {
+            BoundarySearcher searcher = BoundarySearcher.HORSPOOL.compile(pattern);
+            return (bytes, from, to) -> {
+                long index = searcher.indexOf(bytes, from, to);
+                scanned.addAndGet((index < 0 ? to : index) - from);
+                return index;
+            };
+        }).build();
+
+        try (EmlMessage message = EmlMessage.of(data)) {
+            Optional<MimePart> first = parser.stream(message).findFirst();
+            assertTrue(first.isPresent());
+            assertEquals("a.txt", first.get().getAttachName());
+        }
+        long lazy = scanned.getAndSet(0);
+        try (EmlMessage message = EmlMessage.of(data)) {
+            assertEquals(2, parser.parse(message).size());
+        }
+        assertTrue(lazy < data.length / 4);
+        assertTrue(scanned.get() > data.length / 2);
+
+        // 标准解析器同样只读取到第一个部分所在的位置
+        try (EmlMessage message = EmlMessage.of(data)) {
+            Iterator<MimePart> parts = MultipartParser.standard().iterator(message);
+            assertTrue(parts.hasNext());
+            assertEquals("a.txt", parts.next().getAttachName());
+            assertTrue(message.getBody().getPosition() < data.length / 4);
+        }
+    }
+
+    /**
+     * 构造一个第一个附件之后跟随 4MB 正文的邮件
+     */
+    private static byte[] largeMessage() throws IOException {
+        byte[] padding = new byte[4 << 20];
+        Arrays.fill(padding, (byte) 'A');
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n"
+                + "--b\r\nContent-Disposition: attachment; filename=\"a.txt\"\r\n\r\nabc\r\n"
+                + "--b\r\nContent-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.write(padding);
+        out.write(("\r\n--b\r\nContent-Disposition: attachment; filename=\"b.txt\"\r\n\r\nxyz\r\n"
+                + "--b--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        return out.toByteArray();
+    }
+
+    private static List<String> describe(List<MimePart> parts) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (MimePart part : parts) {
+            result.add(part.getHeaders() + ":" + QuicklyAttachmentParserTest.digest(part.getInputStream()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MimeTreeParserTest {
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // 阈值为 0 时每个 multipart 子树都提交为独立任务
+            MimeTreeParser parallel = new MimeTreeParser(pool, 0);
+            for (String eml : EmlFixtures.EMLS) {
+                File file = EmlFixtures.file(eml);
+                List<String> expected;
+                try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                    expected = describe(new MimeTreeParser().parse(message));
+                }
+                assertTrue(eml, expected.size() > 1);
+                try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                    assertEquals(eml, expected, describe(parallel.parse(message)));
+                }
+                try (EmlMessage message = EmlMessage.of(Files.readAllBytes(file.toPath()))) {
+                    assertEquals(eml, expected, describe(parallel.parse(message)));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNestedTree() throws IOException {
+        String eml = "Content-Type: multipart/mixed; boundary=\"b1\"\r\n"
+                + "\r\n"
+                + "--b1\r\n"
+                + "Content-Type: multipart/alternative; boundary=\"b2\"\r\n"
+                + "\r\n"
+                + "--b2\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + "hello\r\n"
+                + "--b2\r\n"
+                + "Content-Type: multipart/related; boundary=\"b3\"\r\n"
+                + "\r\n"
+                + "--b3\r\n"
+                + "Content-Type: text/html\r\n"
+                + "\r\n"
+                + "<img src=\"cid:a\">\r\n"
+                + "--b3\r\n"
+                + "Content-Type: image/png\r\n"
+                + "Content-ID: <a>\r\n"
+                + "\r\n"
+                + "iVBORw0KGgo=\r\n"
+                + "--b3--\r\n"
+                + "--b2--\r\n"
+                + "--b1\r\n"
+                + "Content-Disposition: attachment; filename=\"a.txt\"\r\n"
+                + "\r\n"
+                + "abc\r\n"
+                + "--b1--\r\n";
+        byte[] data = eml.getBytes(StandardCharsets.ISO_8859_1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (MimeTreeParser parser : Arrays.asList(new MimeTreeParser(), new MimeTreeParser(pool, 0))) {
+                try (EmlMessage message = EmlMessage.of(data)) {
+                    MimeNode root = parser.parse(message);
+                    assertTrue(root.isMultipart());
+                    assertEquals(2, root.getChildren().size());
+                    MimeNode alternative = root.getChildren().get(0);
+                    assertEquals(1, alternative.getDepth());
+                    assertEquals(2, alternative.getChildren().size());
+                    MimeNode related = alternative.getChildren().get(1);
+                    assertTrue(related.isMultipart());
+                    assertEquals(2, related.getChildren().size());
+                    assertEquals("image/png", related.getChildren().get(1).getPart().getContentType());
+                    assertEquals(3, related.getChildren().get(1).getDepth());
+                    MimeNode attachment = root.getChildren().get(1);
+                    assertFalse(attachment.isMultipart());
+                    assertEquals("a.txt", attachment.getPart().getAttachName());
+
+                    List<String> types = root.stream()
+                            .map(node -> node.getPart().getContentType())
+                            .collect(Collectors.toList());
+                    assertEquals(Arrays.asList("multipart/mixed; boundary=\"b1\"", "multipart/alternative; boundary=\"b2\"",
+                            "text/plain", "multipart/related; boundary=\"b3\"", "text/html", "image/png", null), types);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // 非 multipart 邮件只有一个根节点
+        try (EmlMessage message = EmlMessage.of("Content-Type: text/plain\r\n\r\nhi\r\n".getBytes(StandardCharsets.ISO_8859_1))) {
+            MimeNode root = new MimeTreeParser().parse(message);
+            assertFalse(root.isMultipart());
+            assertEquals(1, root.stream().count());
+        }
+    }
+
+    /**
+     * 按先序记录每个节点的深度、头部和原始内容体摘要，multipart 节点不读取内容体
+     */
+    private static List<String> describe(MimeNode root) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (MimeNode node : root.stream().collect(Collectors.toList())) {
+            MimePart part = node.getPart();
+            byte[] body = node.isMultipart() ? new byte[0] : EmlFixtures.readAll(part.getBody());
+            result.add(node.getDepth() + " " + part.getHeaders() + " " + node.getChildren().size()
+                    + " " + body.length + "/" + Arrays.hashCode(body));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParserLimitsTest {
+    @Test
+    public void testGenerousLimitsUnchanged() throws IOException {
+        ParserLimits limits = ParserLimits.builder()
+                .maxDepth(16).maxParts(1000).maxHeaderBytes(64 * 1024).maxLineLength(16 * 1024).maxScanBytes(1L << 30)
+                .build();
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED);
+                 EmlMessage limited = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                assertEquals(eml, QuicklyAttachmentParserTest.describeParts(MultipartParser.quickly().parse(message)),
+                        QuicklyAttachmentParserTest.describeParts(MultipartParser.quickly(limits).parse(limited)));
+            }
+            try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED);
+                 EmlMessage other = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                assertEquals(eml, names(MultipartParser.standard().parse(message)),
+                        names(MultipartParser.standard(limits).parse(other)));
+            }
+        }
+    }
+
+    @Test
+    public void testDepth() throws IOException {
+        // 第 i 层的 boundary 为 "=i="，各层之间互不为前缀
+        StringBuilder eml = new StringBuilder("Content-Type: multipart/mixed; boundary=\"=0=\"\r\n\r\n");
+        int depth = 100;
+        for (int i = 1; i <= depth; i++) {
+            eml.append("--=").append(i - 1).append("=\r\nContent-Type: multipart/mixed; boundary=\"=").append(i).append("=\"\r\n\r\n");
+        }
+        eml.append("--=").append(depth).append("=\r\nContent-Type: text/plain\r\n\r\ntext\r\n");
+        for (int i = depth; i >= 0; i--) {
+            eml.append("--=").append(i).append("=--\r\n");
+        }
+        byte[] data = eml.toString().getBytes(StandardCharsets.ISO_8859_1);
+        // 邮件体为第 1 层，最内层的 text/plain 位于第 depth + 1 层
+        assertEquals(0, parse(MultipartParser.quickly(ParserLimits.builder().maxDepth(depth + 1).build()), data).size());
+        expect(ParserLimits.Limit.DEPTH, MultipartParser.quickly(ParserLimits.builder().maxDepth(depth).build()), data);
+        expect(ParserLimits.Limit.DEPTH, singlePass(ParserLimits.builder().maxDepth(depth).build()), data);
+    }
+
+    @Test
+    public void testPartsAndScanBytes() throws IOException {
+        StringBuilder eml = new StringBuilder("Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n");
+        for (int i = 0; i < 50; i++) {
+            eml.append("--b\r\nContent-Type: text/plain\r\n\r\npart ").append(i).append("\r\n");
+        }
+        eml.append("--b--\r\n");
+        byte[] data = eml.toString().getBytes(StandardCharsets.ISO_8859_1);
+        ParserLimits parts = ParserLimits.builder().maxParts(49).build();
+        ParserLimits scan = ParserLimits.builder().maxScanBytes(1000).build();
+        assertEquals(50, parse(MultipartParser.standard(ParserLimits.builder().maxParts(50).build()), data).size());
+        expect(ParserLimits.Limit.PARTS, MultipartParser.standard(parts), data);
+        expect(ParserLimits.Limit.PARTS, MultipartParser.quickly(parts), data);
+        expect(ParserLimits.Limit.SCAN_BYTES, MultipartParser.standard(scan), data);
+        expect(ParserLimits.Limit.SCAN_BYTES, MultipartParser.quickly(scan), data);
+        expect(ParserLimits.Limit.PARTS, singlePass(parts), data);
+        expect(ParserLimits.Limit.SCAN_BYTES, singlePass(scan), data);
+    }
+
+    @Test
+    public void testHeaders() throws IOException {
+        String head = "Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n--b\r\n";
+        String header = "Content-Disposition: attachment; filename=\"a.txt\"\r\n";
+        // 折叠头部的两行均短于 Content-Disposition，合计 70 字节
+        String tail = "X-Folded: 012345678901234567890123456789\r\n 01234567890123456789012345678\r\n\r\nbody\r\n--b--\r\n";
+        byte[] data = (head + header + tail).getBytes(StandardCharsets.ISO_8859_1);
+        int headerBytes = header.length() + tail.indexOf("\r\n\r\n") + 2;
+        ParserLimits fits = ParserLimits.builder().maxHeaderBytes(headerBytes).maxLineLength(70).build();
+        ParserLimits headerLimit = ParserLimits.builder().maxHeaderBytes(headerBytes - 1).build();
+        ParserLimits lineLimit = ParserLimits.builder().maxLineLength(69).build();
+        assertEquals(1, parse(MultipartParser.standard(fits), data).size());
+        assertEquals(1, parse(MultipartParser.quickly(fits), data).size());
+        expect(ParserLimits.Limit.HEADER_BYTES, MultipartParser.standard(headerLimit), data);
+        expect(ParserLimits.Limit.HEADER_BYTES, MultipartParser.quickly(headerLimit), data);
+        expect(ParserLimits.Limit.HEADER_BYTES, singlePass(headerLimit), data);
+        expect(ParserLimits.Limit.LINE_LENGTH, MultipartParser.standard(lineLimit), data);
+        expect(ParserLimits.Limit.LINE_LENGTH, MultipartParser.quickly(lineLimit), data);
+        expect(ParserLimits.Limit.LINE_LENGTH, singlePass(lineLimit), data);
+
+        // 缺少空行的超长头部在上限处即停止扫描
+        char[] pad = new char[100000];
+        Arrays.fill(pad, 'x');
+        data = (head + "X-Pad: " + new String(pad) + "\r\n--b--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        expect(ParserLimits.Limit.HEADER_BYTES, MultipartParser.quickly(ParserLimits.builder().maxHeaderBytes(1024).build()), data);
+        expect(ParserLimits.Limit.HEADER_BYTES, singlePass(ParserLimits.builder().maxHeaderBytes(1024).build()), data);
+        expect(ParserLimits.Limit.HEADER_BYTES, MultipartParser.standard(ParserLimits.builder().maxHeaderBytes(1024).build()), data);
+
+        // 基于文件的邮件逐行读取时同样在上限处停止，不会将缺少行结束符的超长行整行读入
+        Path path = Files.createTempFile("eml-limits", ".eml");
+        try {
+            Files.write(path, data);
+            for (FileAccessMode mode : FileAccessMode.values()) {
+                try (EmlMessage message = EmlMessage.of(path.toFile(), mode)) {
+                    MultipartParser.standard(ParserLimits.builder().maxHeaderBytes(1024).build()).parse(message);
+                    fail("limit not enforced: " + mode);
+                } catch (ParserLimitException e) {
+                    assertEquals(ParserLimits.Limit.HEADER_BYTES, e.getLimit());
+                }
+                try (EmlMessage message = EmlMessage.of(path.toFile(), mode)) {
+                    try {
+                        MultipartParser.standard(ParserLimits.builder().maxScanBytes(4096).build()).parse(message);
+                        fail("limit not enforced: " + mode);
+                    } catch (ParserLimitException e) {
+                        assertEquals(ParserLimits.Limit.SCAN_BYTES, e.getLimit());
+                    }
+                    assertTrue(mode.name(), message.getBody().getPosition() <= 4097);
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static MultipartParser singlePass(ParserLimits limits) {
+        return QuicklyAttachmentParser.builder().singlePass(true).limits(limits).build();
+    }
+
+    private static List<MimePart> parse(MultipartParser parser, byte[] data) throws IOException {
+        try (EmlMessage message = EmlMessage.of(data)) {
+            return parser.parse(message);
+        }
+    }
+
+    private static void expect(ParserLimits.Limit limit, MultipartParser parser, byte[] data) throws IOException {
+        try {
+            parse(parser, data);
+            fail("limit not enforced: " + limit);
+        } catch (ParserLimitException e) {
+            assertEquals(limit, e.getLimit());
+        }
+    }
+
+    private static List<String> names(List<MimePart> parts) {
+        String[] names = new String[parts.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = parts.get(i).getHeaders().toString();
+        }
+        return Arrays.asList(names);
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.ByteArrayMimeInputStream;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PartClassifierTest {
+    private static final String EML = "Content-Type: multipart/mixed; boundary=\"=m=\"\r\n\r\n"
+            + "--=m=\r\nContent-Type: multipart/related; boundary=\"=r=\"\r\n\r\n"
+            + "--=r=\r\nContent-Type: text/html\r\n\r\n<img src=\"cid:logo\">\r\n"
+            + "--=r=\r\nContent-Type: image/png\r\nContent-ID: <logo>\r\n\r\nPNG\r\n"
+            + "--=r=--\r\n"
+            + "--=m=\r\nContent-Type: application/pdf\r\nContent-Disposition: attachment; filename=\"a.pdf\"\r\n\r\nPDF\r\n"
+            + "--=m=\r\ncontent-type: text/plain\r\ncontent-disposition: ATTACHMENT;\r\n filename=\"b.txt\"\r\n\r\nTXT\r\n"
+            + "--=m=\r\nContent-Type: application/octet-stream; name=\"c.bin\"\r\n\r\nBIN\r\n"
+            + "--=m=\r\nContent-Type: message/rfc822\r\n\r\nSubject: fwd\r\n\r\nforwarded\r\n"
+            + "--=m=\r\nContent-Type: application/ms-tnef; name=\"winmail.dat\"\r\nContent-Disposition: inline\r\n\r\nTNEF\r\n"
+            + "--=m=--\r\n";
+
+    @Test
+    public void testBuiltInClassifiers() throws IOException {
+        for (boolean singlePass : new boolean[]{false, true}) {
+            assertEquals(Arrays.asList("a.pdf:PDF", "b.txt:TXT"), parse(PartClassifier.DEFAULT, singlePass));
+            assertEquals(Arrays.asList(":PNG", "a.pdf:PDF", "b.txt:TXT", "c.bin:BIN", ":Subject: fwd\r\n\r\nforwarded",
+                    "winmail.dat:TNEF"), parse(PartClassifier.EXTENDED, singlePass));
+            assertEquals(Arrays.asList(":PNG"), parse(PartClassifier.chain(PartClassifier.MULTIPART, PartClassifier.INLINE_IMAGE), singlePass));
+            // 不展开 multipart/related 时其中的图片不会被扫描
+            assertEquals(Arrays.asList("c.bin:BIN", "winmail.dat:TNEF"),
+                    parse(PartClassifier.chain(PartClassifier.INLINE_IMAGE, PartClassifier.NAMED, PartClassifier.MS_TNEF), singlePass));
+        }
+    }
+
+    @Test
+    public void testCustomClassifier() throws IOException {
+        for (boolean singlePass : new boolean[]{false, true}) {
+            // 整体保留 multipart/related
+            PartClassifier related = headers -> headers.hasType("Content-Type", "multipart/related")
+                    ? PartClassifier.Decision.KEEP : null;
+            List<String> parts = parse(PartClassifier.chain(related, PartClassifier.DEFAULT), singlePass);
+            assertEquals(3, parts.size());
+            assertTrue(parts.get(0), parts.get(0).startsWith(":--=r=\r\n"));
+            // 按内容体大小与深度保留
+            PartClassifier small = headers -> headers.depth() == 1 && headers.bodySize() == 3
+                    ? PartClassifier.Decision.KEEP : null;
+            assertEquals(Arrays.asList("a.pdf:PDF", "b.txt:TXT", "c.bin:BIN"),
+                    parse(PartClassifier.chain(PartClassifier.MULTIPART, small), singlePass));
+        }
+        // 保留的 part 再应用筛选条件
+        try (EmlMessage message = EmlMessage.of(EML.getBytes(StandardCharsets.ISO_8859_1))) {
+            PartFilter inline = PartFilter.builder().disposition("inline").build();
+            List<MimePart> parts = QuicklyAttachmentParser.builder().classifier(PartClassifier.EXTENDED).build().parse(message, inline);
+            assertEquals(1, parts.size());
+            assertEquals("winmail.dat", parts.get(0).getAttachName());
+        }
+    }
+
+    @Test
+    public void testExtendedSinglePass() throws IOException {
+        MultipartParser levels = QuicklyAttachmentParser.builder().classifier(PartClassifier.EXTENDED).build();
+        MultipartParser singlePass = QuicklyAttachmentParser.builder().classifier(PartClassifier.EXTENDED).singlePass(true).build();
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED);
+            List<String> expected = QuicklyAttachmentParserTest.describe(message, levels.parse(message));
+            // 扩展的分类器至少保留默认分类器保留的全部附件
+            assertTrue(eml, expected.containsAll(QuicklyAttachmentParserTest.describe(EmlMessage.of(file, FileAccessMode.MAPPED))));
+            message = EmlMessage.of(file, FileAccessMode.MAPPED);
+            assertEquals(eml, expected, QuicklyAttachmentParserTest.describe(message, singlePass.parse(message)));
+        }
+    }
+
+    @Test
+    public void testPartHeaders() {
+        String head = "Content-Type : Application/PDF;\r\n\tname*0=\"long\"; name*1=\"name.pdf\"\r\n"
+                + "X-Empty:\r\nnot a header\r\nContent-ID: <a>\r\nContent-ID: <b>\r\n\r\nbody";
+        byte[] bytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        PartHeaders headers = new PartHeaders().scan(new ByteArrayMimeInputStream(bytes), 0, head.indexOf("body"), 2, 4);
+        assertEquals(2, headers.depth());
+        assertEquals(4, headers.bodySize());
+        assertTrue(headers.contains("content-type"));
+        assertTrue(headers.contains("X-Empty"));
+        assertFalse(headers.contains("not a header"));
+        assertTrue(headers.valueStartsWith("Content-Type", "application/"));
+        assertTrue(headers.hasType("CONTENT-TYPE", "application/pdf"));
+        assertFalse(headers.hasType("Content-Type", "application/pd"));
+        assertTrue(headers.hasParameter("Content-Type", "name"));
+        assertFalse(headers.hasParameter("Content-Type", "filename"));
+        assertFalse(headers.hasType("Content-Disposition", "attachment"));
+        assertEquals("", headers.value("X-Empty"));
+        // 同名头部以最后一个为准
+        assertEquals("<b>", headers.value("Content-ID"));
+        assertNull(headers.value("Subject"));
+    }
+
+    private static List<String> parse(PartClassifier classifier, boolean singlePass) throws IOException {
+        MultipartParser parser = QuicklyAttachmentParser.builder().classifier(classifier).singlePass(singlePass).build();
+        List<String> result = new ArrayList<>();
+        try (EmlMessage message = EmlMessage.of(EML.getBytes(StandardCharsets.ISO_8859_1))) {
+            for (MimePart part : parser.parse(message)) {
+                byte[] body = new byte[(int) part.getBody().getSize()];
+                part.getBody().seek(0);
+                int n = part.getBody().read(body);
+                result.add(part.getAttachName() + ":" + new String(body, 0, Math.max(n, 0), StandardCharsets.ISO_8859_1));
+            }
+        }
+        return result;
+    }
+}
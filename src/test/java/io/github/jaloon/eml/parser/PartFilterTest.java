@@ -0,0 +1,154 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.part.MimePart;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PartFilterTest {
+    @Test
+    public void testGlob() {
+        assertTrue(PartFilter.glob("*.docx", "report.docx"));
+        assertTrue(PartFilter.glob("application/vnd.*", "application/vnd.ms-excel"));
+        assertTrue(PartFilter.glob("a?c*", "abc"));
+        assertTrue(PartFilter.glob("*a*b", "xaxxab"));
+        assertFalse(PartFilter.glob("*.doc", "report.docx"));
+        assertFalse(PartFilter.glob("a?c", "ac"));
+    }
+
+    @Test
+    public void testMatchesPostFiltering() throws IOException {
+        List<PartFilter> filters = Arrays.asList(
+                PartFilter.builder().build(),
+                PartFilter.builder().contentType("application/*").build(),
+                PartFilter.builder().contentType("image/*", "text/*").build(),
+                PartFilter.builder().filename("*.pdf", "*.docx", "*.xlsx", "*.zip").build(),
+                PartFilter.builder().minSize(10000).build(),
+                PartFilter.builder().maxSize(10000).disposition("attachment").build(),
+                PartFilter.builder().disposition("inline").build());
+        for (MultipartParser parser : Arrays.asList(MultipartParser.standard(), MultipartParser.quickly())) {
+            for (String eml : EmlFixtures.EMLS) {
+                File file = EmlFixtures.file(eml);
+                for (PartFilter filter : filters) {
+                    List<String> expected = new ArrayList<>();
+                    try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                        for (MimePart part : parser.parse(message)) {
+                            if (filter.test(part)) {
+                                expected.add(describe(part));
+                            }
+                        }
+                    }
+                    List<String> actual = new ArrayList<>();
+                    try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                        for (MimePart part : parser.parse(message, filter)) {
+                            actual.add(describe(part));
+                        }
+                    }
+                    assertEquals(eml, expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSelectiveQuickParse() throws IOException {
+        String eml = "Content-Type: multipart/mixed; boundary=\"b\"\r\n"
+                + "\r\n"
+                + "--b\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + "body\r\n"
+                + "--b\r\n"
+                + "Content-Type: application/pdf; name=\"a.pdf\"\r\n"
+                + "Content-Disposition: attachment; size=10\r\n"
+                + "\r\n"
+                + "0123456789\r\n"
+                + "--b\r\n"
+                + "Content-Type: application/vnd.openxmlformats-officedocument.wordprocessingml.document\r\n"
+                + "Content-Disposition: attachment; filename=\"Report.DOCX\"\r\n"
+                + "\r\n"
+                + "01234567890123456789\r\n"
+                + "--b\r\n"
+                + "Content-Type: image/png\r\n"
+                + "Content-Disposition: attachment; filename=\"logo.png\"\r\n"
+                + "\r\n"
+                + "0123\r\n"
+                + "--b--\r\n";
+        byte[] data = eml.getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(Arrays.asList("Report.DOCX"),
+                names(PartFilter.builder().filename("*.docx", "*.zip").build(), data));
+        assertEquals(Arrays.asList("a.pdf", "Report.DOCX"),
+                names(PartFilter.builder().contentType("application/pdf", "application/vnd.*").build(), data));
+        assertEquals(Arrays.asList("a.pdf", "logo.png"),
+                names(PartFilter.builder().maxSize(10).build(), data));
+        assertEquals(Arrays.asList("a.pdf"),
+                names(PartFilter.builder().minSize(5).maxSize(10).build(), data));
+    }
+
+    @Test
+    public void testHeaderLookup() throws IOException {
+        // 头部名称大小写不一、同名头部重复出现时，解析时筛选与解析后筛选按相同规则取值
+        String eml = "Content-Type: multipart/mixed; boundary=\"b\"\r\n"
+                + "\r\n"
+                + "--b\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "content-type: application/pdf; name=\"a.pdf\"\r\n"
+                + "content-disposition: attachment;\r\n"
+                + "\tfilename=\"a.pdf\"\r\n"
+                + "\r\n"
+                + "0123456789\r\n"
+                + "--b\r\n"
+                + "Content-Type: image/png\r\n"
+                + "Content-Disposition: attachment; filename=\"logo.png\"\r\n"
+                + "CONTENT-DISPOSITION: inline; filename=\"logo.png\"\r\n"
+                + "\r\n"
+                + "0123\r\n"
+                + "--b--\r\n";
+        byte[] data = eml.getBytes(StandardCharsets.ISO_8859_1);
+        List<PartFilter> filters = Arrays.asList(
+                PartFilter.builder().disposition("attachment").build(),
+                PartFilter.builder().disposition("inline").build(),
+                PartFilter.builder().contentType("application/pdf").build(),
+                PartFilter.builder().contentType("text/*").build(),
+                PartFilter.builder().filename("*.pdf").build());
+        for (PartFilter filter : filters) {
+            List<String> expected = new ArrayList<>();
+            try (EmlMessage message = EmlMessage.of(data)) {
+                for (MimePart part : MultipartParser.quickly().parse(message)) {
+                    if (filter.test(part)) {
+                        expected.add(part.getAttachName());
+                    }
+                }
+            }
+            assertEquals(expected, names(filter, data));
+        }
+        assertEquals(Arrays.asList("a.pdf"), names(filters.get(0), data));
+        assertEquals(Arrays.asList("a.pdf"), names(filters.get(2), data));
+    }
+
+    private static List<String> names(PartFilter filter, byte[] data) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (EmlMessage message = EmlMessage.of(data)) {
+            for (MimePart part : MultipartParser.quickly().parse(message, filter)) {
+                names.add(part.getAttachName());
+            }
+        }
+        return names;
+    }
+
+    private static String describe(MimePart part) throws IOException {
+        return part.getHeaders() + ":" + QuicklyAttachmentParserTest.digest(part.getInputStream());
+    }
+}
@@ -0,0 +1,496 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.BufferPool;
+import io.github.jaloon.eml.io.ByteArrayMimeInputStream;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.io.GzipMimeInputStream;
+import io.github.jaloon.eml.io.MimeBytes;
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.io.SegmentedMimeInputStream;
+import io.github.jaloon.eml.part.MimePart;
+import io.github.jaloon.eml.part.MultiMimePart;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QuicklyAttachmentParserTest {
+    @Test
+    public void testFileAccessModes() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            List<String> expected = describe(EmlMessage.of(Files.readAllBytes(file.toPath())));
+            assertFalse(eml, expected.isEmpty());
+            for (FileAccessMode mode : FileAccessMode.values()) {
+                assertEquals(eml + " " + mode, expected, describe(EmlMessage.of(file, mode)));
+            }
+        }
+    }
+
+    @Test
+    public void testTransferToAfterPartialRead() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            for (FileAccessMode mode : FileAccessMode.values()) {
+                try (EmlMessage message = EmlMessage.of(file, mode)) {
+                    for (MimePart part : MultipartParser.standard().parse(message)) {
+                        String expected = digest(part.getInputStream());
+                        // 读取部分内容后再写出，解码与直接复制两种路径都应从内容体开头写入完整内容
+                        part.getBody().seek(0);
+                        part.getBody().read(new byte[16]);
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        part.transferTo(Channels.newChannel(out));
+                        assertEquals(eml + " " + mode + " " + part.getHeaders(), expected,
+                                digest(new ByteArrayInputStream(out.toByteArray())));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWindowedBody() throws IOException {
+        MultipartParser windowed = QuicklyAttachmentParser.builder().windowedBody(true).build();
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            List<String> expected = describe(EmlMessage.of(file, FileAccessMode.MAPPED));
+            for (FileAccessMode mode : new FileAccessMode[]{FileAccessMode.RANDOM_ACCESS, FileAccessMode.CHANNEL}) {
+                EmlMessage message = EmlMessage.of(file, mode);
+                List<MimePart> parts = windowed.parse(message);
+                // 附件内容体为文件的子流，而不是读入内存的副本
+                for (MimePart part : parts) {
+                    assertFalse(eml + " " + mode, part.getBody() instanceof MimeBytes);
+                }
+                assertEquals(eml + " " + mode, expected, describe(message, parts));
+
+                // 默认读入内存，附件内容体在邮件关闭后仍可读取
+                message = EmlMessage.of(file, mode);
+                parts = MultipartParser.quickly().parse(message);
+                message.close();
+                List<String> actual = new ArrayList<>();
+                for (MimePart part : parts) {
+                    assertTrue(eml + " " + mode, part.getBody() instanceof MimeBytes);
+                    actual.add(part.getAttachName() + ":" + digest(part.getInputStream()));
+                }
+                assertEquals(eml + " " + mode, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testSegmentBoundaries() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            byte[] data = Files.readAllBytes(EmlFixtures.file(eml).toPath());
+            List<String> expected = describe(EmlMessage.of(data));
+            ByteBuffer[] segments = new ByteBuffer[(data.length + 63) / 64];
+            for (int i = 0; i < segments.length; i++) {
+                int from = i * 64;
+                segments[i] = ByteBuffer.wrap(data, from, Math.min(64, data.length - from)).slice();
+            }
+            MimeInputStream in = new SegmentedMimeInputStream(segments);
+            List<String> headers = MimePart.parseHeaders(in);
+            MultiMimePart message = new MultiMimePart(headers, in.newStream(in.getPosition(), in.getSize()));
+            assertEquals(eml, expected, describe(message));
+        }
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            List<String> expected = describe(EmlMessage.of(Files.readAllBytes(file.toPath())));
+            Path gz = Files.createTempFile("eml-parser", ".eml.gz");
+            try {
+                try (InputStream in = Files.newInputStream(file.toPath()); OutputStream out = Files.newOutputStream(gz)) {
+                    GzipMimeInputStream.compress(in, out, 4096);
+                }
+                assertEquals(eml, expected, describe(EmlMessage.of(MimeInputStream.gzip(gz))));
+            } finally {
+                Files.delete(gz);
+            }
+        }
+    }
+
+    @Test
+    public void testBufferPool() throws IOException {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024);
+        MultipartParser parser = QuicklyAttachmentParser.builder().bufferPool(pool).build();
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            List<String> expected = describe(EmlMessage.of(Files.readAllBytes(file.toPath())));
+            EmlMessage message = EmlMessage.of(file);
+            List<MimePart> parts = parser.parse(message);
+            long retained = pool.getRetainedBytes();
+            assertEquals(eml, expected, describe(message, parts));
+            // 邮件已关闭，但附件内容体仍引用借出的数组
+            assertEquals(eml, retained, pool.getRetainedBytes());
+            for (MimePart part : parts) {
+                part.close();
+            }
+            assertTrue(eml, pool.getRetainedBytes() > retained);
+        }
+    }
+
+    @Test
+    public void testBufferPoolCursorAfterClose() throws IOException {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024);
+        MultipartParser parser = QuicklyAttachmentParser.builder().bufferPool(pool).build();
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            byte[] data = Files.readAllBytes(file.toPath());
+            List<String> expected = describe(EmlMessage.of(data));
+            EmlMessage message = EmlMessage.of(file);
+            Iterator<MimePart> iterator = parser.iterator(message);
+            message.close();
+            // 同样大小但 boundary 行被破坏的邮件：数组若已在邮件关闭时归还，将被复用并覆盖
+            byte[] other = data.clone();
+            for (int i = 2; i < other.length; i++) {
+                if (other[i - 2] == '\n' && other[i - 1] == '-' && other[i] == '-') {
+                    other[i - 1] = '_';
+                }
+            }
+            Path path = Files.createTempFile("eml-parser", ".eml");
+            try {
+                Files.write(path, other);
+                try (EmlMessage overwrite = EmlMessage.of(path.toFile())) {
+                    parser.parse(overwrite);
+                }
+            } finally {
+                Files.delete(path);
+            }
+            List<MimePart> parts = new ArrayList<>();
+            iterator.forEachRemaining(parts::add);
+            long retained = pool.getRetainedBytes();
+            assertEquals(eml, expected, describe(message, parts));
+            for (MimePart part : parts) {
+                part.close();
+            }
+            // 游标扫描完毕且附件内容体全部关闭后数组归还
+            assertTrue(eml, pool.getRetainedBytes() > retained);
+        }
+    }
+
+    @Test
+    public void testBoundarySearchers() throws IOException {
+        BoundarySearcher.Factory[] factories = {BoundarySearcher.NAIVE, BoundarySearcher.HORSPOOL, BoundarySearcher.SWAR, BoundarySearcher.SCAN};
+        for (BoundarySearcher.Factory factory : factories) {
+            MultipartParser parser = QuicklyAttachmentParser.builder().boundarySearcher(factory).build();
+            for (String eml : EmlFixtures.EMLS) {
+                File file = EmlFixtures.file(eml);
+                List<String> expected = describe(EmlMessage.of(Files.readAllBytes(file.toPath())));
+                EmlMessage message = EmlMessage.of(file);
+                assertEquals(eml, expected, describe(message, parser.parse(message)));
+            }
+        }
+    }
+
+    @Test
+    public void testBoundarySearcherEquivalence() {
+        Random random = new Random(20250814L);
+        for (int round = 0; round < 200; round++) {
+            // 小字母表使部分匹配频繁出现
+            byte[] data = new byte[random.nextInt(600)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) "-ab\r\n".charAt(random.nextInt(5));
+            }
+            byte[] pattern = new byte[1 + random.nextInt(8)];
+            pattern[0] = '-';
+            for (int i = 1; i < pattern.length; i++) {
+                pattern[i] = (byte) "-ab".charAt(random.nextInt(3));
+            }
+            if (data.length > pattern.length && random.nextBoolean()) {
+                System.arraycopy(pattern, 0, data, random.nextInt(data.length - pattern.length), pattern.length);
+            }
+            MimeBytes[] views = {new ByteArrayMimeInputStream(data), segmented(data, 16)};
+            BoundarySearcher naive = BoundarySearcher.NAIVE.compile(pattern);
+            BoundarySearcher[] searchers = {BoundarySearcher.HORSPOOL.compile(pattern), BoundarySearcher.SWAR.compile(pattern),
+                    BoundarySearcher.SCAN.compile(pattern)};
+            for (MimeBytes view : views) {
+                for (int k = 0; k < 5; k++) {
+                    long from = data.length == 0 ? 0 : random.nextInt(data.length);
+                    long to = from + random.nextInt(data.length - (int) from + 1);
+                    long expected = naive.indexOf(view, from, to);
+                    for (BoundarySearcher searcher : searchers) {
+                        assertEquals(searcher + " " + from + "-" + to, expected, searcher.indexOf(view, from, to));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBoundarySearcherPositions() {
+        byte[] pattern = "--=_Part_42".getBytes();
+        byte[] alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+        byte[] content = new byte[100];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = alphabet[random.nextInt(64)];
+        }
+        BoundarySearcher.Factory[] factories = {BoundarySearcher.NAIVE, BoundarySearcher.HORSPOOL, BoundarySearcher.SWAR, BoundarySearcher.SCAN};
+        for (BoundarySearcher.Factory factory : factories) {
+            BoundarySearcher searcher = factory.compile(pattern);
+            // 逐个位置放入模式：覆盖开头、结尾，以及跨越 8 字节字与 16 字节分段边界的各种对齐
+            for (int pos = 0; pos <= content.length - pattern.length; pos++) {
+                byte[] data = content.clone();
+                System.arraycopy(pattern, 0, data, pos, pattern.length);
+                for (MimeBytes view : new MimeBytes[]{new ByteArrayMimeInputStream(data), segmented(data, 16)}) {
+                    String message = searcher + " at " + pos;
+                    assertEquals(message, pos, searcher.indexOf(view, 0, data.length));
+                    assertEquals(message, pos, searcher.indexOf(view, pos, pos + pattern.length));
+                    // 匹配必须完整位于搜索范围内
+                    assertEquals(message, -1, searcher.indexOf(view, 0, pos + pattern.length - 1));
+                    assertEquals(message, -1, searcher.indexOf(view, pos + 1, data.length));
+                }
+            }
+            // 没有匹配：内容中不含模式，或只有不完整的前缀
+            byte[] data = content.clone();
+            System.arraycopy(pattern, 0, data, 40, pattern.length - 1);
+            System.arraycopy(pattern, 0, data, data.length - pattern.length + 1, pattern.length - 1);
+            for (byte[] bytes : new byte[][]{content, data, new byte[0]}) {
+                for (MimeBytes view : new MimeBytes[]{new ByteArrayMimeInputStream(bytes), segmented(bytes, 16)}) {
+                    assertEquals(searcher.toString(), -1, searcher.indexOf(view, 0, bytes.length));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelScan() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // 阈值为 1 时每一层都并行扫描
+            MultipartParser parser = QuicklyAttachmentParser.builder().parallelScan(pool, 1).build();
+            for (String eml : EmlFixtures.EMLS) {
+                File file = EmlFixtures.file(eml);
+                List<String> expected = describe(EmlMessage.of(Files.readAllBytes(file.toPath())));
+                EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED);
+                assertEquals(eml, expected, describe(message, parser.parse(message)));
+            }
+
+            // 数百个附件的大邮件，boundary 会落在分段边界附近
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write("Content-Type: multipart/mixed; boundary=\"=_b\"\r\n\r\n".getBytes());
+            Random random = new Random(7);
+            for (int i = 0; i < 300; i++) {
+                out.write(("--=_b\r\nContent-Disposition: attachment; filename=\"" + i + ".bin\"\r\n\r\n").getBytes());
+                byte[] content = new byte[random.nextInt(40000)];
+                for (int j = 0; j < content.length; j++) {
+                    content[j] = (byte) "AB-\r\n".charAt(random.nextInt(5));
+                }
+                out.write(content);
+                out.write("\r\n".getBytes());
+            }
+            out.write("--=_b--\r\n".getBytes());
+            byte[] data = out.toByteArray();
+            List<String> expected = describe(EmlMessage.of(data));
+            assertEquals(300, expected.size());
+            EmlMessage message = EmlMessage.of(data);
+            assertEquals(expected, describe(message, parser.parse(message)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelScanSegments() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(20250825L);
+            for (int round = 0; round < 100; round++) {
+                byte[] data = new byte[random.nextInt(2000)];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = (byte) "-ab\r\n".charAt(random.nextInt(5));
+                }
+                byte[] pattern = new byte[1 + random.nextInt(6)];
+                pattern[0] = '-';
+                for (int i = 1; i < pattern.length; i++) {
+                    pattern[i] = (byte) "-ab".charAt(random.nextInt(3));
+                }
+                BoundarySearcher searcher = BoundarySearcher.HORSPOOL.compile(pattern);
+                for (MimeBytes view : new MimeBytes[]{new ByteArrayMimeInputStream(data), segmented(data, 16)}) {
+                    long from = data.length == 0 ? 0 : random.nextInt(data.length);
+                    long to = from + random.nextInt(data.length - (int) from + 1);
+                    List<Long> expected = new ArrayList<>();
+                    for (long pos = from, index; (index = searcher.indexOf(view, pos, to)) >= 0; pos = index + 1) {
+                        expected.add(index);
+                    }
+                    // 段大小小于模式长度时，匹配可能跨越多个段
+                    for (long segmentSize : new long[]{1, 3, 7, 64, 4096}) {
+                        long[] found = ParallelBoundaryScanner.scan(pool, searcher, pattern.length, view, from, to, segmentSize);
+                        List<Long> actual = new ArrayList<>();
+                        for (long index : found) {
+                            actual.add(index);
+                        }
+                        assertEquals(segmentSize + " " + from + "-" + to, expected, actual);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimeSlicedScan() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            List<String> expected = describe(EmlMessage.of(file, FileAccessMode.MAPPED));
+            for (long budget : new long[]{7, 997, 64 * 1024}) {
+                EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED);
+                QuicklyAttachmentParser.Scan scan = QuicklyAttachmentParser.getInstance().scan(message);
+                List<MimePart> parts = new ArrayList<>();
+                int slices = 0;
+                while (!scan.isDone()) {
+                    MimePart part = scan.next(budget);
+                    if (part != null) {
+                        parts.add(part);
+                    }
+                    slices++;
+                }
+                // 预算远小于 part 大小时扫描会多次挂起
+                assertTrue(eml, budget > 7 || slices > 10 * parts.size());
+                assertEquals(eml + " budget " + budget, expected, describe(message, parts));
+            }
+        }
+        QuicklyAttachmentParser.Scan scan = QuicklyAttachmentParser.getInstance()
+                .scan(EmlMessage.of("Subject: plain\r\n\r\ntext".getBytes()));
+        assertTrue(scan.isDone());
+    }
+
+    @Test
+    public void testSinglePass() throws IOException {
+        QuicklyAttachmentParser parser = QuicklyAttachmentParser.builder().singlePass(true).build();
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            List<String> expected = describe(EmlMessage.of(file, FileAccessMode.MAPPED));
+            EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED);
+            assertEquals(eml, expected, describe(message, parser.parse(message)));
+            message = EmlMessage.of(file, FileAccessMode.MAPPED);
+            QuicklyAttachmentParser.Scan scan = parser.scan(message);
+            List<MimePart> parts = new ArrayList<>();
+            while (!scan.isDone()) {
+                MimePart part = scan.next(7);
+                if (part != null) {
+                    parts.add(part);
+                }
+            }
+            assertEquals(eml, expected, describe(message, parts));
+        }
+
+        // mixed > alternative > related 三层嵌套，内容中含有 "--" 与 boundary 的前缀
+        Random random = new Random(23);
+        for (int round = 0; round < 20; round++) {
+            StringBuilder eml = new StringBuilder("Content-Type: multipart/mixed; boundary=\"=_m\"\r\n\r\npreamble --=_\r\n");
+            nested(eml, random, "=_m", 0);
+            byte[] data = eml.toString().getBytes(StandardCharsets.ISO_8859_1);
+            assertEquals(leaves(QuicklyAttachmentParser.getInstance(), data), leaves(parser, data));
+            assertEquals(describe(EmlMessage.of(data)), describe(EmlMessage.of(data), parser.parse(EmlMessage.of(data))));
+        }
+    }
+
+    private static void nested(StringBuilder eml, Random random, String boundary, int depth) {
+        int parts = 1 + random.nextInt(3);
+        for (int i = 0; i < parts; i++) {
+            eml.append("--").append(boundary).append("\r\n");
+            if (depth < 2 && random.nextBoolean()) {
+                String child = "=" + random.nextInt(1000000) + "_";
+                eml.append("Content-Type: multipart/").append(depth == 0 ? "alternative" : "related")
+                        .append(";\r\n boundary=\"").append(child).append("\"\r\n\r\n");
+                nested(eml, random, child, depth + 1);
+            } else {
+                if (random.nextBoolean()) {
+                    eml.append("Content-Disposition: attachment; filename=\"").append(boundary).append(i).append(".txt\"\r\n");
+                }
+                eml.append("Content-Type: text/plain\r\n\r\n");
+                for (int j = random.nextInt(200); j > 0; j--) {
+                    eml.append("ab-\r\n=_".charAt(random.nextInt(7)));
+                }
+                eml.append("\r\n");
+            }
+        }
+        // 缺少结束边界时，剩余数据属于最后一个 part
+        if (depth == 0 || random.nextInt(4) > 0) {
+            eml.append("--").append(boundary).append("--\r\n");
+        }
+    }
+
+    /**
+     * 访问所有非 multipart 的 part，返回其深度与范围
+     */
+    private static List<String> leaves(QuicklyAttachmentParser parser, byte[] data) throws IOException {
+        List<String> leaves = new ArrayList<>();
+        try (EmlMessage message = EmlMessage.of(data)) {
+            parser.visitLeaves((MimeBytes) message.getBody(), message.getBoundary(), (depth, partStart, bodyStart, partEnd, info) ->
+                    leaves.add(depth + ":" + partStart + "-" + bodyStart + "-" + partEnd + ":" + info.attachName()));
+        }
+        return leaves;
+    }
+
+    private static MimeBytes segmented(byte[] data, int segmentSize) {
+        ByteBuffer[] segments = new ByteBuffer[Math.max(1, (data.length + segmentSize - 1) / segmentSize)];
+        for (int i = 0; i < segments.length; i++) {
+            int from = Math.min(i * segmentSize, data.length);
+            segments[i] = ByteBuffer.wrap(data, from, Math.min(segmentSize, data.length - from)).slice();
+        }
+        return new SegmentedMimeInputStream(segments);
+    }
+
+    /**
+     * 用快速解析器解析邮件，返回每个附件的文件名及解码后内容的摘要
+     */
+    static List<String> describe(MultiMimePart message) throws IOException {
+        return describe(message, MultipartParser.quickly().parse(message));
+    }
+
+    static List<String> describe(MultiMimePart message, List<MimePart> parts) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (MultiMimePart ignored = message) {
+            for (MimePart part : parts) {
+                result.add(part.getAttachName() + ":" + digest(part.getInputStream()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按头部、附件名与内容摘要描述各部分，用于比较不同解析器的结果；描述后关闭各部分的内容体。
+     */
+    static List<String> describeParts(List<MimePart> parts) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (MimePart part : parts) {
+            result.add(part.getHeaders() + ":" + part.getAttachName() + ":" + digest(part.getInputStream()));
+            part.getBody().close();
+        }
+        return result;
+    }
+
+    static String digest(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(in, out);
+        byte[] bytes = out.toByteArray();
+        return bytes.length + "/" + Arrays.hashCode(bytes);
+    }
+}
@@ -0,0 +1,232 @@
+package io.github.jaloon.eml.parser;
+
+import io.github.jaloon.eml.EmlFixtures;
+import io.github.jaloon.eml.EmlMessage;
+import io.github.jaloon.eml.io.FileAccessMode;
+import io.github.jaloon.eml.io.MimeInputStream;
+import io.github.jaloon.eml.part.MimePart;
+import io.github.jaloon.eml.part.MultiMimePart;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingMimeParserTest {
+    @Test
+    public void testEventsMatchStandard() throws IOException {
+        for (String eml : EmlFixtures.EMLS) {
+            File file = EmlFixtures.file(eml);
+            byte[] data = Files.readAllBytes(file.toPath());
+            List<String> expected;
+            try (EmlMessage message = EmlMessage.of(data)) {
+                expected = walk(message);
+            }
+            assertTrue(eml, expected.size() > 1);
+            assertEquals(eml, expected, stream(new ByteArrayInputStream(data)));
+            // 逐个小块读取，覆盖跨数据块的 \r\n
+            assertEquals(eml, expected, stream(new TrickleInputStream(new ByteArrayInputStream(data), 7)));
+            try (EmlMessage message = EmlMessage.of(file, FileAccessMode.MAPPED)) {
+                Recorder recorder = new Recorder();
+                assertTrue(StreamingMimeParser.parse(message, recorder));
+                assertEquals(eml, expected, recorder.events);
+            }
+        }
+    }
+
+    @Test
+    public void testNestedAndLongLines() throws IOException {
+        char[] longLine = new char[200 * 1024];
+        Arrays.fill(longLine, 'x');
+        String eml = "Content-Type: multipart/mixed; boundary=\"b1\"\r\n"
+                + "\r\n"
+                + "preamble\r\n"
+                + "--b1\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + "hello\r\n"
+                + "--b1\r\n"
+                + "Content-Type: multipart/alternative;\r\n"
+                + "\tboundary=\"b2\"\r\n"
+                + "\r\n"
+                + "--b2\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + new String(longLine) + "--b2\r\n"
+                + "Content-Type: text/html\r\n"
+                + "\r\n"
+                + "<p>hi</p>\n"
+                + "--b2--\r\n"
+                + "--b1\r\n"
+                + "Content-Disposition: attachment; filename=\"a.bin\"\r\n"
+                + "\r\n"
+                + "AAAA\r"
+                + "--b1--\r\n"
+                + "epilogue\r\n";
+        byte[] data = eml.getBytes(StandardCharsets.ISO_8859_1);
+        List<String> expected;
+        try (EmlMessage message = EmlMessage.of(data)) {
+            expected = walk(message);
+        }
+        assertEquals(6, expected.size());
+        assertEquals(expected, stream(new ByteArrayInputStream(data)));
+        assertEquals(expected, stream(new TrickleInputStream(new ByteArrayInputStream(data), 3)));
+    }
+
+    @Test
+    public void testStopEarly() throws IOException {
+        byte[] padding = new byte[4 << 20];
+        Arrays.fill(padding, (byte) 'A');
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n"
+                + "--b\r\nContent-Disposition: attachment; filename=\"a.txt\"\r\n\r\nabc\r\n"
+                + "--b\r\nContent-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.write(padding);
+        out.write("\r\n--b--\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        byte[] data = out.toByteArray();
+
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(data));
+        boolean completed = StreamingMimeParser.parse(in, new MimeHandler() {
+            @Override
+            public boolean header(String header) {
+                return !header.startsWith("Content-Disposition: attachment");
+            }
+        });
+        assertFalse(completed);
+        assertTrue(in.count < data.length / 4);
+
+        // 结束边界之后的 epilogue 不会被读取
+        out.write(padding);
+        data = out.toByteArray();
+        in = new CountingInputStream(new ByteArrayInputStream(data));
+        assertTrue(StreamingMimeParser.parse(in, new MimeHandler() {}));
+        assertTrue(in.count < data.length - padding.length / 2);
+    }
+
+    private static List<String> stream(InputStream in) throws IOException {
+        Recorder recorder = new Recorder();
+        assertTrue(StreamingMimeParser.parse(in, recorder));
+        assertEquals(0, recorder.open.size());
+        return recorder.events;
+    }
+
+    /**
+     * 用标准解析器递归展开邮件，按先序记录每个实体的深度、头部和原始内容体摘要
+     */
+    private static List<String> walk(MultiMimePart message) throws IOException {
+        List<String> events = new ArrayList<>();
+        walk(message.getHeaders(), message.getBody(), 0, events);
+        return events;
+    }
+
+    private static void walk(List<String> headers, MimeInputStream body, int depth, List<String> events) throws IOException {
+        if (boundaryOf(headers) == null) {
+            events.add(describe(depth, headers, EmlFixtures.readAll(body)));
+            return;
+        }
+        events.add(describe(depth, headers, new byte[0]));
+        for (MimePart part : MultipartParser.standard().parse(new MultiMimePart(headers, body))) {
+            walk(part.getHeaders(), part.getBody(), depth + 1, events);
+        }
+    }
+
+    private static String boundaryOf(List<String> headers) {
+        for (String header : headers) {
+            if (header.startsWith("Content-Type:")) {
+                String contentType = header.substring(13).trim();
+                String boundary = contentType.startsWith("multipart/") ? MimePart.getHeadItem(contentType, "boundary") : null;
+                return boundary == null || boundary.isEmpty() ? null : boundary;
+            }
+        }
+        return null;
+    }
+
+    private static String describe(int depth, List<String> headers, byte[] body) {
+        return depth + " " + headers + " " + body.length + "/" + Arrays.hashCode(body);
+    }
+
+    /**
+     * 按先序记录事件，实体结束时补全其内容体摘要
+     */
+    private static class Recorder implements MimeHandler {
+        final List<String> events = new ArrayList<>();
+        final List<Object[]> open = new ArrayList<>();
+
+        @Override
+        public boolean startPart(int depth) {
+            assertEquals(open.size(), depth);
+            open.add(new Object[]{depth, new ArrayList<String>(), new ByteArrayOutputStream(), events.size()});
+            events.add(null);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean header(String header) {
+            ((List<String>) open.get(open.size() - 1)[1]).add(header);
+            return true;
+        }
+
+        @Override
+        public boolean bodyChunk(byte[] b, int off, int len) {
+            ((ByteArrayOutputStream) open.get(open.size() - 1)[2]).write(b, off, len);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean endPart() {
+            Object[] entity = open.remove(open.size() - 1);
+            byte[] body = ((ByteArrayOutputStream) entity[2]).toByteArray();
+            events.set((Integer) entity[3], describe((Integer) entity[0], (List<String>) entity[1], body));
+            return true;
+        }
+    }
+
+    /**
+     * 每次最多返回指定字节数的输入流
+     */
+    private static class TrickleInputStream extends FilterInputStream {
+        private final int max;
+
+        TrickleInputStream(InputStream in, int max) {
+            super(in);
+            this.max = max;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, max));
+        }
+    }
+
+    /**
+     * 统计已读取字节数的输入流
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}